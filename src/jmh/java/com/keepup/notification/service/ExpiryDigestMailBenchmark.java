@@ -0,0 +1,86 @@
+package com.keepup.notification.service;
+
+import com.keepup.notification.dto.AlertMailView;
+import com.keepup.notification.template.LocalizedMail;
+import com.keepup.notification.template.MailTemplate;
+import com.keepup.notification.template.MailTemplates;
+import com.keepup.notification.template.RenderedMail;
+import com.keepup.vehicle.enums.DocumentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de componer el correo resumen de vencimientos (modelo + asunto, texto y HTML) por mensaje.
+ *
+ * parseEveryTime compila las plantillas en cada correo: es lo que se ahorra al compilarlas una vez.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExpiryDigestMailBenchmark {
+
+    private LocalizedMail mail;
+    private List<AlertMailView> single;
+    private List<AlertMailView> digest;
+    private String textSource;
+    private String htmlSource;
+
+    @Setup
+    public void setUp() throws IOException {
+        MailTemplates templates = new MailTemplates(new DefaultResourceLoader(), "classpath:mail/",
+                Locale.forLanguageTag("es-CO"), Duration.ZERO);
+        mail = templates.get(ExpiryDigestMail.TEMPLATE, templates.defaultLocale());
+        single = alerts(1);
+        digest = alerts(10);
+        textSource = new ClassPathResource("mail/es/expiry-digest.txt").getContentAsString(StandardCharsets.UTF_8);
+        htmlSource = new ClassPathResource("mail/es/expiry-digest.html").getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public RenderedMail singleAlert() {
+        return mail.render(ExpiryDigestMail.model(mail, single));
+    }
+
+    @Benchmark
+    public RenderedMail digestOfTen() {
+        return mail.render(ExpiryDigestMail.model(mail, digest));
+    }
+
+    @Benchmark
+    public String parseEveryTime() {
+        return MailTemplate.compile("txt", textSource, false).render(ExpiryDigestMail.model(mail, digest))
+                + MailTemplate.compile("html", htmlSource, true).render(ExpiryDigestMail.model(mail, digest));
+    }
+
+    private static List<AlertMailView> alerts(int count) {
+        DocumentType[] types = DocumentType.values();
+        List<AlertMailView> alerts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            alerts.add(new AlertMailView((long) i, 1L, "ana@mail.com", "Ana María <Pérez>",
+                    String.format("ABC%03d", i), types[i % types.length], LocalDate.of(2030, 1, 10).plusDays(i), 7));
+        }
+        return alerts;
+    }
+}
@@ -2,12 +2,22 @@ package com.keepup;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+
+import java.util.Map;
 
 @SpringBootApplication
 public class KeepupApiApplication {
 
+	// Pasos de arranque que se guardan para el informe de StartupReporter
+	public static final int STARTUP_STEPS_CAPACITY = 10_000;
+
 	public static void main(String[] args) {
-		SpringApplication.run(KeepupApiApplication.class, args);
+		SpringApplication application = new SpringApplication(KeepupApiApplication.class);
+		application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS_CAPACITY));
+		// Sondas liveness/readiness (/actuator/health/readiness) también fuera de Kubernetes
+		application.setDefaultProperties(Map.of("management.endpoint.health.probes.enabled", "true"));
+		application.run(args);
 	}
 
 }
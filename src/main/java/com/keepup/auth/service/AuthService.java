@@ -7,6 +7,7 @@ import com.keepup.auth.entity.Role;
 import com.keepup.auth.entity.User;
 import com.keepup.auth.repository.RoleRepository;
 import com.keepup.auth.repository.UserRepository;
+import com.keepup.core.exception.ConflictException;
 import com.keepup.core.security.CustomerDetails;
 import com.keepup.core.security.JwtUtil;
 import lombok.RequiredArgsConstructor;
@@ -29,7 +30,7 @@ public class AuthService {
     // --- Metodo de registro--
     public AuthResponse register(RegisterRequest request) {
         if (userRepository.existsByEmail(request.getEmail())) {
-            throw new RuntimeException("El email ya está registrado");
+            throw new ConflictException("El email ya está registrado");
         }
 
         Role userRole = roleRepository.findByName("ROLE_CLIENT")
@@ -0,0 +1,43 @@
+package com.keepup.core.batch;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controlador REST de peticiones en lote.
+ *
+ * Base URL: /api/v1/batch
+ */
+@RestController
+@RequestMapping("/api/v1/batch")
+@RequiredArgsConstructor
+public class BatchController {
+
+    private final BatchService batchService;
+
+    /**
+     * Ejecutar varias peticiones GET en una sola llamada.
+     *
+     * POST /api/v1/batch
+     * {"requests": [{"id": "count", "path": "/api/v1/vehicles/count"},
+     *               {"id": "plate", "path": "/api/v1/vehicles/exists/license-plate/ABC123"}]}
+     *
+     * @param batch Peticiones del lote
+     * @param authentication Usuario autenticado
+     * @return 200 OK con una respuesta por petición (cada una con su propio estado), 413 si el lote
+     *         tiene demasiadas peticiones
+     */
+    @PostMapping
+    public ResponseEntity<BatchResponse> execute(
+            @Valid @RequestBody BatchRequest batch,
+            HttpServletRequest request,
+            HttpServletResponse response,
+            Authentication authentication) {
+        return ResponseEntity.ok(batchService.execute(batch, request, response, authentication));
+    }
+}
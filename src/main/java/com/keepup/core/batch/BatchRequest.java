@@ -0,0 +1,23 @@
+package com.keepup.core.batch;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+/**
+ * Lote de peticiones a rutas existentes de /api/v1.
+ *
+ * @param requests Peticiones del lote; las respuestas vuelven en el mismo orden
+ */
+public record BatchRequest(@NotEmpty List<@Valid Item> requests) {
+
+    /**
+     * @param id Identificador elegido por el cliente, único dentro del lote
+     * @param method Método HTTP (solo GET; GET si se omite)
+     * @param path Ruta con query string, p. ej. /api/v1/vehicles/count o /api/v1/alerts?limit=5
+     */
+    public record Item(@NotBlank String id, String method, @NotBlank String path) {
+    }
+}
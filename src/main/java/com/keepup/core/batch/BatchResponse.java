@@ -0,0 +1,22 @@
+package com.keepup.core.batch;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Respuestas de un lote, en el orden de las peticiones.
+ */
+public record BatchResponse(List<Result> responses) {
+
+    /**
+     * @param id Identificador de la petición
+     * @param status Estado HTTP de la respuesta
+     * @param headers Cabeceras de la respuesta (Content-Type, ETag, ...)
+     * @param body Cuerpo JSON tal cual lo devolvió la ruta (un texto se devuelve como cadena JSON y
+     *             un contenido binario se omite: hay que pedirlo fuera del lote)
+     */
+    public record Result(String id, int status, Map<String, String> headers, @JsonRawValue String body) {
+    }
+}
@@ -0,0 +1,302 @@
+package com.keepup.core.batch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.keepup.core.exception.BadRequestException;
+import com.keepup.core.exception.PayloadTooLargeException;
+import com.keepup.core.exception.ProblemResponses;
+import com.keepup.core.tracing.Tracer;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.access.WebInvocationPrivilegeEvaluator;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ejecuta un lote de peticiones GET a /api/v1 dentro de una sola petición HTTP, para que un
+ * cliente con mucha latencia (la app móvil) haga una ida y vuelta en lugar de una por consulta.
+ *
+ * La autenticación ocurre una vez, en JwtRequestFilter, para la petición del lote. Cada
+ * subpetición se despacha directamente al DispatcherServlet ({@link SubRequest} /
+ * {@link SubResponse}) con ese mismo usuario, sin volver a pasar por los filtros; por eso las
+ * reglas de autorización por URL de WebSecurityConfig (p. ej. /api/v1/admin/** solo para
+ * administradores) se comprueban aquí con el {@link WebInvocationPrivilegeEvaluator} de la
+ * cadena de seguridad. Pasan por los mismos controladores y manejadores de errores que una
+ * petición normal, así que cada respuesta es idéntica a la que devolvería la ruta por separado.
+ *
+ * Solo se admite GET: las lecturas son independientes entre sí y se ejecutan a la vez en hilos
+ * virtuales, sin orden entre ellas. Una subpetición mal formada o prohibida recibe su propio
+ * estado de error y no afecta a las demás.
+ *
+ * Cada cuerpo se guarda en memoria hasta que responde el lote, así que solo se admiten respuestas
+ * JSON o de texto de hasta keepup.batch.max-body-size: otro tipo de contenido (descargas de
+ * archivos, imágenes) recibe 406 y un cuerpo mayor 413; esas rutas se piden por separado.
+ *
+ * Límites:
+ * - keepup.batch.max-requests: peticiones por lote (20); con más se responde 413
+ * - keepup.batch.concurrency: subpeticiones de un mismo lote en curso a la vez (4)
+ * - keepup.batch.max-in-flight: subpeticiones en curso entre todos los lotes (32); protege el pool
+ *   de conexiones, y la que no consigue turno antes del plazo recibe 503
+ * - keepup.batch.timeout: plazo del lote completo (PT5S); lo que no termina a tiempo se cancela
+ *   y recibe 504
+ * - keepup.batch.max-body-size: cuerpo de cada subrespuesta (1MB); la escritura que lo supera
+ *   corta la subpetición
+ */
+@Slf4j
+@Service
+public class BatchService {
+
+    static final String API_PREFIX = "/api/v1/";
+    static final String BATCH_PATH = "/api/v1/batch";
+
+    private final DispatcherServlet dispatcherServlet;
+    private final WebInvocationPrivilegeEvaluator privilegeEvaluator;
+    private final ObjectMapper objectMapper;
+    private final Tracer tracer;
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("batch-", 0).factory());
+    private final Semaphore inFlight;
+    private final int maxRequests;
+    private final int concurrency;
+    private final Duration timeout;
+    private final int maxBodySize;
+
+    public BatchService(DispatcherServlet dispatcherServlet,
+                        WebInvocationPrivilegeEvaluator privilegeEvaluator,
+                        ObjectMapper objectMapper,
+                        Tracer tracer,
+                        @Value("${keepup.batch.max-requests:20}") int maxRequests,
+                        @Value("${keepup.batch.concurrency:4}") int concurrency,
+                        @Value("${keepup.batch.max-in-flight:32}") int maxInFlight,
+                        @Value("${keepup.batch.timeout:PT5S}") Duration timeout,
+                        @Value("${keepup.batch.max-body-size:1MB}") DataSize maxBodySize) {
+        this.dispatcherServlet = dispatcherServlet;
+        this.privilegeEvaluator = privilegeEvaluator;
+        this.objectMapper = objectMapper;
+        this.tracer = tracer;
+        this.maxRequests = maxRequests;
+        this.concurrency = concurrency;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.timeout = timeout;
+        this.maxBodySize = Math.toIntExact(maxBodySize.toBytes());
+    }
+
+    /**
+     * Ejecutar un lote.
+     *
+     * @param batch Peticiones del lote
+     * @param request Petición HTTP del lote
+     * @param response Respuesta HTTP del lote (solo para cumplir el tipo de las subrespuestas)
+     * @param authentication Usuario autenticado
+     * @throws PayloadTooLargeException si el lote supera keepup.batch.max-requests
+     * @throws BadRequestException si hay ids repetidos
+     */
+    public BatchResponse execute(BatchRequest batch, HttpServletRequest request, HttpServletResponse response,
+                                 Authentication authentication) {
+        List<BatchRequest.Item> items = batch.requests();
+        if (items.size() > maxRequests) {
+            throw new PayloadTooLargeException("A batch may contain at most " + maxRequests + " requests");
+        }
+        Set<String> ids = new HashSet<>();
+        for (BatchRequest.Item item : items) {
+            if (!ids.add(item.id())) {
+                throw new BadRequestException("Duplicate request id in batch: " + item.id());
+            }
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Semaphore batchPermits = new Semaphore(concurrency);
+        BatchResponse.Result[] results = new BatchResponse.Result[items.size()];
+        List<Future<BatchResponse.Result>> futures = new ArrayList<>(items.size());
+        AtomicBoolean[] waitingForSlot = new AtomicBoolean[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            BatchRequest.Item item = items.get(i);
+            results[i] = validate(item, request.getContextPath(), authentication);
+            if (results[i] != null) {
+                futures.add(null);
+                continue;
+            }
+            URI uri = URI.create(item.path());
+            SubRequest subRequest = new SubRequest(request, uri.getRawPath(), uri.getRawQuery(), authentication);
+            SubResponse subResponse = new SubResponse(response, uri.getRawPath(), maxBodySize);
+            AtomicBoolean waiting = waitingForSlot[i] = new AtomicBoolean();
+            futures.add(executor.submit(tracer.wrap("batch " + uri.getRawPath(),
+                    () -> run(item, subRequest, subResponse, authentication, batchPermits, waiting, deadline))));
+        }
+
+        for (int i = 0; i < items.size(); i++) {
+            if (futures.get(i) != null) {
+                results[i] = await(items.get(i), futures.get(i), waitingForSlot[i], deadline);
+            }
+        }
+        return new BatchResponse(List.of(results));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Error de una subpetición que no se puede ejecutar, o null si es válida.
+     */
+    private BatchResponse.Result validate(BatchRequest.Item item, String contextPath, Authentication authentication) {
+        if (item.method() != null && !"GET".equalsIgnoreCase(item.method())) {
+            return problem(item, HttpStatus.METHOD_NOT_ALLOWED, "Only GET requests can be batched");
+        }
+        URI uri;
+        try {
+            uri = new URI(item.path());
+        } catch (URISyntaxException e) {
+            return problem(item, HttpStatus.BAD_REQUEST, "Invalid path: " + e.getReason());
+        }
+        String path = uri.getRawPath();
+        // Sin esquema ni host, sin "." ni ".." y dentro de /api/v1 (salvo el propio lote)
+        if (uri.isAbsolute() || uri.getRawAuthority() != null || uri.getRawFragment() != null || path == null
+                || !path.startsWith(API_PREFIX) || !path.equals(uri.normalize().getRawPath())
+                || path.contains("//") || path.toLowerCase().contains("%2e") || path.toLowerCase().contains("%2f")) {
+            return problem(item, HttpStatus.BAD_REQUEST, "Path must be a normalized /api/v1 route");
+        }
+        if (path.equals(BATCH_PATH) || path.startsWith(BATCH_PATH + "/")) {
+            return problem(item, HttpStatus.BAD_REQUEST, "Batches cannot be nested");
+        }
+        if (!privilegeEvaluator.isAllowed(contextPath, path, "GET", authentication)) {
+            return problem(item, HttpStatus.FORBIDDEN, "Access denied");
+        }
+        return null;
+    }
+
+    private BatchResponse.Result run(BatchRequest.Item item, SubRequest request, SubResponse response,
+                                     Authentication authentication, Semaphore batchPermits,
+                                     AtomicBoolean waitingForSlot, long deadline) throws InterruptedException {
+        if (!batchPermits.tryAcquire(remaining(deadline), TimeUnit.NANOSECONDS)) {
+            return problem(item, HttpStatus.GATEWAY_TIMEOUT, "Batch timed out");
+        }
+        try {
+            waitingForSlot.set(true);
+            boolean acquired = inFlight.tryAcquire(remaining(deadline), TimeUnit.NANOSECONDS);
+            waitingForSlot.set(false);
+            if (!acquired) {
+                return tooManyInFlight(item);
+            }
+            SecurityContext context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(authentication);
+            SecurityContextHolder.setContext(context);
+            try {
+                dispatcherServlet.service(request, response);
+            } catch (Exception e) {
+                // Pasarse del límite de cuerpo corta la subpetición con una IOException: no es un fallo
+                if (!response.bodyTooLarge()) {
+                    log.warn("Batched request {} {} failed", item.id(), item.path(), e);
+                    return problem(item, HttpStatus.INTERNAL_SERVER_ERROR, null);
+                }
+            } finally {
+                SecurityContextHolder.clearContext();
+                inFlight.release();
+            }
+            return result(item, response);
+        } finally {
+            batchPermits.release();
+        }
+    }
+
+    private BatchResponse.Result await(BatchRequest.Item item, Future<BatchResponse.Result> future,
+                                       AtomicBoolean waitingForSlot, long deadline) {
+        try {
+            return future.get(remaining(deadline), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            // Vence a la vez que la espera de turno en run(): si aún no lo tenía, es un 503 y no un 504
+            if (waitingForSlot.get()) {
+                return tooManyInFlight(item);
+            }
+            log.warn("Batched request {} {} timed out after {}", item.id(), item.path(), timeout);
+            return problem(item, HttpStatus.GATEWAY_TIMEOUT, "Batch timed out");
+        } catch (ExecutionException | CancellationException e) {
+            log.warn("Batched request {} {} failed", item.id(), item.path(),
+                    e instanceof ExecutionException ? e.getCause() : e);
+            return problem(item, HttpStatus.INTERNAL_SERVER_ERROR, null);
+        } catch (InterruptedException e) {
+            // La petición del lote se abandona: las subpeticiones pendientes no se esperan
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return problem(item, HttpStatus.GATEWAY_TIMEOUT, "Batch timed out");
+        }
+    }
+
+    private BatchResponse.Result result(BatchRequest.Item item, SubResponse response) {
+        if (response.bodyTooLarge()) {
+            return problem(item, HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Response body exceeds " + maxBodySize + " bytes, request it outside the batch");
+        }
+        Map<String, String> headers = new LinkedHashMap<>();
+        response.headers().forEach((name, values) -> headers.put(name, String.join(", ", values)));
+        byte[] body = response.body();
+        MediaType contentType = response.headers().getContentType();
+        String json = null;
+        if (body.length > 0) {
+            if (contentType != null && (MediaType.APPLICATION_JSON.isCompatibleWith(contentType)
+                    || contentType.getSubtype().endsWith("+json"))) {
+                json = new String(body, contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8);
+            } else if (contentType != null && "text".equals(contentType.getType())) {
+                json = quote(new String(body, response.charset()));
+            } else {
+                // Un cuerpo binario no cabe en la respuesta JSON del lote
+                return problem(item, HttpStatus.NOT_ACCEPTABLE, "Only JSON and text responses can be batched");
+            }
+        }
+        return new BatchResponse.Result(item.id(), response.getStatus(), headers, json);
+    }
+
+    private static BatchResponse.Result tooManyInFlight(BatchRequest.Item item) {
+        return problem(item, HttpStatus.SERVICE_UNAVAILABLE, "Too many batched requests in flight, retry later");
+    }
+
+    private static BatchResponse.Result problem(BatchRequest.Item item, HttpStatus status, String detail) {
+        return new BatchResponse.Result(item.id(), status.value(),
+                Map.of(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_PROBLEM_JSON_VALUE),
+                new String(ProblemResponses.body(status, detail, item.path()), StandardCharsets.UTF_8));
+    }
+
+    private String quote(String text) {
+        try {
+            return objectMapper.writeValueAsString(text);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long remaining(long deadline) {
+        return Math.max(deadline - System.nanoTime(), 0);
+    }
+}
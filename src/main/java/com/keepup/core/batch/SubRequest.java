@@ -0,0 +1,568 @@
+package com.keepup.core.batch;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletConnection;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletMapping;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpUpgradeHandler;
+import jakarta.servlet.http.MappingMatch;
+import jakarta.servlet.http.Part;
+import jakarta.servlet.http.PushBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Petición GET de un lote tal como la ve el DispatcherServlet.
+ *
+ * Lo que depende de la petición HTTP original (contexto, host, conexión, idioma) se copia al
+ * crearla, en el hilo de esa petición: la subpetición se procesa en otro hilo y puede seguir viva
+ * (cancelada) después de que el contenedor haya reciclado la original, así que ningún método
+ * delega en ella. Los atributos son propios, porque Spring MVC guarda en ellos el handler y las
+ * variables de ruta de cada subpetición. El usuario es el autenticado en la petición del lote; no
+ * lleva cuerpo, partes, cookies, sesión ni más cabeceras que Accept y Accept-Language, y no admite
+ * procesamiento asíncrono (SSE, StreamingResponseBody), upgrade ni push.
+ */
+final class SubRequest extends HttpServletRequestWrapper {
+
+    private static final ServletInputStream EMPTY = new ServletInputStream() {
+        @Override
+        public boolean isFinished() {
+            return true;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read() {
+            return -1;
+        }
+    };
+
+    private static final HttpServletMapping SERVLET_MAPPING = new HttpServletMapping() {
+        @Override
+        public String getMatchValue() {
+            return "";
+        }
+
+        @Override
+        public String getPattern() {
+            return "/";
+        }
+
+        @Override
+        public String getServletName() {
+            return "dispatcherServlet";
+        }
+
+        @Override
+        public MappingMatch getMappingMatch() {
+            return MappingMatch.DEFAULT;
+        }
+    };
+
+    private final String path;
+    private final String query;
+    private final String contextPath;
+    private final String requestUrlPrefix;
+    private final String scheme;
+    private final String serverName;
+    private final int serverPort;
+    private final boolean secure;
+    private final String protocol;
+    private final String remoteAddr;
+    private final String remoteHost;
+    private final int remotePort;
+    private final String localAddr;
+    private final String localName;
+    private final int localPort;
+    private final String requestId;
+    private final ServletConnection servletConnection;
+    private final ServletContext servletContext;
+    private final Locale locale;
+    private final String acceptLanguage;
+    private final Authentication authentication;
+    private final Map<String, String[]> parameters;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+    /**
+     * @param request Petición HTTP del lote (solo se lee en el constructor)
+     * @param path Ruta sin contexto ni query string, tal como llegó (sin decodificar)
+     * @param query Query string sin decodificar, o null
+     */
+    SubRequest(HttpServletRequest request, String path, String query, Authentication authentication) {
+        super(request);
+        this.path = path;
+        this.query = query;
+        this.contextPath = request.getContextPath();
+        this.requestUrlPrefix = request.getScheme() + "://" + request.getServerName() + ":" + request.getServerPort();
+        this.scheme = request.getScheme();
+        this.serverName = request.getServerName();
+        this.serverPort = request.getServerPort();
+        this.secure = request.isSecure();
+        this.protocol = request.getProtocol();
+        this.remoteAddr = request.getRemoteAddr();
+        this.remoteHost = request.getRemoteHost();
+        this.remotePort = request.getRemotePort();
+        this.localAddr = request.getLocalAddr();
+        this.localName = request.getLocalName();
+        this.localPort = request.getLocalPort();
+        this.requestId = request.getRequestId();
+        this.servletConnection = request.getServletConnection();
+        this.servletContext = request.getServletContext();
+        this.locale = request.getLocale();
+        this.acceptLanguage = request.getHeader(HttpHeaders.ACCEPT_LANGUAGE);
+        this.authentication = authentication;
+        this.parameters = parse(query);
+    }
+
+    @Override
+    public String getMethod() {
+        return "GET";
+    }
+
+    @Override
+    public String getRequestURI() {
+        return contextPath + path;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        return new StringBuffer(requestUrlPrefix).append(getRequestURI());
+    }
+
+    @Override
+    public String getContextPath() {
+        return contextPath;
+    }
+
+    @Override
+    public String getServletPath() {
+        // El DispatcherServlet está mapeado en "/": la ruta entera es la del servlet
+        return URLDecoder.decode(path, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String getPathInfo() {
+        return null;
+    }
+
+    @Override
+    public String getQueryString() {
+        return query;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return servletContext;
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    @Override
+    public HttpServletMapping getHttpServletMapping() {
+        return SERVLET_MAPPING;
+    }
+
+    // ==================== CONEXIÓN ====================
+
+    @Override
+    public String getScheme() {
+        return scheme;
+    }
+
+    @Override
+    public String getServerName() {
+        return serverName;
+    }
+
+    @Override
+    public int getServerPort() {
+        return serverPort;
+    }
+
+    @Override
+    public boolean isSecure() {
+        return secure;
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public String getRemoteAddr() {
+        return remoteAddr;
+    }
+
+    @Override
+    public String getRemoteHost() {
+        return remoteHost;
+    }
+
+    @Override
+    public int getRemotePort() {
+        return remotePort;
+    }
+
+    @Override
+    public String getLocalAddr() {
+        return localAddr;
+    }
+
+    @Override
+    public String getLocalName() {
+        return localName;
+    }
+
+    @Override
+    public int getLocalPort() {
+        return localPort;
+    }
+
+    @Override
+    public String getRequestId() {
+        return requestId;
+    }
+
+    @Override
+    public String getProtocolRequestId() {
+        // Las subpeticiones no existen en el protocolo (no son streams HTTP/2)
+        return "";
+    }
+
+    @Override
+    public ServletConnection getServletConnection() {
+        return servletConnection;
+    }
+
+    @Override
+    public <T extends HttpUpgradeHandler> T upgrade(Class<T> handlerClass) {
+        throw new IllegalStateException("Protocol upgrades cannot be used in a batch");
+    }
+
+    @Override
+    public PushBuilder newPushBuilder() {
+        return null;
+    }
+
+    // ==================== PARÁMETROS Y CUERPO ====================
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameters.get(name);
+        return values != null ? values[0] : null;
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        String[] values = parameters.get(name);
+        return values != null ? values.clone() : null;
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    @Override
+    public String getContentType() {
+        return null;
+    }
+
+    @Override
+    public int getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return -1;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return StandardCharsets.UTF_8.name();
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        return EMPTY;
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        return new BufferedReader(new StringReader(""));
+    }
+
+    @Override
+    public Collection<Part> getParts() throws ServletException {
+        throw new ServletException("Not a multipart request");
+    }
+
+    @Override
+    public Part getPart(String name) throws ServletException {
+        throw new ServletException("Not a multipart request");
+    }
+
+    @Override
+    public boolean isTrailerFieldsReady() {
+        return true;
+    }
+
+    @Override
+    public Map<String, String> getTrailerFields() {
+        return Map.of();
+    }
+
+    // ==================== CABECERAS ====================
+
+    @Override
+    public String getHeader(String name) {
+        if (HttpHeaders.ACCEPT.equalsIgnoreCase(name)) {
+            return MediaType.APPLICATION_JSON_VALUE;
+        }
+        if (HttpHeaders.ACCEPT_LANGUAGE.equalsIgnoreCase(name)) {
+            return acceptLanguage;
+        }
+        return null;
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        String value = getHeader(name);
+        return Collections.enumeration(value != null ? List.of(value) : List.of());
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        return Collections.enumeration(acceptLanguage != null
+                ? List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_LANGUAGE)
+                : List.of(HttpHeaders.ACCEPT));
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        return -1;
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        return -1;
+    }
+
+    @Override
+    public Cookie[] getCookies() {
+        return null;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    @Override
+    public Enumeration<Locale> getLocales() {
+        return Collections.enumeration(List.of(locale));
+    }
+
+    // ==================== USUARIO ====================
+
+    @Override
+    public Principal getUserPrincipal() {
+        return authentication;
+    }
+
+    @Override
+    public String getRemoteUser() {
+        return authentication != null ? authentication.getName() : null;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        if (authentication == null) {
+            return false;
+        }
+        String authority = role.startsWith("ROLE_") ? role : "ROLE_" + role;
+        for (GrantedAuthority granted : authentication.getAuthorities()) {
+            if (authority.equals(granted.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String getAuthType() {
+        // La autenticación (JWT) ya se resolvió en la petición del lote
+        return null;
+    }
+
+    @Override
+    public boolean authenticate(HttpServletResponse response) {
+        return authentication != null;
+    }
+
+    @Override
+    public void login(String username, String password) throws ServletException {
+        throw new ServletException("Login is not supported in a batch");
+    }
+
+    @Override
+    public void logout() throws ServletException {
+        throw new ServletException("Logout is not supported in a batch");
+    }
+
+    // ==================== SESIÓN ====================
+
+    @Override
+    public HttpSession getSession(boolean create) {
+        if (create) {
+            throw new IllegalStateException("Sessions cannot be used in a batch");
+        }
+        return null;
+    }
+
+    @Override
+    public HttpSession getSession() {
+        return getSession(true);
+    }
+
+    @Override
+    public String getRequestedSessionId() {
+        return null;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdValid() {
+        return false;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromCookie() {
+        return false;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromURL() {
+        return false;
+    }
+
+    @Override
+    public String changeSessionId() {
+        throw new IllegalStateException("Sessions cannot be used in a batch");
+    }
+
+    // ==================== ATRIBUTOS ====================
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    // ==================== ASÍNCRONO ====================
+
+    @Override
+    public boolean isAsyncSupported() {
+        return false;
+    }
+
+    @Override
+    public boolean isAsyncStarted() {
+        return false;
+    }
+
+    @Override
+    public AsyncContext startAsync() {
+        throw new IllegalStateException("Asynchronous endpoints cannot be used in a batch");
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+        throw new IllegalStateException("Asynchronous endpoints cannot be used in a batch");
+    }
+
+    private static Map<String, String[]> parse(String query) {
+        Map<String, String[]> parameters = new LinkedHashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            parameters.merge(name, new String[]{value}, (existing, added) -> {
+                String[] merged = new String[existing.length + 1];
+                System.arraycopy(existing, 0, merged, 0, existing.length);
+                merged[existing.length] = added[0];
+                return merged;
+            });
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,375 @@
+package com.keepup.core.batch;
+
+import com.keepup.core.exception.ProblemResponses;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Respuesta de una subpetición guardada en memoria.
+ *
+ * Extiende el wrapper solo para cumplir el tipo: ningún método llega a la respuesta HTTP del lote,
+ * que puede estar ya enviada y reciclada cuando una subpetición cancelada termina.
+ *
+ * El cuerpo se corta en maxBodySize bytes: la escritura que lo supera falla con IOException (el
+ * controlador deja de generar, p. ej. una descarga deja de leer el archivo), no se guarda nada más
+ * y {@link #bodyTooLarge()} queda a true aunque después se reinicie el buffer.
+ */
+final class SubResponse extends HttpServletResponseWrapper {
+
+    private final String instance;
+    private final int maxBodySize;
+    private final HttpHeaders headers = new HttpHeaders();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private final OutputStream cappedBody = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            reserve(1);
+            body.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            reserve(len);
+            body.write(b, off, len);
+        }
+    };
+    private boolean bodyTooLarge;
+    private int status = SC_OK;
+    private Charset charset = StandardCharsets.UTF_8;
+    private boolean charsetSet;
+    private Locale locale = Locale.getDefault();
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+    private boolean committed;
+
+    /**
+     * @param response Respuesta del lote (no se usa)
+     * @param instance Ruta de la subpetición, para los errores RFC 7807
+     * @param maxBodySize Tamaño máximo del cuerpo que se guarda
+     */
+    SubResponse(HttpServletResponse response, String instance, int maxBodySize) {
+        super(response);
+        this.instance = instance;
+        this.maxBodySize = maxBodySize;
+    }
+
+    HttpHeaders headers() {
+        return headers;
+    }
+
+    byte[] body() {
+        if (writer != null) {
+            writer.flush();
+        }
+        return body.toByteArray();
+    }
+
+    Charset charset() {
+        return charset;
+    }
+
+    /**
+     * true si la subpetición intentó escribir más de maxBodySize bytes.
+     */
+    boolean bodyTooLarge() {
+        return bodyTooLarge;
+    }
+
+    private void reserve(int len) throws IOException {
+        if (bodyTooLarge || len > maxBodySize - body.size()) {
+            bodyTooLarge = true;
+            throw new IOException("Batched response body exceeds " + maxBodySize + " bytes");
+        }
+    }
+
+    // ==================== ESTADO ====================
+
+    @Override
+    public void setStatus(int sc) {
+        if (!committed) {
+            this.status = sc;
+        }
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public void sendError(int sc, String msg) {
+        if (committed) {
+            throw new IllegalStateException("Response already committed");
+        }
+        // Sin contenedor no hay página de error: se escribe directamente el problema RFC 7807
+        resetBuffer();
+        status = sc;
+        HttpStatus resolved = HttpStatus.resolve(sc);
+        if (resolved != null) {
+            setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+            body.writeBytes(ProblemResponses.body(resolved, msg, instance));
+        }
+        committed = true;
+    }
+
+    @Override
+    public void sendError(int sc) {
+        sendError(sc, null);
+    }
+
+    @Override
+    public void sendRedirect(String location) {
+        resetBuffer();
+        status = SC_FOUND;
+        headers.set(HttpHeaders.LOCATION, location);
+        committed = true;
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    @Override
+    public void reset() {
+        if (committed) {
+            throw new IllegalStateException("Response already committed");
+        }
+        headers.clear();
+        status = SC_OK;
+        charset = StandardCharsets.UTF_8;
+        charsetSet = false;
+        resetBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+        body.reset();
+    }
+
+    @Override
+    public void flushBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+        committed = true;
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+    }
+
+    @Override
+    public int getBufferSize() {
+        return body.size();
+    }
+
+    // ==================== CUERPO ====================
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        if (outputStream == null) {
+            outputStream = new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    cappedBody.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    cappedBody.write(b, off, len);
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (outputStream != null) {
+            throw new IllegalStateException("getOutputStream() has already been called");
+        }
+        if (writer == null) {
+            // PrintWriter se traga la IOException del límite: lo que sigue se descarta
+            writer = new PrintWriter(new OutputStreamWriter(cappedBody, charset));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentType(String type) {
+        if (type == null) {
+            headers.remove(HttpHeaders.CONTENT_TYPE);
+            return;
+        }
+        MediaType mediaType = MediaType.parseMediaType(type);
+        if (mediaType.getCharset() != null) {
+            setCharacterEncoding(mediaType.getCharset().name());
+        } else if (charsetSet) {
+            mediaType = new MediaType(mediaType, charset);
+        }
+        headers.setContentType(mediaType);
+    }
+
+    @Override
+    public String getContentType() {
+        MediaType contentType = headers.getContentType();
+        return contentType != null ? contentType.toString() : null;
+    }
+
+    @Override
+    public void setCharacterEncoding(String encoding) {
+        if (encoding == null || writer != null) {
+            return;
+        }
+        charset = Charset.forName(encoding);
+        charsetSet = true;
+        MediaType contentType = headers.getContentType();
+        if (contentType != null) {
+            headers.setContentType(new MediaType(contentType, charset));
+        }
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return charset.name();
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        headers.setContentLength(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        headers.setContentLength(len);
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+        this.locale = locale;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    // ==================== CABECERAS ====================
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        // Las subpeticiones no tienen sesión ni cookies propias
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return headers.containsKey(name);
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return headers.getFirst(name);
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        List<String> values = headers.get(name);
+        return values != null ? List.copyOf(values) : List.of();
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        return List.copyOf(headers.keySet());
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+            setContentType(value);
+        } else if (value == null) {
+            headers.remove(name);
+        } else {
+            headers.set(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+            setContentType(value);
+        } else if (value != null) {
+            headers.add(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        setHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        addHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        setHeader(name, httpDate(date));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        addHeader(name, httpDate(date));
+    }
+
+    @Override
+    public String encodeURL(String url) {
+        return url;
+    }
+
+    @Override
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+
+    private static String httpDate(long date) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(date).atZone(ZoneOffset.UTC));
+    }
+}
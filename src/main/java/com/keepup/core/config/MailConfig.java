@@ -1,4 +1,45 @@
 package com.keepup.core.config;
 
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Ajustes del JavaMailSender que configura Spring Boot (spring.mail.*).
+ *
+ * JavaMail no tiene timeouts por defecto: un servidor SMTP que no responde bloquearía para
+ * siempre a los hilos de envío de {@link com.keepup.notification.service.NotificationService}.
+ * Se fijan keepup.mail.smtp-timeout (10s) para conexión, lectura y escritura, salvo que
+ * spring.mail.properties.* ya los defina.
+ */
+@Configuration
 public class MailConfig {
+
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+    private static final String[] TIMEOUT_PROPERTIES = {"connectiontimeout", "timeout", "writetimeout"};
+
+    @Bean
+    static BeanPostProcessor mailTimeoutDefaults(Environment environment) {
+        // Los BeanPostProcessor se crean antes que la resolución de @Value: se lee del Environment
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof JavaMailSenderImpl sender) {
+                    Duration timeout = environment.getProperty("keepup.mail.smtp-timeout", Duration.class,
+                            DEFAULT_TIMEOUT);
+                    Properties properties = sender.getJavaMailProperties();
+                    String protocol = sender.getProtocol() != null ? sender.getProtocol() : "smtp";
+                    for (String name : TIMEOUT_PROPERTIES) {
+                        properties.putIfAbsent("mail." + protocol + "." + name, String.valueOf(timeout.toMillis()));
+                    }
+                }
+                return bean;
+            }
+        };
+    }
 }
@@ -0,0 +1,36 @@
+package com.keepup.core.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/**
+ * Inicialización perezosa selectiva para el arranque rápido (perfil "fast-start").
+ *
+ * Con spring.main.lazy-initialization=true Spring Boot marca todos los beans como lazy.
+ * Si además se define keepup.startup.lazy-packages, este filtro excluye de la inicialización
+ * perezosa todo lo que NO esté en esos paquetes, de modo que solo se difieren los beans que no
+ * están en el camino de las peticiones (correo, scheduler, ...).
+ *
+ * Los beans con métodos @Scheduled siguen siendo eager gracias al filtro que registra Spring Boot.
+ */
+@Configuration
+public class StartupConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter selectiveLazyInitializationExcludeFilter(Environment environment) {
+        List<String> lazyPackages = Binder.get(environment)
+                .bind("keepup.startup.lazy-packages", Bindable.listOf(String.class))
+                .orElse(List.of());
+        if (lazyPackages.isEmpty()) {
+            return (beanName, beanDefinition, beanType) -> false;
+        }
+        return (beanName, beanDefinition, beanType) -> beanType == null
+                || lazyPackages.stream().noneMatch(prefix -> beanType.getName().startsWith(prefix));
+    }
+}
@@ -0,0 +1,25 @@
+package com.keepup.core.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * La petición es válida sintácticamente pero su contenido no (p. ej. el checksum no coincide) (400).
+ */
+public class BadRequestException extends DomainException {
+
+    private final String detail;
+
+    public BadRequestException(String detail) {
+        this.detail = detail;
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.BAD_REQUEST;
+    }
+
+    @Override
+    public String getDetail() {
+        return detail;
+    }
+}
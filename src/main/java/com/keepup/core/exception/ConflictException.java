@@ -0,0 +1,40 @@
+package com.keepup.core.exception;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+/**
+ * La operación choca con el estado actual (p. ej. placa o email ya registrados) (409).
+ */
+public class ConflictException extends DomainException {
+
+    private final String detail;
+    private final HttpHeaders headers;
+
+    public ConflictException(String detail) {
+        this(detail, HttpHeaders.EMPTY);
+    }
+
+    /**
+     * @param headers Cabeceras que indican al cliente el estado actual (p. ej. Upload-Offset)
+     */
+    public ConflictException(String detail, HttpHeaders headers) {
+        this.detail = detail;
+        this.headers = headers;
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.CONFLICT;
+    }
+
+    @Override
+    public String getDetail() {
+        return detail;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+}
@@ -0,0 +1,42 @@
+package com.keepup.core.exception;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Base de las excepciones de negocio "esperadas" (no encontrado, conflicto, prohibido, contenido rechazado).
+ *
+ * No capturan stack trace ni permiten suppressed exceptions: son resultados normales del API
+ * (p. ej. escáneres probando IDs de vehículos) y construir la traza de pila es el coste dominante
+ * de lanzar una excepción. El mensaje se formatea de forma perezosa, solo si alguien lo lee.
+ *
+ * {@link GlobalExceptionHandler} las convierte en respuestas RFC 7807 (application/problem+json).
+ */
+public abstract class DomainException extends RuntimeException {
+
+    protected DomainException() {
+        super(null, null, false, false);
+    }
+
+    /**
+     * Estado HTTP con el que se responde.
+     */
+    public abstract HttpStatus getStatus();
+
+    /**
+     * Detalle legible para el cliente (campo "detail" del problem).
+     */
+    public abstract String getDetail();
+
+    /**
+     * Cabeceras adicionales de la respuesta (p. ej. el offset actual de una subida en un 409).
+     */
+    public HttpHeaders getHeaders() {
+        return HttpHeaders.EMPTY;
+    }
+
+    @Override
+    public String getMessage() {
+        return getDetail();
+    }
+}
@@ -0,0 +1,26 @@
+package com.keepup.core.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * El usuario está autenticado pero no puede realizar la operación (403).
+ * Para recursos de otro usuario se prefiere {@link ResourceNotFoundException}.
+ */
+public class ForbiddenException extends DomainException {
+
+    private final String detail;
+
+    public ForbiddenException(String detail) {
+        this.detail = detail;
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.FORBIDDEN;
+    }
+
+    @Override
+    public String getDetail() {
+        return detail;
+    }
+}
@@ -1,4 +1,72 @@
 package com.keepup.core.exception;
 
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+
+/**
+ * Traduce las excepciones a respuestas RFC 7807 (application/problem+json).
+ *
+ * Las excepciones de negocio ({@link DomainException}) no llevan stack trace y su cuerpo se
+ * construye con {@link ProblemResponses}, sin Jackson ni reflexión, porque es una ruta caliente
+ * (búsquedas de IDs inexistentes, escáneres).
+ */
+@RestControllerAdvice
 public class GlobalExceptionHandler {
+
+    /**
+     * 400 / 403 / 404 / 409 / 413 / 415 / 429 para resultados esperados del negocio.
+     */
+    @ExceptionHandler(DomainException.class)
+    public ResponseEntity<byte[]> handleDomainException(DomainException ex, HttpServletRequest request) {
+        return ProblemResponses.of(ex.getStatus(), ex.getDetail(), request.getRequestURI(), ex.getHeaders());
+    }
+
+    /**
+     * 400 cuando falla la validación de un @Valid @RequestBody.
+     */
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    public ResponseEntity<byte[]> handleValidation(MethodArgumentNotValidException ex, HttpServletRequest request) {
+        StringBuilder detail = new StringBuilder();
+        for (FieldError error : ex.getBindingResult().getFieldErrors()) {
+            if (!detail.isEmpty()) {
+                detail.append("; ");
+            }
+            detail.append(error.getField()).append(": ").append(error.getDefaultMessage());
+        }
+        return ProblemResponses.of(HttpStatus.BAD_REQUEST, detail.toString(), request.getRequestURI());
+    }
+
+    /**
+     * 400 para parámetros ausentes, con tipo incorrecto (p. ej. /vehicles/abc) o cuerpo ilegible.
+     */
+    @ExceptionHandler({
+            MethodArgumentTypeMismatchException.class,
+            MissingServletRequestParameterException.class,
+            HttpMessageNotReadableException.class
+    })
+    public ResponseEntity<byte[]> handleBadRequest(Exception ex, HttpServletRequest request) {
+        String detail = ex instanceof MethodArgumentTypeMismatchException mismatch
+                ? "Invalid value for parameter: " + mismatch.getName()
+                : ex instanceof MissingServletRequestParameterException missing
+                ? "Missing parameter: " + missing.getParameterName()
+                : "Malformed request body";
+        return ProblemResponses.of(HttpStatus.BAD_REQUEST, detail, request.getRequestURI());
+    }
+
+    /**
+     * 401 en el login con credenciales incorrectas.
+     */
+    @ExceptionHandler(BadCredentialsException.class)
+    public ResponseEntity<byte[]> handleBadCredentials(BadCredentialsException ex, HttpServletRequest request) {
+        return ProblemResponses.of(HttpStatus.UNAUTHORIZED, "Email o contraseña incorrectos", request.getRequestURI());
+    }
 }
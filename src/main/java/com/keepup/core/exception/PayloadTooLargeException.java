@@ -0,0 +1,25 @@
+package com.keepup.core.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * El cuerpo de la petición supera el tamaño permitido (413).
+ */
+public class PayloadTooLargeException extends DomainException {
+
+    private final String detail;
+
+    public PayloadTooLargeException(String detail) {
+        this.detail = detail;
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.PAYLOAD_TOO_LARGE;
+    }
+
+    @Override
+    public String getDetail() {
+        return detail;
+    }
+}
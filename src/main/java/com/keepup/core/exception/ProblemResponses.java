@@ -0,0 +1,82 @@
+package com.keepup.core.exception;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Construye respuestas RFC 7807 (application/problem+json) sin pasar por Jackson.
+ *
+ * La parte fija de cada cuerpo ({"type":...,"title":...,"status":...,"detail":") se precalcula
+ * por estado HTTP al cargar la clase; por respuesta solo se escapan y copian detail e instance.
+ */
+public final class ProblemResponses {
+
+    private static final Map<HttpStatus, byte[]> PREFIXES = new EnumMap<>(HttpStatus.class);
+
+    static {
+        for (HttpStatus status : HttpStatus.values()) {
+            String prefix = "{\"type\":\"about:blank\",\"title\":\"" + status.getReasonPhrase()
+                    + "\",\"status\":" + status.value() + ",\"detail\":\"";
+            PREFIXES.put(status, prefix.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private ProblemResponses() {
+    }
+
+    public static ResponseEntity<byte[]> of(HttpStatus status, String detail, String instance) {
+        return of(status, detail, instance, HttpHeaders.EMPTY);
+    }
+
+    public static ResponseEntity<byte[]> of(HttpStatus status, String detail, String instance, HttpHeaders headers) {
+        return ResponseEntity.status(status)
+                .headers(headers)
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .body(body(status, detail, instance));
+    }
+
+    public static byte[] body(HttpStatus status, String detail, String instance) {
+        byte[] prefix = PREFIXES.get(status);
+        StringBuilder tail = new StringBuilder(64 + (detail != null ? detail.length() : 0)
+                + (instance != null ? instance.length() : 0));
+        appendEscaped(tail, detail);
+        tail.append("\",\"instance\":\"");
+        appendEscaped(tail, instance);
+        tail.append("\"}");
+
+        byte[] tailBytes = tail.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] body = new byte[prefix.length + tailBytes.length];
+        System.arraycopy(prefix, 0, body, 0, prefix.length);
+        System.arraycopy(tailBytes, 0, body, prefix.length, tailBytes.length);
+        return body;
+    }
+
+    private static void appendEscaped(StringBuilder sb, String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+    }
+}
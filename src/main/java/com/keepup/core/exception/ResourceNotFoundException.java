@@ -1,4 +1,34 @@
 package com.keepup.core.exception;
 
-public class ResourceNotFoundException {
+import org.springframework.http.HttpStatus;
+
+/**
+ * El recurso no existe o no pertenece al usuario autenticado (404).
+ * Ambos casos responden igual para no revelar qué IDs existen (IDOR).
+ */
+public class ResourceNotFoundException extends DomainException {
+
+    private final String resource;
+    private final String field;
+    private final Object value;
+
+    public ResourceNotFoundException(String resource, Object id) {
+        this(resource, "id", id);
+    }
+
+    public ResourceNotFoundException(String resource, String field, Object value) {
+        this.resource = resource;
+        this.field = field;
+        this.value = value;
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.NOT_FOUND;
+    }
+
+    @Override
+    public String getDetail() {
+        return resource + " not found with " + field + ": " + value;
+    }
 }
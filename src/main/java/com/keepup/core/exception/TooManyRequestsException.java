@@ -0,0 +1,25 @@
+package com.keepup.core.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * El servidor está al límite de trabajo concurrente para esta operación; reintentar más tarde (429).
+ */
+public class TooManyRequestsException extends DomainException {
+
+    private final String detail;
+
+    public TooManyRequestsException(String detail) {
+        this.detail = detail;
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.TOO_MANY_REQUESTS;
+    }
+
+    @Override
+    public String getDetail() {
+        return detail;
+    }
+}
@@ -0,0 +1,25 @@
+package com.keepup.core.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * El tipo de contenido enviado no está permitido (415).
+ */
+public class UnsupportedMediaTypeException extends DomainException {
+
+    private final String detail;
+
+    public UnsupportedMediaTypeException(String detail) {
+        this.detail = detail;
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.UNSUPPORTED_MEDIA_TYPE;
+    }
+
+    @Override
+    public String getDetail() {
+        return detail;
+    }
+}
@@ -0,0 +1,49 @@
+package com.keepup.core.lease;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Partición de un trabajo periódico y el nodo que la tiene arrendada.
+ *
+ * Una partición sin dueño (owner null) o con el arriendo vencido (expiresAt pasado) está libre.
+ * Los cambios de dueño son UPDATE condicionados, así que dos nodos nunca la tienen a la vez.
+ */
+@Entity
+@Table(name = "job_lease")
+@IdClass(JobLease.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobLease {
+
+    @Id
+    @Column(length = 50)
+    private String job;
+
+    @Id
+    @Column(name = "partition_no")
+    private Integer partitionNo;
+
+    // Nodo dueño del arriendo (null si está libre)
+    @Column(length = 100)
+    private String owner;
+
+    // Fin del arriendo: si el dueño no lo renueva antes, otro nodo puede tomarlo
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        private String job;
+        private Integer partitionNo;
+    }
+}
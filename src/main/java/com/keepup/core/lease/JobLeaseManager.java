@@ -0,0 +1,296 @@
+package com.keepup.core.lease;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Reparte el trabajo de los jobs periódicos entre los nodos que comparten la base de datos.
+ *
+ * Cada job se divide en un número fijo de particiones (por ejemplo, hash del id de usuario módulo
+ * N) y cada partición tiene una fila en job_lease con su dueño y el fin del arriendo. Cada nodo,
+ * en el hilo "lease-heartbeat" (keepup.leases.heartbeat, PT10S):
+ * 1. Registra su latido en lease_node y cuenta los nodos vivos (latido dentro de keepup.leases.ttl).
+ * 2. Renueva sus arriendos por otro TTL (PT30S).
+ * 3. Se queda con ceil(particiones / nodos vivos): suelta las que le sobran y toma libres o
+ *    vencidas con un UPDATE condicionado, que solo puede ganar un nodo.
+ *
+ * Si un nodo muere deja de renovar, sus arriendos vencen y los demás los toman en el siguiente
+ * latido; al entrar un nodo nuevo los demás sueltan lo que excede su cuota. Un nodo solo trabaja
+ * las particiones cuyo arriendo sigue vigente según su último latido, así que el TTL debe ser
+ * bastante mayor que el intervalo de latido más el desfase de reloj entre nodos.
+ *
+ * Los jobs se registran con {@link #register}; el callback recibe el nuevo conjunto de
+ * particiones cada vez que cambia. Los jobs que corren de tanto en tanto llaman a {@link #claim}
+ * al empezar para trabajar con el reparto actualizado.
+ */
+@Slf4j
+@Component
+public class JobLeaseManager {
+
+    private final JobLeaseRepository leaseRepository;
+    private final LeaseNodeRepository nodeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final String nodeId;
+    private final Duration ttl;
+    private final Duration heartbeat;
+    private final ScheduledExecutorService executor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    // Si este nodo llegó a latir o a registrar jobs (y por tanto tiene algo que soltar)
+    private volatile boolean active;
+
+    @Autowired
+    public JobLeaseManager(JobLeaseRepository leaseRepository,
+                           LeaseNodeRepository nodeRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${keepup.leases.node-id:}") String nodeId,
+                           @Value("${keepup.leases.ttl:PT30S}") Duration ttl,
+                           @Value("${keepup.leases.heartbeat:PT10S}") Duration heartbeat) {
+        this(leaseRepository, nodeRepository, transactionManager, Clock.systemDefaultZone(), nodeId, ttl, heartbeat);
+    }
+
+    JobLeaseManager(JobLeaseRepository leaseRepository,
+                    LeaseNodeRepository nodeRepository,
+                    PlatformTransactionManager transactionManager,
+                    Clock clock,
+                    String nodeId,
+                    Duration ttl,
+                    Duration heartbeat) {
+        this.leaseRepository = leaseRepository;
+        this.nodeRepository = nodeRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.nodeId = nodeId == null || nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.ttl = ttl;
+        this.heartbeat = heartbeat;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        active = true;
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                heartbeat();
+            } catch (RuntimeException e) {
+                log.warn("Lease heartbeat of node {} failed", nodeId, e);
+            }
+        }, heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Dejar de latir y soltar los arriendos al empezar el cierre del contexto, antes de destruir
+     * los beans y mientras la base de datos sigue disponible, para que otro nodo los tome sin
+     * esperar al TTL. Un contexto que nunca arrancó (solo se refrescó) no toca la base de datos.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void stop() {
+        executor.shutdownNow();
+        if (!active) {
+            return;
+        }
+        active = false;
+        try {
+            // Un latido en curso podría renovar lo que se acaba de soltar
+            executor.awaitTermination(heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                leaseRepository.releaseAll(nodeId);
+                nodeRepository.deleteById(nodeId);
+            });
+        } catch (RuntimeException e) {
+            // Los arriendos vencerán solos en un TTL
+            log.warn("Could not release leases of node {}", nodeId, e);
+        }
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Registrar un job particionado y tomar ya la parte que le toca a este nodo.
+     *
+     * @param onChange Recibe las particiones de este nodo cada vez que cambian (puede ser null)
+     */
+    public void register(String job, int partitions, Consumer<Set<Integer>> onChange) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Partitions must be positive: " + partitions);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int partition = 0; partition < partitions; partition++) {
+                leaseRepository.insertIfAbsent(job, partition);
+            }
+        });
+        active = true;
+        jobs.put(job, new Job(job, partitions, onChange));
+        claim(job);
+    }
+
+    /**
+     * Latir y rebalancear ahora este job (fuera del ciclo de latidos).
+     *
+     * @return Particiones de este nodo tras el rebalanceo
+     */
+    public Set<Integer> claim(String job) {
+        Job registered = requireJob(job);
+        LocalDateTime now = LocalDateTime.now(clock);
+        rebalance(registered, now, beat(now));
+        return owned(job);
+    }
+
+    /**
+     * Particiones de este nodo cuyo arriendo sigue vigente (vacío si dejó de latir).
+     */
+    public Set<Integer> owned(String job) {
+        Job registered = requireJob(job);
+        return registered.validUntil != null && LocalDateTime.now(clock).isBefore(registered.validUntil)
+                ? registered.owned : Set.of();
+    }
+
+    public boolean holds(String job, int partition) {
+        return owned(job).contains(partition);
+    }
+
+    /**
+     * Partición de un id numérico; coincide con MOD(id, partitions) en SQL para ids positivos.
+     */
+    public static int partitionOf(long id, int partitions) {
+        return (int) Math.floorMod(id, (long) partitions);
+    }
+
+    /**
+     * Rango de claves hexadecimales (sha256, UUID) de una partición: [from, to) en orden de texto.
+     * Se reparte el primer byte, así que admite hasta 256 particiones.
+     */
+    public static KeyRange hexRange(int partition, int partitions) {
+        if (partitions < 1 || partitions > 256 || partition < 0 || partition >= partitions) {
+            throw new IllegalArgumentException("Invalid partition " + partition + " of " + partitions);
+        }
+        String from = String.format("%02x", partition * 256 / partitions);
+        // "g" ordena después de cualquier clave hexadecimal en minúsculas
+        String to = partition == partitions - 1 ? "g" : String.format("%02x", (partition + 1) * 256 / partitions);
+        return new KeyRange(from, to);
+    }
+
+    void heartbeat() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        long alive = beat(now);
+        for (Job job : jobs.values()) {
+            try {
+                rebalance(job, now, alive);
+            } catch (RuntimeException e) {
+                log.warn("Could not rebalance leases of job {}", job.name, e);
+            }
+        }
+    }
+
+    private long beat(LocalDateTime now) {
+        Long alive = transactionTemplate.execute(status -> {
+            if (nodeRepository.heartbeat(nodeId, now) == 0) {
+                nodeRepository.insertIfAbsent(nodeId, now);
+            }
+            nodeRepository.deleteDeadBefore(now.minus(ttl.multipliedBy(10)));
+            return nodeRepository.countAlive(now.minus(ttl));
+        });
+        return alive != null ? Math.max(alive, 1) : 1;
+    }
+
+    private void rebalance(Job job, LocalDateTime now, long alive) {
+        // claim() y el latido pueden coincidir: un rebalanceo por job a la vez
+        synchronized (job) {
+            doRebalance(job, now, alive);
+        }
+    }
+
+    private void doRebalance(Job job, LocalDateTime now, long alive) {
+        LocalDateTime expiresAt = now.plus(ttl);
+        int target = (int) ((job.partitions + alive - 1) / alive);
+        List<Integer> owned = transactionTemplate.execute(status -> {
+            leaseRepository.renew(job.name, nodeId, now, expiresAt);
+            List<Integer> mine = new ArrayList<>(leaseRepository.findOwned(job.name, nodeId, now, job.partitions));
+            if (mine.size() > target) {
+                List<Integer> extra = mine.subList(target, mine.size());
+                leaseRepository.release(job.name, nodeId, List.copyOf(extra));
+                extra.clear();
+            } else if (mine.size() < target) {
+                for (Integer partition : leaseRepository.findAvailable(job.name, now, job.partitions)) {
+                    if (mine.size() >= target) {
+                        break;
+                    }
+                    if (leaseRepository.tryAcquire(job.name, partition, nodeId, now, expiresAt) == 1) {
+                        mine.add(partition);
+                    }
+                }
+            }
+            return mine;
+        });
+        Set<Integer> current = Set.copyOf(owned != null ? owned : List.of());
+        Set<Integer> previous = job.owned;
+        job.owned = current;
+        job.validUntil = expiresAt;
+        if (!current.equals(previous)) {
+            log.info("Node {} now owns {} of {} partitions of job {}", nodeId, current.size(), job.partitions, job.name);
+            if (job.onChange != null) {
+                job.onChange.accept(current);
+            }
+        }
+    }
+
+    private Job requireJob(String job) {
+        Job registered = jobs.get(job);
+        if (registered == null) {
+            throw new IllegalStateException("Job not registered: " + job);
+        }
+        return registered;
+    }
+
+    /**
+     * Rango [from, to) de claves de una partición.
+     */
+    public record KeyRange(String from, String to) {
+    }
+
+    private static final class Job {
+
+        private final String name;
+        private final int partitions;
+        private final Consumer<Set<Integer>> onChange;
+        private volatile Set<Integer> owned = Set.of();
+        private volatile LocalDateTime validUntil;
+
+        private Job(String name, int partitions, Consumer<Set<Integer>> onChange) {
+            this.name = name;
+            this.partitions = partitions;
+            this.onChange = onChange;
+        }
+    }
+}
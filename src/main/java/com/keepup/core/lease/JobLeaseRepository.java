@@ -0,0 +1,79 @@
+package com.keepup.core.lease;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLease, JobLease.Key> {
+
+    /**
+     * Crear la fila de una partición libre; si ya existe no hace nada.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO job_lease (job, partition_no, owner, expires_at)
+            VALUES (:job, :partition, NULL, NULL)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("job") String job, @Param("partition") int partition);
+
+    /**
+     * Extender los arriendos vigentes de un nodo (los ya vencidos no: otro nodo pudo tomarlos).
+     */
+    @Modifying
+    @Query("""
+            UPDATE JobLease l SET l.expiresAt = :expiresAt
+            WHERE l.job = :job AND l.owner = :owner AND l.expiresAt > :now
+            """)
+    int renew(@Param("job") String job, @Param("owner") String owner,
+              @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Query("""
+            SELECT l.partitionNo FROM JobLease l
+            WHERE l.job = :job AND l.owner = :owner AND l.expiresAt > :now AND l.partitionNo < :partitions
+            ORDER BY l.partitionNo
+            """)
+    List<Integer> findOwned(@Param("job") String job, @Param("owner") String owner,
+                            @Param("now") LocalDateTime now, @Param("partitions") int partitions);
+
+    @Query("""
+            SELECT l.partitionNo FROM JobLease l
+            WHERE l.job = :job AND (l.owner IS NULL OR l.expiresAt <= :now) AND l.partitionNo < :partitions
+            ORDER BY l.partitionNo
+            """)
+    List<Integer> findAvailable(@Param("job") String job, @Param("now") LocalDateTime now,
+                                @Param("partitions") int partitions);
+
+    /**
+     * Tomar una partición si sigue libre. Es atómico: si dos nodos lo intentan a la vez, uno
+     * actualiza la fila y el otro ya no cumple la condición.
+     *
+     * @return 1 si se tomó, 0 si otro nodo la tiene
+     */
+    @Modifying
+    @Query("""
+            UPDATE JobLease l SET l.owner = :owner, l.expiresAt = :expiresAt
+            WHERE l.job = :job AND l.partitionNo = :partition AND (l.owner IS NULL OR l.expiresAt <= :now)
+            """)
+    int tryAcquire(@Param("job") String job, @Param("partition") int partition, @Param("owner") String owner,
+                   @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("""
+            UPDATE JobLease l SET l.owner = NULL, l.expiresAt = NULL
+            WHERE l.job = :job AND l.owner = :owner AND l.partitionNo IN :partitions
+            """)
+    int release(@Param("job") String job, @Param("owner") String owner,
+                @Param("partitions") Collection<Integer> partitions);
+
+    @Modifying
+    @Query("UPDATE JobLease l SET l.owner = NULL, l.expiresAt = NULL WHERE l.owner = :owner")
+    int releaseAll(@Param("owner") String owner);
+}
@@ -0,0 +1,27 @@
+package com.keepup.core.lease;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Nodo de la aplicación que participa en el reparto de particiones, con su último latido.
+ * Los nodos vivos (latido dentro del TTL) determinan cuántas particiones toma cada uno.
+ */
+@Entity
+@Table(name = "lease_node")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaseNode {
+
+    @Id
+    @Column(name = "node_id", length = 100)
+    private String nodeId;
+
+    @Column(name = "heartbeat_at", nullable = false)
+    private LocalDateTime heartbeatAt;
+}
@@ -0,0 +1,34 @@
+package com.keepup.core.lease;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface LeaseNodeRepository extends JpaRepository<LeaseNode, String> {
+
+    @Modifying
+    @Query("UPDATE LeaseNode n SET n.heartbeatAt = :now WHERE n.nodeId = :nodeId")
+    int heartbeat(@Param("nodeId") String nodeId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO lease_node (node_id, heartbeat_at) VALUES (:nodeId, :now)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("nodeId") String nodeId, @Param("now") LocalDateTime now);
+
+    @Query("SELECT COUNT(n) FROM LeaseNode n WHERE n.heartbeatAt > :since")
+    long countAlive(@Param("since") LocalDateTime since);
+
+    /**
+     * Olvidar nodos muertos hace tiempo (la tabla no crece con cada despliegue).
+     */
+    @Modifying
+    @Query("DELETE FROM LeaseNode n WHERE n.heartbeatAt < :before")
+    int deleteDeadBefore(@Param("before") LocalDateTime before);
+}
@@ -1,5 +1,8 @@
 package com.keepup.core.security;
 
+import com.keepup.core.tracing.SpanScope;
+import com.keepup.core.tracing.Tracer;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -14,12 +17,19 @@ import java.io.IOException;
 
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
+    // EventSource no envía cabeceras: el canal de avisos se autentica con un ticket en la URL
+    public static final String ALERT_STREAM_PATH = "/api/v1/alerts/stream";
+    public static final String STREAM_TICKET_PARAM = "ticket";
+
+
     private final UserDetailsServiceImpl userDetailsService;
     private final JwtUtil jwtUtil;
+    private final Tracer tracer;
 
-    public JwtRequestFilter(UserDetailsServiceImpl userDetailsService, JwtUtil jwtUtil) {
+    public JwtRequestFilter(UserDetailsServiceImpl userDetailsService, JwtUtil jwtUtil, Tracer tracer) {
         this.userDetailsService = userDetailsService;
         this.jwtUtil = jwtUtil;
+        this.tracer = tracer;
     }
 
     @Override
@@ -27,19 +37,35 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         final String authorizationHeader = request.getHeader("Authorization");
         String username = null;
         String jwt = null;
+        String ticket = null;
 
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
-            username = jwtUtil.extractUsername(jwt);
-        }
+        try (SpanScope scope = tracer.startSpan("JwtRequestFilter.authenticate")) {
+            if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
+                jwt = authorizationHeader.substring(7);
+                username = jwtUtil.extractUsername(jwt);
+            } else if (ALERT_STREAM_PATH.equals(request.getServletPath())) {
+                ticket = request.getParameter(STREAM_TICKET_PARAM);
+                username = ticket != null ? extractTicketUsername(ticket) : null;
+            }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            if (jwtUtil.validateToken(jwt, userDetails)) {
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                if (ticket != null ? jwtUtil.validateStreamTicket(ticket, userDetails) : jwtUtil.validateToken(jwt, userDetails)) {
+                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                }
             }
         }
         chain.doFilter(request, response);
     }
+
+    // El navegador reconecta solo con la misma URL: un ticket caducado o inválido se trata como
+    // petición sin autenticar (401/403) y el cliente pide otro
+    private String extractTicketUsername(String ticket) {
+        try {
+            return jwtUtil.extractUsername(ticket);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
 }
@@ -1,10 +1,12 @@
 package com.keepup.core.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -24,6 +26,26 @@ public class JwtUtil {
     @Value("${jwt.expirationMs}")
     private int jwtExpirationMs;
 
+    // Vida de un ticket del canal SSE de avisos (ver generateStreamTicket)
+    @Value("${jwt.streamTicketMs:60000}")
+    private int streamTicketMs;
+
+    private static final String SCOPE_CLAIM = "scope";
+    private static final String ALERT_STREAM_SCOPE = "alerts:stream";
+
+    // La clave y el parser son inmutables: se construyen una sola vez en lugar de en cada petición
+    private Key signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(this.jwtSecret);
+        this.signingKey = Keys.hmacShaKeyFor(keyBytes);
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
     public String generateToken(CustomerDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", userDetails.getUserId());
@@ -39,9 +61,28 @@ public class JwtUtil {
                 .compact();
     }
 
+    /**
+     * Ticket de corta vida para abrir el canal SSE de avisos. EventSource no puede enviar la
+     * cabecera Authorization, así que el navegador lo pide con su JWT y lo pasa en la URL del canal
+     * (?ticket=...). Lleva el claim scope, de modo que no sirve como JWT en ninguna otra ruta.
+     */
+    public String generateStreamTicket(CustomerDetails userDetails) {
+        return Jwts.builder()
+                .claim("userId", userDetails.getUserId())
+                .claim(SCOPE_CLAIM, ALERT_STREAM_SCOPE)
+                .setSubject(userDetails.getUsername())
+                .setIssuedAt(new Date(System.currentTimeMillis()))
+                .setExpiration(new Date(System.currentTimeMillis() + streamTicketMs))
+                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    public int getStreamTicketMs() {
+        return streamTicketMs;
+    }
+
     private Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(this.jwtSecret);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signingKey;
     }
 
     public String extractUsername(String token) {
@@ -58,9 +99,7 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
@@ -69,7 +108,16 @@ public class JwtUtil {
 
         final String username = extractUsername(token);
 
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token)
+                && extractClaim(token, claims -> claims.get(SCOPE_CLAIM)) == null);
+    }
+
+    public Boolean validateStreamTicket(String token, UserDetails userDetails) {
+
+        final String username = extractUsername(token);
+
+        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token)
+                && ALERT_STREAM_SCOPE.equals(extractClaim(token, claims -> claims.get(SCOPE_CLAIM, String.class))));
     }
 
     private Boolean isTokenExpired(String token) {
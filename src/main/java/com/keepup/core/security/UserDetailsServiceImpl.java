@@ -2,11 +2,13 @@ package com.keepup.core.security;
 
 import com.keepup.auth.repository.UserRepository;
 import com.keepup.auth.entity.User;
+import com.keepup.core.tracing.Traced;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 @Service
+@Traced
 public class UserDetailsServiceImpl {
     private final UserRepository userRepository;
 
@@ -1,9 +1,14 @@
 package com.keepup.core.security;
 
 import com.keepup.auth.repository.UserRepository;
+import com.keepup.core.storage.FileResponseWriter;
+import com.keepup.core.tracing.Tracer;
+import com.keepup.vehicle.dto.DateCursor;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -16,6 +21,9 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.DispatcherTypeRequestMatcher;
 import org.springframework.web.cors.CorsConfiguration; // <--- IMPORTAR
 import org.springframework.web.cors.CorsConfigurationSource; // <--- IMPORTAR
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource; // <--- IMPORTAR
@@ -27,6 +35,8 @@ import java.util.List; // <--- IMPORTAR
 @RequiredArgsConstructor
 public class WebSecurityConfig {
 
+    private static final String UPLOAD_OFFSET_HEADER = "Upload-Offset";
+
     private final JwtRequestFilter jwtRequestFilter;
     private final UserRepository userRepository;
 
@@ -41,7 +51,17 @@ public class WebSecurityConfig {
 
                 // Reglas de autorización
                 .authorizeHttpRequests(auth -> auth
+                        // Las respuestas de error internas (/error) no deben convertirse en 403
+                        .dispatcherTypeMatchers(DispatcherType.ERROR).permitAll()
+                        // El cierre del canal SSE de avisos vuelve a despachar la petición ya autorizada
+                        // (sin JWT); solo esa ruta, cualquier otro despacho asíncrono se autoriza
+                        .requestMatchers(new AndRequestMatcher(new DispatcherTypeRequestMatcher(DispatcherType.ASYNC),
+                                PathPatternRequestMatcher.withDefaults().matcher(JwtRequestFilter.ALERT_STREAM_PATH)))
+                        .permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
+                        // Sondas de salud para el balanceador (liveness/readiness)
+                        .requestMatchers("/actuator/health/**").permitAll()
+                        .requestMatchers("/api/v1/admin/**").hasAuthority("ROLE_ADMIN")
                         .anyRequest().authenticated())
                 .sessionManagement(sess -> sess
                         .sessionCreationPolicy(org.springframework.security.config.http.SessionCreationPolicy.STATELESS));
@@ -63,7 +83,14 @@ public class WebSecurityConfig {
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
 
         // Permitir cabeceras (Authorization es vital para el JWT)
-        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type"));
+        // (Upload-Offset y el checksum son de las subidas reanudables de documentos)
+        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "Last-Event-ID", Tracer.TRACE_ID_HEADER,
+                UPLOAD_OFFSET_HEADER, FileResponseWriter.CHECKSUM_HEADER));
+
+        // Exponer el traceId al frontend para poder reportar peticiones lentas, las cabeceras
+        // que necesita para reanudar subidas y descargas y el cursor de los listados por vehículo
+        configuration.setExposedHeaders(List.of(Tracer.TRACE_ID_HEADER, UPLOAD_OFFSET_HEADER,
+                HttpHeaders.ETAG, HttpHeaders.CONTENT_RANGE, DateCursor.NEXT_CURSOR_HEADER));
 
         // Permitir credenciales
         configuration.setAllowCredentials(true);
@@ -0,0 +1,37 @@
+package com.keepup.core.startup;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Endpoint de administración con el informe de arranque de esta instancia.
+ * Protegido por WebSecurityConfig (solo ROLE_ADMIN).
+ *
+ * Base URL: /api/v1/admin/startup
+ */
+@RestController
+@RequestMapping("/api/v1/admin/startup")
+@RequiredArgsConstructor
+public class StartupAdminController {
+
+    private final StartupReporter startupReporter;
+
+    /**
+     * Obtener el informe de arranque (fases, beans y auto-configuraciones más lentas).
+     *
+     * GET /api/v1/admin/startup
+     *
+     * @return 200 OK con el informe, o 204 NO CONTENT si la aplicación aún no está lista
+     */
+    @GetMapping
+    public ResponseEntity<StartupReport> getStartupReport() {
+        StartupReport report = startupReporter.getReport();
+        if (report == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(report);
+    }
+}
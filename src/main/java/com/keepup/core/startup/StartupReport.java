@@ -0,0 +1,22 @@
+package com.keepup.core.startup;
+
+import java.util.List;
+
+/**
+ * Resumen del arranque de la aplicación generado por {@link StartupReporter}.
+ *
+ * @param readyMillis tiempo desde SpringApplication.run hasta ApplicationReadyEvent
+ * @param jvmUptimeMillis tiempo desde el arranque de la JVM hasta ApplicationReadyEvent
+ * @param phases duración de las fases de primer nivel (preparación del entorno, refresh, ...)
+ * @param slowestBeans beans con mayor tiempo propio de instanciación (sin contar dependencias)
+ * @param slowestAutoConfigurations auto-configuraciones con mayor tiempo acumulado en sus beans
+ */
+public record StartupReport(long readyMillis,
+                            long jvmUptimeMillis,
+                            List<Entry> phases,
+                            List<Entry> slowestBeans,
+                            List<Entry> slowestAutoConfigurations) {
+
+    public record Entry(String name, long millis) {
+    }
+}
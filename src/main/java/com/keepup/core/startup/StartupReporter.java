@@ -0,0 +1,153 @@
+package com.keepup.core.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Genera un informe de arranque a partir de los pasos registrados por {@link BufferingApplicationStartup}
+ * (configurado en KeepupApiApplication): tiempo por fase, por bean y por auto-configuración.
+ *
+ * El informe se escribe en el log al recibir ApplicationReadyEvent y queda disponible en
+ * /api/v1/admin/startup. Después se vacía el buffer de pasos para liberar memoria.
+ * keepup.startup.report.top controla cuántas entradas se muestran (15 por defecto).
+ */
+@Slf4j
+@Component
+public class StartupReporter implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final String BEAN_INSTANTIATE_STEP = "spring.beans.instantiate";
+
+    private final int top;
+    private volatile StartupReport report;
+
+    public StartupReporter(@Value("${keepup.startup.report.top:15}") int top) {
+        this.top = top;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        ConfigurableApplicationContext context = event.getApplicationContext();
+        long readyMillis = event.getTimeTaken() != null ? event.getTimeTaken().toMillis() : -1;
+        long jvmUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+
+        if (!(context.getApplicationStartup() instanceof BufferingApplicationStartup startup)) {
+            report = new StartupReport(readyMillis, jvmUptimeMillis, List.of(), List.of(), List.of());
+            return;
+        }
+
+        report = buildReport(startup.drainBufferedTimeline(), context.getBeanFactory(), readyMillis, jvmUptimeMillis);
+        log.info("Application ready in {} ms (JVM uptime {} ms)\n  Phases: {}\n  Slowest beans: {}\n  Slowest auto-configurations: {}",
+                report.readyMillis(), report.jvmUptimeMillis(),
+                format(report.phases()), format(report.slowestBeans()), format(report.slowestAutoConfigurations()));
+    }
+
+    public StartupReport getReport() {
+        return report;
+    }
+
+    private StartupReport buildReport(StartupTimeline timeline, ConfigurableListableBeanFactory beanFactory,
+                                      long readyMillis, long jvmUptimeMillis) {
+        List<StartupTimeline.TimelineEvent> events = timeline.getEvents();
+
+        // Tiempo de los pasos hijos, para calcular el tiempo propio de cada bean
+        Map<Long, Long> childNanos = new HashMap<>();
+        for (StartupTimeline.TimelineEvent event : events) {
+            Long parentId = event.getStartupStep().getParentId();
+            if (parentId != null) {
+                childNanos.merge(parentId, event.getDuration().toNanos(), Long::sum);
+            }
+        }
+
+        Map<String, Long> phases = new HashMap<>();
+        Map<String, Long> beans = new HashMap<>();
+        Map<String, Long> autoConfigurations = new HashMap<>();
+        for (StartupTimeline.TimelineEvent event : events) {
+            StartupStep step = event.getStartupStep();
+            if (step.getParentId() == null) {
+                phases.merge(step.getName(), event.getDuration().toNanos(), Long::sum);
+            }
+            if (!BEAN_INSTANTIATE_STEP.equals(step.getName())) {
+                continue;
+            }
+            String beanName = tag(step, "beanName");
+            if (beanName == null) {
+                continue;
+            }
+            long selfNanos = Math.max(0, event.getDuration().toNanos() - childNanos.getOrDefault(step.getId(), 0L));
+            beans.merge(beanName, selfNanos, Long::sum);
+            String autoConfiguration = owningAutoConfiguration(beanFactory, beanName);
+            if (autoConfiguration != null) {
+                autoConfigurations.merge(autoConfiguration, selfNanos, Long::sum);
+            }
+        }
+
+        return new StartupReport(readyMillis, jvmUptimeMillis,
+                slowest(phases, Integer.MAX_VALUE), slowest(beans, top), slowest(autoConfigurations, top));
+    }
+
+    /**
+     * Auto-configuración a la que pertenece un bean: la propia clase si es una auto-configuración,
+     * o la clase de configuración cuyo método @Bean lo crea.
+     */
+    private static String owningAutoConfiguration(ConfigurableListableBeanFactory beanFactory, String beanName) {
+        Class<?> owner;
+        try {
+            BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+            String factoryBeanName = definition.getFactoryBeanName();
+            owner = beanFactory.getType(factoryBeanName != null ? factoryBeanName : beanName, false);
+        } catch (NoSuchBeanDefinitionException e) {
+            return null;
+        }
+        if (owner == null) {
+            return null;
+        }
+        String className = ClassUtils.getUserClass(owner).getName();
+        if (!className.contains(".autoconfigure.")) {
+            return null;
+        }
+        int nested = className.indexOf('$');
+        String outerClass = nested > 0 ? className.substring(0, nested) : className;
+        return ClassUtils.getShortName(outerClass);
+    }
+
+    private static String tag(StartupStep step, String key) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if (key.equals(tag.getKey())) {
+                return tag.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static List<StartupReport.Entry> slowest(Map<String, Long> nanosByName, int limit) {
+        List<StartupReport.Entry> entries = new ArrayList<>(nanosByName.size());
+        nanosByName.forEach((name, nanos) -> entries.add(new StartupReport.Entry(name, nanos / 1_000_000)));
+        entries.sort(Comparator.comparingLong(StartupReport.Entry::millis).reversed());
+        return entries.size() > limit ? List.copyOf(entries.subList(0, limit)) : entries;
+    }
+
+    private static String format(List<StartupReport.Entry> entries) {
+        return entries.stream()
+                .map(entry -> entry.name() + "=" + entry.millis() + "ms")
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,55 @@
+package com.keepup.core.storage;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Lista de Content-Types aceptados para una subida (keepup.documents.allowed-types, keepup.photos.allowed-types).
+ *
+ * La cabecera del cliente se compara por tipo/subtipo, no como texto: "image/png; name=a.png" o
+ * "IMAGE/PNG" son image/png. Un tipo con comodines (image/*) no se acepta: se guarda con el
+ * archivo y se devuelve al descargarlo, así que tiene que ser concreto.
+ */
+public final class AllowedMediaTypes {
+
+    private final List<MediaType> types;
+
+    public AllowedMediaTypes(Collection<String> types) {
+        this.types = types.stream().map(MediaType::parseMediaType).toList();
+    }
+
+    /**
+     * Tipo aceptado para un Content-Type.
+     *
+     * @param contentType Cabecera Content-Type del cliente (puede ser null)
+     * @return tipo/subtipo en minúsculas y sin parámetros, o null si falta, no es válido o no está permitido
+     */
+    public String match(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        if (!mediaType.isConcrete()) {
+            return null;
+        }
+        return types.stream()
+                .filter(allowed -> allowed.isCompatibleWith(mediaType))
+                .findFirst()
+                .map(allowed -> mediaType.getType() + "/" + mediaType.getSubtype())
+                .orElse(null);
+    }
+
+    @Override
+    public String toString() {
+        return types.stream().map(MediaType::toString).collect(Collectors.joining(", "));
+    }
+}
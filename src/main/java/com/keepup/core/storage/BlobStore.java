@@ -0,0 +1,253 @@
+package com.keepup.core.storage;
+
+import com.keepup.core.lease.JobLeaseManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Almacén de contenido direccionado por SHA-256, con deduplicación y compresión transparente.
+ *
+ * Flujo de una subida:
+ * 1. {@link #stage}: el cuerpo se escribe en staging/ calculando el hash (y comprimiendo con
+ *    gzip si el tipo es comprimible), sin transacción abierta.
+ * 2. {@link #acquire}: dentro de la transacción del dueño (p. ej. el documento) se registra el
+ *    blob si es nuevo y se suma una referencia. Si el contenido ya existía, el staging se
+ *    descarta: el mismo PDF subido por mil usuarios ocupa disco una sola vez. El archivo nuevo
+ *    pasa de staging a blobs/ solo cuando la transacción confirma; si hace rollback sigue en
+ *    staging y el dueño lo borra con {@link #discard}.
+ * 3. {@link #release}: al reemplazar o borrar el dueño se resta la referencia.
+ *
+ * Los archivos derivados de un blob (p. ej. miniaturas de una foto) se guardan bajo
+ * {@link #derivedKey} y se borran junto con él.
+ *
+ * Los blobs sin referencias se borran en un barrido periódico, pasado un periodo de gracia. Con
+ * varios nodos el barrido se reparte por rango de SHA-256 según las particiones que cada uno
+ * tiene arrendadas en el job "storage-gc" ({@link JobLeaseManager}); el staging (compartido) lo
+ * limpia el dueño de la partición 0.
+ * Si una subida vuelve a referenciar un blob justo cuando el barrido lo borra, el bloqueo de
+ * fila ordena ambas operaciones: si el barrido gana, la referencia no encuentra la fila y la
+ * subida vuelve a registrar el blob; si el archivo ya no está, la subida lo repone desde su staging.
+ *
+ * Configuración:
+ * - keepup.storage.compressible-types: Content-Types que se guardan con gzip
+ * - keepup.storage.gc.grace: tiempo mínimo sin referencias antes de borrar (PT24H)
+ * - keepup.storage.gc.interval: intervalo del barrido (PT1H)
+ * - keepup.storage.gc.batch-size: blobs por lote del barrido (500)
+ * - keepup.storage.gc.partitions: particiones del barrido entre nodos (16)
+ */
+@Slf4j
+@Component
+public class BlobStore {
+
+    private static final String STAGING = "staging";
+    /** Intentos de registrar el blob si el barrido lo borra entre el INSERT y la referencia. */
+    private static final int MAX_ACQUIRE_ATTEMPTS = 3;
+    static final String GC_JOB = "storage-gc";
+
+    private final LocalFileStorage fileStorage;
+    private final StoredBlobRepository blobRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JobLeaseManager leaseManager;
+    private final Set<String> compressibleTypes;
+    private final Duration gcGrace;
+    private final int gcBatchSize;
+    private final int gcPartitions;
+
+    public BlobStore(LocalFileStorage fileStorage,
+                     StoredBlobRepository blobRepository,
+                     PlatformTransactionManager transactionManager,
+                     JobLeaseManager leaseManager,
+                     @Value("${keepup.storage.compressible-types:application/pdf,image/bmp,image/tiff,image/svg+xml,text/plain}")
+                     Set<String> compressibleTypes,
+                     @Value("${keepup.storage.gc.grace:PT24H}") Duration gcGrace,
+                     @Value("${keepup.storage.gc.batch-size:500}") int gcBatchSize,
+                     @Value("${keepup.storage.gc.partitions:16}") int gcPartitions) {
+        this.fileStorage = fileStorage;
+        this.blobRepository = blobRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.compressibleTypes = compressibleTypes;
+        this.gcGrace = gcGrace;
+        this.gcBatchSize = gcBatchSize;
+        this.gcPartitions = gcPartitions;
+        this.leaseManager = leaseManager;
+    }
+
+    /**
+     * Registrar el barrido en el reparto entre nodos. Con la aplicación ya lista y no en el
+     * constructor: el registro abre una transacción, y un contexto que solo se refresca (p. ej. el
+     * entrenamiento CDS del perfil fast-start) no debe tocar la base de datos.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        leaseManager.register(GC_JOB, gcPartitions, null);
+    }
+
+    /**
+     * Escribir un flujo en staging. No toca la base de datos.
+     *
+     * @param in Flujo de entrada
+     * @param contentType Content-Type del contenido (decide si se comprime)
+     * @param maxBytes Tamaño máximo permitido
+     * @param expectedSha256 SHA-256 esperado, o null para no verificar
+     * @return Archivo en staging con su SHA-256
+     */
+    public StoredFile stage(InputStream in, String contentType, long maxBytes, String expectedSha256) throws IOException {
+        String key = STAGING + "/" + UUID.randomUUID();
+        return fileStorage.store(in, key, maxBytes, expectedSha256, compressibleTypes.contains(contentType));
+    }
+
+    /**
+     * Sumar una referencia al contenido de un archivo en staging, creando el blob si es nuevo.
+     * Debe llamarse dentro de la transacción que guarda la referencia (SHA-256) en su dueño.
+     *
+     * Si hay que guardar el archivo (blob nuevo o archivo perdido), se mueve desde staging al
+     * confirmar: un rollback no deja en blobs/ un archivo sin fila que el barrido nunca encontraría.
+     *
+     * @param staged Resultado de {@link #stage}
+     */
+    @Transactional
+    public void acquire(StoredFile staged) {
+        String sha256 = staged.sha256();
+        boolean inserted;
+        int attempts = 0;
+        do {
+            if (++attempts > MAX_ACQUIRE_ATTEMPTS) {
+                throw new IllegalStateException("Could not reference blob " + sha256 + " after "
+                        + MAX_ACQUIRE_ATTEMPTS + " attempts");
+            }
+            inserted = blobRepository.insertIfAbsent(
+                    sha256, staged.size(), staged.storedSize(), staged.compressed(), LocalDateTime.now()) == 1;
+            // 0 filas: el barrido borró el blob después del INSERT; se vuelve a registrar
+        } while (blobRepository.addReferences(sha256, 1) == 0);
+
+        // La fila ya está bloqueada por la referencia: el barrido no puede borrarla hasta confirmar
+        String key = blobKey(sha256);
+        if (inserted || !fileStorage.exists(key)) {
+            // Si se repone un archivo borrado por el barrido, puede tener otra compresión
+            if (!inserted && blobRepository.updateLayout(sha256, staged.storedSize(), staged.compressed()) != 1) {
+                throw new IllegalStateException("Blob " + sha256 + " disappeared while referenced");
+            }
+            moveAfterCommit(staged.key(), key);
+        } else {
+            fileStorage.delete(staged.key());
+        }
+    }
+
+    /**
+     * Descartar un archivo en staging que no llegó a referenciarse (p. ej. la transacción falló).
+     * Tras un rollback de {@link #acquire} el archivo sigue en staging; tras un commit ya se movió
+     * y no hay nada que borrar.
+     */
+    public void discard(StoredFile staged) {
+        fileStorage.delete(staged.key());
+    }
+
+    /**
+     * Restar referencias a un blob.
+     *
+     * @param sha256 SHA-256 del blob
+     * @param count Número de referencias a restar
+     */
+    @Transactional
+    public void release(String sha256, int count) {
+        if (sha256 != null && count > 0) {
+            blobRepository.removeReferences(sha256, count, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Ubicar un blob para leerlo.
+     *
+     * @param sha256 SHA-256 del blob
+     * @return El blob (con su compresión) o vacío si no existe
+     */
+    public Optional<StoredBlob> find(String sha256) {
+        return blobRepository.findById(sha256);
+    }
+
+    private void moveAfterCommit(String fromKey, String toKey) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    fileStorage.move(fromKey, toKey);
+                } catch (IOException e) {
+                    // La fila ya está confirmada: la próxima subida del mismo contenido repone el archivo
+                    log.error("Could not move staged file {} to {}", fromKey, toKey, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Ruta en disco de un blob: blobs/ab/cd/abcd... (dos niveles para no llenar un directorio).
+     */
+    public String blobKey(String sha256) {
+        return "blobs/" + sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256;
+    }
+
+    /**
+     * Directorio para archivos derivados de un blob: derived/ab/cd/abcd.../
+     */
+    public String derivedKey(String sha256) {
+        return "derived/" + sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256;
+    }
+
+    /**
+     * Barrido de blobs sin referencias y de staging abandonado (subidas cortadas).
+     */
+    @Scheduled(initialDelayString = "${keepup.storage.gc.interval:PT1H}",
+            fixedDelayString = "${keepup.storage.gc.interval:PT1H}")
+    public void sweep() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(gcGrace);
+        int deleted = 0;
+        for (int partition : leaseManager.claim(GC_JOB)) {
+            JobLeaseManager.KeyRange range = JobLeaseManager.hexRange(partition, gcPartitions);
+            List<String> candidates;
+            do {
+                if (!leaseManager.holds(GC_JOB, partition)) {
+                    // El arriendo venció a mitad de barrido: la partición ya puede ser de otro nodo
+                    break;
+                }
+                candidates = blobRepository.findUnreferencedBefore(cutoff, range.from(), range.to(), Limit.of(gcBatchSize));
+                for (String sha256 : candidates) {
+                    Boolean removed = transactionTemplate.execute(status -> blobRepository.lockUnreferenced(sha256)
+                            .map(blob -> {
+                                fileStorage.delete(blobKey(sha256));
+                                fileStorage.deleteDirectory(derivedKey(sha256));
+                                blobRepository.delete(blob);
+                                return true;
+                            })
+                            .orElse(false));
+                    if (Boolean.TRUE.equals(removed)) {
+                        deleted++;
+                    }
+                }
+            } while (candidates.size() == gcBatchSize);
+        }
+
+        int staleStaging = leaseManager.holds(GC_JOB, 0) ? fileStorage.deleteOlderThan(STAGING, gcGrace) : 0;
+        if (deleted > 0 || staleStaging > 0) {
+            log.info("Blob sweep removed {} unreferenced blobs and {} stale staging files", deleted, staleStaging);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.keepup.core.storage;
+
+import java.nio.file.Path;
+
+/**
+ * Archivo a enviar al cliente con sus metadatos HTTP.
+ *
+ * @param path Ruta absoluta en disco
+ * @param size Tamaño del contenido original en bytes
+ * @param sha256 SHA-256 del contenido original (se usa como ETag y checksum)
+ * @param contentType Content-Type con el que se sirve
+ * @param fileName Nombre sugerido para Content-Disposition
+ * @param cacheControl Valor de Cache-Control
+ * @param gzip true si el archivo en disco está comprimido con gzip
+ * @param storedSize Bytes que ocupa en disco
+ */
+public record FileDownload(Path path, long size, String sha256, String contentType, String fileName,
+                           String cacheControl, boolean gzip, long storedSize) {
+
+    /**
+     * Archivo guardado sin comprimir.
+     */
+    public FileDownload(Path path, long size, String sha256, String contentType, String fileName, String cacheControl) {
+        this(path, size, sha256, contentType, fileName, cacheControl, false, size);
+    }
+}
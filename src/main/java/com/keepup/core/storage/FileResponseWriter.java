@@ -0,0 +1,236 @@
+package com.keepup.core.storage;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Escribe archivos del almacenamiento local en la respuesta HTTP.
+ *
+ * - ETag = SHA-256 del contenido; If-None-Match responde 304 sin leer el archivo.
+ * - Range de un solo intervalo responde 206 (con If-Range); rangos múltiples se ignoran y se
+ *   envía el archivo completo, como permite RFC 9110. Un rango fuera del archivo responde 416.
+ * - Cuerpo sin copias al heap solo con sendfile: con el conector NIO de Tomcat y tramos desde
+ *   keepup.storage.sendfile-threshold se delega en los atributos org.apache.tomcat.sendfile.*, y
+ *   el kernel copia del page cache al socket. En el resto de casos (tramos pequeños, otro
+ *   contenedor, pruebas) el archivo se copia a la salida del servlet con un buffer en el heap;
+ *   FileChannel.transferTo solo se usa si esa salida es de verdad un canal.
+ * - Archivos guardados con gzip: si el cliente acepta gzip (y no pide un rango) se envían tal
+ *   cual con Content-Encoding: gzip, también por sendfile. Si no, se descomprimen al vuelo.
+ *
+ * Configuración:
+ * - keepup.storage.sendfile-threshold: tamaño mínimo para usar sendfile (48 KB por defecto)
+ */
+@Component
+public class FileResponseWriter {
+
+    public static final String CHECKSUM_HEADER = "X-Checksum-SHA256";
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final int DECOMPRESS_BUFFER_SIZE = 16 * 1024;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final long sendfileThreshold;
+
+    public FileResponseWriter(@Value("${keepup.storage.sendfile-threshold:49152}") long sendfileThreshold) {
+        this.sendfileThreshold = sendfileThreshold;
+    }
+
+    public void write(FileDownload file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String etag = "\"" + file.sha256() + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, file.cacheControl());
+        response.setHeader(CHECKSUM_HEADER, file.sha256());
+        if (file.gzip()) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        long size = file.size();
+        long start = 0;
+        long end = size - 1;
+        boolean partial = false;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> ranges = parse(range);
+            if (ranges.size() == 1) {
+                HttpRange requested = ranges.get(0);
+                try {
+                    start = requested.getRangeStart(size);
+                    end = requested.getRangeEnd(size);
+                } catch (IllegalArgumentException e) {
+                    start = size;
+                }
+                if (start >= size || start > end) {
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    return;
+                }
+                partial = true;
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+
+        response.setContentType(file.contentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline()
+                .filename(file.fileName(), StandardCharsets.UTF_8).build().toString());
+        boolean head = "HEAD".equals(request.getMethod());
+
+        if (file.gzip() && !partial && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            // Representación comprimida: se envían los bytes del disco sin descomprimir
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.setHeader(HttpHeaders.ETAG, "W/" + etag);
+            response.setContentLengthLong(file.storedSize());
+            if (!head) {
+                sendRegion(file, 0, file.storedSize(), request, response);
+            }
+            return;
+        }
+
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+        if (head || length == 0) {
+            return;
+        }
+        if (file.gzip()) {
+            sendDecompressed(file, start, length, response);
+        } else {
+            sendRegion(file, start, length, request, response);
+        }
+    }
+
+    /**
+     * Envía un tramo del archivo tal como está en disco (sendfile o copia a la salida).
+     */
+    private void sendRegion(FileDownload file, long start, long length, HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        if (length >= sendfileThreshold && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat envía el archivo después de que el servlet retorne
+            request.setAttribute(SENDFILE_FILENAME, file.path().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        try (FileChannel channel = FileChannel.open(file.path(), StandardOpenOption.READ)) {
+            if (out instanceof WritableByteChannel target) {
+                long position = start;
+                long remaining = length;
+                while (remaining > 0) {
+                    long sent = channel.transferTo(position, remaining, target);
+                    if (sent <= 0) {
+                        throw new IOException("Stored file is shorter than expected: " + file.path());
+                    }
+                    position += sent;
+                    remaining -= sent;
+                }
+                return;
+            }
+            // La salida del servlet es un OutputStream: transferTo también copiaría por el heap
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(COPY_BUFFER_SIZE, length));
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    throw new IOException("Stored file is shorter than expected: " + file.path());
+                }
+                out.write(buffer.array(), 0, read);
+                position += read;
+                remaining -= read;
+            }
+        }
+    }
+
+    /**
+     * Descomprime al vuelo un tramo del contenido original (clientes sin gzip o rangos).
+     */
+    private static void sendDecompressed(FileDownload file, long start, long length, HttpServletResponse response)
+            throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file.path()), DECOMPRESS_BUFFER_SIZE)) {
+            in.skipNBytes(start);
+            OutputStream out = response.getOutputStream();
+            byte[] buffer = new byte[DECOMPRESS_BUFFER_SIZE];
+            long remaining = length;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read == -1) {
+                    throw new IOException("Stored file is shorter than expected: " + file.path());
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String candidate : acceptEncoding.split(",")) {
+            String[] parts = candidate.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * If-None-Match con una lista de ETags (débiles o fuertes) o "*".
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<HttpRange> parse(String range) {
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            // Cabecera Range inválida: se ignora y se envía el archivo completo
+            return List.of();
+        }
+    }
+}
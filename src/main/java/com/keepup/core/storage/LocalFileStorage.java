@@ -0,0 +1,251 @@
+package com.keepup.core.storage;
+
+import com.keepup.core.exception.BadRequestException;
+import com.keepup.core.exception.PayloadTooLargeException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Almacenamiento de archivos en disco local.
+ *
+ * Las subidas se copian por bloques de tamaño fijo desde el InputStream de la petición a un
+ * archivo temporal, calculando el SHA-256 (y opcionalmente comprimiendo) al vuelo; el heap usado por subida es un buffer de
+ * {@value #BUFFER_SIZE} bytes, sin importar el tamaño del archivo. Al terminar, el temporal se
+ * mueve atómicamente a su clave definitiva, así nunca se lee un archivo a medio escribir.
+ *
+ * Configuración:
+ * - keepup.storage.root: directorio raíz (por defecto data/storage)
+ */
+@Slf4j
+@Component
+public class LocalFileStorage {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MIN_GZIP_SAVING_PERCENT = 10;
+
+    private final Path root;
+    private final Path tmp;
+
+    public LocalFileStorage(@Value("${keepup.storage.root:data/storage}") String root) throws IOException {
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        // Temporales dentro de la raíz: mismo sistema de archivos, el move final es atómico
+        this.tmp = this.root.resolve(".tmp");
+        Files.createDirectories(tmp);
+    }
+
+    /**
+     * Copia un flujo a la clave indicada sin cargarlo completo en memoria.
+     *
+     * @param in Flujo de entrada (p. ej. el cuerpo de la petición)
+     * @param key Clave relativa a la raíz donde quedará el archivo
+     * @param maxBytes Tamaño máximo permitido
+     * @param expectedSha256 SHA-256 esperado en hexadecimal, o null para no verificar
+     * @return Archivo almacenado con su tamaño y SHA-256
+     * @throws PayloadTooLargeException si el flujo supera maxBytes
+     * @throws BadRequestException si el SHA-256 no coincide con el esperado
+     */
+    public StoredFile store(InputStream in, String key, long maxBytes, String expectedSha256) throws IOException {
+        return store(in, key, maxBytes, expectedSha256, false);
+    }
+
+    /**
+     * Igual que {@link #store(InputStream, String, long, String)}, comprimiendo opcionalmente con
+     * gzip mientras se escribe (en una sola pasada). El SHA-256 y el tamaño son siempre los del
+     * contenido original. Si la compresión no ahorra al menos {@value #MIN_GZIP_SAVING_PERCENT}%,
+     * se guarda sin comprimir para no pagar la descompresión al leer.
+     */
+    public StoredFile store(InputStream in, String key, long maxBytes, String expectedSha256, boolean gzip)
+            throws IOException {
+        Path target = resolve(key);
+        Path temp = Files.createTempFile(tmp, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            long size = 0;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+                 OutputStream out = gzip
+                         ? new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)
+                         : Channels.newOutputStream(channel)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxBytes) {
+                        throw new PayloadTooLargeException("File exceeds the maximum size of " + maxBytes + " bytes");
+                    }
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+                out.flush();
+                if (out instanceof GZIPOutputStream gzipOut) {
+                    gzipOut.finish();
+                }
+                channel.force(true);
+            }
+
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(sha256)) {
+                throw new BadRequestException("Checksum mismatch: expected " + expectedSha256 + " but received " + sha256);
+            }
+
+            long storedSize = Files.size(temp);
+            boolean compressed = gzip;
+            if (gzip && storedSize * 100 > size * (100 - MIN_GZIP_SAVING_PERCENT)) {
+                temp = gunzip(temp);
+                storedSize = size;
+                compressed = false;
+            }
+
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return new StoredFile(key, size, sha256, storedSize, compressed);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Mueve un archivo entre claves (atómico dentro de la misma raíz).
+     */
+    public void move(String fromKey, String toKey) throws IOException {
+        Path target = resolve(toKey);
+        Files.createDirectories(target.getParent());
+        Files.move(resolve(fromKey), target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Indica si existe un archivo para la clave.
+     */
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    /**
+     * Ruta absoluta de una clave. Rechaza claves que se salgan de la raíz.
+     */
+    public Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.startsWith(tmp)) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        return path;
+    }
+
+    /**
+     * Borra el archivo de una clave (si existe).
+     */
+    public void delete(String key) {
+        if (key == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(resolve(key));
+        } catch (IOException e) {
+            // Un archivo huérfano no debe romper la operación del usuario
+            log.warn("Could not delete stored file {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Borra el archivo cuando la transacción actual confirme (o de inmediato si no hay transacción).
+     * Evita perder el archivo si la transacción que lo desvincula hace rollback.
+     */
+    public void deleteAfterCommit(String key) {
+        if (key == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            delete(key);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                delete(key);
+            }
+        });
+    }
+
+    /**
+     * Borra un directorio (clave) con los archivos que contenga, sin recorrer subdirectorios.
+     */
+    public void deleteDirectory(String directoryKey) {
+        Path directory = resolve(directoryKey);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            log.warn("Could not delete directory {}: {}", directoryKey, e.getMessage());
+        }
+    }
+
+    /**
+     * Borra los archivos de un directorio (clave) modificados hace más de maxAge.
+     *
+     * @return Número de archivos borrados
+     */
+    public int deleteOlderThan(String directoryKey, Duration maxAge) {
+        Path directory = resolve(directoryKey);
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        Instant cutoff = Instant.now().minus(maxAge);
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff) && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not clean {}: {}", directoryKey, e.getMessage());
+        }
+        return deleted;
+    }
+
+    /**
+     * Descomprime un temporal gzip en otro temporal y borra el original.
+     */
+    private Path gunzip(Path compressed) throws IOException {
+        Path raw = Files.createTempFile(tmp, "upload-", ".part");
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(compressed), BUFFER_SIZE)) {
+            Files.copy(in, raw, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(compressed);
+        }
+        return raw;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.keepup.core.storage;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Contenido almacenado una sola vez, identificado por su SHA-256.
+ *
+ * Varios documentos (de uno o varios usuarios) pueden apuntar al mismo blob; refCount cuenta
+ * esas referencias. Cuando llega a 0 se marca unreferencedSince y el barrido de {@link BlobStore}
+ * lo elimina pasado el periodo de gracia.
+ */
+@Entity
+@Table(name = "stored_blob", indexes = {
+        @Index(name = "idx_stored_blob_unreferenced", columnList = "unreferenced_since")
+})
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StoredBlob {
+
+    // SHA-256 del contenido original en hexadecimal
+    @Id
+    @Column(length = 64)
+    private String sha256;
+
+    // Tamaño del contenido original en bytes
+    @Column(nullable = false)
+    private Long size;
+
+    // Bytes que ocupa en disco
+    @Column(nullable = false)
+    private Long storedSize;
+
+    // true si el archivo en disco está comprimido con gzip
+    @Column(nullable = false)
+    private boolean compressed;
+
+    // Número de documentos que apuntan a este contenido
+    @Column(nullable = false)
+    private int refCount;
+
+    // Momento en que refCount llegó a 0 (null mientras tenga referencias)
+    @Column(name = "unreferenced_since")
+    private LocalDateTime unreferencedSince;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
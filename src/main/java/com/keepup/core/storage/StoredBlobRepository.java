@@ -0,0 +1,85 @@
+package com.keepup.core.storage;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, String> {
+
+    /**
+     * Registrar un blob nuevo con 0 referencias; si ya existe no hace nada.
+     * Es atómico frente a subidas concurrentes del mismo contenido (no hay violación de PK).
+     * Sin columna de conflicto para que también lo acepte H2; la PK es la única restricción única.
+     *
+     * @return 1 si se insertó, 0 si ya existía
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO stored_blob (sha256, size, stored_size, compressed, ref_count, unreferenced_since, created_at)
+            VALUES (:sha256, :size, :storedSize, :compressed, 0, NULL, :now)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("sha256") String sha256,
+                       @Param("size") long size,
+                       @Param("storedSize") long storedSize,
+                       @Param("compressed") boolean compressed,
+                       @Param("now") LocalDateTime now);
+
+    /**
+     * Sumar referencias a un blob (lo saca de la cola de borrado).
+     */
+    @Modifying
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount + :count, b.unreferencedSince = NULL WHERE b.sha256 = :sha256")
+    int addReferences(@Param("sha256") String sha256, @Param("count") int count);
+
+    /**
+     * Actualizar cómo está guardado el blob en disco (al reponer un archivo perdido).
+     */
+    @Modifying
+    @Query("UPDATE StoredBlob b SET b.storedSize = :storedSize, b.compressed = :compressed WHERE b.sha256 = :sha256")
+    int updateLayout(@Param("sha256") String sha256,
+                     @Param("storedSize") long storedSize,
+                     @Param("compressed") boolean compressed);
+
+    /**
+     * Restar referencias a un blob; si llega a 0 queda marcado para el barrido.
+     */
+    @Modifying
+    @Query("""
+            UPDATE StoredBlob b SET
+                b.refCount = b.refCount - :count,
+                b.unreferencedSince = CASE WHEN b.refCount - :count <= 0 THEN :now ELSE b.unreferencedSince END
+            WHERE b.sha256 = :sha256
+            """)
+    int removeReferences(@Param("sha256") String sha256, @Param("count") int count, @Param("now") LocalDateTime now);
+
+    /**
+     * Candidatos al barrido: sin referencias desde antes de :cutoff (usa idx_stored_blob_unreferenced)
+     * y con el SHA-256 en [from, to), la partición que barre este nodo.
+     */
+    @Query("""
+            SELECT b.sha256 FROM StoredBlob b
+            WHERE b.unreferencedSince < :cutoff AND b.refCount <= 0 AND b.sha256 >= :from AND b.sha256 < :to
+            ORDER BY b.unreferencedSince
+            """)
+    List<String> findUnreferencedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("from") String from,
+                                        @Param("to") String to, Limit limit);
+
+    /**
+     * Bloquear un blob sin referencias para borrarlo. Una subida concurrente que le sume una
+     * referencia espera este bloqueo (o lo toma antes, y entonces ya no cumple refCount <= 0).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM StoredBlob b WHERE b.sha256 = :sha256 AND b.refCount <= 0")
+    Optional<StoredBlob> lockUnreferenced(@Param("sha256") String sha256);
+}
@@ -0,0 +1,13 @@
+package com.keepup.core.storage;
+
+/**
+ * Archivo ya escrito en el almacenamiento local.
+ *
+ * @param key Clave relativa a la raíz del almacenamiento
+ * @param size Tamaño del contenido original en bytes
+ * @param sha256 SHA-256 del contenido original en hexadecimal (minúsculas)
+ * @param storedSize Bytes que ocupa en disco (menor que size si está comprimido)
+ * @param compressed true si el archivo en disco está comprimido con gzip
+ */
+public record StoredFile(String key, long size, String sha256, long storedSize, boolean compressed) {
+}
@@ -0,0 +1,63 @@
+package com.keepup.core.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exportador a archivo local: escribe un span por línea en formato JSON (JSON Lines).
+ * Solo se activa si se define keepup.tracing.file (ruta del archivo).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "keepup.tracing.file")
+public class FileSpanExporter implements SpanExporter {
+
+    private final ObjectMapper objectMapper;
+    private final BufferedWriter writer;
+
+    public FileSpanExporter(ObjectMapper objectMapper,
+                            @Value("${keepup.tracing.file}") String file) throws IOException {
+        this.objectMapper = objectMapper;
+        Path path = Path.of(file);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void export(Span span) {
+        try {
+            String line = objectMapper.writeValueAsString(span);
+            synchronized (writer) {
+                writer.write(line);
+                writer.newLine();
+                // Se vacía el buffer al terminar cada traza para no perder spans si el proceso muere
+                if (span.getParentSpanId() == null) {
+                    writer.flush();
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not export span {} to file: {}", span.getSpanId(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (writer) {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.keepup.core.tracing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Exportador en memoria: guarda los últimos N spans en un buffer circular de tamaño fijo.
+ * Los spans más antiguos se sobrescriben, por lo que la memoria usada es constante.
+ *
+ * Es la fuente de datos del endpoint de administración {@link TraceAdminController}.
+ * Capacidad configurable con keepup.tracing.buffer-size (10000 por defecto).
+ */
+@Component
+public class RingBufferSpanExporter implements SpanExporter {
+
+    private final AtomicReferenceArray<Span> buffer;
+    private final AtomicLong cursor = new AtomicLong();
+
+    public RingBufferSpanExporter(@Value("${keepup.tracing.buffer-size:10000}") int capacity) {
+        this.buffer = new AtomicReferenceArray<>(Math.max(capacity, 1));
+    }
+
+    @Override
+    public void export(Span span) {
+        int slot = (int) (cursor.getAndIncrement() % buffer.length());
+        buffer.set(slot, span);
+    }
+
+    /**
+     * Spans raíz más recientes (uno por traza), del más lento al más rápido si slowestFirst.
+     */
+    public List<Span> recentRoots(int limit, boolean slowestFirst) {
+        List<Span> roots = new ArrayList<>();
+        for (int i = 0; i < buffer.length(); i++) {
+            Span span = buffer.get(i);
+            if (span != null && span.getParentSpanId() == null) {
+                roots.add(span);
+            }
+        }
+        Comparator<Span> order = slowestFirst
+                ? Comparator.comparingLong(Span::getDurationMicros).reversed()
+                : Comparator.comparingLong(Span::getStartEpochMicros).reversed();
+        roots.sort(order);
+        return roots.size() > limit ? roots.subList(0, limit) : roots;
+    }
+
+    /**
+     * Todos los spans de una traza que sigan en el buffer, ordenados por inicio.
+     */
+    public List<Span> findTrace(String traceId) {
+        List<Span> spans = new ArrayList<>();
+        for (int i = 0; i < buffer.length(); i++) {
+            Span span = buffer.get(i);
+            if (span != null && span.getTraceId().equals(traceId)) {
+                spans.add(span);
+            }
+        }
+        spans.sort(Comparator.comparingLong(Span::getStartEpochMicros));
+        return spans;
+    }
+}
@@ -0,0 +1,59 @@
+package com.keepup.core.tracing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tramo (span) de una traza: una operación con nombre, inicio y duración.
+ * Los spans de una misma petición comparten el traceId y se encadenan por parentSpanId.
+ */
+public final class Span {
+
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final String name;
+    private final long startEpochMicros;
+    private final long startNanos;
+    private final Map<String, String> tags = new LinkedHashMap<>(4);
+    private final Span parent;
+
+    private volatile long durationNanos = -1;
+    private String error;
+
+    Span(String traceId, String spanId, Span parent, String name) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parent = parent;
+        this.parentSpanId = parent != null ? parent.spanId : null;
+        this.name = name;
+        this.startEpochMicros = System.currentTimeMillis() * 1000;
+        this.startNanos = System.nanoTime();
+    }
+
+    void end() {
+        durationNanos = System.nanoTime() - startNanos;
+    }
+
+    void tag(String key, String value) {
+        tags.put(key, value);
+    }
+
+    void error(Throwable throwable) {
+        this.error = throwable.getClass().getSimpleName();
+    }
+
+    Span getParent() {
+        return parent;
+    }
+
+    public String getTraceId() { return traceId; }
+    public String getSpanId() { return spanId; }
+    public String getParentSpanId() { return parentSpanId; }
+    public String getName() { return name; }
+    public long getStartEpochMicros() { return startEpochMicros; }
+    public long getDurationMicros() { return durationNanos < 0 ? -1 : durationNanos / 1000; }
+    public Map<String, String> getTags() { return Collections.unmodifiableMap(tags); }
+    public String getError() { return error; }
+}
@@ -0,0 +1,10 @@
+package com.keepup.core.tracing;
+
+/**
+ * Destino de los spans terminados (buffer en memoria, archivo local, ...).
+ * Se invoca en el hilo de la petición, por lo que las implementaciones deben ser baratas.
+ */
+public interface SpanExporter {
+
+    void export(Span span);
+}
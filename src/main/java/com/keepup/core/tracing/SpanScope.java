@@ -0,0 +1,28 @@
+package com.keepup.core.tracing;
+
+/**
+ * Ámbito de un span activo. Se usa con try-with-resources: al cerrarse termina el span
+ * y restaura el span padre como actual.
+ *
+ * Cuando la traza no está muestreada se devuelve {@link #NOOP}, que no asigna memoria.
+ */
+public interface SpanScope extends AutoCloseable {
+
+    SpanScope NOOP = new SpanScope() {
+        @Override
+        public SpanScope tag(String key, String value) { return this; }
+
+        @Override
+        public void error(Throwable throwable) { }
+
+        @Override
+        public void close() { }
+    };
+
+    SpanScope tag(String key, String value);
+
+    void error(Throwable throwable);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,55 @@
+package com.keepup.core.tracing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Endpoint de administración para consultar las trazas guardadas en memoria.
+ * Protegido por WebSecurityConfig (solo ROLE_ADMIN).
+ *
+ * Base URL: /api/v1/admin/traces
+ */
+@RestController
+@RequestMapping("/api/v1/admin/traces")
+@RequiredArgsConstructor
+public class TraceAdminController {
+
+    private final RingBufferSpanExporter spanBuffer;
+
+    /**
+     * Listar los spans raíz de las trazas más recientes (o más lentas).
+     *
+     * GET /api/v1/admin/traces?limit=50&slowest=false
+     *
+     * @param limit Máximo de trazas a devolver
+     * @param slowest true para ordenar por duración descendente
+     * @return 200 OK con un span raíz por traza
+     */
+    @GetMapping
+    public ResponseEntity<List<Span>> recentTraces(
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(defaultValue = "false") boolean slowest) {
+
+        return ResponseEntity.ok(spanBuffer.recentRoots(Math.min(Math.max(limit, 1), 500), slowest));
+    }
+
+    /**
+     * Obtener todos los spans de una traza.
+     *
+     * GET /api/v1/admin/traces/{traceId}
+     *
+     * @param traceId Identificador de la traza (cabecera X-Trace-Id)
+     * @return 200 OK con los spans ordenados por inicio
+     */
+    @GetMapping("/{traceId}")
+    public ResponseEntity<List<Span>> getTrace(@PathVariable String traceId) {
+        List<Span> spans = spanBuffer.findTrace(traceId);
+        if (spans.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(spans);
+    }
+}
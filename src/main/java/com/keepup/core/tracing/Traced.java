@@ -0,0 +1,17 @@
+package com.keepup.core.tracing;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca un bean para que cada método público abra un span "Clase.metodo"
+ * dentro de la traza actual (ver {@link TracingAdvisingPostProcessor}).
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Traced {
+}
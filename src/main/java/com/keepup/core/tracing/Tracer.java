@@ -0,0 +1,225 @@
+package com.keepup.core.tracing;
+
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Trazador ligero basado en ThreadLocal.
+ *
+ * El filtro {@link TracingFilter} abre la traza raíz de cada petición; el resto del código abre
+ * spans hijos con {@link #startSpan(String)}. El traceId se propaga en la cabecera
+ * {@value #TRACE_ID_HEADER} y se publica en el MDC ("traceId", "spanId") para correlacionar logs,
+ * p. ej. con {@code logging.pattern.correlation=[%X{traceId:-},%X{spanId:-}] }.
+ *
+ * Configuración:
+ * - keepup.tracing.enabled (true por defecto)
+ * - keepup.tracing.sample-rate: fracción de trazas que se registran (0.0 - 1.0)
+ * - keepup.tracing.trust-incoming-sampling: respetar la decisión de muestreo recibida en
+ *   {@value #SAMPLED_HEADER} (false por defecto). Solo debe activarse si delante hay un proxy
+ *   interno que fija o elimina esa cabecera; si no, cualquier cliente podría forzar el registro
+ *   completo de todas sus peticiones.
+ */
+@Component
+public class Tracer {
+
+    public static final String TRACE_ID_HEADER = "X-Trace-Id";
+    public static final String SAMPLED_HEADER = "X-Trace-Sampled";
+
+    private static final Pattern VALID_TRACE_ID = Pattern.compile("^[0-9a-fA-F]{8,32}$");
+
+    private final ThreadLocal<Span> current = new ThreadLocal<>();
+    private final List<SpanExporter> exporters;
+    private final boolean enabled;
+    private final double sampleRate;
+    private final boolean trustIncomingSampling;
+
+    public Tracer(List<SpanExporter> exporters,
+                  @Value("${keepup.tracing.enabled:true}") boolean enabled,
+                  @Value("${keepup.tracing.sample-rate:0.1}") double sampleRate,
+                  @Value("${keepup.tracing.trust-incoming-sampling:false}") boolean trustIncomingSampling) {
+        this.exporters = exporters;
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.trustIncomingSampling = trustIncomingSampling;
+    }
+
+    /**
+     * Abre la traza raíz de una petición.
+     *
+     * @param name Nombre del span raíz
+     * @param incomingTraceId traceId recibido del cliente (puede ser null o inválido)
+     * @param incomingSampled decisión de muestreo recibida ("1"/"0"), o null para decidir localmente;
+     *                        se ignora salvo con keepup.tracing.trust-incoming-sampling
+     * @return ámbito del span raíz (NOOP si la traza no se muestrea)
+     */
+    public SpanScope startTrace(String name, String incomingTraceId, String incomingSampled) {
+        String traceId = incomingTraceId != null && VALID_TRACE_ID.matcher(incomingTraceId).matches()
+                ? incomingTraceId.toLowerCase()
+                : newId(16);
+        MDC.put("traceId", traceId);
+
+        boolean sampled = enabled && (trustIncomingSampling && incomingSampled != null
+                ? "1".equals(incomingSampled)
+                : ThreadLocalRandom.current().nextDouble() < sampleRate);
+        if (!sampled) {
+            return new UnsampledScope();
+        }
+        return open(new Span(traceId, newId(8), null, name));
+    }
+
+    /**
+     * Abre un span hijo del span actual. Si no hay traza muestreada en curso no hace nada.
+     */
+    public SpanScope startSpan(String name) {
+        Span parent = current.get();
+        if (parent == null) {
+            return SpanScope.NOOP;
+        }
+        return open(new Span(parent.getTraceId(), newId(8), parent, name));
+    }
+
+    /**
+     * Preparar una tarea para ejecutarla en otro hilo (p. ej. un hilo virtual) dentro de la traza
+     * actual: allí se abre como span hijo del span en curso y lleva el traceId en el MDC. Al
+     * terminar deja el hilo como estaba. Sin traza en curso devuelve la tarea tal cual.
+     *
+     * @param name Nombre del span hijo
+     */
+    public <T> Callable<T> wrap(String name, Callable<T> task) {
+        Span parent = current.get();
+        String traceId = MDC.get("traceId");
+        if (parent == null && traceId == null) {
+            return task;
+        }
+        return () -> {
+            Span previous = current.get();
+            Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            MDC.put("traceId", traceId);
+            try {
+                if (parent == null) {
+                    return task.call();
+                }
+                current.set(parent);
+                try (SpanScope scope = startSpan(name)) {
+                    try {
+                        return task.call();
+                    } catch (Exception | Error e) {
+                        scope.error(e);
+                        throw e;
+                    }
+                }
+            } finally {
+                if (previous != null) {
+                    current.set(previous);
+                } else {
+                    current.remove();
+                }
+                if (previousMdc != null) {
+                    MDC.setContextMap(previousMdc);
+                } else {
+                    MDC.clear();
+                }
+            }
+        };
+    }
+
+    /**
+     * Indica si el hilo actual está dentro de una traza muestreada.
+     * Permite evitar trabajo de instrumentación (p. ej. envolver conexiones JDBC) cuando no hace falta.
+     */
+    public boolean isRecording() {
+        return current.get() != null;
+    }
+
+    /**
+     * traceId de la traza en curso (muestreada o no), útil para devolverlo al cliente.
+     */
+    public String currentTraceId() {
+        return MDC.get("traceId");
+    }
+
+    private SpanScope open(Span span) {
+        current.set(span);
+        MDC.put("spanId", span.getSpanId());
+        return new ActiveScope(span);
+    }
+
+    private void finish(Span span) {
+        span.end();
+        Span parent = span.getParent();
+        if (parent != null) {
+            current.set(parent);
+            MDC.put("spanId", parent.getSpanId());
+        } else {
+            current.remove();
+            MDC.remove("spanId");
+            MDC.remove("traceId");
+        }
+        for (SpanExporter exporter : exporters) {
+            exporter.export(span);
+        }
+    }
+
+    private static String newId(int bytes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder sb = new StringBuilder(bytes * 2);
+        for (int i = 0; i < bytes; i += 8) {
+            String hex = Long.toHexString(random.nextLong());
+            sb.append("0".repeat(16 - hex.length())).append(hex);
+        }
+        return sb.substring(0, bytes * 2);
+    }
+
+    private final class ActiveScope implements SpanScope {
+
+        private final Span span;
+        private boolean closed;
+
+        private ActiveScope(Span span) {
+            this.span = span;
+        }
+
+        @Override
+        public SpanScope tag(String key, String value) {
+            span.tag(key, value);
+            return this;
+        }
+
+        @Override
+        public void error(Throwable throwable) {
+            span.error(throwable);
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                finish(span);
+            }
+        }
+    }
+
+    /**
+     * Traza no muestreada: solo mantiene el traceId en el MDC mientras dura la petición.
+     */
+    private static final class UnsampledScope implements SpanScope {
+
+        @Override
+        public SpanScope tag(String key, String value) { return this; }
+
+        @Override
+        public void error(Throwable throwable) { }
+
+        @Override
+        public void close() {
+            MDC.remove("traceId");
+        }
+    }
+}
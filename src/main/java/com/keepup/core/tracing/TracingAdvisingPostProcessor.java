@@ -0,0 +1,39 @@
+package com.keepup.core.tracing;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Añade a los beans anotados con {@link Traced} un interceptor que abre un span por cada
+ * llamada a método. Si el bean ya tiene un proxy (p. ej. por @Transactional) el interceptor
+ * se añade al proxy existente, por delante del resto de advisors, para medir también la transacción.
+ */
+@Component
+public class TracingAdvisingPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+    public TracingAdvisingPostProcessor(ObjectProvider<Tracer> tracerProvider) {
+        MethodInterceptor interceptor = invocation -> {
+            Tracer tracer = tracerProvider.getObject();
+            if (!tracer.isRecording()) {
+                return invocation.proceed();
+            }
+            String name = ClassUtils.getUserClass(invocation.getThis()).getSimpleName()
+                    + "." + invocation.getMethod().getName();
+            try (SpanScope scope = tracer.startSpan(name)) {
+                try {
+                    return invocation.proceed();
+                } catch (Throwable t) {
+                    scope.error(t);
+                    throw t;
+                }
+            }
+        };
+        this.advisor = new DefaultPointcutAdvisor(new AnnotationMatchingPointcut(Traced.class, true), interceptor);
+        setBeforeExistingAdvisors(true);
+    }
+}
@@ -0,0 +1,33 @@
+package com.keepup.core.tracing;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Envuelve el DataSource de la aplicación en un {@link TracingDataSource} para medir cada sentencia SQL.
+ * Se puede desactivar con keepup.tracing.sql=false.
+ */
+@Component
+public class TracingDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<Tracer> tracerProvider;
+    private final boolean enabled;
+
+    public TracingDataSourcePostProcessor(ObjectProvider<Tracer> tracerProvider,
+                                          @Value("${keepup.tracing.sql:true}") boolean enabled) {
+        this.tracerProvider = tracerProvider;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (enabled && bean instanceof DataSource dataSource && !(bean instanceof TracingDataSource)) {
+            return new TracingDataSource(dataSource, tracerProvider.getObject());
+        }
+        return bean;
+    }
+}
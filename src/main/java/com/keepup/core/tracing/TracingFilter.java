@@ -0,0 +1,48 @@
+package com.keepup.core.tracing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Abre la traza raíz de cada petición HTTP antes que cualquier otro filtro
+ * (incluida la cadena de Spring Security) y devuelve el traceId en la cabecera X-Trace-Id.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TracingFilter extends OncePerRequestFilter {
+
+    private final Tracer tracer;
+
+    public TracingFilter(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        try (SpanScope scope = tracer.startTrace("HTTP " + request.getMethod(),
+                request.getHeader(Tracer.TRACE_ID_HEADER), request.getHeader(Tracer.SAMPLED_HEADER))) {
+            response.setHeader(Tracer.TRACE_ID_HEADER, tracer.currentTraceId());
+            try {
+                chain.doFilter(request, response);
+            } catch (IOException | ServletException | RuntimeException e) {
+                scope.error(e);
+                throw e;
+            } finally {
+                // El patrón de la ruta (/api/v1/vehicles/{id}) solo se conoce tras el dispatch
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                scope.tag("http.method", request.getMethod())
+                        .tag("http.route", pattern != null ? pattern.toString() : request.getRequestURI())
+                        .tag("http.status", Integer.toString(response.getStatus()));
+            }
+        }
+    }
+}
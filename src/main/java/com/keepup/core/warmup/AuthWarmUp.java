@@ -0,0 +1,49 @@
+package com.keepup.core.warmup;
+
+import com.keepup.auth.entity.Role;
+import com.keepup.auth.entity.User;
+import com.keepup.core.security.CustomerDetails;
+import com.keepup.core.security.JwtUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Calienta la ruta de autenticación con un usuario sintético (sin tocar la base de datos):
+ * generación, parseo y validación de JWT (lo que hace JwtRequestFilter en cada petición)
+ * y unas pocas verificaciones BCrypt (login).
+ */
+@Component
+@RequiredArgsConstructor
+public class AuthWarmUp implements WarmUpTask {
+
+    private static final int BCRYPT_ITERATIONS = 3;
+
+    private final JwtUtil jwtUtil;
+    private final PasswordEncoder passwordEncoder;
+
+    @Override
+    public void warmUp(int iterations) {
+        User user = User.builder()
+                .id(-1L)
+                .name("warm-up")
+                .email("warm-up@keepup.local")
+                .password("warm-up")
+                .role(new Role(-1L, "ROLE_CLIENT", null))
+                .build();
+        CustomerDetails userDetails = new CustomerDetails(user);
+
+        for (int i = 0; i < iterations; i++) {
+            String token = jwtUtil.generateToken(userDetails);
+            if (!userDetails.getUsername().equals(jwtUtil.extractUsername(token))
+                    || !jwtUtil.validateToken(token, userDetails)) {
+                throw new IllegalStateException("Synthetic token did not validate");
+            }
+        }
+
+        String hash = passwordEncoder.encode("warm-up-password");
+        for (int i = 0; i < BCRYPT_ITERATIONS; i++) {
+            passwordEncoder.matches("warm-up-password", hash);
+        }
+    }
+}
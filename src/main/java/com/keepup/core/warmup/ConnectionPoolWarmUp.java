@@ -0,0 +1,51 @@
+package com.keepup.core.warmup;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Abre las conexiones mínimas del pool de Hikari antes de recibir tráfico, para que las primeras
+ * peticiones no paguen el handshake TCP/TLS y la autenticación contra PostgreSQL.
+ *
+ * Por defecto abre minimumIdle conexiones; se puede ajustar con keepup.warmup.connections.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConnectionPoolWarmUp implements WarmUpTask {
+
+    private final DataSource dataSource;
+
+    @Value("${keepup.warmup.connections:-1}")
+    private int connections;
+
+    @Override
+    public void warmUp(int iterations) throws SQLException {
+        int target = connections;
+        if (target < 0) {
+            target = dataSource.isWrapperFor(HikariDataSource.class)
+                    ? dataSource.unwrap(HikariDataSource.class).getMinimumIdle()
+                    : 1;
+        }
+        // Se piden todas a la vez para obligar al pool a establecer conexiones distintas
+        List<Connection> opened = new ArrayList<>(target);
+        try {
+            for (int i = 0; i < target; i++) {
+                Connection connection = dataSource.getConnection();
+                opened.add(connection);
+                connection.isValid(1);
+            }
+        } finally {
+            for (Connection connection : opened) {
+                connection.close();
+            }
+        }
+    }
+}
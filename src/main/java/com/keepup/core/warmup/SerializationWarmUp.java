@@ -0,0 +1,63 @@
+package com.keepup.core.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.keepup.auth.entity.User;
+import com.keepup.vehicle.dto.VehicleRequest;
+import com.keepup.vehicle.dto.VehicleResponse;
+import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.enums.VehicleType;
+import com.keepup.vehicle.mapper.VehicleMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Calienta el mapeo Vehicle -> VehicleResponse y la (de)serialización Jackson con datos sintéticos,
+ * usando el mismo ObjectMapper que los conversores HTTP para que queden creados sus serializadores.
+ */
+@Component
+@RequiredArgsConstructor
+public class SerializationWarmUp implements WarmUpTask {
+
+    private static final int LIST_SIZE = 20;
+
+    private final VehicleMapper vehicleMapper;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void warmUp(int iterations) throws Exception {
+        User owner = User.builder().id(-1L).email("warm-up@keepup.local").build();
+        LocalDateTime now = LocalDateTime.now();
+        List<Vehicle> vehicles = new ArrayList<>(LIST_SIZE);
+        for (int i = 0; i < LIST_SIZE; i++) {
+            vehicles.add(Vehicle.builder()
+                    .id((long) -i)
+                    .licensePlate("WRM" + (100 + i))
+                    .make("Warm")
+                    .model("Up")
+                    .year(2020)
+                    .color("Gris")
+                    .vehicleType(VehicleType.values()[i % VehicleType.values().length])
+                    .user(owner)
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build());
+        }
+        byte[] request = objectMapper.writeValueAsBytes(VehicleRequest.builder()
+                .licensePlate("WRM100").make("Warm").model("Up").year(2020).vehicleType(VehicleType.CAR)
+                .build());
+
+        for (int i = 0; i < iterations / LIST_SIZE + 1; i++) {
+            List<VehicleResponse> responses = new ArrayList<>(LIST_SIZE);
+            for (Vehicle vehicle : vehicles) {
+                responses.add(vehicleMapper.toResponse(vehicle));
+            }
+            objectMapper.writeValueAsBytes(responses);
+            objectMapper.writeValueAsBytes(responses.get(0));
+            vehicleMapper.toEntity(objectMapper.readValue(request, VehicleRequest.class));
+        }
+    }
+}
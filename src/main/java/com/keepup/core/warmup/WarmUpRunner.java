@@ -0,0 +1,71 @@
+package com.keepup.core.warmup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Ejecuta las tareas de calentamiento ({@link WarmUpTask}) antes de que la instancia acepte tráfico.
+ *
+ * Spring Boot solo publica ReadinessState.ACCEPTING_TRAFFIC (ApplicationReadyEvent) cuando han
+ * terminado todos los ApplicationRunner, así que mientras este runner trabaja la sonda
+ * /actuator/health/readiness responde OUT_OF_SERVICE y el balanceador no envía peticiones.
+ *
+ * Configuración:
+ * - keepup.warmup.enabled (true por defecto)
+ * - keepup.warmup.iterations: repeticiones de las rutas calientes (5000 por defecto)
+ * - keepup.warmup.timeout-ms: tiempo máximo total; las tareas pendientes se omiten (30000 por defecto)
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class WarmUpRunner implements ApplicationRunner {
+
+    private final ApplicationContext applicationContext;
+    private final List<WarmUpTask> tasks;
+
+    @Value("${keepup.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${keepup.warmup.iterations:5000}")
+    private int iterations;
+
+    @Value("${keepup.warmup.timeout-ms:30000}")
+    private long timeoutMs;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled || tasks.isEmpty()) {
+            return;
+        }
+        AvailabilityChangeEvent.publish(applicationContext, ReadinessState.REFUSING_TRAFFIC);
+
+        long start = System.nanoTime();
+        long deadline = start + timeoutMs * 1_000_000;
+        for (WarmUpTask task : tasks) {
+            if (System.nanoTime() > deadline) {
+                log.warn("Warm-up timeout reached, skipping {}", task.name());
+                continue;
+            }
+            long taskStart = System.nanoTime();
+            try {
+                task.warmUp(iterations);
+                log.debug("Warm-up task {} finished in {} ms", task.name(), (System.nanoTime() - taskStart) / 1_000_000);
+            } catch (Exception e) {
+                log.warn("Warm-up task {} failed: {}", task.name(), e.getMessage());
+            }
+        }
+        log.info("Warm-up finished in {} ms ({} tasks)", (System.nanoTime() - start) / 1_000_000, tasks.size());
+    }
+}
@@ -0,0 +1,19 @@
+package com.keepup.core.warmup;
+
+/**
+ * Tarea de calentamiento que se ejecuta antes de que la instancia se declare lista (readiness).
+ * Cualquier bean que implemente esta interfaz es ejecutado por {@link WarmUpRunner}.
+ */
+public interface WarmUpTask {
+
+    /**
+     * Ejecuta el calentamiento. Los errores se registran en el log pero no impiden el arranque.
+     *
+     * @param iterations número de repeticiones sugerido para las rutas de código calientes
+     */
+    void warmUp(int iterations) throws Exception;
+
+    default String name() {
+        return getClass().getSimpleName();
+    }
+}
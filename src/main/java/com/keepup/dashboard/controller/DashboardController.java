@@ -0,0 +1,48 @@
+package com.keepup.dashboard.controller;
+
+import com.keepup.core.security.CustomerDetails;
+import com.keepup.dashboard.dto.DashboardDTO;
+import com.keepup.dashboard.service.DashboardService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controlador REST del panel del usuario autenticado.
+ *
+ * Base URL: /api/v1/dashboard
+ */
+@RestController
+@RequestMapping("/api/v1/dashboard")
+@RequiredArgsConstructor
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+
+    /**
+     * Vehículos, próximos vencimientos, gastos del mes y avisos sin leer en una sola llamada.
+     *
+     * GET /api/v1/dashboard
+     *
+     * @param authentication Usuario autenticado
+     * @return 200 OK con el panel; las secciones que no se pudieron calcular van en unavailable
+     */
+    @GetMapping
+    public ResponseEntity<DashboardDTO> getDashboard(Authentication authentication) {
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        return ResponseEntity.ok(dashboardService.get(authenticatedUserId));
+    }
+
+    /**
+     * Metodo auxiliar para extraer el ID del usuario desde el objeto Authentication.
+     *
+     * @param authentication Objeto de autenticación de Spring Security
+     * @return ID del usuario autenticado
+     */
+    private Long extractUserIdFromAuthentication(Authentication authentication) {
+        CustomerDetails customerDetails = (CustomerDetails) authentication.getPrincipal();
+        return customerDetails.getUserId();
+    }
+}
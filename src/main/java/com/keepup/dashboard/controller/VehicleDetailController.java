@@ -0,0 +1,53 @@
+package com.keepup.dashboard.controller;
+
+import com.keepup.core.security.CustomerDetails;
+import com.keepup.dashboard.dto.VehicleDetailDTO;
+import com.keepup.dashboard.service.VehicleDetailService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controlador REST de la ficha de un vehículo.
+ *
+ * Base URL: /api/v1/vehicles/{vehicleId}/detail
+ */
+@RestController
+@RequestMapping("/api/v1/vehicles/{vehicleId}/detail")
+@RequiredArgsConstructor
+public class VehicleDetailController {
+
+    private final VehicleDetailService vehicleDetailService;
+
+    /**
+     * Vehículo con sus documentos, últimos gastos y avisos en una sola llamada.
+     *
+     * GET /api/v1/vehicles/{vehicleId}/detail?limit=20
+     *
+     * @param vehicleId ID del vehículo
+     * @param limit Elementos por colección (opcional; 20 por defecto, máximo 100)
+     * @param authentication Usuario autenticado
+     * @return 200 OK con la ficha, 404 si el vehículo no existe o es de otro usuario
+     */
+    @GetMapping
+    public ResponseEntity<VehicleDetailDTO> getDetail(
+            @PathVariable Long vehicleId,
+            @RequestParam(required = false) Integer limit,
+            Authentication authentication) {
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        return ResponseEntity.ok(vehicleDetailService.get(vehicleId, limit, authenticatedUserId));
+    }
+
+    /**
+     * Metodo auxiliar para extraer el ID del usuario desde el objeto Authentication.
+     *
+     * @param authentication Objeto de autenticación de Spring Security
+     * @return ID del usuario autenticado
+     */
+    private Long extractUserIdFromAuthentication(Authentication authentication) {
+        CustomerDetails customerDetails = (CustomerDetails) authentication.getPrincipal();
+        return customerDetails.getUserId();
+    }
+}
@@ -0,0 +1,29 @@
+package com.keepup.dashboard.dto;
+
+import com.keepup.vehicle.dto.DocumentExpiryView;
+import com.keepup.vehicle.dto.MonthlyExpenseTotal;
+import com.keepup.vehicle.dto.VehicleResponse;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Panel del usuario en una sola respuesta. Cada sección se calcula por separado: si una falla o
+ * no llega a tiempo queda en null y aparece en unavailable, y el resto se devuelve igual.
+ *
+ * @param vehicles Vehículos del usuario
+ * @param vehicleCount Número de vehículos (null si vehicles no está disponible)
+ * @param upcomingExpiries Documentos que vencen en los próximos días, del más cercano al más lejano
+ * @param expensesThisMonth Total de gastos del mes en curso
+ * @param unreadAlerts Avisos sin leer
+ * @param unavailable Secciones que faltan y por qué ("timeout" o "error")
+ */
+public record DashboardDTO(
+        List<VehicleResponse> vehicles,
+        Long vehicleCount,
+        List<DocumentExpiryView> upcomingExpiries,
+        MonthlyExpenseTotal expensesThisMonth,
+        Long unreadAlerts,
+        Map<String, String> unavailable
+) {
+}
@@ -0,0 +1,14 @@
+package com.keepup.dashboard.dto;
+
+import java.util.List;
+
+/**
+ * Primera página de una colección hija dentro de la ficha de un vehículo.
+ *
+ * @param items Elementos de la página
+ * @param hasMore true si el vehículo tiene más elementos que los devueltos
+ * @param next Cursor para seguir en el listado del vehículo (parámetro after de
+ *             /api/v1/vehicles/{id}/documents, /expenses o /alerts), o null si no hay más
+ */
+public record DetailSection<T>(List<T> items, boolean hasMore, String next) {
+}
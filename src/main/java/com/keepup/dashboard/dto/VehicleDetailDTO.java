@@ -0,0 +1,22 @@
+package com.keepup.dashboard.dto;
+
+import com.keepup.notification.dto.AlertDTO;
+import com.keepup.vehicle.dto.DocumentDTO;
+import com.keepup.vehicle.dto.ExpenseDTO;
+import com.keepup.vehicle.dto.VehicleResponse;
+
+/**
+ * Ficha de un vehículo con sus colecciones hijas paginadas.
+ *
+ * @param vehicle Datos del vehículo
+ * @param documents Documentos, del que vence antes al que vence después
+ * @param recentExpenses Gastos, del más reciente al más antiguo
+ * @param alerts Avisos del vehículo, del más reciente al más antiguo
+ */
+public record VehicleDetailDTO(
+        VehicleResponse vehicle,
+        DetailSection<DocumentDTO> documents,
+        DetailSection<ExpenseDTO> recentExpenses,
+        DetailSection<AlertDTO> alerts
+) {
+}
@@ -0,0 +1,183 @@
+package com.keepup.dashboard.service;
+
+import com.keepup.core.tracing.Tracer;
+import com.keepup.dashboard.dto.DashboardDTO;
+import com.keepup.notification.service.AlertService;
+import com.keepup.vehicle.dto.DocumentExpiryView;
+import com.keepup.vehicle.dto.MonthlyExpenseTotal;
+import com.keepup.vehicle.dto.VehicleResponse;
+import com.keepup.vehicle.service.DocumentService;
+import com.keepup.vehicle.service.ExpenseService;
+import com.keepup.vehicle.service.VehicleService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Panel del usuario: reúne en una sola llamada lo que antes pedían varias al cliente.
+ *
+ * Las secciones (vehículos, próximos vencimientos, gastos del mes y avisos sin leer) se lanzan a
+ * la vez, cada una en su propio hilo virtual y con su propia transacción de solo lectura (la de
+ * cada servicio), así que la respuesta tarda lo que la sección más lenta. Cada sección tiene como
+ * máximo keepup.dashboard.section-timeout desde el inicio; si falla o se pasa, se cancela, se
+ * registra y el panel sale sin ella (ver {@link DashboardDTO#unavailable()}).
+ *
+ * Cada sección ocupa una conexión del pool mientras se ejecuta. Para que unos pocos paneles
+ * simultáneos no agoten el pool (10 conexiones en Hikari por defecto) y dejen sin conexión al resto
+ * de la API, las secciones en curso entre todas las peticiones están limitadas por
+ * keepup.dashboard.max-concurrent-sections, por debajo del tamaño del pool; la sección que no
+ * consigue turno antes de su plazo sale como timeout.
+ *
+ * Configuración:
+ * - keepup.dashboard.section-timeout (PT2S por defecto)
+ * - keepup.dashboard.max-concurrent-sections: secciones en curso en el nodo (6)
+ * - keepup.dashboard.expiry-days: días hacia delante de los próximos vencimientos (30)
+ * - keepup.dashboard.max-expiries: máximo de vencimientos listados (10)
+ */
+@Slf4j
+@Service
+public class DashboardService {
+
+    static final String VEHICLES = "vehicles";
+    static final String EXPIRIES = "upcomingExpiries";
+    static final String EXPENSES = "expensesThisMonth";
+    static final String ALERTS = "unreadAlerts";
+
+    private final VehicleService vehicleService;
+    private final DocumentService documentService;
+    private final ExpenseService expenseService;
+    private final AlertService alertService;
+    private final Tracer tracer;
+    private final ExecutorService executor;
+    private final Semaphore sections;
+    private final Clock clock;
+    private final Duration sectionTimeout;
+    private final int expiryDays;
+    private final int maxExpiries;
+
+    @Autowired
+    public DashboardService(VehicleService vehicleService,
+                            DocumentService documentService,
+                            ExpenseService expenseService,
+                            AlertService alertService,
+                            Tracer tracer,
+                            @Value("${keepup.dashboard.section-timeout:PT2S}") Duration sectionTimeout,
+                            @Value("${keepup.dashboard.max-concurrent-sections:6}") int maxConcurrentSections,
+                            @Value("${keepup.dashboard.expiry-days:30}") int expiryDays,
+                            @Value("${keepup.dashboard.max-expiries:10}") int maxExpiries) {
+        this(vehicleService, documentService, expenseService, alertService, tracer,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("dashboard-", 0).factory()),
+                Clock.systemDefaultZone(), sectionTimeout, maxConcurrentSections, expiryDays, maxExpiries);
+    }
+
+    DashboardService(VehicleService vehicleService, DocumentService documentService, ExpenseService expenseService,
+                     AlertService alertService, Tracer tracer, ExecutorService executor, Clock clock,
+                     Duration sectionTimeout, int maxConcurrentSections, int expiryDays, int maxExpiries) {
+        this.vehicleService = vehicleService;
+        this.documentService = documentService;
+        this.expenseService = expenseService;
+        this.alertService = alertService;
+        this.tracer = tracer;
+        this.executor = executor;
+        this.sections = new Semaphore(maxConcurrentSections);
+        this.clock = clock;
+        this.sectionTimeout = sectionTimeout;
+        this.expiryDays = expiryDays;
+        this.maxExpiries = maxExpiries;
+    }
+
+    /**
+     * Panel del usuario autenticado.
+     */
+    public DashboardDTO get(Long authenticatedUserId) {
+        LocalDate today = LocalDate.now(clock);
+        YearMonth month = YearMonth.from(today);
+        long deadline = System.nanoTime() + sectionTimeout.toNanos();
+
+        Future<List<VehicleResponse>> vehicles = submit(VEHICLES, deadline,
+                () -> vehicleService.getAll(authenticatedUserId));
+        Future<List<DocumentExpiryView>> expiries = submit(EXPIRIES, deadline,
+                () -> documentService.getUpcoming(today, today.plusDays(expiryDays), maxExpiries, authenticatedUserId));
+        Future<MonthlyExpenseTotal> expenses = submit(EXPENSES, deadline,
+                () -> expenseService.getMonthlyTotals(month, month, null, authenticatedUserId).stream()
+                        .findFirst()
+                        .orElse(new MonthlyExpenseTotal(month, BigDecimal.ZERO, 0)));
+        Future<Long> unread = submit(ALERTS, deadline,
+                () -> alertService.getUnreadCount(authenticatedUserId).unread());
+
+        Map<String, String> unavailable = new LinkedHashMap<>();
+        List<VehicleResponse> vehicleList = await(VEHICLES, vehicles, deadline, authenticatedUserId, unavailable);
+        return new DashboardDTO(
+                vehicleList,
+                vehicleList != null ? (long) vehicleList.size() : null,
+                await(EXPIRIES, expiries, deadline, authenticatedUserId, unavailable),
+                await(EXPENSES, expenses, deadline, authenticatedUserId, unavailable),
+                await(ALERTS, unread, deadline, authenticatedUserId, unavailable),
+                unavailable);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> Future<T> submit(String section, long deadline, Callable<T> task) {
+        return executor.submit(tracer.wrap("dashboard." + section, () -> {
+            if (!sections.tryAcquire(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS)) {
+                throw new TimeoutException("No free dashboard section slot");
+            }
+            try {
+                return task.call();
+            } finally {
+                sections.release();
+            }
+        }));
+    }
+
+    private <T> T await(String section, Future<T> future, long deadline, Long userId,
+                        Map<String, String> unavailable) {
+        try {
+            return future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("Dashboard section {} timed out after {} for user {}", section, sectionTimeout, userId);
+            unavailable.put(section, "timeout");
+        } catch (ExecutionException | CancellationException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                // Sin turno antes del plazo: el nodo ya tiene keepup.dashboard.max-concurrent-sections en curso
+                log.warn("Dashboard section {} timed out waiting for a free slot for user {}", section, userId);
+                unavailable.put(section, "timeout");
+                return null;
+            }
+            log.warn("Dashboard section {} failed for user {}", section, userId,
+                    e instanceof ExecutionException ? e.getCause() : e);
+            unavailable.put(section, "error");
+        } catch (InterruptedException e) {
+            // La petición se abandona: las secciones pendientes no se esperan
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            unavailable.put(section, "timeout");
+        }
+        return null;
+    }
+}
@@ -0,0 +1,90 @@
+package com.keepup.dashboard.service;
+
+import com.keepup.core.exception.ResourceNotFoundException;
+import com.keepup.dashboard.dto.DetailSection;
+import com.keepup.dashboard.dto.VehicleDetailDTO;
+import com.keepup.notification.dto.AlertDTO;
+import com.keepup.notification.dto.VehicleAlertPage;
+import com.keepup.notification.repository.AlertRepository;
+import com.keepup.vehicle.dto.VehiclePage;
+import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.mapper.DocumentMapper;
+import com.keepup.vehicle.mapper.ExpenseMapper;
+import com.keepup.vehicle.mapper.VehicleMapper;
+import com.keepup.vehicle.repository.DocumentRepository;
+import com.keepup.vehicle.repository.ExpenseRepository;
+import com.keepup.vehicle.repository.VehicleRepository;
+import com.keepup.vehicle.service.DocumentService;
+import com.keepup.vehicle.service.ExpenseService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Ficha de un vehículo (datos, documentos, últimos gastos y avisos) en un número fijo de consultas.
+ *
+ * Siempre son cuatro, dentro de una misma transacción de solo lectura, tenga el vehículo los hijos
+ * que tenga:
+ * 1. El vehículo con su propietario y el rol de este (JOIN FETCH de asociaciones a-uno). Filtra
+ *    por propietario, así que también es la comprobación IDOR.
+ * 2. Una página de documentos, 3. una de gastos y 4. una de avisos, cada una con su propia
+ *    consulta por índice y limit + 1 filas para saber si hay más. Cada una devuelve el cursor con
+ *    el que sigue su listado por vehículo (las mismas consultas con after).
+ *
+ * Las colecciones no se traen con JOIN FETCH desde el vehículo: con varias a la vez el resultado
+ * sería el producto cartesiano de todas, y con una sola no se podría paginar en la base de datos.
+ * Se leen con los repositorios y no con los servicios de cada módulo porque estos repiten la
+ * comprobación de propiedad, y el número de consultas dejaría de ser fijo.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class VehicleDetailService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final VehicleRepository vehicleRepository;
+    private final DocumentRepository documentRepository;
+    private final ExpenseRepository expenseRepository;
+    private final AlertRepository alertRepository;
+    private final VehicleMapper vehicleMapper;
+    private final DocumentMapper documentMapper;
+    private final ExpenseMapper expenseMapper;
+
+    /**
+     * Ficha de un vehículo del usuario.
+     *
+     * @param vehicleId ID del vehículo
+     * @param limit Elementos por colección (20 por defecto, se limita a {@link #MAX_PAGE_SIZE})
+     * @param authenticatedUserId ID del usuario autenticado
+     * @throws ResourceNotFoundException si el vehículo no existe o es de otro usuario
+     */
+    public VehicleDetailDTO get(Long vehicleId, Integer limit, Long authenticatedUserId) {
+        int pageSize = limit != null ? Math.clamp(limit, 1, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        Limit fetch = Limit.of(pageSize + 1);
+
+        Vehicle vehicle = vehicleRepository.findWithOwnerByIdAndUserId(vehicleId, authenticatedUserId)
+                .orElseThrow(() -> new ResourceNotFoundException("Vehicle", vehicleId));
+
+        return new VehicleDetailDTO(
+                vehicleMapper.toResponse(vehicle),
+                section(VehiclePage.of(documentRepository.findByVehicleIdOrderByExpiryDate(vehicleId, fetch),
+                        pageSize, DocumentService::position, documentMapper::toDto)),
+                section(VehiclePage.of(expenseRepository.findByVehicleIdOrderByDateDesc(vehicleId, fetch),
+                        pageSize, ExpenseService::position, expenseMapper::toDto)),
+                section(VehicleAlertPage.of(
+                        alertRepository.findByVehicle(vehicleId, authenticatedUserId, Long.MAX_VALUE, fetch), pageSize)));
+    }
+
+    private static <T> DetailSection<T> section(VehiclePage<T> page) {
+        return new DetailSection<>(page.items(), page.next() != null,
+                page.next() != null ? page.next().toString() : null);
+    }
+
+    private static DetailSection<AlertDTO> section(VehicleAlertPage page) {
+        return new DetailSection<>(page.items(), page.next() != null,
+                page.next() != null ? page.next().toString() : null);
+    }
+}
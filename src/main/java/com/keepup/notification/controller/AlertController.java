@@ -1,4 +1,156 @@
 package com.keepup.notification.controller;
 
+import com.keepup.core.exception.ResourceNotFoundException;
+import com.keepup.core.exception.TooManyRequestsException;
+import com.keepup.core.security.CustomerDetails;
+import com.keepup.core.security.JwtUtil;
+import com.keepup.notification.dto.AlertPage;
+import com.keepup.notification.dto.StreamTicket;
+import com.keepup.notification.dto.UnreadCount;
+import com.keepup.notification.service.AlertService;
+import com.keepup.notification.service.AlertStreamService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Controlador REST para los avisos de vencimiento del usuario autenticado.
+ *
+ * Base URL: /api/v1/alerts
+ */
+@RestController
+@RequestMapping("/api/v1/alerts")
+@RequiredArgsConstructor
 public class AlertController {
+
+    private final AlertService alertService;
+    private final AlertStreamService alertStreamService;
+    private final JwtUtil jwtUtil;
+
+    /**
+     * Feed de avisos, del más reciente al más antiguo.
+     *
+     * GET /api/v1/alerts?before=1234&limit=20
+     *
+     * @param before Cursor next de la página anterior (opcional; sin él, la primera página)
+     * @param limit Tamaño de página (opcional; 20 por defecto, máximo 100)
+     * @param authentication Usuario autenticado
+     * @return 200 OK con los avisos, los no leídos y el cursor de la siguiente página
+     */
+    @GetMapping
+    public ResponseEntity<AlertPage> getFeed(
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Integer limit,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        return ResponseEntity.ok(alertService.getFeed(before, limit, authenticatedUserId));
+    }
+
+    /**
+     * Número de avisos sin leer, para la campana del panel (lectura por clave primaria).
+     *
+     * GET /api/v1/alerts/unread-count
+     *
+     * @param authentication Usuario autenticado
+     * @return 200 OK con el número de avisos sin leer
+     */
+    @GetMapping("/unread-count")
+    public ResponseEntity<UnreadCount> getUnreadCount(Authentication authentication) {
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        return ResponseEntity.ok(alertService.getUnreadCount(authenticatedUserId));
+    }
+
+    /**
+     * Ticket para abrir el canal de avisos con EventSource, que no puede enviar el JWT en la
+     * cabecera Authorization. Caduca a los jwt.streamTicketMs (60 s): basta para conectar, y al
+     * reconectar con un ticket caducado el cliente pide uno nuevo.
+     *
+     * POST /api/v1/alerts/stream-ticket
+     *
+     * @param authentication Usuario autenticado (con JWT)
+     * @return 200 OK con el ticket y su validez en segundos
+     */
+    @PostMapping("/stream-ticket")
+    public ResponseEntity<StreamTicket> createStreamTicket(Authentication authentication) {
+        CustomerDetails customerDetails = (CustomerDetails) authentication.getPrincipal();
+
+        return ResponseEntity.ok(new StreamTicket(jwtUtil.generateStreamTicket(customerDetails),
+                jwtUtil.getStreamTicketMs() / 1000));
+    }
+
+    /**
+     * Canal Server-Sent Events con los avisos nuevos (evento "alert") y los cambios del contador
+     * de no leídos (evento "unread"). Sustituye al sondeo de la campana.
+     *
+     * GET /api/v1/alerts/stream?ticket=...
+     *
+     * Se autentica con el JWT (Authorization: Bearer) o, desde EventSource, con un ticket de
+     * POST /api/v1/alerts/stream-ticket.
+     *
+     * @param lastEventId Cabecera Last-Event-ID que envía el navegador al reconectar (opcional)
+     * @param lastEventIdParam Lo mismo como parámetro, para un EventSource nuevo creado con otro
+     *                         ticket, que ya no envía la cabecera (opcional)
+     * @param authentication Usuario autenticado
+     * @return Flujo text/event-stream abierto hasta keepup.alerts.stream.timeout
+     * @throws TooManyRequestsException 429 si el nodo o el usuario tienen demasiadas conexiones abiertas
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+            @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(name = "lastEventId", required = false) Long lastEventIdParam,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        return alertStreamService.connect(authenticatedUserId, lastEventId != null ? lastEventId : lastEventIdParam);
+    }
+
+    /**
+     * Marcar un aviso como leído.
+     *
+     * POST /api/v1/alerts/{id}/read
+     *
+     * @param id ID del aviso
+     * @param authentication Usuario autenticado
+     * @return 200 OK con los avisos que siguen sin leer
+     * @throws ResourceNotFoundException 404 NOT FOUND si el aviso no existe o no pertenece al usuario
+     */
+    @PostMapping("/{id}/read")
+    public ResponseEntity<UnreadCount> markRead(@PathVariable Long id, Authentication authentication) {
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        return ResponseEntity.ok(alertService.markRead(id, authenticatedUserId));
+    }
+
+    /**
+     * Marcar como leídos todos los avisos del usuario.
+     *
+     * POST /api/v1/alerts/read-all
+     *
+     * @param authentication Usuario autenticado
+     * @return 200 OK con los avisos que siguen sin leer
+     */
+    @PostMapping("/read-all")
+    public ResponseEntity<UnreadCount> markAllRead(Authentication authentication) {
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        return ResponseEntity.ok(alertService.markAllRead(authenticatedUserId));
+    }
+
+    /**
+     * Metodo auxiliar para extraer el ID del usuario desde el objeto Authentication.
+     *
+     * @param authentication Objeto de autenticación de Spring Security
+     * @return ID del usuario autenticado
+     */
+    private Long extractUserIdFromAuthentication(Authentication authentication) {
+        CustomerDetails customerDetails = (CustomerDetails) authentication.getPrincipal();
+        return customerDetails.getUserId();
+    }
 }
@@ -0,0 +1,67 @@
+package com.keepup.notification.controller;
+
+import com.keepup.core.exception.ResourceNotFoundException;
+import com.keepup.core.security.CustomerDetails;
+import com.keepup.notification.dto.AlertDTO;
+import com.keepup.notification.dto.VehicleAlertPage;
+import com.keepup.notification.service.AlertService;
+import com.keepup.vehicle.dto.DateCursor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Controlador REST para los avisos de un vehículo del usuario autenticado.
+ *
+ * Base URL: /api/v1/vehicles/{vehicleId}/alerts
+ */
+@RestController
+@RequestMapping("/api/v1/vehicles/{vehicleId}/alerts")
+@RequiredArgsConstructor
+public class VehicleAlertController {
+
+    private final AlertService alertService;
+
+    /**
+     * Obtener los avisos de un vehículo, los más recientes primero, por páginas.
+     *
+     * GET /api/v1/vehicles/{vehicleId}/alerts?after=42&limit=50
+     *
+     * @param vehicleId ID del vehículo
+     * @param after Cursor de la cabecera X-Next-Cursor de la página anterior (opcional; sin él, la primera)
+     * @param limit Tamaño de página (opcional; 20 por defecto, 100 como máximo)
+     * @param authentication Usuario autenticado
+     * @return 200 OK con la página de avisos (puede estar vacía) y, si hay más, la cabecera X-Next-Cursor
+     * @throws ResourceNotFoundException 404 NOT FOUND si el vehículo no existe o no pertenece al usuario
+     */
+    @GetMapping
+    public ResponseEntity<List<AlertDTO>> getVehicleAlerts(
+            @PathVariable Long vehicleId,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        VehicleAlertPage page = alertService.getVehicleAlerts(vehicleId, after, limit, authenticatedUserId);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.next() != null) {
+            response.header(DateCursor.NEXT_CURSOR_HEADER, page.next().toString());
+        }
+        return response.body(page.items());
+    }
+
+    /**
+     * Metodo auxiliar para extraer el ID del usuario desde el objeto Authentication.
+     *
+     * @param authentication Objeto de autenticación de Spring Security
+     * @return ID del usuario autenticado
+     */
+    private Long extractUserIdFromAuthentication(Authentication authentication) {
+        CustomerDetails customerDetails = (CustomerDetails) authentication.getPrincipal();
+        return customerDetails.getUserId();
+    }
+}
@@ -0,0 +1,22 @@
+package com.keepup.notification.dto;
+
+import com.keepup.vehicle.enums.DocumentType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Aviso del feed del usuario.
+ */
+public record AlertDTO(
+        Long id,
+        Long vehicleId,
+        String licensePlate,
+        Long documentId,
+        DocumentType documentType,
+        LocalDate expiryDate,
+        Integer leadDays,
+        LocalDateTime dueAt,
+        LocalDateTime readAt
+) {
+}
@@ -0,0 +1,20 @@
+package com.keepup.notification.dto;
+
+import com.keepup.vehicle.enums.DocumentType;
+
+import java.time.LocalDate;
+
+/**
+ * Datos de un aviso y de su destinatario para componer el correo, leídos en una sola consulta.
+ */
+public record AlertMailView(
+        Long alertId,
+        Long userId,
+        String email,
+        String userName,
+        String licensePlate,
+        DocumentType documentType,
+        LocalDate expiryDate,
+        Integer leadDays
+) {
+}
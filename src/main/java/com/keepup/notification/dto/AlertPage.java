@@ -0,0 +1,13 @@
+package com.keepup.notification.dto;
+
+import java.util.List;
+
+/**
+ * Página del feed de avisos, del más reciente al más antiguo.
+ *
+ * @param items Avisos de la página
+ * @param unread Avisos sin leer del usuario (el mismo valor que la campana)
+ * @param next Cursor para pedir la siguiente página (parámetro before), o null si no hay más
+ */
+public record AlertPage(List<AlertDTO> items, long unread, Long next) {
+}
@@ -0,0 +1,10 @@
+package com.keepup.notification.dto;
+
+/**
+ * Ticket de corta vida para abrir el canal SSE de avisos desde EventSource.
+ *
+ * @param ticket Valor para ?ticket= en /api/v1/alerts/stream
+ * @param expiresIn Segundos de validez
+ */
+public record StreamTicket(String ticket, long expiresIn) {
+}
@@ -0,0 +1,7 @@
+package com.keepup.notification.dto;
+
+/**
+ * Avisos sin leer del usuario, para la campana del panel.
+ */
+public record UnreadCount(long unread) {
+}
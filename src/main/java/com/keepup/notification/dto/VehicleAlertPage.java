@@ -0,0 +1,22 @@
+package com.keepup.notification.dto;
+
+import java.util.List;
+
+/**
+ * Página de los avisos de un vehículo, del más reciente al más antiguo.
+ *
+ * @param items Avisos de la página
+ * @param next Cursor para pedir la siguiente página (parámetro after, id del último aviso), o null si no hay más
+ */
+public record VehicleAlertPage(List<AlertDTO> items, Long next) {
+
+    /**
+     * Página a partir de las filas leídas con limit + 1: la fila de más solo indica que hay
+     * siguiente página.
+     */
+    public static VehicleAlertPage of(List<AlertDTO> rows, int pageSize) {
+        boolean hasMore = rows.size() > pageSize;
+        List<AlertDTO> page = hasMore ? rows.subList(0, pageSize) : rows;
+        return new VehicleAlertPage(page, hasMore ? page.getLast().id() : null);
+    }
+}
@@ -1,4 +1,83 @@
 package com.keepup.notification.entity;
 
+import com.keepup.vehicle.enums.DocumentType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Aviso de vencimiento de un documento para su propietario.
+ *
+ * Se genera una vez por documento, fecha de vencimiento y antelación (uk_alert_document_lead):
+ * si el scheduler dispara dos veces el mismo aviso (reinicio, varias instancias) la segunda
+ * inserción no hace nada. Si el documento se renueva, la nueva fecha genera avisos nuevos.
+ *
+ * Los ids de vehículo y documento no son claves foráneas: el aviso queda como histórico aunque
+ * el documento se borre.
+ *
+ * Los avisos sin leer (readAt null) de cada usuario se cuentan en {@link AlertCounter}.
+ */
+@Entity
+@Table(name = "alert", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_alert_document_lead", columnNames = {"document_id", "expiry_date", "lead_days"})
+}, indexes = {
+        @Index(name = "idx_alert_user", columnList = "user_id, id"),
+        @Index(name = "idx_alert_vehicle", columnList = "vehicle_id, id")
+})
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
 public class Alert {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Propietario del vehículo
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "vehicle_id", nullable = false)
+    private Long vehicleId;
+
+    // Placa en el momento del aviso
+    @Column(name = "license_plate", nullable = false, length = 20)
+    private String licensePlate;
+
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "document_type", nullable = false, length = 30)
+    private DocumentType documentType;
+
+    // Fecha de vencimiento avisada
+    @Column(name = "expiry_date", nullable = false)
+    private LocalDate expiryDate;
+
+    // Días de antelación con que se programó el aviso
+    @Column(name = "lead_days", nullable = false)
+    private Integer leadDays;
+
+    // Momento programado (hora local de keepup.alerts.zone)
+    @Column(name = "due_at", nullable = false)
+    private LocalDateTime dueAt;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Momento en que el usuario lo marcó como leído (null si no lo ha leído)
+    @Column(name = "read_at")
+    private LocalDateTime readAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
 }
@@ -0,0 +1,37 @@
+package com.keepup.notification.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Número de avisos sin leer de un usuario, mantenido al crear avisos y al marcarlos como leídos.
+ *
+ * La campana del panel consulta el contador en cada sondeo: leerlo es una búsqueda por clave
+ * primaria, en lugar de un COUNT(*) sobre los avisos del usuario. Cada cambio es un UPDATE
+ * relativo (unread + n) en la misma transacción que el cambio de los avisos, así que el
+ * contador no pierde actualizaciones concurrentes. updatedAt permite a cada nodo seguir los
+ * contadores que cambiaron para empujarlos por SSE.
+ */
+@Entity
+@Table(name = "alert_counter", indexes = {
+        @Index(name = "idx_alert_counter_updated", columnList = "updated_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertCounter {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false)
+    private Long unread;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,53 @@
+package com.keepup.notification.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Correo de avisos que no se pudo entregar tras agotar los reintentos (o que no cupo en la cola
+ * de envío). Guarda lo necesario para revisarlo y reenviarlo: los avisos siguen en la tabla alert.
+ */
+@Entity
+@Table(name = "mail_dead_letter", indexes = {
+        @Index(name = "idx_mail_dead_letter_created", columnList = "created_at")
+})
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MailDeadLetter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Destinatario, si se llegó a resolver
+    @Column(length = 255)
+    private String recipient;
+
+    // Ids de los avisos del correo, separados por comas
+    @Column(name = "alert_ids", nullable = false, length = 2000)
+    private String alertIds;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
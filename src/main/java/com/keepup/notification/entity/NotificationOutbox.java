@@ -0,0 +1,50 @@
+package com.keepup.notification.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Aviso pendiente de entregar al pipeline de correo.
+ *
+ * Se escribe en la misma transacción que crea el {@link Alert}, así que un aviso confirmado
+ * siempre tiene su fila (y solo una: la crea quien ganó la inserción del aviso). Las filas se
+ * consumen en orden de id: mientras el aviso está en el pipeline de correo de un nodo la fila
+ * queda reservada a su nombre (claimedBy / claimedUntil), y se borra cuando el correo se envía o
+ * acaba en mail_dead_letter.
+ */
+@Entity
+@Table(name = "notification_outbox", indexes = {
+        @Index(name = "idx_outbox_claimed_by", columnList = "claimed_by")
+})
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class NotificationOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "alert_id", nullable = false)
+    private Long alertId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Nodo que tiene el aviso en su pipeline de correo (null: pendiente)
+    @Column(name = "claimed_by", length = 36)
+    private String claimedBy;
+
+    // Fin de la reserva: vencida, cualquier nodo puede volver a tomar la fila
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+}
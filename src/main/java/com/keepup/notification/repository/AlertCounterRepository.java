@@ -0,0 +1,66 @@
+package com.keepup.notification.repository;
+
+import com.keepup.notification.entity.AlertCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AlertCounterRepository extends JpaRepository<AlertCounter, Long> {
+
+    @Query("SELECT c.unread FROM AlertCounter c WHERE c.userId = :userId")
+    Optional<Long> findUnread(@Param("userId") Long userId);
+
+    /**
+     * Sumar un aviso sin leer al destinatario del aviso recién creado para un documento, creando
+     * su contador si no existía. Debe ir en la misma transacción que AlertRepository.insertForDocument.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO alert_counter (user_id, unread, updated_at)
+            SELECT a.user_id, 0, :now FROM alert a
+            WHERE a.document_id = :documentId AND a.expiry_date = :expiryDate AND a.lead_days = :leadDays
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertForAlert(@Param("documentId") Long documentId,
+                       @Param("expiryDate") LocalDate expiryDate,
+                       @Param("leadDays") int leadDays,
+                       @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = """
+            UPDATE alert_counter SET unread = unread + 1, updated_at = :now
+            WHERE user_id = (SELECT a.user_id FROM alert a
+                             WHERE a.document_id = :documentId AND a.expiry_date = :expiryDate
+                               AND a.lead_days = :leadDays)
+            """, nativeQuery = true)
+    int incrementForAlert(@Param("documentId") Long documentId,
+                          @Param("expiryDate") LocalDate expiryDate,
+                          @Param("leadDays") int leadDays,
+                          @Param("now") LocalDateTime now);
+
+    /**
+     * Restar avisos leídos (sin bajar de 0).
+     */
+    @Modifying
+    @Query("""
+            UPDATE AlertCounter c SET
+                c.unread = CASE WHEN c.unread > :count THEN c.unread - :count ELSE 0 END,
+                c.updatedAt = :now
+            WHERE c.userId = :userId
+            """)
+    int decrement(@Param("userId") Long userId, @Param("count") long count, @Param("now") LocalDateTime now);
+
+    /**
+     * Contadores que cambiaron desde :since (usa idx_alert_counter_updated).
+     */
+    @Query("SELECT c FROM AlertCounter c WHERE c.updatedAt >= :since")
+    List<AlertCounter> findUpdatedSince(@Param("since") LocalDateTime since);
+}
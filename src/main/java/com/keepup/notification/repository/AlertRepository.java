@@ -1,4 +1,132 @@
 package com.keepup.notification.repository;
 
-public class AlertRepository {
+import com.keepup.notification.dto.AlertDTO;
+import com.keepup.notification.dto.AlertMailView;
+import com.keepup.notification.entity.Alert;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AlertRepository extends JpaRepository<Alert, Long> {
+
+    /**
+     * Crear el aviso de un documento leyendo sus datos actuales, solo si sigue existiendo con la
+     * misma fecha de vencimiento y el aviso no existía (uk_alert_document_lead).
+     *
+     * @return 1 si se creó el aviso, 0 si el documento cambió o el aviso ya existía
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO alert (user_id, vehicle_id, license_plate, document_id, document_type,
+                               expiry_date, lead_days, due_at, created_at)
+            SELECT v.user_id, v.id, v.license_plate, d.id, d.type, d.expiry_date, :leadDays, :dueAt, :now
+            FROM document d JOIN vehicle v ON v.id = d.vehicle_id
+            WHERE d.id = :documentId AND d.expiry_date = :expiryDate
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertForDocument(@Param("documentId") Long documentId,
+                          @Param("expiryDate") LocalDate expiryDate,
+                          @Param("leadDays") int leadDays,
+                          @Param("dueAt") LocalDateTime dueAt,
+                          @Param("now") LocalDateTime now);
+
+    /**
+     * Avisos con el correo y nombre de su destinatario, para componer los correos de un lote.
+     */
+    @Query("""
+            SELECT new com.keepup.notification.dto.AlertMailView(
+                a.id, a.userId, u.email, u.name, a.licensePlate, a.documentType, a.expiryDate, a.leadDays)
+            FROM Alert a, User u
+            WHERE u.id = a.userId AND a.id IN :ids
+            ORDER BY a.expiryDate, a.id
+            """)
+    List<AlertMailView> findMailViews(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Página del feed de un usuario: sus avisos con id menor que :before, del más reciente al más
+     * antiguo. Es un recorrido por rango sobre idx_alert_user (user_id, id), así que cada página
+     * cuesta lo mismo sin importar cuántas vinieron antes.
+     */
+    @Query("""
+            SELECT new com.keepup.notification.dto.AlertDTO(
+                a.id, a.vehicleId, a.licensePlate, a.documentId, a.documentType, a.expiryDate, a.leadDays,
+                a.dueAt, a.readAt)
+            FROM Alert a
+            WHERE a.userId = :userId AND a.id < :before
+            ORDER BY a.id DESC
+            """)
+    List<AlertDTO> findFeed(@Param("userId") Long userId, @Param("before") Long before, Limit limit);
+
+    /**
+     * Avisos de un vehículo del usuario con id menor que :before, del más reciente al más antiguo.
+     * Recorrido por rango sobre idx_alert_vehicle (vehicle_id, id), igual que el feed.
+     */
+    @Query("""
+            SELECT new com.keepup.notification.dto.AlertDTO(
+                a.id, a.vehicleId, a.licensePlate, a.documentId, a.documentType, a.expiryDate, a.leadDays,
+                a.dueAt, a.readAt)
+            FROM Alert a
+            WHERE a.vehicleId = :vehicleId AND a.userId = :userId AND a.id < :before
+            ORDER BY a.id DESC
+            """)
+    List<AlertDTO> findByVehicle(@Param("vehicleId") Long vehicleId, @Param("userId") Long userId,
+                                 @Param("before") Long before, Limit limit);
+
+    boolean existsByIdAndUserId(Long id, Long userId);
+
+    /**
+     * Marcar un aviso del usuario como leído.
+     *
+     * @return 1 si estaba sin leer, 0 si ya estaba leído o no es del usuario
+     */
+    @Modifying
+    @Query("UPDATE Alert a SET a.readAt = :now WHERE a.id = :id AND a.userId = :userId AND a.readAt IS NULL")
+    int markRead(@Param("id") Long id, @Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    /**
+     * Marcar como leídos todos los avisos sin leer del usuario, en una sola sentencia.
+     *
+     * @return Avisos marcados
+     */
+    @Modifying
+    @Query("UPDATE Alert a SET a.readAt = :now WHERE a.userId = :userId AND a.readAt IS NULL")
+    int markAllRead(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    /**
+     * Avisos de un usuario con id en (after, upTo], en orden de creación: lo que se perdió un
+     * cliente SSE que reconecta con Last-Event-ID.
+     */
+    @Query("""
+            SELECT new com.keepup.notification.dto.AlertDTO(
+                a.id, a.vehicleId, a.licensePlate, a.documentId, a.documentType, a.expiryDate, a.leadDays,
+                a.dueAt, a.readAt)
+            FROM Alert a
+            WHERE a.userId = :userId AND a.id > :after AND a.id <= :upTo
+            ORDER BY a.id
+            """)
+    List<AlertDTO> findReplay(@Param("userId") Long userId, @Param("after") Long after, @Param("upTo") Long upTo,
+                              Limit limit);
+
+    /**
+     * Avisos creados después de :after (de todos los usuarios), en orden de id: la cola que sigue
+     * cada nodo para empujar avisos nuevos a sus conexiones SSE.
+     */
+    List<Alert> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+    /**
+     * Avisos con esos ids, en orden de id: los huecos de la cola que se confirmaron tarde.
+     */
+    List<Alert> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    @Query("SELECT COALESCE(MAX(a.id), 0) FROM Alert a")
+    long findMaxId();
 }
@@ -0,0 +1,9 @@
+package com.keepup.notification.repository;
+
+import com.keepup.notification.entity.MailDeadLetter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MailDeadLetterRepository extends JpaRepository<MailDeadLetter, Long> {
+}
@@ -0,0 +1,77 @@
+package com.keepup.notification.repository;
+
+import com.keepup.notification.entity.NotificationOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    /**
+     * Encolar el aviso de un documento recién creado por {@link AlertRepository#insertForDocument}.
+     * Debe ejecutarse en la misma transacción que la inserción del aviso.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO notification_outbox (alert_id, user_id, created_at)
+            SELECT a.id, a.user_id, :now
+            FROM alert a
+            WHERE a.document_id = :documentId AND a.expiry_date = :expiryDate AND a.lead_days = :leadDays
+            """, nativeQuery = true)
+    int insertForAlert(@Param("documentId") Long documentId,
+                       @Param("expiryDate") LocalDate expiryDate,
+                       @Param("leadDays") int leadDays,
+                       @Param("now") LocalDateTime now);
+
+    /**
+     * Bloquear las filas libres más antiguas (sin reserva o con la reserva vencida) sin bloquear a
+     * los demás nodos: las filas que otra transacción ya tiene bloqueadas se saltan (SKIP LOCKED)
+     * en lugar de esperarlas, así que varios publicadores reparten la cola sin duplicados. El
+     * bloqueo dura hasta el fin de la transacción, que debe reservarlas con {@link #claim}.
+     */
+    @Query(value = """
+            SELECT * FROM notification_outbox
+            WHERE claimed_until IS NULL OR claimed_until < :now
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<NotificationOutbox> lockAvailable(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Reservar filas para el pipeline de correo de un nodo.
+     */
+    @Modifying
+    @Query("UPDATE NotificationOutbox o SET o.claimedBy = :node, o.claimedUntil = :until WHERE o.id IN :ids")
+    int claim(@Param("ids") List<Long> ids, @Param("node") String node, @Param("until") LocalDateTime until);
+
+    /**
+     * Soltar filas reservadas que el pipeline no aceptó, para que cualquier nodo las tome ya.
+     */
+    @Modifying
+    @Query("""
+            UPDATE NotificationOutbox o SET o.claimedBy = NULL, o.claimedUntil = NULL
+            WHERE o.id IN :ids AND o.claimedBy = :node
+            """)
+    int release(@Param("ids") List<Long> ids, @Param("node") String node);
+
+    /**
+     * Extender las reservas de un nodo (avisos que siguen en su pipeline: agrupación y reintentos).
+     */
+    @Modifying
+    @Query("UPDATE NotificationOutbox o SET o.claimedUntil = :until WHERE o.claimedBy = :node")
+    int renewClaims(@Param("node") String node, @Param("until") LocalDateTime until);
+
+    /**
+     * Fila más antigua pendiente (para medir el retraso de la cola).
+     */
+    Optional<NotificationOutbox> findFirstByOrderByIdAsc();
+}
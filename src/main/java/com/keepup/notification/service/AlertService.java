@@ -0,0 +1,106 @@
+package com.keepup.notification.service;
+
+import com.keepup.core.exception.ResourceNotFoundException;
+import com.keepup.notification.dto.AlertDTO;
+import com.keepup.notification.dto.AlertPage;
+import com.keepup.notification.dto.UnreadCount;
+import com.keepup.notification.dto.VehicleAlertPage;
+import com.keepup.notification.entity.AlertCounter;
+import com.keepup.notification.repository.AlertCounterRepository;
+import com.keepup.notification.repository.AlertRepository;
+import com.keepup.vehicle.cache.VehicleOwnershipCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Feed de avisos del usuario autenticado y su contador de no leídos.
+ *
+ * El contador ({@link AlertCounter}) se suma al crear cada aviso (SchedulerService) y se resta
+ * aquí al marcarlos como leídos, siempre en la misma transacción que el cambio de los avisos y
+ * con el número de filas que cambiaron de verdad: marcar dos veces el mismo aviso no resta dos.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class AlertService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final AlertRepository alertRepository;
+    private final AlertCounterRepository counterRepository;
+    private final VehicleOwnershipCache ownershipCache;
+
+    /**
+     * Avisos sin leer del usuario: una lectura por clave primaria.
+     */
+    public UnreadCount getUnreadCount(Long authenticatedUserId) {
+        return new UnreadCount(counterRepository.findUnread(authenticatedUserId).orElse(0L));
+    }
+
+    /**
+     * Página del feed de avisos, del más reciente al más antiguo, paginada por keyset.
+     *
+     * @param before Cursor devuelto por la página anterior (id del último aviso), o null para la primera
+     * @param limit Tamaño de página (se limita a {@link #MAX_PAGE_SIZE})
+     */
+    public AlertPage getFeed(Long before, Integer limit, Long authenticatedUserId) {
+        int pageSize = limit != null ? Math.clamp(limit, 1, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        List<AlertDTO> items = alertRepository.findFeed(
+                authenticatedUserId, before != null ? before : Long.MAX_VALUE, Limit.of(pageSize));
+        Long next = items.size() == pageSize ? items.get(items.size() - 1).id() : null;
+        return new AlertPage(items, getUnreadCount(authenticatedUserId).unread(), next);
+    }
+
+    /**
+     * Avisos de un vehículo del usuario, del más reciente al más antiguo, paginados por keyset.
+     * Es el listado con el que sigue la sección de avisos de la ficha del vehículo.
+     *
+     * @param after Cursor next de la página anterior (id del último aviso), o null para la primera
+     * @param limit Tamaño de página (se limita a {@link #MAX_PAGE_SIZE})
+     * @throws ResourceNotFoundException si el vehículo no existe o no pertenece al usuario
+     */
+    public VehicleAlertPage getVehicleAlerts(Long vehicleId, Long after, Integer limit, Long authenticatedUserId) {
+        ownershipCache.requireOwned(vehicleId, authenticatedUserId);
+
+        int pageSize = limit != null ? Math.clamp(limit, 1, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        return VehicleAlertPage.of(alertRepository.findByVehicle(
+                vehicleId, authenticatedUserId, after != null ? after : Long.MAX_VALUE, Limit.of(pageSize + 1)),
+                pageSize);
+    }
+
+    /**
+     * Marcar un aviso como leído (no hace nada si ya lo estaba).
+     *
+     * @throws ResourceNotFoundException si el aviso no existe o no es del usuario
+     */
+    @Transactional
+    public UnreadCount markRead(Long id, Long authenticatedUserId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (alertRepository.markRead(id, authenticatedUserId, now) == 1) {
+            counterRepository.decrement(authenticatedUserId, 1, now);
+        } else if (!alertRepository.existsByIdAndUserId(id, authenticatedUserId)) {
+            throw new ResourceNotFoundException("Alert", id);
+        }
+        return getUnreadCount(authenticatedUserId);
+    }
+
+    /**
+     * Marcar como leídos todos los avisos del usuario con una sola sentencia. Se resta lo que
+     * cambió (y no se pone a 0): un aviso creado a la vez sigue contando como no leído.
+     */
+    @Transactional
+    public UnreadCount markAllRead(Long authenticatedUserId) {
+        LocalDateTime now = LocalDateTime.now();
+        int marked = alertRepository.markAllRead(authenticatedUserId, now);
+        if (marked > 0) {
+            counterRepository.decrement(authenticatedUserId, marked, now);
+        }
+        return getUnreadCount(authenticatedUserId);
+    }
+}
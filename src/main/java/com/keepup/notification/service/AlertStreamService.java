@@ -0,0 +1,492 @@
+package com.keepup.notification.service;
+
+import com.keepup.core.exception.TooManyRequestsException;
+import com.keepup.notification.dto.AlertDTO;
+import com.keepup.notification.dto.UnreadCount;
+import com.keepup.notification.entity.Alert;
+import com.keepup.notification.entity.AlertCounter;
+import com.keepup.notification.repository.AlertCounterRepository;
+import com.keepup.notification.repository.AlertRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Canal SSE que empuja a los navegadores los avisos nuevos y los cambios del contador de no
+ * leídos, en lugar de que cada pestaña sondee la API.
+ *
+ * Las conexiones son {@link SseEmitter} sobre servlet asíncrono: una conexión abierta no ocupa
+ * ningún hilo, solo su entrada en el mapa de conexiones (usuario -> pestañas). Qué se envía a quién
+ * se decide en un único hilo ("alert-stream"):
+ * - Cada keepup.alerts.stream.poll-interval (PT2S), si hay conexiones, lee la cola de la tabla
+ *   alert (id mayor que el último visto, por clave primaria) y los contadores con updated_at
+ *   reciente, y reparte cada evento a todas las pestañas de su usuario. Como se lee de la base
+ *   de datos, cada nodo ve los avisos y lecturas hechos en cualquier otro nodo.
+ * - Cada keepup.alerts.stream.heartbeat (PT25S) envía un comentario a todas las conexiones, para
+ *   que proxies y balanceadores no las cierren por inactividad y detectar clientes que se fueron.
+ *
+ * Los ids se asignan al insertar pero se ven al confirmar, y dos transacciones no confirman
+ * necesariamente en orden de id: la cola puede pasar por encima de un aviso que todavía no es
+ * visible. Cada id que la cola se salta queda como hueco durante
+ * keepup.alerts.stream.late-commit-window (PT30S) y se vuelve a buscar en cada sondeo; si aparece
+ * se reparte entonces (los huecos que nunca aparecen son inserciones deshechas o ON CONFLICT DO
+ * NOTHING). Esos avisos tardíos se envían sin id de evento, para no hacer retroceder el
+ * Last-Event-ID del navegador, y una pestaña que ya lo recibió en la reposición no lo recibe dos
+ * veces.
+ *
+ * La escritura en cada conexión no se hace en "alert-stream": cada pestaña tiene su cola de
+ * eventos pendientes, que vacía un hilo virtual (como mucho uno por conexión), así que un cliente
+ * lento solo se retrasa a sí mismo. Una escritura que tarda más de keepup.alerts.stream.send-timeout
+ * (PT10S), o una cola con más de {@value #MAX_PENDING_EVENTS} eventos, cierra esa conexión; el
+ * navegador reconecta con Last-Event-ID.
+ *
+ * Eventos: "alert" (con id = id del aviso) y "unread" ({@link UnreadCount}, sin id). Al conectar
+ * se envía el contador actual; si el navegador reconecta con Last-Event-ID se le reenvían antes
+ * los avisos que se perdió (hasta keepup.alerts.stream.max-replay, 100; el resto está en el feed).
+ *
+ * Las conexiones expiran a los keepup.alerts.stream.timeout (PT30M) y el navegador reconecta
+ * solo. Límites: keepup.alerts.stream.max-connections por nodo (20000) y
+ * keepup.alerts.stream.max-per-user pestañas (10); por encima se responde 429.
+ *
+ * Métrica: keepup.alerts.stream.connections.
+ */
+@Slf4j
+@Service
+public class AlertStreamService {
+
+    // Margen para el desfase de reloj entre nodos al seguir alert_counter.updated_at
+    private static final Duration CLOCK_SKEW = Duration.ofSeconds(5);
+    private static final int TAIL_BATCH_SIZE = 1000;
+    // Huecos de la cola que se vigilan a la vez (un salto mayor de la secuencia no se recorre entero)
+    private static final int MAX_GAPS = 10_000;
+    static final int MAX_PENDING_EVENTS = 256;
+
+    private final AlertRepository alertRepository;
+    private final AlertCounterRepository counterRepository;
+    private final ScheduledExecutorService executor;
+    private final Executor senders;
+    private final Duration timeout;
+    private final Duration heartbeat;
+    private final Duration pollInterval;
+    private final Duration sendTimeout;
+    private final Duration lateCommitWindow;
+    private final int maxReplay;
+    private final int maxConnections;
+    private final int maxPerUser;
+    private final Map<Long, Set<Connection>> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    // ==================== ESTADO (solo en el hilo "alert-stream") ====================
+
+    // Último aviso repartido; -1 si no se está siguiendo la tabla (no había conexiones)
+    private long lastAlertId = -1;
+    // Ids que la cola se saltó y aún pueden confirmarse -> System.nanoTime() en que se saltaron
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+    private LocalDateTime countersSince;
+    // Último contador enviado a cada usuario conectado
+    private final Map<Long, Long> lastUnread = new HashMap<>();
+
+    @Autowired
+    public AlertStreamService(AlertRepository alertRepository,
+                              AlertCounterRepository counterRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${keepup.alerts.stream.timeout:PT30M}") Duration timeout,
+                              @Value("${keepup.alerts.stream.heartbeat:PT25S}") Duration heartbeat,
+                              @Value("${keepup.alerts.stream.poll-interval:PT2S}") Duration pollInterval,
+                              @Value("${keepup.alerts.stream.send-timeout:PT10S}") Duration sendTimeout,
+                              @Value("${keepup.alerts.stream.late-commit-window:PT30S}") Duration lateCommitWindow,
+                              @Value("${keepup.alerts.stream.max-replay:100}") int maxReplay,
+                              @Value("${keepup.alerts.stream.max-connections:20000}") int maxConnections,
+                              @Value("${keepup.alerts.stream.max-per-user:10}") int maxPerUser) {
+        this(alertRepository, counterRepository, meterRegistry, newExecutor(),
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("alert-stream-send-", 0).factory()),
+                timeout, heartbeat, pollInterval, sendTimeout, lateCommitWindow, maxReplay, maxConnections, maxPerUser);
+    }
+
+    AlertStreamService(AlertRepository alertRepository, AlertCounterRepository counterRepository,
+                       MeterRegistry meterRegistry, ScheduledExecutorService executor, Executor senders,
+                       Duration timeout, Duration heartbeat, Duration pollInterval, Duration sendTimeout,
+                       Duration lateCommitWindow, int maxReplay, int maxConnections, int maxPerUser) {
+        this.alertRepository = alertRepository;
+        this.counterRepository = counterRepository;
+        this.executor = executor;
+        this.senders = senders;
+        this.timeout = timeout;
+        this.heartbeat = heartbeat;
+        this.pollInterval = pollInterval;
+        this.sendTimeout = sendTimeout;
+        this.lateCommitWindow = lateCommitWindow;
+        this.maxReplay = maxReplay;
+        this.maxConnections = maxConnections;
+        this.maxPerUser = maxPerUser;
+        meterRegistry.gauge("keepup.alerts.stream.connections", connectionCount);
+    }
+
+    private static ScheduledExecutorService newExecutor() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "alert-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.scheduleWithFixedDelay(() -> safely(this::poll),
+                pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(() -> safely(this::sendHeartbeats),
+                heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+        long check = Math.max(sendTimeout.toMillis() / 2, 100);
+        executor.scheduleWithFixedDelay(() -> safely(this::expireSlowSends), check, check, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        // Al cerrar limpiamente el navegador reconecta (con Last-Event-ID) contra otro nodo
+        connections.values().forEach(tabs -> tabs.forEach(this::close));
+    }
+
+    /**
+     * Abrir el canal de un usuario.
+     *
+     * @param lastEventId Cabecera Last-Event-ID de una reconexión (id del último aviso recibido), o null
+     * @throws TooManyRequestsException si se alcanzó el límite de conexiones del nodo o del usuario
+     */
+    public SseEmitter connect(Long userId, Long lastEventId) {
+        if (connectionCount.incrementAndGet() > maxConnections) {
+            connectionCount.decrementAndGet();
+            throw new TooManyRequestsException("Too many alert streams, retry later");
+        }
+        Connection connection = new Connection(userId, newEmitter());
+        try {
+            connections.compute(userId, (id, current) -> {
+                Set<Connection> tabs = current != null ? current : ConcurrentHashMap.newKeySet();
+                if (tabs.size() >= maxPerUser) {
+                    throw new TooManyRequestsException("Too many alert streams for this user");
+                }
+                tabs.add(connection);
+                return tabs;
+            });
+        } catch (TooManyRequestsException e) {
+            connectionCount.decrementAndGet();
+            throw e;
+        }
+        // El contenedor ya cerró la respuesta: basta con olvidar la conexión
+        connection.emitter.onCompletion(() -> forget(connection));
+        connection.emitter.onTimeout(() -> forget(connection));
+        connection.emitter.onError(e -> forget(connection));
+
+        // En el hilo del canal: la reposición no se intercala con los avisos que se reparten
+        executor.execute(() -> safely(() -> welcome(connection, lastEventId)));
+        return connection.emitter;
+    }
+
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeout.toMillis());
+    }
+
+    int connectionCount() {
+        return connectionCount.get();
+    }
+
+    private void forget(Connection connection) {
+        connection.closed = true;
+        boolean[] removed = {false};
+        connections.computeIfPresent(connection.userId, (id, tabs) -> {
+            removed[0] = tabs.remove(connection);
+            return tabs.isEmpty() ? null : tabs;
+        });
+        if (removed[0]) {
+            connectionCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Cerrar una conexión desde el servidor. La respuesta se completa en su hilo de envío, que es
+     * el único que escribe en ella (y puede estar bloqueado escribiendo).
+     */
+    private void close(Connection connection) {
+        forget(connection);
+        connection.pending.clear();
+        if (connection.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(connection));
+        }
+    }
+
+    // ==================== HILO DEL CANAL ====================
+
+    private void welcome(Connection connection, Long lastEventId) {
+        startTailing();
+        if (lastEventId != null) {
+            Long userId = connection.userId;
+            for (AlertDTO alert : alertRepository.findReplay(userId, lastEventId, lastAlertId, Limit.of(maxReplay))) {
+                if (gaps.containsKey(alert.id())) {
+                    // Hueco que se confirmó después del último sondeo: el sondeo no se lo repite
+                    connection.replayed.add(alert.id());
+                }
+                if (!enqueue(connection, alertEvent(alert))) {
+                    return;
+                }
+            }
+        }
+        long unread = counterRepository.findUnread(connection.userId).orElse(0L);
+        if (enqueue(connection, unreadEvent(unread))) {
+            lastUnread.put(connection.userId, unread);
+        }
+    }
+
+    /**
+     * Repartir los avisos creados (también los huecos confirmados tarde) y los contadores
+     * cambiados desde el último sondeo.
+     */
+    void poll() {
+        if (connections.isEmpty()) {
+            // Sin conexiones no se sigue la tabla: al volver alguien se empieza desde el final
+            lastAlertId = -1;
+            gaps.clear();
+            lastUnread.clear();
+            return;
+        }
+        startTailing();
+        deliverLateCommits();
+
+        List<Alert> created;
+        do {
+            created = alertRepository.findByIdGreaterThanOrderByIdAsc(lastAlertId, Limit.of(TAIL_BATCH_SIZE));
+            for (Alert alert : created) {
+                long now = System.nanoTime();
+                for (long skipped = Math.max(lastAlertId + 1, alert.getId() - MAX_GAPS); skipped < alert.getId(); skipped++) {
+                    if (gaps.size() >= MAX_GAPS) {
+                        Iterator<Long> oldest = gaps.keySet().iterator();
+                        oldest.next();
+                        oldest.remove();
+                    }
+                    gaps.put(skipped, now);
+                }
+                lastAlertId = alert.getId();
+                broadcast(alert, false);
+            }
+        } while (created.size() == TAIL_BATCH_SIZE);
+
+        LocalDateTime now = LocalDateTime.now();
+        for (AlertCounter counter : counterRepository.findUpdatedSince(countersSince.minus(CLOCK_SKEW))) {
+            Long userId = counter.getUserId();
+            // La ventana se solapa entre sondeos: solo se envía si el valor cambió
+            Set<Connection> tabs = connections.get(userId);
+            if (tabs != null && !counter.getUnread().equals(lastUnread.get(userId))) {
+                lastUnread.put(userId, counter.getUnread());
+                tabs.forEach(connection -> enqueue(connection, unreadEvent(counter.getUnread())));
+            }
+        }
+        countersSince = now;
+        lastUnread.keySet().retainAll(connections.keySet());
+    }
+
+    /**
+     * Volver a buscar los huecos de la cola: los que aparecen se reparten, los que pasan de
+     * keepup.alerts.stream.late-commit-window se abandonan.
+     */
+    private void deliverLateCommits() {
+        if (gaps.isEmpty()) {
+            return;
+        }
+        long expired = System.nanoTime() - lateCommitWindow.toNanos();
+        gaps.values().removeIf(skippedAt -> skippedAt - expired < 0);
+        List<Long> pending = List.copyOf(gaps.keySet());
+        for (int from = 0; from < pending.size(); from += TAIL_BATCH_SIZE) {
+            List<Long> ids = pending.subList(from, Math.min(from + TAIL_BATCH_SIZE, pending.size()));
+            for (Alert alert : alertRepository.findByIdInOrderByIdAsc(ids)) {
+                gaps.remove(alert.getId());
+                broadcast(alert, true);
+            }
+        }
+        // Lo repuesto al conectar solo importa mientras siga siendo un hueco
+        connections.values().forEach(tabs -> tabs.forEach(connection -> {
+            if (!connection.replayed.isEmpty()) {
+                connection.replayed.retainAll(gaps.keySet());
+            }
+        }));
+    }
+
+    private void startTailing() {
+        if (lastAlertId < 0) {
+            lastAlertId = alertRepository.findMaxId();
+            countersSince = LocalDateTime.now();
+        }
+    }
+
+    private void sendHeartbeats() {
+        connections.values().forEach(tabs ->
+                tabs.forEach(connection -> enqueue(connection, SseEmitter.event().comment("heartbeat"))));
+    }
+
+    /**
+     * Cerrar las conexiones cuya escritura en curso lleva más de keepup.alerts.stream.send-timeout.
+     */
+    void expireSlowSends() {
+        long now = System.nanoTime();
+        connections.values().forEach(tabs -> tabs.forEach(connection -> {
+            Thread sender = connection.sender;
+            if (sender != null && now - connection.sendStartedAt > sendTimeout.toNanos()) {
+                log.debug("Dropping alert stream of user {}: send blocked for more than {}",
+                        connection.userId, sendTimeout);
+                close(connection);
+                sender.interrupt();
+            }
+        }));
+    }
+
+    // Un SseEventBuilder no se puede enviar dos veces: se construye uno por pestaña
+    private void broadcast(Alert alert, boolean late) {
+        Set<Connection> tabs = connections.get(alert.getUserId());
+        if (tabs == null) {
+            return;
+        }
+        AlertDTO dto = toDto(alert);
+        for (Connection connection : tabs) {
+            if (late && connection.replayed.remove(alert.getId())) {
+                continue;
+            }
+            enqueue(connection, late ? lateAlertEvent(dto) : alertEvent(dto));
+        }
+    }
+
+    // ==================== ENVÍO ====================
+
+    /**
+     * Encolar un evento para una pestaña y arrancar su hilo de envío si no está en marcha.
+     *
+     * @return false si la conexión está cerrada o se acaba de cerrar por tener la cola llena
+     */
+    private boolean enqueue(Connection connection, SseEmitter.SseEventBuilder event) {
+        if (connection.closed) {
+            return false;
+        }
+        if (connection.queued.incrementAndGet() > MAX_PENDING_EVENTS) {
+            log.debug("Dropping alert stream of user {}: more than {} pending events",
+                    connection.userId, MAX_PENDING_EVENTS);
+            close(connection);
+            return false;
+        }
+        connection.pending.add(event);
+        if (connection.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(connection));
+        }
+        return true;
+    }
+
+    /**
+     * Escribir los eventos pendientes de una pestaña, en orden. Solo hay un drain en curso por
+     * conexión (draining); el que ve la conexión cerrada completa la respuesta y deja draining
+     * puesto para que no arranque otro.
+     */
+    private void drain(Connection connection) {
+        do {
+            SseEmitter.SseEventBuilder event;
+            while (!connection.closed && (event = connection.pending.poll()) != null) {
+                connection.queued.decrementAndGet();
+                connection.sendStartedAt = System.nanoTime();
+                connection.sender = Thread.currentThread();
+                try {
+                    connection.emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    if (!connection.closed) {
+                        // El cliente se fue (a veces el contenedor no lo avisa hasta que se escribe)
+                        log.debug("Dropping alert stream of user {}: {}", connection.userId, e.getMessage());
+                        forget(connection);
+                        connection.pending.clear();
+                        return;
+                    }
+                    // Escritura interrumpida por expireSlowSends: se completa abajo
+                } finally {
+                    connection.sender = null;
+                }
+            }
+            if (connection.closed) {
+                connection.pending.clear();
+                connection.emitter.complete();
+                return;
+            }
+            connection.draining.set(false);
+        } while (!connection.pending.isEmpty() && connection.draining.compareAndSet(false, true));
+    }
+
+    private void safely(Runnable step) {
+        try {
+            step.run();
+        } catch (RuntimeException e) {
+            log.warn("Alert stream step failed", e);
+        }
+    }
+
+    /**
+     * Una pestaña abierta. Los eventos se encolan desde "alert-stream" y los escribe el hilo de
+     * envío; replayed solo se usa en "alert-stream".
+     */
+    private static final class Connection {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final Queue<SseEmitter.SseEventBuilder> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // Huecos de la cola que ya recibió en la reposición
+        private final Set<Long> replayed = new HashSet<>();
+        private volatile boolean closed;
+        // Hilo que está escribiendo y desde cuándo (System.nanoTime()), o null si no escribe
+        private volatile Thread sender;
+        private volatile long sendStartedAt;
+
+        private Connection(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder alertEvent(AlertDTO alert) {
+        return SseEmitter.event().id(String.valueOf(alert.id())).name("alert").data(alert);
+    }
+
+    // Sin id: un aviso confirmado tarde no debe hacer retroceder el Last-Event-ID del navegador
+    private static SseEmitter.SseEventBuilder lateAlertEvent(AlertDTO alert) {
+        return SseEmitter.event().name("alert").data(alert);
+    }
+
+    private static SseEmitter.SseEventBuilder unreadEvent(long unread) {
+        return SseEmitter.event().name("unread").data(new UnreadCount(unread));
+    }
+
+    private static AlertDTO toDto(Alert alert) {
+        return new AlertDTO(alert.getId(), alert.getVehicleId(), alert.getLicensePlate(), alert.getDocumentId(),
+                alert.getDocumentType(), alert.getExpiryDate(), alert.getLeadDays(), alert.getDueAt(),
+                alert.getReadAt());
+    }
+}
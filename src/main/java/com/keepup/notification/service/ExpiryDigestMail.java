@@ -0,0 +1,38 @@
+package com.keepup.notification.service;
+
+import com.keepup.notification.dto.AlertMailView;
+import com.keepup.notification.template.LocalizedMail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Modelo de la plantilla expiry-digest (resumen de documentos por vencer de un usuario).
+ */
+final class ExpiryDigestMail {
+
+    static final String TEMPLATE = "expiry-digest";
+
+    private ExpiryDigestMail() {
+    }
+
+    /**
+     * @param alerts Avisos del mismo usuario, al menos uno
+     */
+    static Map<String, Object> model(LocalizedMail mail, List<AlertMailView> alerts) {
+        List<Map<String, Object>> items = new ArrayList<>(alerts.size());
+        for (AlertMailView alert : alerts) {
+            items.add(Map.of(
+                    "type", mail.message("document-type." + alert.documentType().name()),
+                    "plate", alert.licensePlate(),
+                    "expiry", mail.dateFormat().format(alert.expiryDate())));
+        }
+        return Map.of(
+                "name", alerts.get(0).userName(),
+                "count", alerts.size(),
+                "single", alerts.size() == 1,
+                "first", items.get(0),
+                "alerts", items);
+    }
+}
@@ -1,4 +1,453 @@
 package com.keepup.notification.service;
 
+import com.keepup.notification.dto.AlertMailView;
+import com.keepup.notification.entity.MailDeadLetter;
+import com.keepup.notification.repository.AlertRepository;
+import com.keepup.notification.repository.MailDeadLetterRepository;
+import com.keepup.notification.repository.NotificationOutboxRepository;
+import com.keepup.notification.template.LocalizedMail;
+import com.keepup.notification.template.MailTemplates;
+import com.keepup.notification.template.RenderedMail;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Envío por correo de los avisos de vencimiento.
+ *
+ * Los avisos llegan desde notification_outbox ({@link OutboxPublisher}) por {@link #submit} y
+ * recorren un pipeline en memoria:
+ * - Cola de entrada acotada (keepup.mail.queue-capacity). Si está llena no se acepta el aviso, que
+ *   sigue en la outbox hasta que haya sitio.
+ * - Agrupación: un hilo reúne los avisos de cada usuario durante keepup.mail.digest-window desde
+ *   el primero, y los envía en un único correo resumen (como mucho keepup.mail.max-digest-alerts
+ *   avisos por correo). Un usuario con 30 vehículos recibe un correo, no 30.
+ * - Envío: keepup.mail.senders hilos envían lotes de hasta keepup.mail.batch-size correos por una
+ *   misma conexión SMTP ({@link JavaMailSender#send(MimeMessage...)}), leyendo los datos de todo
+ *   el lote en una sola consulta.
+ * - Ritmo: todos los envíos comparten un límite global de keepup.mail.rate-per-second correos por
+ *   segundo, con ráfagas de hasta keepup.mail.burst.
+ * - Reintentos: un correo fallido se reintenta con espera exponencial (keepup.mail.retry-delay,
+ *   duplicada en cada intento hasta keepup.mail.max-retry-delay, con variación aleatoria) hasta
+ *   keepup.mail.max-attempts intentos; después se guarda en mail_dead_letter.
+ *
+ * Métricas (Micrometer): keepup.mail.queue.depth, keepup.mail.digest.pending,
+ * keepup.mail.send.latency (cada envío SMTP de un lote), keepup.mail.delivery.delay (desde el
+ * primer aviso del correo hasta su envío) y los contadores keepup.mail.sent, keepup.mail.failed y
+ * keepup.mail.dead-lettered.
+ *
+ * El correo se compone con la plantilla expiry-digest ({@link MailTemplates}) en texto plano y HTML.
+ *
+ * Cada aviso aceptado conserva su fila de notification_outbox, reservada por el publicador de este
+ * nodo, hasta que su correo se envía o acaba en mail_dead_letter: entonces se borra. Al detener la
+ * aplicación se intenta enviar durante keepup.mail.shutdown-timeout; lo que no llega a enviarse ni
+ * a mail_dead_letter se queda en la outbox y otro nodo lo retoma cuando vence la reserva.
+ *
+ * Sin JavaMailSender (spring.mail.host sin configurar) o con keepup.mail.enabled=false los avisos
+ * se quedan solo en la tabla alert.
+ */
+@Slf4j
+@Service
 public class NotificationService {
+
+    private static final Duration IDLE_POLL = Duration.ofSeconds(1);
+
+    private final AlertRepository alertRepository;
+    private final MailDeadLetterRepository deadLetterRepository;
+    private final NotificationOutboxRepository outboxRepository;
+    private final JavaMailSender mailSender;
+    private final MailTemplates templates;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final String from;
+    private final long digestWindowNanos;
+    private final int maxDigestAlerts;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+    private final Duration maxRetryDelay;
+    private final Duration shutdownTimeout;
+    private final TokenBucket rateLimiter;
+
+    private final BlockingQueue<Submission> intake;
+    private final Thread coalescer;
+    private final ThreadPoolExecutor senders;
+    private final ScheduledExecutorService retries;
+    private final AtomicInteger pendingAlerts = new AtomicInteger();
+    private volatile boolean running = true;
+
+    private final Timer sendLatency;
+    private final Timer deliveryDelay;
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter deadLettered;
+
+    public NotificationService(AlertRepository alertRepository,
+                               MailDeadLetterRepository deadLetterRepository,
+                               NotificationOutboxRepository outboxRepository,
+                               ObjectProvider<JavaMailSender> mailSender,
+                               MailTemplates templates,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${keepup.mail.enabled:true}") boolean enabled,
+                               @Value("${keepup.mail.from:KeepUp <no-reply@keepup.app>}") String from,
+                               @Value("${keepup.mail.queue-capacity:10000}") int queueCapacity,
+                               @Value("${keepup.mail.digest-window:PT1M}") Duration digestWindow,
+                               @Value("${keepup.mail.max-digest-alerts:50}") int maxDigestAlerts,
+                               @Value("${keepup.mail.senders:2}") int senderThreads,
+                               @Value("${keepup.mail.batch-size:20}") int batchSize,
+                               @Value("${keepup.mail.rate-per-second:5}") double ratePerSecond,
+                               @Value("${keepup.mail.burst:20}") int burst,
+                               @Value("${keepup.mail.max-attempts:5}") int maxAttempts,
+                               @Value("${keepup.mail.retry-delay:PT30S}") Duration retryDelay,
+                               @Value("${keepup.mail.max-retry-delay:PT30M}") Duration maxRetryDelay,
+                               @Value("${keepup.mail.shutdown-timeout:PT10S}") Duration shutdownTimeout) {
+        this.alertRepository = alertRepository;
+        this.deadLetterRepository = deadLetterRepository;
+        this.outboxRepository = outboxRepository;
+        this.mailSender = mailSender.getIfAvailable();
+        this.templates = templates;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled && this.mailSender != null;
+        this.from = from;
+        this.digestWindowNanos = digestWindow.toNanos();
+        this.maxDigestAlerts = Math.max(maxDigestAlerts, 1);
+        this.batchSize = Math.max(batchSize, 1);
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.retryDelay = retryDelay;
+        this.maxRetryDelay = maxRetryDelay;
+        this.shutdownTimeout = shutdownTimeout;
+        this.rateLimiter = new TokenBucket(ratePerSecond, burst);
+
+        this.intake = new ArrayBlockingQueue<>(queueCapacity);
+        this.coalescer = new Thread(this::coalesce, "mail-coalescer");
+        this.coalescer.setDaemon(true);
+        // Cola corta: si los envíos no dan abasto, el agrupador envía él mismo y deja de vaciar la entrada
+        AtomicInteger senderCount = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(senderThreads * 2), runnable -> {
+            Thread thread = new Thread(runnable, "mail-sender-" + senderCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.retries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mail-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        meterRegistry.gauge("keepup.mail.queue.depth", intake, BlockingQueue::size);
+        meterRegistry.gauge("keepup.mail.digest.pending", pendingAlerts);
+        this.sendLatency = Timer.builder("keepup.mail.send.latency")
+                .description("SMTP send time of one batch").register(meterRegistry);
+        this.deliveryDelay = Timer.builder("keepup.mail.delivery.delay")
+                .description("Time from the first alert of a mail to its delivery").register(meterRegistry);
+        this.sent = meterRegistry.counter("keepup.mail.sent");
+        this.failed = meterRegistry.counter("keepup.mail.failed");
+        this.deadLettered = meterRegistry.counter("keepup.mail.dead-lettered");
+
+        if (this.enabled) {
+            // Compila las plantillas al arrancar: una plantilla rota falla aquí y no en el primer envío
+            templates.get(ExpiryDigestMail.TEMPLATE, templates.defaultLocale());
+            coalescer.start();
+        } else {
+            log.info("Mail notifications disabled (no mail sender configured or keepup.mail.enabled=false)");
+        }
+    }
+
+    /**
+     * Encolar un aviso recién creado para enviarlo por correo a su propietario.
+     *
+     * @param outboxId Fila de notification_outbox del aviso, que se borra al enviarse el correo
+     * @param alertId ID del aviso
+     * @param userId Propietario (clave de agrupación)
+     * @return false si la cola está llena o el pipeline se está deteniendo: el aviso no se aceptó
+     *         y debe quedarse en notification_outbox. Con el correo deshabilitado se acepta y se descarta.
+     */
+    public boolean submit(Long outboxId, Long alertId, Long userId) {
+        if (!enabled) {
+            return true;
+        }
+        return running && intake.offer(new Submission(outboxId, alertId, userId));
+    }
+
+    /**
+     * Si los avisos se envían por correo (hay JavaMailSender y keepup.mail.enabled).
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        coalescer.interrupt();
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        if (coalescer.isAlive()) {
+            coalescer.join(shutdownTimeout.toMillis());
+        }
+        senders.shutdown();
+        if (!senders.awaitTermination(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS)) {
+            log.warn("Mail senders still busy at shutdown, pending mails are lost");
+            senders.shutdownNow();
+        }
+        int scheduledRetries = retries.shutdownNow().size();
+        if (scheduledRetries > 0) {
+            log.warn("{} mail retries pending at shutdown are lost", scheduledRetries);
+        }
+    }
+
+    // ==================== AGRUPACIÓN (hilo mail-coalescer) ====================
+
+    private void coalesce() {
+        // Orden de inserción = orden de vencimiento de la ventana (todas duran lo mismo)
+        Map<Long, Digest> open = new LinkedHashMap<>();
+        List<Digest> ready = new ArrayList<>();
+        while (running) {
+            try {
+                long waitNanos = open.isEmpty()
+                        ? IDLE_POLL.toNanos()
+                        : open.values().iterator().next().createdAtNanos + digestWindowNanos - System.nanoTime();
+                Submission submission = intake.poll(Math.max(waitNanos, 0), TimeUnit.NANOSECONDS);
+                while (submission != null) {
+                    add(open, ready, submission);
+                    submission = intake.poll();
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            long now = System.nanoTime();
+            Iterator<Digest> iterator = open.values().iterator();
+            while (iterator.hasNext()) {
+                Digest digest = iterator.next();
+                if (now - digest.createdAtNanos < digestWindowNanos) {
+                    break;
+                }
+                iterator.remove();
+                ready.add(digest);
+            }
+            dispatchAll(ready);
+        }
+
+        // Al detenerse se envía todo lo pendiente sin esperar a que cierre su ventana
+        Submission submission;
+        while ((submission = intake.poll()) != null) {
+            add(open, ready, submission);
+        }
+        ready.addAll(open.values());
+        dispatchAll(ready);
+    }
+
+    private void add(Map<Long, Digest> open, List<Digest> ready, Submission submission) {
+        Digest digest = open.computeIfAbsent(submission.userId(), userId -> new Digest(userId, System.nanoTime()));
+        digest.alertIds.add(submission.alertId());
+        digest.outboxIds.add(submission.outboxId());
+        pendingAlerts.incrementAndGet();
+        if (digest.alertIds.size() >= maxDigestAlerts) {
+            open.remove(submission.userId());
+            ready.add(digest);
+        }
+    }
+
+    private void dispatchAll(List<Digest> ready) {
+        for (int start = 0; start < ready.size(); start += batchSize) {
+            dispatch(new ArrayList<>(ready.subList(start, Math.min(start + batchSize, ready.size()))));
+        }
+        ready.clear();
+    }
+
+    private void dispatch(List<Digest> batch) {
+        try {
+            senders.execute(() -> send(batch));
+        } catch (RejectedExecutionException e) {
+            // Solo tras shutdown: los pendientes no se pierden en silencio
+            for (Digest digest : batch) {
+                digest.lastError = "Mail pipeline stopped";
+                deadLetter(digest);
+            }
+        }
+    }
+
+    // ==================== ENVÍO (hilos mail-sender) ====================
+
+    private void send(List<Digest> batch) {
+        List<MimeMessage> messages = new ArrayList<>(batch.size());
+        List<Digest> digests = new ArrayList<>(batch.size());
+        try {
+            List<Long> alertIds = batch.stream().flatMap(digest -> digest.alertIds.stream()).toList();
+            List<AlertMailView> views = readOnlyTransaction.execute(status -> alertRepository.findMailViews(alertIds));
+            for (Digest digest : batch) {
+                // Por aviso y no por usuario: un usuario puede tener varios resúmenes en el mismo lote
+                Set<Long> ids = Set.copyOf(digest.alertIds);
+                List<AlertMailView> alerts = views.stream().filter(view -> ids.contains(view.alertId())).toList();
+                if (alerts.isEmpty()) {
+                    // Avisos borrados entre tanto: no hay nada que enviar
+                    pendingAlerts.addAndGet(-digest.alertIds.size());
+                    complete(digest, null);
+                    continue;
+                }
+                digest.recipient = alerts.get(0).email();
+                messages.add(compose(alerts));
+                digests.add(digest);
+            }
+        } catch (RuntimeException | MessagingException e) {
+            batch.forEach(digest -> retry(digest, e));
+            return;
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        try {
+            rateLimiter.acquire(messages.size());
+            sendLatency.record(() -> mailSender.send(messages.toArray(MimeMessage[]::new)));
+            digests.forEach(this::delivered);
+        } catch (MailSendException e) {
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            for (int i = 0; i < messages.size(); i++) {
+                Exception cause = failedMessages.get(messages.get(i));
+                if (cause != null || failedMessages.isEmpty()) {
+                    retry(digests.get(i), cause != null ? cause : e);
+                } else {
+                    delivered(digests.get(i));
+                }
+            }
+        } catch (RuntimeException e) {
+            digests.forEach(digest -> retry(digest, e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            digests.forEach(digest -> retry(digest, e));
+        }
+    }
+
+    private MimeMessage compose(List<AlertMailView> alerts) throws MessagingException {
+        LocalizedMail mail = templates.get(ExpiryDigestMail.TEMPLATE, templates.defaultLocale());
+        RenderedMail rendered = mail.render(ExpiryDigestMail.model(mail, alerts));
+        MimeMessage message = mailSender.createMimeMessage();
+        // Con HTML va como multipart/alternative: el cliente cae al texto plano si no muestra HTML
+        MimeMessageHelper helper = new MimeMessageHelper(message, rendered.html() != null, "UTF-8");
+        helper.setFrom(from);
+        helper.setTo(alerts.get(0).email());
+        helper.setSubject(rendered.subject());
+        if (rendered.html() != null) {
+            helper.setText(rendered.text(), rendered.html());
+        } else {
+            helper.setText(rendered.text());
+        }
+        return message;
+    }
+
+    private void delivered(Digest digest) {
+        sent.increment();
+        pendingAlerts.addAndGet(-digest.alertIds.size());
+        deliveryDelay.record(System.nanoTime() - digest.createdAtNanos, TimeUnit.NANOSECONDS);
+        complete(digest, null);
+    }
+
+    private void retry(Digest digest, Exception cause) {
+        failed.increment();
+        digest.attempts++;
+        digest.lastError = String.valueOf(cause);
+        if (digest.attempts >= maxAttempts || !running) {
+            log.warn("Giving up mail to user {} after {} attempts: {}", digest.userId, digest.attempts, cause.toString());
+            deadLetter(digest);
+            return;
+        }
+        long delay = Math.min(retryDelay.toMillis() << Math.min(digest.attempts - 1, 20), maxRetryDelay.toMillis());
+        delay = (long) (delay * ThreadLocalRandom.current().nextDouble(0.8, 1.2));
+        log.debug("Mail to user {} failed (attempt {}), retrying in {} ms", digest.userId, digest.attempts, delay);
+        try {
+            retries.schedule(() -> dispatch(List.of(digest)), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            deadLetter(digest);
+        }
+    }
+
+    private void deadLetter(Digest digest) {
+        deadLettered.increment();
+        pendingAlerts.addAndGet(-digest.alertIds.size());
+        String alertIds = digest.alertIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        complete(digest, MailDeadLetter.builder()
+                .userId(digest.userId)
+                .recipient(digest.recipient)
+                .alertIds(alertIds)
+                .attempts(digest.attempts)
+                .lastError(digest.lastError != null && digest.lastError.length() > 1000
+                        ? digest.lastError.substring(0, 1000) : digest.lastError)
+                .build());
+    }
+
+    /**
+     * Borrar las filas de la outbox de un correo ya resuelto, guardando en la misma transacción su
+     * dead letter si no se pudo enviar. Si falla, las filas siguen reservadas por este nodo y se
+     * reintentan cuando venza la reserva (tras un reinicio): se prefiere un duplicado a una pérdida.
+     */
+    private void complete(Digest digest, MailDeadLetter deadLetter) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (deadLetter != null) {
+                    deadLetterRepository.save(deadLetter);
+                }
+                outboxRepository.deleteAllByIdInBatch(digest.outboxIds);
+            });
+        } catch (RuntimeException e) {
+            log.error("Could not complete outbox rows {} of user {} (alerts {})",
+                    digest.outboxIds, digest.userId, digest.alertIds, e);
+        }
+    }
+
+    private record Submission(Long outboxId, Long alertId, Long userId) {
+    }
+
+    /**
+     * Correo resumen de un usuario: sus avisos reunidos y el estado de los intentos de envío.
+     */
+    private static final class Digest {
+
+        private final Long userId;
+        private final long createdAtNanos;
+        private final List<Long> alertIds = new ArrayList<>();
+        private final List<Long> outboxIds = new ArrayList<>();
+        private String recipient;
+        private int attempts;
+        private String lastError;
+
+        private Digest(Long userId, long createdAtNanos) {
+            this.userId = userId;
+            this.createdAtNanos = createdAtNanos;
+        }
+    }
 }
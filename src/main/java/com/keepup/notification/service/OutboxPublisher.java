@@ -0,0 +1,209 @@
+package com.keepup.notification.service;
+
+import com.keepup.notification.entity.NotificationOutbox;
+import com.keepup.notification.repository.NotificationOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Vacía notification_outbox hacia el {@link NotificationService}.
+ *
+ * Cada nodo ejecuta un publicador y todos consumen la misma tabla sin líder ni coordinación:
+ * cada lote se bloquea con SELECT ... FOR UPDATE SKIP LOCKED y se reserva a nombre del nodo
+ * (claimed_by / claimed_until) en una transacción corta. Solo después de confirmarla se entrega al
+ * pipeline de correo, así que un rollback no deja correos en memoria sin su reserva. La fila se
+ * borra cuando el correo sale o acaba en mail_dead_letter (lo hace {@link NotificationService});
+ * las que el pipeline no acepta se sueltan en el acto.
+ *
+ * Mientras los avisos siguen en el pipeline (ventana de agrupación, reintentos) el publicador
+ * renueva en cada sondeo las reservas de su nodo por keepup.outbox.claim-lease (PT2M). Si el nodo
+ * cae o se redespliega, las reservas vencen y otro nodo vuelve a tomar esas filas: la entrega es
+ * al menos una vez, y un aviso puede enviarse dos veces si el nodo cayó justo después de enviarlo
+ * y antes de borrar su fila, o si dejó de renovar más de un arriendo sin caer.
+ *
+ * Sondeo:
+ * - Lote completo (keepup.outbox.batch-size, 100): se pide el siguiente sin esperar.
+ * - Lote parcial: se espera keepup.outbox.poll-interval (PT0.5S).
+ * - Cola vacía: la espera se duplica en cada sondeo vacío hasta keepup.outbox.max-poll-interval
+ *   (PT10S), que debe ser bastante menor que claim-lease. {@link #wakeUp()} la reinicia cuando
+ *   este nodo acaba de crear avisos.
+ * - Pipeline lleno: las filas no aceptadas se sueltan y se espera el intervalo normal.
+ * - Correo deshabilitado: las filas reservadas se borran sin más (los avisos quedan en la tabla alert).
+ *
+ * Métricas: keepup.outbox.lag (antigüedad de la fila más antigua aún no enviada, reservada o no,
+ * medida en cada sondeo) y keepup.outbox.published.
+ */
+@Slf4j
+@Service
+public class OutboxPublisher {
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration maxPollInterval;
+    private final Duration claimLease;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ScheduledExecutorService executor;
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter published;
+
+    // Solo en el hilo del publicador
+    private Duration idleDelay;
+    private ScheduledFuture<?> nextPoll;
+
+    public OutboxPublisher(NotificationOutboxRepository outboxRepository,
+                           NotificationService notificationService,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${keepup.outbox.enabled:true}") boolean enabled,
+                           @Value("${keepup.outbox.batch-size:100}") int batchSize,
+                           @Value("${keepup.outbox.poll-interval:PT0.5S}") Duration pollInterval,
+                           @Value("${keepup.outbox.max-poll-interval:PT10S}") Duration maxPollInterval,
+                           @Value("${keepup.outbox.claim-lease:PT2M}") Duration claimLease) {
+        this.outboxRepository = outboxRepository;
+        this.notificationService = notificationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = Math.max(batchSize, 1);
+        this.pollInterval = pollInterval;
+        this.maxPollInterval = maxPollInterval;
+        this.claimLease = claimLease;
+        this.idleDelay = pollInterval;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        TimeGauge.builder("keepup.outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Age of the oldest pending outbox row").register(meterRegistry);
+        this.published = meterRegistry.counter("keepup.outbox.published");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            executor.execute(() -> nextPoll = executor.schedule(this::poll, 0, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * Sondear cuanto antes: este nodo acaba de confirmar filas nuevas.
+     */
+    public void wakeUp() {
+        if (!enabled) {
+            return;
+        }
+        executor.execute(() -> {
+            idleDelay = pollInterval;
+            if (nextPoll != null && nextPoll.getDelay(TimeUnit.MILLISECONDS) > 0 && nextPoll.cancel(false)) {
+                nextPoll = executor.schedule(this::poll, 0, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void poll() {
+        Duration delay;
+        try {
+            renewClaims();
+            int count = publishBatch();
+            if (count == batchSize) {
+                delay = Duration.ZERO;
+                idleDelay = pollInterval;
+            } else if (count > 0) {
+                delay = pollInterval;
+                idleDelay = pollInterval;
+            } else {
+                delay = idleDelay;
+                idleDelay = idleDelay.multipliedBy(2).compareTo(maxPollInterval) > 0
+                        ? maxPollInterval : idleDelay.multipliedBy(2);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Outbox poll failed, retrying in {}", maxPollInterval, e);
+            delay = maxPollInterval;
+        }
+        if (!executor.isShutdown()) {
+            nextPoll = executor.schedule(this::poll, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Reservar un lote a nombre de este nodo y, ya confirmada la reserva, entregarlo al pipeline de
+     * correo. Las filas que el pipeline no acepta se sueltan.
+     *
+     * @return Filas entregadas (menos que las reservadas si el pipeline se llenó)
+     */
+    int publishBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<NotificationOutbox> batch = transactionTemplate.execute(status -> {
+            List<NotificationOutbox> rows = outboxRepository.lockAvailable(now, batchSize);
+            if (!rows.isEmpty()) {
+                outboxRepository.claim(ids(rows), nodeId, now.plus(claimLease));
+            }
+            return rows;
+        });
+
+        int published = 0;
+        if (batch != null && !batch.isEmpty()) {
+            if (!notificationService.isEnabled()) {
+                transactionTemplate.executeWithoutResult(status -> outboxRepository.deleteAllByIdInBatch(ids(batch)));
+                published = batch.size();
+            } else {
+                for (NotificationOutbox row : batch) {
+                    if (!notificationService.submit(row.getId(), row.getAlertId(), row.getUserId())) {
+                        break;
+                    }
+                    published++;
+                }
+                if (published < batch.size()) {
+                    List<Long> rejected = ids(batch.subList(published, batch.size()));
+                    transactionTemplate.executeWithoutResult(status -> outboxRepository.release(rejected, nodeId));
+                }
+            }
+        }
+        this.published.increment(published);
+        lagMillis.set(outboxRepository.findFirstByOrderByIdAsc()
+                .map(oldest -> Math.max(Duration.between(oldest.getCreatedAt(), LocalDateTime.now()).toMillis(), 0))
+                .orElse(0L));
+        return published;
+    }
+
+    /**
+     * Extender las reservas de los avisos que siguen en el pipeline de este nodo.
+     */
+    void renewClaims() {
+        transactionTemplate.executeWithoutResult(status ->
+                outboxRepository.renewClaims(nodeId, LocalDateTime.now().plus(claimLease)));
+    }
+
+    private static List<Long> ids(List<NotificationOutbox> rows) {
+        return rows.stream().map(NotificationOutbox::getId).toList();
+    }
+}
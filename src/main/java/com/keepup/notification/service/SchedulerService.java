@@ -1,4 +1,459 @@
 package com.keepup.notification.service;
 
+import com.keepup.core.lease.JobLeaseManager;
+import com.keepup.notification.repository.AlertCounterRepository;
+import com.keepup.notification.repository.AlertRepository;
+import com.keepup.notification.repository.NotificationOutboxRepository;
+import com.keepup.vehicle.dto.DocumentExpiryPage;
+import com.keepup.vehicle.dto.DocumentExpiryView;
+import com.keepup.vehicle.entity.Document;
+import com.keepup.vehicle.event.DocumentExpiryChangedEvent;
+import com.keepup.vehicle.service.DocumentService;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispara los avisos de vencimiento de documentos cerca de su hora, sin recorrer la tabla de
+ * documentos periódicamente.
+ *
+ * Cada documento genera un aviso por antelación configurada (p. ej. 15, 7 y 1 días antes del
+ * vencimiento) a la hora keepup.alerts.fire-time de keepup.alerts.zone. En memoria solo se
+ * mantienen los avisos de una ventana de días próximos (horizonte), en una cola de prioridad por
+ * hora de disparo:
+ * - La ventana se carga día a día con los recorridos por keyset de
+ *   {@link DocumentService#findExpiring}: una consulta por antelación y día, que lee solo los
+ *   documentos que vencen ese día. La carga de la base de datos es proporcional a los avisos,
+ *   no al total de documentos.
+ * - Al entrar en el último día cargado se carga el siguiente tramo. Si la cola llega a
+ *   keepup.alerts.max-queued no se cargan más días hasta que se vacíe (un día se carga entero):
+ *   mientras tanto se reintenta cada RETRY_DELAY o al disparar la cabeza de la cola.
+ * - Altas, renovaciones y bajas ({@link DocumentExpiryChangedEvent}) actualizan la cola al
+ *   confirmar su transacción; lo que queda fuera de la ventana lo cargará la ventana siguiente.
+ * - Al disparar, el aviso se crea a partir del estado actual del documento
+ *   (AlertRepository.insertForDocument): si cambió o ya no existe no se crea nada, así que una
+ *   entrada obsoleta en la cola es inofensiva. En la misma transacción se suma al contador de no
+ *   leídos de su destinatario (AlertCounter) y se escribe su fila en
+ *   notification_outbox, que {@link OutboxPublisher} entrega al correo desde cualquier nodo: con
+ *   varios nodos disparando el mismo aviso solo el que gana la inserción lo encola.
+ * - Tras un reinicio la cola se reconstruye desde la base de datos, incluyendo los últimos
+ *   keepup.alerts.catch-up-days días: los avisos que vencieron con la aplicación caída se
+ *   disparan al arrancar y los ya creados no se duplican (uk_alert_document_lead). No se avisa
+ *   la antelación de documentos que ya vencieron.
+ *
+ * Con varios nodos los documentos se reparten por usuario: keepup.alerts.partitions particiones
+ * (id de usuario módulo N) arrendadas con {@link JobLeaseManager} en el job "expiry-alerts". Cada
+ * nodo carga y reprograma solo los documentos de sus particiones, y cuando el reparto cambia (un
+ * nodo entra o muere) reconstruye su cola como tras un reinicio. Durante el traspaso dos nodos
+ * pueden disparar el mismo aviso; la inserción idempotente deja uno solo.
+ *
+ * Todo el estado de la cola se modifica en un único hilo ("expiry-scheduler"), así que no
+ * necesita sincronización; los eventos y el arranque solo encolan trabajo en él.
+ *
+ * Configuración:
+ * - keepup.alerts.enabled (true)
+ * - keepup.alerts.zone: zona horaria de los avisos (America/Bogota)
+ * - keepup.alerts.fire-time: hora local de disparo (08:00)
+ * - keepup.alerts.lead-days: antelaciones en días (15,7,1)
+ * - keepup.alerts.horizon-days: días cargados por delante (2)
+ * - keepup.alerts.catch-up-days: días hacia atrás revisados al arrancar (3)
+ * - keepup.alerts.max-queued: avisos en memoria (100000)
+ * - keepup.alerts.partitions: particiones repartidas entre nodos (16; divisor de
+ *   Document.OWNER_BUCKETS, 256)
+ */
+@Slf4j
+@Service
 public class SchedulerService {
+
+    private static final int PAGE_SIZE = DocumentService.MAX_PAGE_SIZE;
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+    static final String JOB = "expiry-alerts";
+
+    private final DocumentService documentService;
+    private final AlertRepository alertRepository;
+    private final AlertCounterRepository counterRepository;
+    private final NotificationOutboxRepository outboxRepository;
+    private final OutboxPublisher outboxPublisher;
+    private final JobLeaseManager leaseManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final boolean enabled;
+    private final LocalTime fireTime;
+    private final int[] leadDays;
+    private final int horizonDays;
+    private final int catchUpDays;
+    private final int maxQueued;
+    private final int partitionCount;
+    private final ScheduledExecutorService executor;
+
+    // ==================== ESTADO (solo en el hilo del scheduler) ====================
+
+    private final PriorityQueue<DueAlert> queue = new PriorityQueue<>(Comparator.comparing(DueAlert::getDueAt));
+    private final Map<Long, List<DueAlert>> byDocument = new HashMap<>();
+    private Set<Integer> partitions = Set.of();
+    private int cancelled;
+    private LocalDate loadedThrough;
+    private boolean windowFull;
+    private ScheduledFuture<?> wakeUp;
+    private Instant wakeUpAt;
+
+    @Autowired
+    public SchedulerService(DocumentService documentService,
+                            AlertRepository alertRepository,
+                            AlertCounterRepository counterRepository,
+                            NotificationOutboxRepository outboxRepository,
+                            OutboxPublisher outboxPublisher,
+                            JobLeaseManager leaseManager,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${keepup.alerts.enabled:true}") boolean enabled,
+                            @Value("${keepup.alerts.zone:America/Bogota}") ZoneId zone,
+                            @Value("${keepup.alerts.fire-time:08:00}") LocalTime fireTime,
+                            @Value("${keepup.alerts.lead-days:15,7,1}") int[] leadDays,
+                            @Value("${keepup.alerts.horizon-days:2}") int horizonDays,
+                            @Value("${keepup.alerts.catch-up-days:3}") int catchUpDays,
+                            @Value("${keepup.alerts.max-queued:100000}") int maxQueued,
+                            @Value("${keepup.alerts.partitions:16}") int partitionCount) {
+        this(documentService, alertRepository, counterRepository, outboxRepository, outboxPublisher, leaseManager,
+                transactionManager, Clock.system(zone), newExecutor(), enabled, fireTime, leadDays, horizonDays, catchUpDays, maxQueued,
+                partitionCount);
+    }
+
+    SchedulerService(DocumentService documentService, AlertRepository alertRepository,
+                     AlertCounterRepository counterRepository, NotificationOutboxRepository outboxRepository, OutboxPublisher outboxPublisher,
+                     JobLeaseManager leaseManager, PlatformTransactionManager transactionManager, Clock clock,
+                     ScheduledExecutorService executor, boolean enabled, LocalTime fireTime, int[] leadDays,
+                     int horizonDays, int catchUpDays, int maxQueued, int partitionCount) {
+        this.documentService = documentService;
+        this.alertRepository = alertRepository;
+        this.counterRepository = counterRepository;
+        this.outboxRepository = outboxRepository;
+        this.outboxPublisher = outboxPublisher;
+        this.leaseManager = leaseManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.enabled = enabled;
+        this.fireTime = fireTime;
+        // De mayor a menor antelación: ante cambios tardíos solo se dispara la menor ya vencida
+        this.leadDays = Arrays.stream(leadDays).distinct().boxed()
+                .sorted(Comparator.reverseOrder()).mapToInt(Integer::intValue).toArray();
+        this.horizonDays = Math.max(horizonDays, 1);
+        this.catchUpDays = Math.max(catchUpDays, 0);
+        this.maxQueued = maxQueued;
+        if (partitionCount < 1 || Document.OWNER_BUCKETS % partitionCount != 0) {
+            // Cada partición debe corresponder a cubetas enteras de idx_document_owner_expiry
+            throw new IllegalArgumentException("keepup.alerts.partitions must divide " + Document.OWNER_BUCKETS
+                    + ", got " + partitionCount);
+        }
+        this.partitionCount = partitionCount;
+        this.executor = executor;
+    }
+
+    private static ScheduledExecutorService newExecutor() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "expiry-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            // La toma inicial de particiones ya avisa del cambio y dispara la primera reconstrucción
+            leaseManager.register(JOB, partitionCount, owned -> executor.execute(this::recover));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDocumentExpiryChanged(DocumentExpiryChangedEvent event) {
+        if (enabled && !executor.isShutdown()) {
+            executor.execute(() -> reschedule(event));
+        }
+    }
+
+    /**
+     * Detener el hilo del scheduler al empezar el cierre del contexto: una reconstrucción en
+     * curso no debe seguir consultando mientras se destruyen los beans y la base de datos.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    // ==================== HILO DEL SCHEDULER ====================
+
+    /**
+     * Reconstruir la cola desde la base de datos (arranque o cambio de particiones), incluyendo
+     * los días de recuperación.
+     */
+    void recover() {
+        queue.clear();
+        byDocument.clear();
+        cancelled = 0;
+        windowFull = false;
+        partitions = leaseManager.owned(JOB);
+        if (partitions.isEmpty()) {
+            // Sin particiones no hay nada que vigilar hasta el próximo cambio de reparto
+            loadedThrough = null;
+            if (wakeUp != null) {
+                wakeUp.cancel(false);
+                wakeUp = null;
+                wakeUpAt = null;
+            }
+            return;
+        }
+        loadedThrough = today().minusDays(catchUpDays + 1L);
+        safely(this::tick);
+    }
+
+    /**
+     * Ampliar la ventana si hace falta, disparar los avisos vencidos y programar el siguiente despertar.
+     */
+    void tick() {
+        wakeUp = null;
+        wakeUpAt = null;
+        if (!today().isBefore(loadedThrough)) {
+            extendWindow();
+        }
+
+        Instant now = clock.instant();
+        List<DueAlert> due = new ArrayList<>();
+        while (!queue.isEmpty() && !queue.peek().getDueAt().isAfter(now)) {
+            DueAlert alert = queue.poll();
+            if (alert.cancelled) {
+                cancelled--;
+            } else {
+                forget(alert);
+                due.add(alert);
+            }
+        }
+        fire(due);
+        armWakeUp();
+    }
+
+    private void extendWindow() {
+        LocalDate today = today();
+        LocalDate target = today.plusDays(horizonDays);
+        while (loadedThrough.isBefore(target)) {
+            LocalDate day = loadedThrough.plusDays(1);
+            if (day.isAfter(today) && queue.size() - cancelled >= maxQueued) {
+                if (!windowFull) {
+                    log.warn("Alert queue is full ({} entries), loading stops at {}", maxQueued, loadedThrough);
+                }
+                windowFull = true;
+                return;
+            }
+            loadDay(day, today);
+            loadedThrough = day;
+        }
+        windowFull = false;
+    }
+
+    private void loadDay(LocalDate day, LocalDate today) {
+        Instant dueAt = dueInstant(day);
+        for (int lead : leadDays) {
+            LocalDate expiry = day.plusDays(lead);
+            if (expiry.isBefore(today)) {
+                // Días de recuperación: el documento ya venció, la antelación no tiene sentido
+                continue;
+            }
+            DocumentExpiryPage.Cursor cursor = null;
+            do {
+                DocumentExpiryPage page = documentService.findExpiring(
+                        expiry, expiry, partitions, partitionCount, cursor, PAGE_SIZE);
+                for (DocumentExpiryView document : page.items()) {
+                    enqueue(new DueAlert(document.documentId(), expiry, lead, dueAt));
+                }
+                cursor = page.next();
+            } while (cursor != null);
+        }
+    }
+
+    void reschedule(DocumentExpiryChangedEvent event) {
+        List<DueAlert> previous = byDocument.remove(event.documentId());
+        if (previous != null) {
+            previous.forEach(alert -> alert.cancelled = true);
+            cancelled += previous.size();
+        }
+        if (event.expiryDate() != null && loadedThrough != null
+                && partitions.contains(JobLeaseManager.partitionOf(event.userId(), partitionCount))) {
+            LocalDate today = today();
+            boolean overdueScheduled = false;
+            // De menor a mayor antelación: de las ya vencidas solo se avisa la más cercana al vencimiento
+            for (int i = leadDays.length - 1; i >= 0; i--) {
+                LocalDate day = event.expiryDate().minusDays(leadDays[i]);
+                if (day.isAfter(loadedThrough)) {
+                    continue;
+                }
+                if (day.isAfter(today) || (day.equals(today) && dueInstant(day).isAfter(clock.instant()))) {
+                    enqueue(new DueAlert(event.documentId(), event.expiryDate(), leadDays[i], dueInstant(day)));
+                } else if (!overdueScheduled && !event.expiryDate().isBefore(today)) {
+                    enqueue(new DueAlert(event.documentId(), event.expiryDate(), leadDays[i], clock.instant()));
+                    overdueScheduled = true;
+                }
+            }
+        }
+        compactIfNeeded();
+        if (loadedThrough != null) {
+            safely(this::armWakeUp);
+        }
+    }
+
+    private void enqueue(DueAlert alert) {
+        List<DueAlert> alerts = byDocument.computeIfAbsent(alert.getDocumentId(), id -> new ArrayList<>(leadDays.length));
+        for (DueAlert existing : alerts) {
+            if (existing.getLeadDays() == alert.getLeadDays() && existing.getExpiryDate().equals(alert.getExpiryDate())) {
+                return;
+            }
+        }
+        alerts.add(alert);
+        queue.add(alert);
+    }
+
+    private void forget(DueAlert alert) {
+        List<DueAlert> alerts = byDocument.get(alert.getDocumentId());
+        if (alerts != null && alerts.remove(alert) && alerts.isEmpty()) {
+            byDocument.remove(alert.getDocumentId());
+        }
+    }
+
+    private void fire(List<DueAlert> due) {
+        if (due.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        int created = 0;
+        for (DueAlert alert : due) {
+            try {
+                Boolean inserted = transactionTemplate.execute(status -> {
+                    if (alertRepository.insertForDocument(alert.getDocumentId(), alert.getExpiryDate(), alert.getLeadDays(),
+                            LocalDateTime.ofInstant(alert.getDueAt(), clock.getZone()), now) == 0) {
+                        return false;
+                    }
+                    counterRepository.insertForAlert(alert.getDocumentId(), alert.getExpiryDate(), alert.getLeadDays(), now);
+                    counterRepository.incrementForAlert(alert.getDocumentId(), alert.getExpiryDate(), alert.getLeadDays(), now);
+                    return outboxRepository.insertForAlert(
+                            alert.getDocumentId(), alert.getExpiryDate(), alert.getLeadDays(), now) > 0;
+                });
+                if (Boolean.TRUE.equals(inserted)) {
+                    created++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not create alert for document {}, retrying in {}", alert.getDocumentId(), RETRY_DELAY, e);
+                enqueue(new DueAlert(alert.getDocumentId(), alert.getExpiryDate(), alert.getLeadDays(),
+                        clock.instant().plus(RETRY_DELAY)));
+            }
+        }
+        log.debug("Fired {} due alerts, {} created", due.size(), created);
+        if (created > 0) {
+            outboxPublisher.wakeUp();
+        }
+    }
+
+    private void armWakeUp() {
+        Instant now = clock.instant();
+        Instant next = loadedThrough.atStartOfDay(clock.getZone()).toInstant();
+        if (!next.isAfter(now)) {
+            // La ventana no se pudo ampliar (cola llena): reintentar más tarde, nunca en el acto
+            next = now.plus(RETRY_DELAY);
+        }
+        DueAlert head = queue.peek();
+        if (head != null && head.getDueAt().isBefore(next)) {
+            next = head.getDueAt();
+        }
+        if (wakeUp != null && !wakeUpAt.isAfter(next)) {
+            return;
+        }
+        if (wakeUp != null) {
+            wakeUp.cancel(false);
+        }
+        long delay = Math.max(Duration.between(now, next).toMillis(), 0);
+        wakeUpAt = next;
+        wakeUp = executor.schedule(() -> safely(this::tick), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void compactIfNeeded() {
+        if (cancelled > 1024 && cancelled > queue.size() / 2) {
+            queue.removeIf(alert -> alert.cancelled);
+            cancelled = 0;
+        }
+    }
+
+    /**
+     * Ejecutar un paso del scheduler sin dejar el hilo sin próximo despertar si falla (p. ej. la
+     * base de datos no responde al cargar la ventana): se reintenta tras RETRY_DELAY.
+     */
+    private void safely(Runnable step) {
+        try {
+            step.run();
+        } catch (RuntimeException e) {
+            if (executor.isShutdown()) {
+                // El contexto se está cerrando: no hay próximo despertar que programar
+                return;
+            }
+            log.error("Expiry scheduler step failed, retrying in {}", RETRY_DELAY, e);
+            if (wakeUp != null) {
+                wakeUp.cancel(false);
+            }
+            wakeUpAt = clock.instant().plus(RETRY_DELAY);
+            wakeUp = executor.schedule(() -> safely(this::tick), RETRY_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    int queuedCount() {
+        return queue.size() - cancelled;
+    }
+
+    private LocalDate today() {
+        return LocalDate.now(clock);
+    }
+
+    private Instant dueInstant(LocalDate day) {
+        return day.atTime(fireTime).atZone(clock.getZone()).toInstant();
+    }
+
+    /**
+     * Aviso programado. Al cancelarse se marca y se descarta cuando llega a la cabeza de la cola.
+     * La igualdad es por identidad: byDocument y la cola comparten la misma instancia.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    private static final class DueAlert {
+
+        private final Long documentId;
+        private final LocalDate expiryDate;
+        private final int leadDays;
+        private final Instant dueAt;
+        private boolean cancelled;
+    }
 }
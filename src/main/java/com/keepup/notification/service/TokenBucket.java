@@ -0,0 +1,50 @@
+package com.keepup.notification.service;
+
+/**
+ * Limitador de ritmo por cubeta de fichas, compartido por todos los hilos que lo usan.
+ *
+ * Las fichas se reponen a ritmo constante hasta la capacidad (ráfaga máxima). {@link #acquire}
+ * reserva las fichas aunque no estén todas disponibles y espera lo que falte: así se pueden pedir
+ * más fichas que la capacidad (un lote grande) y el ritmo medio se respeta igual.
+ */
+final class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double capacity;
+    private double available;
+    private long refilledAt;
+
+    /**
+     * @param permitsPerSecond Ritmo sostenido
+     * @param capacity Fichas acumulables (ráfaga)
+     */
+    TokenBucket(double permitsPerSecond, int capacity) {
+        if (permitsPerSecond <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("Rate and capacity must be positive");
+        }
+        this.permitsPerNano = permitsPerSecond / 1_000_000_000d;
+        this.capacity = capacity;
+        this.available = capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Reservar fichas, esperando lo necesario hasta que estén disponibles.
+     *
+     * @throws InterruptedException si se interrumpe la espera (las fichas quedan consumidas)
+     */
+    void acquire(int permits) throws InterruptedException {
+        long waitNanos = reserve(permits);
+        if (waitNanos > 0) {
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+    }
+
+    private synchronized long reserve(int permits) {
+        long now = System.nanoTime();
+        available = Math.min(capacity, available + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+        available -= permits;
+        return available >= 0 ? 0 : (long) Math.ceil(-available / permitsPerNano);
+    }
+}
@@ -0,0 +1,33 @@
+package com.keepup.notification.template;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Plantillas compiladas de un correo en un idioma (asunto, texto plano y HTML opcional) junto con
+ * sus textos localizados (messages.properties) y el formato de fecha del idioma.
+ *
+ * @param html null si el correo solo tiene versión de texto
+ */
+public record LocalizedMail(
+        Locale locale,
+        MailTemplate subject,
+        MailTemplate text,
+        MailTemplate html,
+        Map<String, String> messages,
+        DateTimeFormatter dateFormat
+) {
+
+    public RenderedMail render(Map<String, ?> model) {
+        return new RenderedMail(subject.render(model).strip(), text.render(model),
+                html != null ? html.render(model) : null);
+    }
+
+    /**
+     * Texto localizado; la propia clave si no está definido.
+     */
+    public String message(String key) {
+        return messages.getOrDefault(key, key);
+    }
+}
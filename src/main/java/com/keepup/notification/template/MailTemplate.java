@@ -0,0 +1,297 @@
+package com.keepup.notification.template;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plantilla de correo compilada: el texto se analiza una sola vez y se convierte en un árbol de
+ * nodos que se recorre en cada envío sin volver a tocar el texto original.
+ *
+ * Sintaxis (subconjunto de Mustache):
+ * - {{nombre}}: valor del modelo; en plantillas HTML se escapa.
+ * - {{{nombre}}} o {{&nombre}}: valor sin escapar.
+ * - {{#nombre}}...{{/nombre}}: se muestra si el valor no es null, false ni una colección vacía; con
+ *   una colección se repite por cada elemento, y con un mapa sus claves pasan a estar visibles.
+ * - {{^nombre}}...{{/nombre}}: se muestra solo si el valor es null, false o una colección vacía.
+ * - {{.}}: el elemento actual de una sección; {{! texto}}: comentario.
+ * Las etiquetas de sección y los comentarios que ocupan una línea entera no dejan línea en blanco.
+ *
+ * Es inmutable y se puede usar desde varios hilos a la vez.
+ */
+public final class MailTemplate {
+
+    private static final int INITIAL_BUFFER = 4 * 1024;
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    // Búfer por hilo: los hilos de envío componen un correo detrás de otro sin crear uno nuevo cada vez
+    private static final ThreadLocal<StringBuilder> BUFFER =
+            ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_BUFFER));
+
+    private final String name;
+    private final Node[] nodes;
+
+    private MailTemplate(String name, Node[] nodes) {
+        this.name = name;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Compilar una plantilla.
+     *
+     * @param name Nombre para los mensajes de error
+     * @param source Texto de la plantilla
+     * @param html true para escapar los valores como HTML
+     * @throws IllegalArgumentException si la plantilla está mal formada
+     */
+    public static MailTemplate compile(String name, String source, boolean html) {
+        return new MailTemplate(name, new Parser(name, source, html).parse());
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Renderizar con el búfer reutilizable del hilo actual.
+     */
+    public String render(Map<String, ?> model) {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        render(model, out);
+        String result = out.toString();
+        if (out.capacity() > MAX_RETAINED_BUFFER) {
+            // Un correo enorme no deja retenido un búfer grande para siempre
+            BUFFER.set(new StringBuilder(INITIAL_BUFFER));
+        }
+        return result;
+    }
+
+    /**
+     * Renderizar añadiendo el resultado a un búfer del llamador.
+     */
+    public void render(Map<String, ?> model, StringBuilder out) {
+        renderAll(nodes, new Scope(model, null), out);
+    }
+
+    private static void renderAll(Node[] nodes, Scope scope, StringBuilder out) {
+        for (Node node : nodes) {
+            node.render(scope, out);
+        }
+    }
+
+    // ==================== NODOS ====================
+
+    private sealed interface Node permits Text, Value, Section {
+        void render(Scope scope, StringBuilder out);
+    }
+
+    private record Text(String text) implements Node {
+        @Override
+        public void render(Scope scope, StringBuilder out) {
+            out.append(text);
+        }
+    }
+
+    private record Value(String key, boolean escape) implements Node {
+        @Override
+        public void render(Scope scope, StringBuilder out) {
+            Object value = scope.lookup(key);
+            if (value == null) {
+                return;
+            }
+            String text = value.toString();
+            if (escape) {
+                escapeHtml(text, out);
+            } else {
+                out.append(text);
+            }
+        }
+    }
+
+    private record Section(String key, Node[] body, boolean inverted) implements Node {
+        @Override
+        public void render(Scope scope, StringBuilder out) {
+            Object value = scope.lookup(key);
+            boolean truthy = value != null && !Boolean.FALSE.equals(value)
+                    && !(value instanceof Collection<?> collection && collection.isEmpty());
+            if (inverted) {
+                if (!truthy) {
+                    renderAll(body, scope, out);
+                }
+            } else if (!truthy) {
+                return;
+            } else if (value instanceof Iterable<?> items) {
+                for (Object item : items) {
+                    renderAll(body, new Scope(item, scope), out);
+                }
+            } else if (value instanceof Boolean) {
+                renderAll(body, scope, out);
+            } else {
+                renderAll(body, new Scope(value, scope), out);
+            }
+        }
+    }
+
+    /**
+     * Contexto de búsqueda: el valor de la sección actual y, detrás, el de las secciones que la contienen.
+     */
+    private record Scope(Object value, Scope parent) {
+
+        Object lookup(String key) {
+            if (".".equals(key)) {
+                return value;
+            }
+            for (Scope scope = this; scope != null; scope = scope.parent) {
+                if (scope.value instanceof Map<?, ?> map) {
+                    Object found = map.get(key);
+                    if (found != null || map.containsKey(key)) {
+                        return found;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    private static void escapeHtml(String text, StringBuilder out) {
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String replacement = switch (text.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (replacement != null) {
+                out.append(text, start, i).append(replacement);
+                start = i + 1;
+            }
+        }
+        out.append(text, start, text.length());
+    }
+
+    // ==================== ANÁLISIS ====================
+
+    private static final class Parser {
+
+        private final String name;
+        private final String source;
+        private final boolean html;
+        private int position;
+
+        private Parser(String name, String source, boolean html) {
+            this.name = name;
+            this.source = source;
+            this.html = html;
+        }
+
+        Node[] parse() {
+            return parseUntil(null).toArray(Node[]::new);
+        }
+
+        private List<Node> parseUntil(String closing) {
+            List<Node> nodes = new ArrayList<>();
+            while (true) {
+                int open = source.indexOf("{{", position);
+                if (open < 0) {
+                    if (closing != null) {
+                        throw error("Unclosed section '" + closing + "'", source.length());
+                    }
+                    addText(nodes, source.substring(position));
+                    position = source.length();
+                    return nodes;
+                }
+                boolean triple = source.startsWith("{{{", open);
+                String delimiter = triple ? "}}}" : "}}";
+                int close = source.indexOf(delimiter, open);
+                if (close < 0) {
+                    throw error("Unclosed tag", open);
+                }
+                String tag = source.substring(open + delimiter.length(), close).trim();
+                int end = close + delimiter.length();
+                char kind = triple ? '&' : tag.isEmpty() ? ' ' : tag.charAt(0);
+                String key = triple ? tag : kind == '#' || kind == '^' || kind == '/' || kind == '!' || kind == '&'
+                        ? tag.substring(1).trim() : tag;
+
+                int textEnd = open;
+                int next = end;
+                if (kind == '#' || kind == '^' || kind == '/' || kind == '!') {
+                    // Etiqueta sola en su línea: la línea entera desaparece del resultado
+                    int lineStart = source.lastIndexOf('\n', open - 1) + 1;
+                    int lineEnd = source.indexOf('\n', end);
+                    if (lineEnd < 0) {
+                        lineEnd = source.length();
+                    }
+                    if (lineStart >= position && isBlank(lineStart, open) && isBlank(end, lineEnd)) {
+                        textEnd = lineStart;
+                        next = Math.min(lineEnd + 1, source.length());
+                    }
+                }
+                addText(nodes, source.substring(position, textEnd));
+                position = next;
+
+                switch (kind) {
+                    case '!' -> {
+                    }
+                    case '#', '^' -> {
+                        requireKey(key, open);
+                        Node[] body = parseUntil(key).toArray(Node[]::new);
+                        nodes.add(new Section(key, body, kind == '^'));
+                    }
+                    case '/' -> {
+                        if (!key.equals(closing)) {
+                            throw error(closing == null
+                                    ? "Unexpected closing tag '" + key + "'"
+                                    : "Expected closing tag '" + closing + "' but found '" + key + "'", open);
+                        }
+                        return nodes;
+                    }
+                    case '&' -> {
+                        requireKey(key, open);
+                        nodes.add(new Value(key, false));
+                    }
+                    default -> {
+                        requireKey(key, open);
+                        nodes.add(new Value(key, html));
+                    }
+                }
+            }
+        }
+
+        private void addText(List<Node> nodes, String text) {
+            if (!text.isEmpty()) {
+                nodes.add(new Text(text));
+            }
+        }
+
+        private boolean isBlank(int from, int to) {
+            for (int i = from; i < to; i++) {
+                char c = source.charAt(i);
+                if (c != ' ' && c != '\t' && c != '\r') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void requireKey(String key, int at) {
+            if (key.isEmpty()) {
+                throw error("Empty tag", at);
+            }
+        }
+
+        private IllegalArgumentException error(String message, int at) {
+            int line = 1;
+            for (int i = 0; i < at && i < source.length(); i++) {
+                if (source.charAt(i) == '\n') {
+                    line++;
+                }
+            }
+            return new IllegalArgumentException(message + " in mail template " + name + " (line " + line + ")");
+        }
+    }
+}
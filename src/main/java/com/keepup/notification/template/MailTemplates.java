@@ -0,0 +1,169 @@
+package com.keepup.notification.template;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Catálogo de plantillas de correo compiladas.
+ *
+ * Cada correo se busca en keepup.mail.templates.location (classpath:mail/ por defecto) como
+ * {idioma}/{nombre}.subject, {idioma}/{nombre}.txt y, opcionalmente, {idioma}/{nombre}.html, con
+ * los textos del idioma en {idioma}/messages.properties (UTF-8; la clave date-format da el formato
+ * de fecha). Si no hay plantillas para el idioma pedido se usa el de keepup.mail.locale.
+ *
+ * Las plantillas se compilan la primera vez que se piden y se guardan en memoria. Con
+ * keepup.mail.templates.check-interval mayor que cero (útil con una ubicación file: editable) se
+ * comprueba cada ese tiempo si los archivos cambiaron y se recompilan; si la nueva versión tiene
+ * errores se registra y se sigue usando la anterior.
+ */
+@Slf4j
+@Component
+public class MailTemplates {
+
+    private static final String MESSAGES = "messages.properties";
+
+    private final ResourceLoader resourceLoader;
+    private final String location;
+    private final Locale defaultLocale;
+    private final long checkIntervalNanos;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    public MailTemplates(ResourceLoader resourceLoader,
+                         @Value("${keepup.mail.templates.location:classpath:mail/}") String location,
+                         @Value("${keepup.mail.locale:es-CO}") Locale defaultLocale,
+                         @Value("${keepup.mail.templates.check-interval:PT0S}") Duration checkInterval) {
+        this.resourceLoader = resourceLoader;
+        this.location = location.endsWith("/") ? location : location + "/";
+        this.defaultLocale = defaultLocale;
+        this.checkIntervalNanos = checkInterval.toNanos();
+    }
+
+    public Locale defaultLocale() {
+        return defaultLocale;
+    }
+
+    /**
+     * Plantillas compiladas de un correo.
+     *
+     * @param name Nombre del correo (p. ej. expiry-digest)
+     * @param locale Idioma del destinatario
+     * @throws IllegalStateException si el correo no existe ni en ese idioma ni en el por defecto
+     * @throws IllegalArgumentException si una plantilla está mal formada
+     */
+    public LocalizedMail get(String name, Locale locale) {
+        String key = locale.getLanguage() + "/" + name;
+        Entry entry = cache.get(key);
+        if (entry == null) {
+            return cache.computeIfAbsent(key, k -> load(name,
+                    resource(locale, name + ".subject").exists() ? locale : defaultLocale)).mail;
+        }
+        if (checkIntervalNanos > 0 && System.nanoTime() - entry.checkedAt > checkIntervalNanos) {
+            entry = reloadIfChanged(key, name, entry);
+        }
+        return entry.mail;
+    }
+
+    private Entry reloadIfChanged(String key, String name, Entry entry) {
+        Locale locale = entry.mail.locale();
+        entry.checkedAt = System.nanoTime();
+        if (lastModified(name, locale) == entry.lastModified) {
+            return entry;
+        }
+        try {
+            Entry reloaded = load(name, locale);
+            cache.put(key, reloaded);
+            log.info("Reloaded mail template {}/{}", locale.getLanguage(), name);
+            return reloaded;
+        } catch (RuntimeException e) {
+            log.error("Could not reload mail template {}/{}, keeping the previous version", locale.getLanguage(), name, e);
+            return entry;
+        }
+    }
+
+    private Entry load(String name, Locale locale) {
+        Resource subject = resource(locale, name + ".subject");
+        if (!subject.exists()) {
+            throw new IllegalStateException("Mail template not found: " + location + locale.getLanguage() + "/" + name);
+        }
+        long lastModified = lastModified(name, locale);
+        Resource html = resource(locale, name + ".html");
+        Map<String, String> messages = messages(locale);
+        LocalizedMail mail = new LocalizedMail(
+                locale,
+                MailTemplate.compile(name + ".subject", read(subject), false),
+                MailTemplate.compile(name + ".txt", read(resource(locale, name + ".txt")), false),
+                html.exists() ? MailTemplate.compile(name + ".html", read(html), true) : null,
+                messages,
+                DateTimeFormatter.ofPattern(messages.getOrDefault("date-format", "dd/MM/yyyy"), locale));
+        return new Entry(mail, lastModified);
+    }
+
+    private Map<String, String> messages(Locale locale) {
+        Resource resource = resource(locale, MESSAGES);
+        Map<String, String> messages = new HashMap<>();
+        if (!resource.exists()) {
+            return Map.copyOf(messages);
+        }
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + resource.getDescription(), e);
+        }
+        properties.stringPropertyNames().forEach(key -> messages.put(key, properties.getProperty(key)));
+        return Map.copyOf(messages);
+    }
+
+    private long lastModified(String name, Locale locale) {
+        long sum = 0;
+        for (String file : new String[]{name + ".subject", name + ".txt", name + ".html", MESSAGES}) {
+            Resource resource = resource(locale, file);
+            try {
+                sum = sum * 31 + (resource.exists() ? resource.lastModified() : 0);
+            } catch (IOException e) {
+                // Recurso sin fecha (p. ej. dentro del jar): nunca cambia
+            }
+        }
+        return sum;
+    }
+
+    private Resource resource(Locale locale, String file) {
+        return resourceLoader.getResource(location + locale.getLanguage() + "/" + file);
+    }
+
+    private static String read(Resource resource) {
+        try {
+            return resource.getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + resource.getDescription(), e);
+        }
+    }
+
+    private static final class Entry {
+
+        private final LocalizedMail mail;
+        private final long lastModified;
+        private volatile long checkedAt = System.nanoTime();
+
+        private Entry(LocalizedMail mail, long lastModified) {
+            this.mail = mail;
+            this.lastModified = lastModified;
+        }
+    }
+}
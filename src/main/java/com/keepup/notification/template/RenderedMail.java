@@ -0,0 +1,9 @@
+package com.keepup.notification.template;
+
+/**
+ * Correo renderizado listo para enviar.
+ *
+ * @param html Versión HTML, o null si la plantilla no tiene
+ */
+public record RenderedMail(String subject, String text, String html) {
+}
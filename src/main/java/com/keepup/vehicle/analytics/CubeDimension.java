@@ -0,0 +1,24 @@
+package com.keepup.vehicle.analytics;
+
+/**
+ * Dimensiones por las que se puede agrupar y filtrar el cubo de gastos.
+ *
+ * Formato de los valores (en filtros y en resultados):
+ * - VEHICLE: placa
+ * - VEHICLE_TYPE, CATEGORY: nombre del enum (CAR, FUEL...)
+ * - MAKE, MODEL: texto exacto
+ * - VEHICLE_YEAR, YEAR: año (2020)
+ * - MONTH: yyyy-MM
+ * - QUARTER: yyyy-Qn
+ */
+public enum CubeDimension {
+    VEHICLE,
+    VEHICLE_TYPE,
+    MAKE,
+    MODEL,
+    VEHICLE_YEAR,
+    CATEGORY,
+    MONTH,
+    QUARTER,
+    YEAR
+}
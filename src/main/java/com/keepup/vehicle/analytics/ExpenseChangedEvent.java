@@ -0,0 +1,18 @@
+package com.keepup.vehicle.analytics;
+
+/**
+ * Un gasto se creó, modificó o borró. Se publica dentro de la transacción y el cubo lo aplica
+ * al confirmar.
+ *
+ * @param userId Propietario del gasto
+ * @param removed Estado anterior (null si es un alta)
+ * @param added Estado nuevo (null si es una baja)
+ * @param createdAtNanos System.nanoTime() al publicarlo, para saber si un cubo cargado
+ *                       después ya podría incluir el cambio
+ */
+public record ExpenseChangedEvent(Long userId, ExpenseFact removed, ExpenseFact added, long createdAtNanos) {
+
+    public ExpenseChangedEvent(Long userId, ExpenseFact removed, ExpenseFact added) {
+        this(userId, removed, added, System.nanoTime());
+    }
+}
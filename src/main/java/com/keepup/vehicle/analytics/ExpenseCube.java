@@ -0,0 +1,660 @@
+package com.keepup.vehicle.analytics;
+
+import com.keepup.core.exception.BadRequestException;
+import com.keepup.vehicle.dto.ExpenseCubeQuery;
+import com.keepup.vehicle.dto.ExpenseCubeResult;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Gastos de un usuario en formato columnar, para agregaciones ad-hoc en memoria.
+ *
+ * Cada atributo es un array primitivo (una posición por gasto). Los textos (placa, tipo, marca,
+ * modelo, categoría) se codifican con un diccionario por columna, de modo que agrupar o filtrar
+ * compara enteros. El mes se guarda como año*12+mes y el día como epochDay; trimestre y año se
+ * derivan del mes al agregar.
+ *
+ * Concurrencia: hay un único escritor a la vez (métodos synchronized) que solo añade filas y
+ * publica el nuevo tamaño al final; los lectores leen primero el tamaño y después los arrays, sin
+ * bloqueo. Las filas ya publicadas no se modifican nunca.
+ *
+ * Los cambios de gastos se aplican como filas nuevas: una baja es una fila con importe y signo
+ * negativos que anula a la original al agregar. Cuando hay demasiadas filas negativas el cubo se
+ * marca como obsoleto ({@link #isStale()}) para que se vuelva a cargar compacto.
+ */
+public final class ExpenseCube {
+
+    // Filas por tarea hoja en la agregación paralela (por debajo se agrega en el hilo llamante)
+    static final int SPLIT_THRESHOLD = 32_768;
+
+    // Máximo de grupos posibles para usar acumuladores densos (arrays indexados por grupo)
+    static final int DENSE_GROUP_LIMIT = 1 << 16;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MIN_NEGATIVE_ROWS_FOR_STALE = 1024;
+
+    private final Dictionary plates = new Dictionary();
+    private final Dictionary vehicleTypes = new Dictionary();
+    private final Dictionary makes = new Dictionary();
+    private final Dictionary models = new Dictionary();
+    private final Dictionary categories = new Dictionary();
+
+    private volatile Columns columns;
+    private volatile int size;
+
+    // Rangos de los atributos numéricos, para dimensionar la agrupación
+    private volatile int minMonth = Integer.MAX_VALUE;
+    private volatile int maxMonth = Integer.MIN_VALUE;
+    private volatile int minVehicleYear = Integer.MAX_VALUE;
+    private volatile int maxVehicleYear = Integer.MIN_VALUE;
+
+    private int negativeRows;
+    private volatile long loadedAtNanos;
+
+    public ExpenseCube() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public ExpenseCube(int expectedRows) {
+        this.columns = new Columns(Math.max(expectedRows, 16));
+    }
+
+    /**
+     * Añadir un gasto durante la carga inicial.
+     */
+    public synchronized void add(ExpenseFact fact) {
+        append(fact, 1, size);
+        size++;
+    }
+
+    /**
+     * Aplicar un cambio de gasto: resta el estado anterior y suma el nuevo.
+     * Ambas filas se publican juntas, así que ninguna consulta ve solo la mitad del cambio.
+     *
+     * @param removed Estado anterior (null en un alta)
+     * @param added Estado nuevo (null en una baja)
+     */
+    public synchronized void apply(ExpenseFact removed, ExpenseFact added) {
+        int appended = 0;
+        if (removed != null) {
+            append(removed, -1, size + appended);
+            negativeRows++;
+            appended++;
+        }
+        if (added != null) {
+            append(added, 1, size + appended);
+            appended++;
+        }
+        size += appended;
+    }
+
+    /**
+     * Marcar el final de la carga inicial.
+     */
+    public void markLoaded() {
+        this.loadedAtNanos = System.nanoTime();
+    }
+
+    /**
+     * System.nanoTime() del final de la carga inicial: los cambios publicados después no pueden
+     * estar incluidos en ella.
+     */
+    public long getLoadedAtNanos() {
+        return loadedAtNanos;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Indica si las filas negativas acumuladas justifican recargar el cubo desde la base de datos.
+     */
+    public synchronized boolean isStale() {
+        return negativeRows > Math.max(MIN_NEGATIVE_ROWS_FOR_STALE, size / 4);
+    }
+
+    /**
+     * Agregar los gastos según la consulta.
+     *
+     * @param query Dimensiones de agrupación, filtros, rango de fechas y límite
+     * @param pool Pool en el que se reparte el recorrido cuando el cubo es grande
+     * @throws BadRequestException si un valor de filtro no tiene el formato de su dimensión o la
+     *                             combinación de dimensiones produce demasiados grupos
+     */
+    public ExpenseCubeResult aggregate(ExpenseCubeQuery query, ForkJoinPool pool) {
+        long start = System.nanoTime();
+
+        // Orden de lectura: tamaño primero, después los datos publicados antes que él
+        int rows = size;
+        Columns data = columns;
+
+        List<CubeDimension> groupBy = query.getGroupBy() != null ? query.getGroupBy() : List.of();
+        Axis[] groupAxes = new Axis[groupBy.size()];
+        long groupCount = 1;
+        for (int i = 0; i < groupAxes.length; i++) {
+            groupAxes[i] = axis(groupBy.get(i), data);
+            try {
+                groupCount = Math.multiplyExact(groupCount, Math.max(groupAxes[i].cardinality, 1));
+            } catch (ArithmeticException e) {
+                throw new BadRequestException("Too many groups for the requested dimensions");
+            }
+        }
+
+        List<Axis> filterAxes = new ArrayList<>();
+        if (query.getFilters() != null) {
+            for (Map.Entry<CubeDimension, List<String>> filter : query.getFilters().entrySet()) {
+                if (filter.getValue() == null || filter.getValue().isEmpty()) {
+                    continue;
+                }
+                Axis axis = axis(filter.getKey(), data);
+                axis.mask = mask(filter.getKey(), axis, filter.getValue());
+                filterAxes.add(axis);
+            }
+        }
+
+        int fromDay = query.getFrom() != null ? (int) query.getFrom().toEpochDay() : Integer.MIN_VALUE;
+        int toDay = query.getTo() != null ? (int) query.getTo().toEpochDay() : Integer.MAX_VALUE;
+        if (fromDay > toDay) {
+            throw new BadRequestException("'from' must not be after 'to'");
+        }
+
+        Scan scan = new Scan(data, groupAxes, filterAxes.toArray(new Axis[0]), fromDay, toDay,
+                groupCount <= DENSE_GROUP_LIMIT, (int) Math.min(groupCount, DENSE_GROUP_LIMIT));
+        Accumulator total = rows <= SPLIT_THRESHOLD
+                ? scan.run(0, rows)
+                : pool.invoke(new ScanTask(scan, 0, rows));
+
+        List<ExpenseCubeResult.Row> result = toRows(total, groupBy, groupAxes);
+        if (query.getLimit() != null && result.size() > query.getLimit()) {
+            result = new ArrayList<>(result.subList(0, query.getLimit()));
+        }
+        return new ExpenseCubeResult(result, rows, (System.nanoTime() - start) / 1_000);
+    }
+
+    // ==================== CARGA ====================
+
+    private void append(ExpenseFact fact, int sign, int row) {
+        Columns data = columns;
+        if (row == data.capacity()) {
+            data = data.grow(row * 2);
+            columns = data;
+        }
+
+        int month = fact.date().getYear() * 12 + fact.date().getMonthValue() - 1;
+        data.vehicle[row] = plates.encode(fact.licensePlate());
+        data.vehicleType[row] = vehicleTypes.encode(fact.vehicleType() != null ? fact.vehicleType().name() : null);
+        data.make[row] = makes.encode(fact.make());
+        data.model[row] = models.encode(fact.model());
+        data.vehicleYear[row] = fact.vehicleYear() != null ? fact.vehicleYear() : 0;
+        data.category[row] = categories.encode(fact.category() != null ? fact.category().name() : null);
+        data.month[row] = month;
+        data.day[row] = (int) fact.date().toEpochDay();
+        data.cents[row] = sign * toCents(fact.amount());
+        data.sign[row] = (byte) sign;
+
+        // Los rangos se amplían antes de publicar el tamaño
+        if (month < minMonth) minMonth = month;
+        if (month > maxMonth) maxMonth = month;
+        if (data.vehicleYear[row] < minVehicleYear) minVehicleYear = data.vehicleYear[row];
+        if (data.vehicleYear[row] > maxVehicleYear) maxVehicleYear = data.vehicleYear[row];
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    // ==================== DIMENSIONES ====================
+
+    /**
+     * Columna de una dimensión y cómo convertir su valor en un código de grupo en [0, cardinality):
+     * código = columna[fila] / divisor - base.
+     */
+    private Axis axis(CubeDimension dimension, Columns data) {
+        return switch (dimension) {
+            case VEHICLE -> new Axis(data.vehicle, 1, 0, plates.size());
+            case VEHICLE_TYPE -> new Axis(data.vehicleType, 1, 0, vehicleTypes.size());
+            case MAKE -> new Axis(data.make, 1, 0, makes.size());
+            case MODEL -> new Axis(data.model, 1, 0, models.size());
+            case CATEGORY -> new Axis(data.category, 1, 0, categories.size());
+            case VEHICLE_YEAR -> rangeAxis(data.vehicleYear, 1, minVehicleYear, maxVehicleYear);
+            case MONTH -> rangeAxis(data.month, 1, minMonth, maxMonth);
+            case QUARTER -> rangeAxis(data.month, 3, minMonth, maxMonth);
+            case YEAR -> rangeAxis(data.month, 12, minMonth, maxMonth);
+        };
+    }
+
+    private static Axis rangeAxis(int[] column, int divisor, int min, int max) {
+        if (min > max) {
+            return new Axis(column, divisor, 0, 0);
+        }
+        int base = Math.floorDiv(min, divisor);
+        return new Axis(column, divisor, base, Math.floorDiv(max, divisor) - base + 1);
+    }
+
+    private boolean[] mask(CubeDimension dimension, Axis axis, List<String> values) {
+        boolean[] mask = new boolean[axis.cardinality];
+        for (String value : values) {
+            int code = switch (dimension) {
+                case VEHICLE -> plates.lookup(value);
+                case VEHICLE_TYPE -> vehicleTypes.lookup(value);
+                case MAKE -> makes.lookup(value);
+                case MODEL -> models.lookup(value);
+                case CATEGORY -> categories.lookup(value);
+                case VEHICLE_YEAR, YEAR -> parseInt(dimension, value) - axis.base;
+                case MONTH -> parseMonth(value) - axis.base;
+                case QUARTER -> parseQuarter(value) - axis.base;
+            };
+            // Un valor que no aparece en el cubo no selecciona ninguna fila
+            if (code >= 0 && code < mask.length) {
+                mask[code] = true;
+            }
+        }
+        return mask;
+    }
+
+    private String label(CubeDimension dimension, Axis axis, int code) {
+        int value = axis.base + code;
+        return switch (dimension) {
+            case VEHICLE -> plates.label(code);
+            case VEHICLE_TYPE -> vehicleTypes.label(code);
+            case MAKE -> makes.label(code);
+            case MODEL -> models.label(code);
+            case CATEGORY -> categories.label(code);
+            case VEHICLE_YEAR, YEAR -> Integer.toString(value);
+            case MONTH -> YearMonth.of(Math.floorDiv(value, 12), Math.floorMod(value, 12) + 1).toString();
+            case QUARTER -> Math.floorDiv(value, 4) + "-Q" + (Math.floorMod(value, 4) + 1);
+        };
+    }
+
+    private static int parseInt(CubeDimension dimension, String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid " + dimension + " value: " + value);
+        }
+    }
+
+    private static int parseMonth(String value) {
+        try {
+            YearMonth month = YearMonth.parse(value.trim());
+            return month.getYear() * 12 + month.getMonthValue() - 1;
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid MONTH value (expected yyyy-MM): " + value);
+        }
+    }
+
+    private static int parseQuarter(String value) {
+        String trimmed = value.trim();
+        int separator = trimmed.indexOf("-Q");
+        if (separator > 0 && separator == trimmed.length() - 3) {
+            try {
+                int year = Integer.parseInt(trimmed.substring(0, separator));
+                int quarter = Integer.parseInt(trimmed.substring(separator + 2));
+                if (quarter >= 1 && quarter <= 4) {
+                    return year * 4 + quarter - 1;
+                }
+            } catch (NumberFormatException e) {
+                // formato inválido, se informa abajo
+            }
+        }
+        throw new BadRequestException("Invalid QUARTER value (expected yyyy-Qn): " + value);
+    }
+
+    // ==================== RESULTADO ====================
+
+    private List<ExpenseCubeResult.Row> toRows(Accumulator accumulator, List<CubeDimension> groupBy, Axis[] axes) {
+        List<ExpenseCubeResult.Row> rows = new ArrayList<>();
+        accumulator.forEach((key, cents, count) -> {
+            // Grupos cuyos gastos fueron todos anulados por bajas posteriores
+            if (count == 0) {
+                return;
+            }
+            Map<CubeDimension, String> group = new LinkedHashMap<>();
+            long remaining = key;
+            String[] labels = new String[axes.length];
+            for (int i = axes.length - 1; i >= 0; i--) {
+                labels[i] = label(groupBy.get(i), axes[i], (int) (remaining % axes[i].cardinality));
+                remaining /= axes[i].cardinality;
+            }
+            for (int i = 0; i < axes.length; i++) {
+                group.put(groupBy.get(i), labels[i]);
+            }
+            rows.add(new ExpenseCubeResult.Row(Collections.unmodifiableMap(group), BigDecimal.valueOf(cents, 2), count));
+        });
+        rows.sort((a, b) -> b.total().compareTo(a.total()));
+        return rows;
+    }
+
+    // ==================== RECORRIDO ====================
+
+    /**
+     * Parámetros de un recorrido, compartidos por todas las tareas.
+     */
+    private record Scan(Columns data, Axis[] groupAxes, Axis[] filterAxes, int fromDay, int toDay,
+                        boolean dense, int denseSize) {
+
+        Accumulator run(int from, int to) {
+            Accumulator accumulator = dense ? new DenseAccumulator(denseSize) : new HashAccumulator();
+            int[] day = data.day;
+            long[] cents = data.cents;
+            byte[] sign = data.sign;
+
+            rows:
+            for (int row = from; row < to; row++) {
+                if (day[row] < fromDay || day[row] > toDay) {
+                    continue;
+                }
+                for (Axis filter : filterAxes) {
+                    int code = filter.code(row);
+                    if (code < 0 || code >= filter.mask.length || !filter.mask[code]) {
+                        continue rows;
+                    }
+                }
+                long key = 0;
+                for (Axis axis : groupAxes) {
+                    key = key * axis.cardinality + axis.code(row);
+                }
+                accumulator.add(key, cents[row], sign[row]);
+            }
+            return accumulator;
+        }
+    }
+
+    private static final class ScanTask extends RecursiveTask<Accumulator> {
+
+        private final Scan scan;
+        private final int from;
+        private final int to;
+
+        private ScanTask(Scan scan, int from, int to) {
+            this.scan = scan;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                return scan.run(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(scan, from, middle);
+            left.fork();
+            Accumulator right = new ScanTask(scan, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private static final class Axis {
+
+        private final int[] column;
+        private final int divisor;
+        private final int base;
+        private final int cardinality;
+        private boolean[] mask;
+
+        private Axis(int[] column, int divisor, int base, int cardinality) {
+            this.column = column;
+            this.divisor = divisor;
+            this.base = base;
+            this.cardinality = cardinality;
+        }
+
+        int code(int row) {
+            return divisor == 1 ? column[row] - base : Math.floorDiv(column[row], divisor) - base;
+        }
+    }
+
+    // ==================== ACUMULADORES ====================
+
+    @FunctionalInterface
+    private interface GroupConsumer {
+        void accept(long key, long cents, long count);
+    }
+
+    private interface Accumulator {
+
+        void add(long key, long cents, int count);
+
+        void forEach(GroupConsumer consumer);
+
+        default Accumulator merge(Accumulator other) {
+            other.forEach((key, cents, count) -> add(key, cents, (int) count));
+            return this;
+        }
+    }
+
+    /**
+     * Un total por grupo en arrays indexados por la clave (pocos grupos posibles).
+     */
+    private static final class DenseAccumulator implements Accumulator {
+
+        private final long[] cents;
+        private final long[] counts;
+        private final boolean[] seen;
+
+        private DenseAccumulator(int size) {
+            this.cents = new long[size];
+            this.counts = new long[size];
+            this.seen = new boolean[size];
+        }
+
+        @Override
+        public void add(long key, long amount, int count) {
+            int index = (int) key;
+            cents[index] += amount;
+            counts[index] += count;
+            seen[index] = true;
+        }
+
+        @Override
+        public void forEach(GroupConsumer consumer) {
+            for (int i = 0; i < cents.length; i++) {
+                if (seen[i]) {
+                    consumer.accept(i, cents[i], counts[i]);
+                }
+            }
+        }
+
+        @Override
+        public Accumulator merge(Accumulator other) {
+            if (other instanceof DenseAccumulator dense) {
+                for (int i = 0; i < cents.length; i++) {
+                    cents[i] += dense.cents[i];
+                    counts[i] += dense.counts[i];
+                    seen[i] |= dense.seen[i];
+                }
+                return this;
+            }
+            return Accumulator.super.merge(other);
+        }
+    }
+
+    /**
+     * Tabla hash de direccionamiento abierto con claves long (muchos grupos posibles, pocos reales).
+     */
+    private static final class HashAccumulator implements Accumulator {
+
+        private static final long EMPTY = -1L;
+
+        private long[] keys;
+        private long[] cents;
+        private long[] counts;
+        private int used;
+
+        private HashAccumulator() {
+            allocate(1024);
+        }
+
+        @Override
+        public void add(long key, long amount, int count) {
+            int slot = slot(key);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                if (++used * 2 > keys.length) {
+                    rehash();
+                    slot = slot(key);
+                }
+            }
+            cents[slot] += amount;
+            counts[slot] += count;
+        }
+
+        @Override
+        public void forEach(GroupConsumer consumer) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY) {
+                    consumer.accept(keys[i], cents[i], counts[i]);
+                }
+            }
+        }
+
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            int slot = (int) mix(key) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            long[] oldCents = cents;
+            long[] oldCounts = counts;
+            allocate(oldKeys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = slot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    cents[slot] = oldCents[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            cents = new long[capacity];
+            counts = new long[capacity];
+        }
+
+        private static long mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return h ^ (h >>> 32);
+        }
+    }
+
+    // ==================== ALMACENAMIENTO ====================
+
+    /**
+     * Arrays de columnas. Al crecer se copian a un objeto nuevo; el anterior deja de escribirse.
+     */
+    private static final class Columns {
+
+        private final int[] vehicle;
+        private final int[] vehicleType;
+        private final int[] make;
+        private final int[] model;
+        private final int[] vehicleYear;
+        private final int[] category;
+        private final int[] month;
+        private final int[] day;
+        private final long[] cents;
+        private final byte[] sign;
+
+        private Columns(int capacity) {
+            this.vehicle = new int[capacity];
+            this.vehicleType = new int[capacity];
+            this.make = new int[capacity];
+            this.model = new int[capacity];
+            this.vehicleYear = new int[capacity];
+            this.category = new int[capacity];
+            this.month = new int[capacity];
+            this.day = new int[capacity];
+            this.cents = new long[capacity];
+            this.sign = new byte[capacity];
+        }
+
+        private Columns(Columns source, int capacity) {
+            this.vehicle = Arrays.copyOf(source.vehicle, capacity);
+            this.vehicleType = Arrays.copyOf(source.vehicleType, capacity);
+            this.make = Arrays.copyOf(source.make, capacity);
+            this.model = Arrays.copyOf(source.model, capacity);
+            this.vehicleYear = Arrays.copyOf(source.vehicleYear, capacity);
+            this.category = Arrays.copyOf(source.category, capacity);
+            this.month = Arrays.copyOf(source.month, capacity);
+            this.day = Arrays.copyOf(source.day, capacity);
+            this.cents = Arrays.copyOf(source.cents, capacity);
+            this.sign = Arrays.copyOf(source.sign, capacity);
+        }
+
+        int capacity() {
+            return day.length;
+        }
+
+        Columns grow(int capacity) {
+            return new Columns(this, capacity);
+        }
+    }
+
+    /**
+     * Diccionario de una columna de texto. El escritor usa el mapa; los lectores solo el array de
+     * etiquetas, que se reemplaza (copia) al añadir un valor.
+     */
+    private static final class Dictionary {
+
+        private static final String NONE = "";
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private volatile String[] labels = new String[0];
+
+        int encode(String value) {
+            String label = value != null ? value : NONE;
+            Integer code = codes.get(label);
+            if (code == null) {
+                code = labels.length;
+                String[] grown = Arrays.copyOf(labels, code + 1);
+                grown[code] = label;
+                labels = grown;
+                codes.put(label, code);
+            }
+            return code;
+        }
+
+        /**
+         * Código de un valor, o -1 si no aparece. Recorre las etiquetas publicadas (el mapa es del
+         * escritor); los diccionarios son pequeños comparados con las filas.
+         */
+        int lookup(String value) {
+            String[] snapshot = labels;
+            for (int i = 0; i < snapshot.length; i++) {
+                if (snapshot[i].equalsIgnoreCase(value.trim())) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        String label(int code) {
+            return labels[code];
+        }
+
+        int size() {
+            return labels.length;
+        }
+    }
+}
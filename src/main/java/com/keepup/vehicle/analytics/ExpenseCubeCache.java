@@ -0,0 +1,144 @@
+package com.keepup.vehicle.analytics;
+
+import com.keepup.vehicle.repository.ExpenseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Cubos de gastos en memoria, uno por usuario.
+ *
+ * - Carga bajo demanda: la primera consulta de un usuario lee sus gastos en streaming; las
+ *   consultas simultáneas del mismo usuario esperan esa misma carga en lugar de repetirla.
+ * - Cambios: cada {@link ExpenseChangedEvent} confirmado se añade al cubo cargado como filas
+ *   incrementales. Si la carga pudo solaparse con el cambio, o el cubo acumula demasiadas bajas,
+ *   se descarta y se recarga en la siguiente consulta. {@link ExpenseCubeStaleEvent} siempre
+ *   descarta el cubo.
+ * - Memoria: como mucho keepup.analytics.max-cubes cubos (64); al superarlo se descarta el
+ *   consultado hace más tiempo.
+ */
+@Slf4j
+@Component
+public class ExpenseCubeCache {
+
+    private final ExpenseRepository expenseRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int maxCubes;
+    private final Map<Long, Entry> cubes = new ConcurrentHashMap<>();
+
+    public ExpenseCubeCache(ExpenseRepository expenseRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${keepup.analytics.max-cubes:64}") int maxCubes) {
+        this.expenseRepository = expenseRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxCubes = maxCubes;
+    }
+
+    /**
+     * Cubo de gastos del usuario, cargándolo si no está en memoria.
+     */
+    public ExpenseCube get(Long userId) {
+        Entry entry = cubes.get(userId);
+        if (entry != null) {
+            ExpenseCube cube = entry.future.getNow(null);
+            if (cube != null && cube.isStale()) {
+                cubes.remove(userId, entry);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            Entry created = new Entry();
+            entry = cubes.putIfAbsent(userId, created);
+            if (entry == null) {
+                entry = created;
+                evictLeastRecentlyUsed();
+                load(userId, created);
+            }
+        }
+        entry.lastAccess = System.nanoTime();
+        try {
+            return entry.future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Descartar el cubo de un usuario.
+     */
+    public void invalidate(Long userId) {
+        cubes.remove(userId);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        Entry entry = cubes.get(event.userId());
+        if (entry == null) {
+            return;
+        }
+        ExpenseCube cube = entry.future.getNow(null);
+        if (cube != null && cube.getLoadedAtNanos() < event.createdAtNanos()) {
+            cube.apply(event.removed(), event.added());
+        } else {
+            // La carga está en curso o terminó después de publicarse el cambio: puede incluirlo o no
+            cubes.remove(event.userId(), entry);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCubeStale(ExpenseCubeStaleEvent event) {
+        invalidate(event.userId());
+    }
+
+    private void load(Long userId, Entry entry) {
+        try {
+            long start = System.nanoTime();
+            ExpenseCube cube = readOnlyTransaction.execute(status -> {
+                ExpenseCube loaded = new ExpenseCube((int) Math.min(expenseRepository.countByUserId(userId),
+                        Integer.MAX_VALUE - 8));
+                try (Stream<ExpenseFact> facts = expenseRepository.streamFactsByUserId(userId)) {
+                    facts.forEach(loaded::add);
+                }
+                return loaded;
+            });
+            cube.markLoaded();
+            log.debug("Loaded expense cube for user {}: {} rows in {} ms",
+                    userId, cube.size(), (System.nanoTime() - start) / 1_000_000);
+            entry.future.complete(cube);
+        } catch (RuntimeException e) {
+            cubes.remove(userId, entry);
+            entry.future.completeExceptionally(e);
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        while (cubes.size() > maxCubes) {
+            Map.Entry<Long, Entry> oldest = null;
+            for (Map.Entry<Long, Entry> candidate : cubes.entrySet()) {
+                if (oldest == null || candidate.getValue().lastAccess < oldest.getValue().lastAccess) {
+                    oldest = candidate;
+                }
+            }
+            if (oldest == null || !cubes.remove(oldest.getKey(), oldest.getValue())) {
+                return;
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final CompletableFuture<ExpenseCube> future = new CompletableFuture<>();
+        private volatile long lastAccess = System.nanoTime();
+    }
+}
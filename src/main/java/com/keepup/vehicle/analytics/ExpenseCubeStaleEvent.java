@@ -0,0 +1,11 @@
+package com.keepup.vehicle.analytics;
+
+/**
+ * Los gastos de un usuario cambiaron de forma que no se puede aplicar fila a fila (cambio de
+ * atributos de un vehículo, borrado de un vehículo, carga masiva): el cubo se descarta al
+ * confirmar la transacción.
+ *
+ * @param userId Propietario de los gastos
+ */
+public record ExpenseCubeStaleEvent(Long userId) {
+}
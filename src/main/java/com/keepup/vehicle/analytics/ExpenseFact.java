@@ -0,0 +1,36 @@
+package com.keepup.vehicle.analytics;
+
+import com.keepup.vehicle.entity.Expense;
+import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.enums.ExpenseCategory;
+import com.keepup.vehicle.enums.VehicleType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Un gasto con los atributos de su vehículo: una fila del cubo.
+ * Se construye directamente en la consulta de carga y al publicar cambios de gastos.
+ */
+public record ExpenseFact(
+        Long vehicleId,
+        String licensePlate,
+        VehicleType vehicleType,
+        String make,
+        String model,
+        Integer vehicleYear,
+        ExpenseCategory category,
+        LocalDate date,
+        BigDecimal amount
+) {
+
+    /**
+     * Fila de un gasto con los atributos actuales de su vehículo.
+     */
+    public static ExpenseFact of(Expense expense) {
+        Vehicle vehicle = expense.getVehicle();
+        return new ExpenseFact(vehicle.getId(), vehicle.getLicensePlate(), vehicle.getVehicleType(),
+                vehicle.getMake(), vehicle.getModel(), vehicle.getYear(),
+                expense.getCategory(), expense.getDate(), expense.getAmount());
+    }
+}
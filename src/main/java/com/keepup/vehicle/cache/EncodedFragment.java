@@ -0,0 +1,53 @@
+package com.keepup.vehicle.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Representación ya codificada de un vehículo. Puede vivir en el heap (byte[])
+ * o fuera de él (ByteBuffer directo) para no añadir presión al GC con cachés grandes.
+ */
+final class EncodedFragment {
+
+    private final byte[] heap;
+    private final ByteBuffer direct;
+
+    private EncodedFragment(byte[] heap, ByteBuffer direct) {
+        this.heap = heap;
+        this.direct = direct;
+    }
+
+    static EncodedFragment of(byte[] bytes, boolean offHeap) {
+        if (!offHeap) {
+            return new EncodedFragment(bytes, null);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return new EncodedFragment(null, buffer.asReadOnlyBuffer());
+    }
+
+    boolean isOffHeap() {
+        return direct != null;
+    }
+
+    int size() {
+        return heap != null ? heap.length : direct.capacity();
+    }
+
+    /**
+     * Copia el fragmento a la salida. Para fragmentos off-heap usa el buffer intermedio scratch.
+     */
+    void writeTo(OutputStream out, byte[] scratch) throws IOException {
+        if (heap != null) {
+            out.write(heap);
+            return;
+        }
+        ByteBuffer view = direct.duplicate();
+        while (view.hasRemaining()) {
+            int length = Math.min(scratch.length, view.remaining());
+            view.get(scratch, 0, length);
+            out.write(scratch, 0, length);
+        }
+    }
+}
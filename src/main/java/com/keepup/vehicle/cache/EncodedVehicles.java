@@ -0,0 +1,96 @@
+package com.keepup.vehicle.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Respuesta de vehículos lista para escribir: fragmentos pre-serializados que se concatenan
+ * directamente en el buffer de salida (como arreglo JSON/CBOR o como objeto único).
+ *
+ * Se construye dentro de la transacción y se escribe fuera de ella, para no retener una
+ * conexión de base de datos mientras se envían bytes a clientes lentos.
+ */
+public final class EncodedVehicles {
+
+    private static final int SCRATCH_SIZE = 8 * 1024;
+
+    private final RepresentationFormat format;
+    private final List<EncodedFragment> fragments;
+    private final boolean array;
+
+    EncodedVehicles(RepresentationFormat format, List<EncodedFragment> fragments, boolean array) {
+        this.format = format;
+        this.fragments = fragments;
+        this.array = array;
+    }
+
+    public RepresentationFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Tamaño exacto en bytes, para enviar Content-Length en lugar de transfer-encoding chunked.
+     */
+    public long contentLength() {
+        long length = 0;
+        for (EncodedFragment fragment : fragments) {
+            length += fragment.size();
+        }
+        if (!array) {
+            return length;
+        }
+        if (format == RepresentationFormat.JSON) {
+            return length + 2 + Math.max(0, fragments.size() - 1);
+        }
+        return length + cborArrayHeader(fragments.size()).length;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        // Buffer intermedio solo si hay fragmentos fuera del heap
+        byte[] scratch = null;
+        for (EncodedFragment fragment : fragments) {
+            if (fragment.isOffHeap()) {
+                scratch = new byte[SCRATCH_SIZE];
+                break;
+            }
+        }
+        if (!array) {
+            for (EncodedFragment fragment : fragments) {
+                fragment.writeTo(out, scratch);
+            }
+            return;
+        }
+        if (format == RepresentationFormat.JSON) {
+            out.write('[');
+            for (int i = 0; i < fragments.size(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                fragments.get(i).writeTo(out, scratch);
+            }
+            out.write(']');
+        } else {
+            out.write(cborArrayHeader(fragments.size()));
+            for (EncodedFragment fragment : fragments) {
+                fragment.writeTo(out, scratch);
+            }
+        }
+    }
+
+    /**
+     * Cabecera de un arreglo CBOR de longitud definida (tipo mayor 4, RFC 8949 §3.1).
+     */
+    private static byte[] cborArrayHeader(int size) {
+        if (size < 24) {
+            return new byte[]{(byte) (0x80 | size)};
+        }
+        if (size < 0x100) {
+            return new byte[]{(byte) 0x98, (byte) size};
+        }
+        if (size < 0x10000) {
+            return new byte[]{(byte) 0x99, (byte) (size >> 8), (byte) size};
+        }
+        return new byte[]{(byte) 0x9A, (byte) (size >> 24), (byte) (size >> 16), (byte) (size >> 8), (byte) size};
+    }
+}
@@ -0,0 +1,139 @@
+package com.keepup.vehicle.cache;
+
+/**
+ * Mapa long → long de direccionamiento abierto (sondeo lineal) sin objetos por entrada: claves y
+ * valores van intercalados en un único long[] (clave en 2i, valor en 2i + 1). La clave 0 marca un
+ * hueco libre, así que no se admite como clave.
+ *
+ * No es seguro entre hilos: {@link VehicleOwnershipCache} lo protege por segmentos.
+ */
+final class LongLongMap {
+
+    static final long MISSING = Long.MIN_VALUE;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] table;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    LongLongMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * El array se lee una sola vez: un lector optimista ve siempre una tabla entera, antigua o nueva.
+     */
+    long get(long key) {
+        long[] tab = table;
+        int slots = tab.length >>> 1;
+        int slot = mix(key) & (slots - 1);
+        for (int probes = 0; probes < slots; probes++) {
+            long found = tab[slot << 1];
+            if (found == key) {
+                return tab[(slot << 1) + 1];
+            }
+            if (found == 0) {
+                return MISSING;
+            }
+            slot = (slot + 1) & (slots - 1);
+        }
+        return MISSING;
+    }
+
+    void put(long key, long value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        int slot = mix(key) & mask;
+        while (true) {
+            long found = table[slot << 1];
+            if (found == key) {
+                table[(slot << 1) + 1] = value;
+                return;
+            }
+            if (found == 0) {
+                table[slot << 1] = key;
+                table[(slot << 1) + 1] = value;
+                if (++size > resizeAt) {
+                    rehash(capacityFor(size * 2));
+                }
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    boolean remove(long key) {
+        int slot = mix(key) & mask;
+        while (true) {
+            long found = table[slot << 1];
+            if (found == 0) {
+                return false;
+            }
+            if (found == key) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // Borrado con desplazamiento hacia atrás: sin lápidas, las búsquedas siguen cortando en el primer hueco
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (table[next << 1] != 0) {
+            int home = mix(table[next << 1]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole << 1] = table[next << 1];
+                table[(hole << 1) + 1] = table[(next << 1) + 1];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[hole << 1] = 0;
+        table[(hole << 1) + 1] = 0;
+        size--;
+        return true;
+    }
+
+    void clear() {
+        allocate(MIN_CAPACITY);
+    }
+
+    private void rehash(int capacity) {
+        long[] old = table;
+        allocate(capacity);
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] != 0) {
+                int slot = mix(old[i]) & mask;
+                while (table[slot << 1] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot << 1] = old[i];
+                table[(slot << 1) + 1] = old[i + 1];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = new long[capacity << 1];
+        mask = capacity - 1;
+        size = 0;
+        resizeAt = capacity / 4 * 3;
+    }
+
+    private static int capacityFor(int entries) {
+        int needed = (int) Math.min((long) Math.max(entries, 1) * 4 / 3 + 1, 1 << 29);
+        return Math.max(Integer.highestOneBit(needed - 1) << 1, MIN_CAPACITY);
+    }
+
+    private static int mix(long key) {
+        // Los ids son consecutivos (y el segmento ya fija sus bits bajos): se mezclan para repartirlos
+        long h = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+        return (int) (h ^ (h >>> 33));
+    }
+}
@@ -0,0 +1,67 @@
+package com.keepup.vehicle.cache;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+/**
+ * Formatos en los que se pre-serializan las representaciones de vehículos.
+ */
+public enum RepresentationFormat {
+
+    JSON(MediaType.APPLICATION_JSON),
+    CBOR(MediaType.APPLICATION_CBOR);
+
+    private final MediaType mediaType;
+
+    RepresentationFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Elige el formato a partir de la cabecera Accept (RFC 9110 §12.5.1): cada formato toma el q del
+     * rango más específico que lo incluye (application/cbor antes que application/* y que el comodín total).
+     * Gana CBOR si su q es mayor que el de JSON, o igual y distinto de 0 pero pedido por su nombre;
+     * en cualquier otro caso (sin cabecera, cabecera inválida, empate con comodines) JSON.
+     */
+    public static RepresentationFormat fromAcceptHeader(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+        MediaType cbor = bestMatch(accepted, CBOR.mediaType);
+        if (cbor == null || cbor.getQualityValue() == 0) {
+            return JSON;
+        }
+        MediaType json = bestMatch(accepted, JSON.mediaType);
+        if (json == null || cbor.getQualityValue() > json.getQualityValue()) {
+            return CBOR;
+        }
+        return cbor.getQualityValue() == json.getQualityValue() && !cbor.isWildcardSubtype() && json.isWildcardSubtype()
+                ? CBOR : JSON;
+    }
+
+    private static MediaType bestMatch(List<MediaType> accepted, MediaType target) {
+        MediaType best = null;
+        for (MediaType range : accepted) {
+            if (range.includes(target) && (best == null || specificity(range) > specificity(best))) {
+                best = range;
+            }
+        }
+        return best;
+    }
+
+    private static int specificity(MediaType range) {
+        return range.isWildcardType() ? 0 : range.isWildcardSubtype() ? 1 : 2;
+    }
+}
@@ -0,0 +1,167 @@
+package com.keepup.vehicle.cache;
+
+import com.keepup.core.exception.ResourceNotFoundException;
+import com.keepup.vehicle.event.VehicleOwnershipChangedEvent;
+import com.keepup.vehicle.repository.VehicleRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Comprobación de propiedad de vehículos (vehicleId → ownerId) para los recursos anidados
+ * (/vehicles/{vehicleId}/documents, /expenses, foto, ...): la misma protección IDOR que
+ * findByIdAndUserId, pero resuelta en memoria tras la primera consulta.
+ *
+ * El mapa es primitivo ({@link LongLongMap}, 16 bytes por hueco) y está repartido en segmentos con
+ * lecturas optimistas ({@link StampedLock}): un acierto no toma ningún bloqueo ni crea objetos.
+ * Solo se guardan vehículos existentes; un id desconocido siempre consulta la base de datos.
+ * Cuando un segmento llega a su parte de keepup.vehicle.ownership-cache.max-entries se vacía.
+ *
+ * Al borrar un vehículo o cambiar su propietario se publica {@link VehicleOwnershipChangedEvent},
+ * que quita la entrada tras el commit. Una consulta que empezó antes de un borrado no vuelve a
+ * guardar el valor antiguo: solo se guarda si no hubo ninguna invalidación mientras tanto. Los ids
+ * no se reutilizan, así que una entrada obsoleta en otro nodo solo puede apuntar a un vehículo ya
+ * borrado de su propio dueño, y la operación posterior falla igual que sin caché.
+ *
+ * Métricas: keepup.vehicle.ownership-cache.hits / misses.
+ */
+@Component
+public class VehicleOwnershipCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final VehicleRepository vehicleRepository;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int maxPerSegment;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+
+    public VehicleOwnershipCache(VehicleRepository vehicleRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${keepup.vehicle.ownership-cache.max-entries:500000}") int maxEntries) {
+        this.vehicleRepository = vehicleRepository;
+        this.maxPerSegment = Math.max(maxEntries / SEGMENTS, 1);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+        this.hits = meterRegistry.counter("keepup.vehicle.ownership-cache.hits");
+        this.misses = meterRegistry.counter("keepup.vehicle.ownership-cache.misses");
+    }
+
+    /**
+     * Verificar que el vehículo pertenece al usuario.
+     *
+     * @throws ResourceNotFoundException si el vehículo no existe o es de otro usuario
+     */
+    public void requireOwned(Long vehicleId, Long userId) {
+        if (!isOwner(vehicleId, userId)) {
+            throw new ResourceNotFoundException("Vehicle", vehicleId);
+        }
+    }
+
+    public boolean isOwner(Long vehicleId, Long userId) {
+        if (vehicleId == null || userId == null || vehicleId <= 0) {
+            return false;
+        }
+        Segment segment = segment(vehicleId);
+        long owner = segment.get(vehicleId);
+        if (owner != LongLongMap.MISSING) {
+            hits.increment();
+            return owner == userId;
+        }
+        misses.increment();
+        long generation = invalidations.get();
+        Long found = vehicleRepository.findOwnerIdById(vehicleId).orElse(null);
+        if (found == null) {
+            return false;
+        }
+        segment.putIfUnchanged(vehicleId, found, generation);
+        return found.equals(userId);
+    }
+
+    /**
+     * Quitar la entrada de un vehículo de inmediato.
+     */
+    public void evict(Long vehicleId) {
+        invalidations.incrementAndGet();
+        segment(vehicleId).remove(vehicleId);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOwnershipChanged(VehicleOwnershipChangedEvent event) {
+        evict(event.vehicleId());
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private Segment segment(long vehicleId) {
+        return segments[(int) (vehicleId ^ (vehicleId >>> 32)) & (SEGMENTS - 1)];
+    }
+
+    private final class Segment {
+
+        private final StampedLock lock = new StampedLock();
+        private final LongLongMap map = new LongLongMap(64);
+
+        long get(long key) {
+            long stamp = lock.tryOptimisticRead();
+            long value = map.get(key);
+            if (lock.validate(stamp)) {
+                return value;
+            }
+            stamp = lock.readLock();
+            try {
+                return map.get(key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void putIfUnchanged(long key, long value, long generation) {
+            long stamp = lock.writeLock();
+            try {
+                // Comprobado con el bloqueo tomado: una invalidación posterior espera a que termine
+                if (invalidations.get() != generation) {
+                    return;
+                }
+                if (map.size() >= maxPerSegment) {
+                    map.clear();
+                }
+                map.put(key, value);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void remove(long key) {
+            long stamp = lock.writeLock();
+            try {
+                map.remove(key);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return map.size();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.keepup.vehicle.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.mapper.VehicleMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caché de representaciones ya serializadas (JSON y CBOR) de cada vehículo.
+ *
+ * La clave es el id del vehículo y cada entrada guarda el updatedAt con el que se serializó:
+ * si el vehículo cambió (@PreUpdate actualiza updatedAt) la entrada se regenera. Así los
+ * aciertos no pasan ni por VehicleMapper ni por Jackson.
+ *
+ * Limitada por tamaño total en bytes con expulsión LRU. Con off-heap=true los bytes se guardan en
+ * buffers directos para que una caché grande no aumente el trabajo del GC.
+ *
+ * Configuración:
+ * - keepup.vehicle.representation-cache.max-bytes (64 MB por defecto, 0 la desactiva)
+ * - keepup.vehicle.representation-cache.off-heap (false por defecto)
+ */
+@Component
+public class VehicleRepresentationCache {
+
+    private final VehicleMapper vehicleMapper;
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper cborMapper;
+    private final long maxBytes;
+    private final boolean offHeap;
+
+    // LinkedHashMap en orden de acceso = LRU; protegido por el monitor de la propia caché
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long currentBytes;
+
+    public VehicleRepresentationCache(VehicleMapper vehicleMapper,
+                                      ObjectMapper objectMapper,
+                                      @Value("${keepup.vehicle.representation-cache.max-bytes:67108864}") long maxBytes,
+                                      @Value("${keepup.vehicle.representation-cache.off-heap:false}") boolean offHeap) {
+        this.vehicleMapper = vehicleMapper;
+        this.jsonMapper = objectMapper;
+        // Misma configuración y módulos (fechas, etc.) que el ObjectMapper HTTP, pero en CBOR
+        this.cborMapper = objectMapper.copyWith(new CBORFactory());
+        this.maxBytes = maxBytes;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Codifica un único vehículo (objeto, no arreglo).
+     */
+    public EncodedVehicles encode(Vehicle vehicle, RepresentationFormat format) {
+        return new EncodedVehicles(format, List.of(fragment(vehicle, format)), false);
+    }
+
+    /**
+     * Codifica una lista de vehículos como arreglo, reutilizando los fragmentos en caché.
+     */
+    public EncodedVehicles encodeAll(List<Vehicle> vehicles, RepresentationFormat format) {
+        List<EncodedFragment> fragments = new ArrayList<>(vehicles.size());
+        for (Vehicle vehicle : vehicles) {
+            fragments.add(fragment(vehicle, format));
+        }
+        return new EncodedVehicles(format, fragments, true);
+    }
+
+    /**
+     * Elimina la entrada de un vehículo (p. ej. al borrarlo).
+     */
+    public synchronized void evict(Long vehicleId) {
+        Entry removed = entries.remove(vehicleId);
+        if (removed != null) {
+            currentBytes -= removed.size();
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long currentBytes() {
+        return currentBytes;
+    }
+
+    private EncodedFragment fragment(Vehicle vehicle, RepresentationFormat format) {
+        Long id = vehicle.getId();
+        LocalDateTime updatedAt = vehicle.getUpdatedAt();
+        if (maxBytes > 0 && id != null && updatedAt != null) {
+            synchronized (this) {
+                Entry entry = entries.get(id);
+                if (entry != null && entry.updatedAt.equals(updatedAt)) {
+                    EncodedFragment cached = entry.get(format);
+                    if (cached != null) {
+                        return cached;
+                    }
+                }
+            }
+        }
+
+        // Fallo de caché: se serializa fuera del monitor
+        EncodedFragment fragment = EncodedFragment.of(serialize(vehicle, format), offHeap);
+        if (maxBytes > 0 && id != null && updatedAt != null) {
+            store(id, updatedAt, format, fragment);
+        }
+        return fragment;
+    }
+
+    private synchronized void store(Long id, LocalDateTime updatedAt, RepresentationFormat format, EncodedFragment fragment) {
+        Entry entry = entries.get(id);
+        if (entry == null || !entry.updatedAt.equals(updatedAt)) {
+            if (entry != null) {
+                currentBytes -= entry.size();
+            }
+            entry = new Entry(updatedAt);
+            entries.put(id, entry);
+        }
+        currentBytes -= entry.size();
+        entry.set(format, fragment);
+        currentBytes += entry.size();
+
+        Iterator<Map.Entry<Long, Entry>> eldest = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            currentBytes -= eldest.next().getValue().size();
+            eldest.remove();
+        }
+    }
+
+    private byte[] serialize(Vehicle vehicle, RepresentationFormat format) {
+        ObjectMapper mapper = format == RepresentationFormat.CBOR ? cborMapper : jsonMapper;
+        try {
+            return mapper.writeValueAsBytes(vehicleMapper.toResponse(vehicle));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize vehicle " + vehicle.getId(), e);
+        }
+    }
+
+    private static final class Entry {
+
+        private final LocalDateTime updatedAt;
+        private final EncodedFragment[] byFormat = new EncodedFragment[RepresentationFormat.values().length];
+
+        private Entry(LocalDateTime updatedAt) {
+            this.updatedAt = updatedAt;
+        }
+
+        EncodedFragment get(RepresentationFormat format) {
+            return byFormat[format.ordinal()];
+        }
+
+        void set(RepresentationFormat format, EncodedFragment fragment) {
+            byFormat[format.ordinal()] = fragment;
+        }
+
+        long size() {
+            long size = 0;
+            for (EncodedFragment fragment : byFormat) {
+                if (fragment != null) {
+                    size += fragment.size();
+                }
+            }
+            return size;
+        }
+    }
+}
@@ -1,4 +1,420 @@
 package com.keepup.vehicle.controller;
 
+import com.keepup.core.exception.BadRequestException;
+import com.keepup.core.exception.ConflictException;
+import com.keepup.core.exception.ResourceNotFoundException;
+import com.keepup.core.exception.PayloadTooLargeException;
+import com.keepup.core.exception.TooManyRequestsException;
+import com.keepup.core.exception.UnsupportedMediaTypeException;
+import com.keepup.core.security.CustomerDetails;
+import com.keepup.core.storage.FileResponseWriter;
+import com.keepup.vehicle.dto.DateCursor;
+import com.keepup.vehicle.dto.DocumentDTO;
+import com.keepup.vehicle.dto.UploadSessionDTO;
+import com.keepup.vehicle.dto.UploadSessionRequest;
+import com.keepup.vehicle.dto.VehiclePage;
+import com.keepup.vehicle.service.DocumentFileService;
+import com.keepup.vehicle.service.DocumentService;
+import com.keepup.vehicle.service.DocumentUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Controlador REST para los documentos de un vehículo (SOAT, revisión técnico-mecánica, seguros...).
+ * Todos los endpoints operan sobre vehículos del usuario autenticado.
+ *
+ * Base URL: /api/v1/vehicles/{vehicleId}/documents
+ */
+@RestController
+@RequestMapping("/api/v1/vehicles/{vehicleId}/documents")
+@RequiredArgsConstructor
 public class DocumentController {
+
+    /** Posición de un fragmento en las subidas reanudables */
+    public static final String UPLOAD_OFFSET_HEADER = DocumentUploadService.UPLOAD_OFFSET_HEADER;
+
+    private final DocumentService documentService;
+    private final DocumentFileService documentFileService;
+    private final DocumentUploadService documentUploadService;
+    private final FileResponseWriter fileResponseWriter;
+
+    /**
+     * Registrar un documento para un vehículo.
+     *
+     * POST /api/v1/vehicles/{vehicleId}/documents
+     *
+     * @param vehicleId ID del vehículo
+     * @param dto Datos del documento (validados)
+     * @param authentication Usuario autenticado
+     * @return 201 CREATED con los datos del documento creado
+     * @throws ResourceNotFoundException 404 NOT FOUND si el vehículo no existe o no pertenece al usuario
+     */
+    @PostMapping
+    public ResponseEntity<DocumentDTO> createDocument(
+            @PathVariable Long vehicleId,
+            @Valid @RequestBody DocumentDTO dto,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        DocumentDTO response = documentService.create(vehicleId, dto, authenticatedUserId);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    /**
+     * Obtener los documentos de un vehículo, ordenados por fecha de vencimiento, por páginas.
+     *
+     * GET /api/v1/vehicles/{vehicleId}/documents?after=2030-01-10,42&limit=50
+     *
+     * @param vehicleId ID del vehículo
+     * @param after Cursor de la cabecera X-Next-Cursor de la página anterior (opcional; sin él, la primera)
+     * @param limit Tamaño de página (opcional; 100 por defecto y como máximo)
+     * @param authentication Usuario autenticado
+     * @return 200 OK con la página de documentos (puede estar vacía) y, si hay más, la cabecera X-Next-Cursor
+     * @throws ResourceNotFoundException 404 NOT FOUND si el vehículo no existe o no pertenece al usuario
+     * @throws BadRequestException 400 si el cursor no es válido
+     */
+    @GetMapping
+    public ResponseEntity<List<DocumentDTO>> getAllDocuments(
+            @PathVariable Long vehicleId,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        VehiclePage<DocumentDTO> page = documentService.getAll(vehicleId,
+                after != null ? DateCursor.parse(after) : null, limit, authenticatedUserId);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.next() != null) {
+            response.header(DateCursor.NEXT_CURSOR_HEADER, page.next().toString());
+        }
+        return response.body(page.items());
+    }
+
+    /**
+     * Obtener un documento de un vehículo.
+     *
+     * GET /api/v1/vehicles/{vehicleId}/documents/{id}
+     *
+     * @param vehicleId ID del vehículo
+     * @param id ID del documento
+     * @param authentication Usuario autenticado
+     * @return 200 OK con los datos del documento
+     * @throws ResourceNotFoundException 404 NOT FOUND si el vehículo o el documento no existen
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<DocumentDTO> getDocumentById(
+            @PathVariable Long vehicleId,
+            @PathVariable Long id,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        return ResponseEntity.ok(documentService.getById(vehicleId, id, authenticatedUserId));
+    }
+
+    /**
+     * Actualizar un documento de un vehículo.
+     *
+     * PUT /api/v1/vehicles/{vehicleId}/documents/{id}
+     *
+     * @param vehicleId ID del vehículo
+     * @param id ID del documento
+     * @param dto Nuevos datos del documento (validados)
+     * @param authentication Usuario autenticado
+     * @return 200 OK con los datos actualizados
+     * @throws ResourceNotFoundException 404 NOT FOUND si el vehículo o el documento no existen
+     */
+    @PutMapping("/{id}")
+    public ResponseEntity<DocumentDTO> updateDocument(
+            @PathVariable Long vehicleId,
+            @PathVariable Long id,
+            @Valid @RequestBody DocumentDTO dto,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        return ResponseEntity.ok(documentService.update(vehicleId, id, dto, authenticatedUserId));
+    }
+
+    /**
+     * Eliminar un documento de un vehículo.
+     *
+     * DELETE /api/v1/vehicles/{vehicleId}/documents/{id}
+     *
+     * @param vehicleId ID del vehículo
+     * @param id ID del documento
+     * @param authentication Usuario autenticado
+     * @return 204 NO CONTENT
+     * @throws ResourceNotFoundException 404 NOT FOUND si el vehículo o el documento no existen
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteDocument(
+            @PathVariable Long vehicleId,
+            @PathVariable Long id,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        documentService.delete(vehicleId, id, authenticatedUserId);
+
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Subir (o reemplazar) el archivo escaneado de un documento.
+     *
+     * PUT /api/v1/vehicles/{vehicleId}/documents/{id}/file
+     *
+     * El cuerpo es el archivo tal cual (no multipart), con su Content-Type. Se copia a disco por
+     * bloques sin cargarlo en memoria. Cabeceras opcionales:
+     * - Content-Disposition: attachment; filename="soat.pdf" (nombre original)
+     * - X-Checksum-SHA256: SHA-256 en hexadecimal; si no coincide, el archivo se descarta
+     *
+     * @param vehicleId ID del vehículo
+     * @param id ID del documento
+     * @param request Petición HTTP (se lee su cuerpo como flujo)
+     * @param authentication Usuario autenticado
+     * @return 200 OK con el documento y los metadatos del archivo
+     * @throws ResourceNotFoundException 404 NOT FOUND si el vehículo o el documento no existen
+     * @throws UnsupportedMediaTypeException 415 si el tipo de archivo no está permitido
+     * @throws PayloadTooLargeException 413 si el archivo supera el tamaño máximo
+     */
+    @PutMapping("/{id}/file")
+    public ResponseEntity<DocumentDTO> uploadFile(
+            @PathVariable Long vehicleId,
+            @PathVariable Long id,
+            HttpServletRequest request,
+            Authentication authentication) throws IOException {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        DocumentDTO response = documentFileService.upload(
+                vehicleId,
+                id,
+                request.getInputStream(),
+                request.getContentType(),
+                request.getContentLengthLong(),
+                extractFileName(request.getHeader(HttpHeaders.CONTENT_DISPOSITION)),
+                request.getHeader(FileResponseWriter.CHECKSUM_HEADER),
+                authenticatedUserId);
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Descargar el archivo escaneado de un documento.
+     *
+     * GET /api/v1/vehicles/{vehicleId}/documents/{id}/file
+     *
+     * Soporta Range (206), If-None-Match (304) con el SHA-256 como ETag, y devuelve el checksum
+     * en X-Checksum-SHA256 para que el cliente verifique la descarga.
+     *
+     * @param vehicleId ID del vehículo
+     * @param id ID del documento
+     * @param authentication Usuario autenticado
+     * @param request Petición HTTP (cabeceras condicionales y de rango)
+     * @param response Respuesta HTTP donde se envía el archivo
+     * @throws ResourceNotFoundException 404 NOT FOUND si el documento no existe o no tiene archivo
+     */
+    @GetMapping("/{id}/file")
+    public void downloadFile(
+            @PathVariable Long vehicleId,
+            @PathVariable Long id,
+            Authentication authentication,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        fileResponseWriter.write(documentService.getFile(vehicleId, id, authenticatedUserId), request, response);
+    }
+
+    /**
+     * Iniciar una subida reanudable del archivo de un documento.
+     *
+     * POST /api/v1/vehicles/{vehicleId}/documents/{id}/uploads
+     *
+     * @param vehicleId ID del vehículo
+     * @param id ID del documento
+     * @param body Tipo, nombre y tamaño total del archivo
+     * @param authentication Usuario autenticado
+     * @return 201 CREATED con la sesión (offset 0) y su URL en Location
+     * @throws ResourceNotFoundException 404 NOT FOUND si el vehículo o el documento no existen
+     * @throws UnsupportedMediaTypeException 415 si el tipo de archivo no está permitido
+     * @throws PayloadTooLargeException 413 si el archivo supera el tamaño máximo
+     */
+    @PostMapping("/{id}/uploads")
+    public ResponseEntity<UploadSessionDTO> createUpload(
+            @PathVariable Long vehicleId,
+            @PathVariable Long id,
+            @Valid @RequestBody UploadSessionRequest body,
+            Authentication authentication) throws IOException {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        UploadSessionDTO session = documentUploadService.create(vehicleId, id, body, authenticatedUserId);
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(HttpHeaders.LOCATION,
+                        "/api/v1/vehicles/" + vehicleId + "/documents/" + id + "/uploads/" + session.getId())
+                .header(UPLOAD_OFFSET_HEADER, String.valueOf(session.getOffset()))
+                .body(session);
+    }
+
+    /**
+     * Enviar un fragmento de una subida reanudable.
+     *
+     * PUT /api/v1/vehicles/{vehicleId}/documents/{id}/uploads/{uploadId}
+     *
+     * El cuerpo son los bytes del fragmento; la cabecera Upload-Offset indica su posición y debe
+     * coincidir con el offset confirmado. Si la conexión se corta, lo recibido se conserva.
+     *
+     * @param vehicleId ID del vehículo
+     * @param id ID del documento
+     * @param uploadId ID de la sesión de subida
+     * @param offset Posición del fragmento (cabecera Upload-Offset)
+     * @param request Petición HTTP (se lee su cuerpo como flujo)
+     * @param authentication Usuario autenticado
+     * @return 200 OK con el nuevo offset (también en Upload-Offset)
+     * @throws ResourceNotFoundException 404 NOT FOUND si la sesión no existe o venció
+     * @throws ConflictException 409 CONFLICT si el offset no coincide o hay otro fragmento en curso
+     * @throws PayloadTooLargeException 413 si el fragmento es demasiado grande
+     * @throws TooManyRequestsException 429 si el servidor está saturado de subidas
+     */
+    @PutMapping("/{id}/uploads/{uploadId}")
+    public ResponseEntity<UploadSessionDTO> uploadChunk(
+            @PathVariable Long vehicleId,
+            @PathVariable Long id,
+            @PathVariable String uploadId,
+            @RequestHeader(UPLOAD_OFFSET_HEADER) long offset,
+            HttpServletRequest request,
+            Authentication authentication) throws IOException {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        UploadSessionDTO session = documentUploadService.writeChunk(vehicleId, id, uploadId, offset,
+                request.getInputStream(), request.getContentLengthLong(), authenticatedUserId);
+
+        return ResponseEntity.ok()
+                .header(UPLOAD_OFFSET_HEADER, String.valueOf(session.getOffset()))
+                .body(session);
+    }
+
+    /**
+     * Consultar el offset confirmado de una subida para reanudarla.
+     *
+     * GET /api/v1/vehicles/{vehicleId}/documents/{id}/uploads/{uploadId}
+     *
+     * @return 200 OK con el estado de la sesión (offset también en Upload-Offset)
+     * @throws ResourceNotFoundException 404 NOT FOUND si la sesión no existe o venció
+     */
+    @GetMapping("/{id}/uploads/{uploadId}")
+    public ResponseEntity<UploadSessionDTO> getUpload(
+            @PathVariable Long vehicleId,
+            @PathVariable Long id,
+            @PathVariable String uploadId,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        UploadSessionDTO session = documentUploadService.getStatus(vehicleId, id, uploadId, authenticatedUserId);
+
+        return ResponseEntity.ok()
+                .header(UPLOAD_OFFSET_HEADER, String.valueOf(session.getOffset()))
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .body(session);
+    }
+
+    /**
+     * Finalizar una subida completa y asociar el archivo al documento.
+     *
+     * POST /api/v1/vehicles/{vehicleId}/documents/{id}/uploads/{uploadId}/complete
+     *
+     * Cabecera opcional X-Checksum-SHA256 para verificar el archivo completo.
+     *
+     * @return 200 OK con el documento y los metadatos del archivo
+     * @throws ResourceNotFoundException 404 NOT FOUND si la sesión no existe o venció
+     * @throws ConflictException 409 CONFLICT si aún faltan bytes por recibir
+     * @throws BadRequestException 400 si el checksum no coincide
+     */
+    @PostMapping("/{id}/uploads/{uploadId}/complete")
+    public ResponseEntity<DocumentDTO> completeUpload(
+            @PathVariable Long vehicleId,
+            @PathVariable Long id,
+            @PathVariable String uploadId,
+            @RequestHeader(value = FileResponseWriter.CHECKSUM_HEADER, required = false) String checksum,
+            Authentication authentication) throws IOException {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        DocumentDTO response = documentUploadService.complete(vehicleId, id, uploadId, checksum, authenticatedUserId);
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Cancelar una subida reanudable.
+     *
+     * DELETE /api/v1/vehicles/{vehicleId}/documents/{id}/uploads/{uploadId}
+     *
+     * @return 204 NO CONTENT
+     * @throws ResourceNotFoundException 404 NOT FOUND si la sesión no existe o venció
+     */
+    @DeleteMapping("/{id}/uploads/{uploadId}")
+    public ResponseEntity<Void> abortUpload(
+            @PathVariable Long vehicleId,
+            @PathVariable Long id,
+            @PathVariable String uploadId,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        documentUploadService.abort(vehicleId, id, uploadId, authenticatedUserId);
+
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Nombre del archivo desde Content-Disposition, o "document" si no viene.
+     */
+    private String extractFileName(String contentDisposition) {
+        if (contentDisposition != null) {
+            try {
+                String fileName = ContentDisposition.parse(contentDisposition).getFilename();
+                if (fileName != null && !fileName.isBlank()) {
+                    // Solo el nombre, sin rutas del cliente, y dentro del largo de la columna
+                    String name = fileName.substring(Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\')) + 1);
+                    return name.length() > 255 ? name.substring(name.length() - 255) : name;
+                }
+            } catch (IllegalArgumentException ignored) {
+                // Cabecera mal formada: se usa el nombre por defecto
+            }
+        }
+        return "document";
+    }
+
+    /**
+     * Metodo auxiliar para extraer el ID del usuario desde el objeto Authentication.
+     *
+     * @param authentication Objeto de autenticación de Spring Security
+     * @return ID del usuario autenticado
+     */
+    private Long extractUserIdFromAuthentication(Authentication authentication) {
+        CustomerDetails customerDetails = (CustomerDetails) authentication.getPrincipal();
+        return customerDetails.getUserId();
+    }
 }
@@ -0,0 +1,35 @@
+package com.keepup.vehicle.controller;
+
+import com.keepup.vehicle.service.ExpenseRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Endpoints de administración de gastos.
+ * Protegido por WebSecurityConfig (solo ROLE_ADMIN).
+ *
+ * Base URL: /api/v1/admin/expenses
+ */
+@RestController
+@RequestMapping("/api/v1/admin/expenses")
+@RequiredArgsConstructor
+public class ExpenseAdminController {
+
+    private final ExpenseRollupService rollupService;
+
+    /**
+     * Recalcular los acumulados mensuales desde los gastos (p. ej. tras una carga directa en la
+     * base de datos). Una sola transacción con un INSERT ... SELECT.
+     *
+     * POST /api/v1/admin/expenses/rollups/rebuild
+     *
+     * @return 200 OK con el número de acumulados creados
+     */
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<Map<String, Integer>> rebuildRollups() {
+        return ResponseEntity.ok(Map.of("rollups", rollupService.rebuild()));
+    }
+}
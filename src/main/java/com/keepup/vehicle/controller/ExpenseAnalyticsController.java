@@ -0,0 +1,57 @@
+package com.keepup.vehicle.controller;
+
+import com.keepup.core.exception.BadRequestException;
+import com.keepup.core.security.CustomerDetails;
+import com.keepup.vehicle.dto.ExpenseCubeQuery;
+import com.keepup.vehicle.dto.ExpenseCubeResult;
+import com.keepup.vehicle.service.ExpenseAnalyticsService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Consultas ad-hoc sobre los gastos del usuario autenticado.
+ *
+ * Base URL: /api/v1/expenses/analytics
+ */
+@RestController
+@RequestMapping("/api/v1/expenses/analytics")
+@RequiredArgsConstructor
+public class ExpenseAnalyticsController {
+
+    private final ExpenseAnalyticsService analyticsService;
+
+    /**
+     * Agrupar y filtrar gastos.
+     *
+     * POST /api/v1/expenses/analytics
+     *
+     * @param query Dimensiones de agrupación, filtros, rango de fechas y límite
+     * @param authentication Usuario autenticado
+     * @return 200 OK con un total por grupo, de mayor a menor
+     * @throws BadRequestException 400 si un filtro es inválido o hay demasiados grupos
+     */
+    @PostMapping
+    public ResponseEntity<ExpenseCubeResult> query(@Valid @RequestBody ExpenseCubeQuery query,
+                                                   Authentication authentication) {
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        return ResponseEntity.ok(analyticsService.query(query, authenticatedUserId));
+    }
+
+    /**
+     * Metodo auxiliar para extraer el ID del usuario desde el objeto Authentication.
+     *
+     * @param authentication Objeto de autenticación de Spring Security
+     * @return ID del usuario autenticado
+     */
+    private Long extractUserIdFromAuthentication(Authentication authentication) {
+        CustomerDetails customerDetails = (CustomerDetails) authentication.getPrincipal();
+        return customerDetails.getUserId();
+    }
+}
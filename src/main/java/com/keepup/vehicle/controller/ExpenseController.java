@@ -1,4 +1,200 @@
 package com.keepup.vehicle.controller;
 
+import com.keepup.core.exception.BadRequestException;
+import com.keepup.core.exception.ResourceNotFoundException;
+import com.keepup.core.security.CustomerDetails;
+import com.keepup.vehicle.dto.DateCursor;
+import com.keepup.vehicle.dto.ExpenseDTO;
+import com.keepup.vehicle.dto.ExpenseSeries;
+import com.keepup.vehicle.dto.VehiclePage;
+import com.keepup.vehicle.service.ExpenseService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Controlador REST para los gastos de un vehículo.
+ * Todos los endpoints operan sobre vehículos del usuario autenticado.
+ * Los totales para el panel están en {@link ExpenseSummaryController}.
+ *
+ * Base URL: /api/v1/vehicles/{vehicleId}/expenses
+ */
+@RestController
+@RequestMapping("/api/v1/vehicles/{vehicleId}/expenses")
+@RequiredArgsConstructor
 public class ExpenseController {
+
+    private final ExpenseService expenseService;
+
+    /**
+     * Registrar un gasto para un vehículo.
+     *
+     * POST /api/v1/vehicles/{vehicleId}/expenses
+     *
+     * @param vehicleId ID del vehículo
+     * @param dto Datos del gasto (validados)
+     * @param authentication Usuario autenticado
+     * @return 201 CREATED con los datos del gasto creado
+     * @throws ResourceNotFoundException 404 NOT FOUND si el vehículo no existe o no pertenece al usuario
+     */
+    @PostMapping
+    public ResponseEntity<ExpenseDTO> createExpense(
+            @PathVariable Long vehicleId,
+            @Valid @RequestBody ExpenseDTO dto,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        ExpenseDTO response = expenseService.create(vehicleId, dto, authenticatedUserId);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    /**
+     * Obtener los gastos de un vehículo, los más recientes primero, por páginas.
+     *
+     * GET /api/v1/vehicles/{vehicleId}/expenses?after=2030-01-10,42&limit=50
+     *
+     * @param vehicleId ID del vehículo
+     * @param after Cursor de la cabecera X-Next-Cursor de la página anterior (opcional; sin él, la primera)
+     * @param limit Tamaño de página (opcional; 100 por defecto y como máximo)
+     * @param authentication Usuario autenticado
+     * @return 200 OK con la página de gastos (puede estar vacía) y, si hay más, la cabecera X-Next-Cursor
+     * @throws ResourceNotFoundException 404 NOT FOUND si el vehículo no existe o no pertenece al usuario
+     * @throws BadRequestException 400 si el cursor no es válido
+     */
+    @GetMapping
+    public ResponseEntity<List<ExpenseDTO>> getAllExpenses(
+            @PathVariable Long vehicleId,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        VehiclePage<ExpenseDTO> page = expenseService.getAll(vehicleId,
+                after != null ? DateCursor.parse(after) : null, limit, authenticatedUserId);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.next() != null) {
+            response.header(DateCursor.NEXT_CURSOR_HEADER, page.next().toString());
+        }
+        return response.body(page.items());
+    }
+
+    /**
+     * Serie temporal de gastos del vehículo, agrupada en el servidor: un punto por día, semana o
+     * mes del rango (también los intervalos sin gastos).
+     *
+     * GET /api/v1/vehicles/{vehicleId}/expenses/series?from=2024-01-01&to=2025-12-31&bucket=week
+     *
+     * @param vehicleId ID del vehículo
+     * @param from Primer día (yyyy-MM-dd, opcional; por defecto un año antes de to)
+     * @param to Último día (yyyy-MM-dd, opcional; por defecto hoy)
+     * @param bucket day, week o month (opcional; por defecto month). Si el rango tiene más de
+     *               {@value ExpenseService#MAX_SERIES_POINTS} intervalos se usa uno más grueso
+     * @param authentication Usuario autenticado
+     * @return 200 OK con el intervalo usado y los puntos en orden cronológico
+     * @throws ResourceNotFoundException 404 NOT FOUND si el vehículo no existe o no pertenece al usuario
+     * @throws BadRequestException 400 si from es posterior a to o el rango es demasiado largo
+     */
+    @GetMapping("/series")
+    public ResponseEntity<ExpenseSeries> getSeries(
+            @PathVariable Long vehicleId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String bucket,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        return ResponseEntity.ok(expenseService.getSeries(vehicleId, from, to, bucket, authenticatedUserId));
+    }
+
+    /**
+     * Obtener un gasto de un vehículo.
+     *
+     * GET /api/v1/vehicles/{vehicleId}/expenses/{id}
+     *
+     * @param vehicleId ID del vehículo
+     * @param id ID del gasto
+     * @param authentication Usuario autenticado
+     * @return 200 OK con los datos del gasto
+     * @throws ResourceNotFoundException 404 NOT FOUND si el vehículo o el gasto no existen
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<ExpenseDTO> getExpenseById(
+            @PathVariable Long vehicleId,
+            @PathVariable Long id,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        return ResponseEntity.ok(expenseService.getById(vehicleId, id, authenticatedUserId));
+    }
+
+    /**
+     * Actualizar un gasto de un vehículo.
+     *
+     * PUT /api/v1/vehicles/{vehicleId}/expenses/{id}
+     *
+     * @param vehicleId ID del vehículo
+     * @param id ID del gasto
+     * @param dto Nuevos datos del gasto (validados)
+     * @param authentication Usuario autenticado
+     * @return 200 OK con los datos actualizados
+     * @throws ResourceNotFoundException 404 NOT FOUND si el vehículo o el gasto no existen
+     */
+    @PutMapping("/{id}")
+    public ResponseEntity<ExpenseDTO> updateExpense(
+            @PathVariable Long vehicleId,
+            @PathVariable Long id,
+            @Valid @RequestBody ExpenseDTO dto,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        return ResponseEntity.ok(expenseService.update(vehicleId, id, dto, authenticatedUserId));
+    }
+
+    /**
+     * Eliminar un gasto de un vehículo.
+     *
+     * DELETE /api/v1/vehicles/{vehicleId}/expenses/{id}
+     *
+     * @param vehicleId ID del vehículo
+     * @param id ID del gasto
+     * @param authentication Usuario autenticado
+     * @return 204 NO CONTENT
+     * @throws ResourceNotFoundException 404 NOT FOUND si el vehículo o el gasto no existen
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteExpense(
+            @PathVariable Long vehicleId,
+            @PathVariable Long id,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        expenseService.delete(vehicleId, id, authenticatedUserId);
+
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Metodo auxiliar para extraer el ID del usuario desde el objeto Authentication.
+     *
+     * @param authentication Objeto de autenticación de Spring Security
+     * @return ID del usuario autenticado
+     */
+    private Long extractUserIdFromAuthentication(Authentication authentication) {
+        CustomerDetails customerDetails = (CustomerDetails) authentication.getPrincipal();
+        return customerDetails.getUserId();
+    }
 }
@@ -0,0 +1,61 @@
+package com.keepup.vehicle.controller;
+
+import com.keepup.core.exception.BadRequestException;
+import com.keepup.core.exception.ConflictException;
+import com.keepup.core.security.CustomerDetails;
+import com.keepup.vehicle.dto.ExpenseImportResult;
+import com.keepup.vehicle.service.ExpenseImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * Importación masiva de gastos (extractos de tarjetas de combustible, facturación de talleres).
+ *
+ * Base URL: /api/v1/expenses/imports
+ */
+@RestController
+@RequestMapping("/api/v1/expenses/imports")
+@RequiredArgsConstructor
+public class ExpenseImportController {
+
+    private final ExpenseImportService importService;
+
+    /**
+     * Importar gastos desde un CSV enviado como cuerpo de la petición (Content-Type: text/csv).
+     * El formato de columnas está descrito en {@link ExpenseImportService}. Reenviar el mismo
+     * archivo no duplica gastos: las filas con referencias ya importadas se cuentan como duplicadas.
+     *
+     * POST /api/v1/expenses/imports
+     *
+     * @param request Petición HTTP (se lee su cuerpo como flujo)
+     * @param authentication Usuario autenticado
+     * @return 200 OK con las filas importadas, duplicadas y rechazadas (con su motivo)
+     * @throws BadRequestException 400 si el archivo está vacío, mal formado o le faltan columnas
+     * @throws ConflictException 409 si otra importación simultánea insertó las mismas referencias
+     */
+    @PostMapping(consumes = "text/csv")
+    public ResponseEntity<ExpenseImportResult> importCsv(HttpServletRequest request,
+                                                         Authentication authentication) throws IOException {
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        return ResponseEntity.ok(importService.importCsv(request.getInputStream(), authenticatedUserId));
+    }
+
+    /**
+     * Metodo auxiliar para extraer el ID del usuario desde el objeto Authentication.
+     *
+     * @param authentication Objeto de autenticación de Spring Security
+     * @return ID del usuario autenticado
+     */
+    private Long extractUserIdFromAuthentication(Authentication authentication) {
+        CustomerDetails customerDetails = (CustomerDetails) authentication.getPrincipal();
+        return customerDetails.getUserId();
+    }
+}
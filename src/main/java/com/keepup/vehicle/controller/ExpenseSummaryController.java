@@ -0,0 +1,131 @@
+package com.keepup.vehicle.controller;
+
+import com.keepup.core.exception.BadRequestException;
+import com.keepup.core.security.CustomerDetails;
+import com.keepup.vehicle.dto.CategoryExpenseTotal;
+import com.keepup.vehicle.dto.ExpenseSeries;
+import com.keepup.vehicle.dto.MonthlyExpenseTotal;
+import com.keepup.vehicle.dto.VehicleExpenseTotal;
+import com.keepup.vehicle.service.ExpenseService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Totales de gastos del usuario autenticado para el panel, calculados sobre los acumulados
+ * mensuales. Los totales aceptan un rango de meses opcional (por defecto los últimos 12):
+ * ?from=2025-01&to=2025-12
+ *
+ * Base URL: /api/v1/expenses/summary
+ */
+@RestController
+@RequestMapping("/api/v1/expenses/summary")
+@RequiredArgsConstructor
+public class ExpenseSummaryController {
+
+    private final ExpenseService expenseService;
+
+    /**
+     * Totales por mes (meses sin gastos no aparecen).
+     *
+     * GET /api/v1/expenses/summary/monthly?from=2025-01&to=2025-12&vehicleId=7
+     *
+     * @param from Primer mes (yyyy-MM, opcional)
+     * @param to Último mes (yyyy-MM, opcional)
+     * @param vehicleId Limitar a un vehículo (opcional)
+     * @param authentication Usuario autenticado
+     * @return 200 OK con un total por mes, en orden cronológico
+     * @throws BadRequestException 400 si from es posterior a to
+     */
+    @GetMapping("/monthly")
+    public ResponseEntity<List<MonthlyExpenseTotal>> getMonthlyTotals(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to,
+            @RequestParam(required = false) Long vehicleId,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        return ResponseEntity.ok(expenseService.getMonthlyTotals(from, to, vehicleId, authenticatedUserId));
+    }
+
+    /**
+     * Totales por categoría, de mayor a menor.
+     *
+     * GET /api/v1/expenses/summary/categories?from=2025-01&to=2025-12&vehicleId=7
+     *
+     * @return 200 OK con un total por categoría
+     * @throws BadRequestException 400 si from es posterior a to
+     */
+    @GetMapping("/categories")
+    public ResponseEntity<List<CategoryExpenseTotal>> getCategoryTotals(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to,
+            @RequestParam(required = false) Long vehicleId,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        return ResponseEntity.ok(expenseService.getCategoryTotals(from, to, vehicleId, authenticatedUserId));
+    }
+
+    /**
+     * Totales por vehículo, de mayor a menor.
+     *
+     * GET /api/v1/expenses/summary/vehicles?from=2025-01&to=2025-12
+     *
+     * @return 200 OK con un total por vehículo
+     * @throws BadRequestException 400 si from es posterior a to
+     */
+    @GetMapping("/vehicles")
+    public ResponseEntity<List<VehicleExpenseTotal>> getVehicleTotals(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        return ResponseEntity.ok(expenseService.getVehicleTotals(from, to, authenticatedUserId));
+    }
+
+    /**
+     * Serie temporal de gastos de todos los vehículos, con un punto por día, semana o mes.
+     * Igual que GET /api/v1/vehicles/{vehicleId}/expenses/series pero para toda la flota del usuario.
+     *
+     * GET /api/v1/expenses/summary/series?from=2024-01-01&to=2025-12-31&bucket=month
+     *
+     * @param from Primer día (yyyy-MM-dd, opcional; por defecto un año antes de to)
+     * @param to Último día (yyyy-MM-dd, opcional; por defecto hoy)
+     * @param bucket day, week o month (opcional; por defecto month)
+     * @return 200 OK con el intervalo usado y los puntos en orden cronológico
+     * @throws BadRequestException 400 si from es posterior a to o el rango es demasiado largo
+     */
+    @GetMapping("/series")
+    public ResponseEntity<ExpenseSeries> getSeries(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String bucket,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        return ResponseEntity.ok(expenseService.getSeries(null, from, to, bucket, authenticatedUserId));
+    }
+
+    /**
+     * Metodo auxiliar para extraer el ID del usuario desde el objeto Authentication.
+     *
+     * @param authentication Objeto de autenticación de Spring Security
+     * @return ID del usuario autenticado
+     */
+    private Long extractUserIdFromAuthentication(Authentication authentication) {
+        CustomerDetails customerDetails = (CustomerDetails) authentication.getPrincipal();
+        return customerDetails.getUserId();
+    }
+}
@@ -1,16 +1,28 @@
 package com.keepup.vehicle.controller;
 
+import com.keepup.core.exception.ConflictException;
+import com.keepup.core.exception.PayloadTooLargeException;
+import com.keepup.core.exception.ResourceNotFoundException;
+import com.keepup.core.exception.UnsupportedMediaTypeException;
 import com.keepup.core.security.CustomerDetails;
+import com.keepup.core.storage.FileResponseWriter;
+import com.keepup.vehicle.cache.EncodedVehicles;
+import com.keepup.vehicle.cache.RepresentationFormat;
 import com.keepup.vehicle.dto.VehicleRequest;
 import com.keepup.vehicle.dto.VehicleResponse;
+import com.keepup.vehicle.service.VehiclePhotoService;
 import com.keepup.vehicle.service.VehicleService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -25,6 +37,8 @@ import java.util.List;
 public class VehicleController {
 
     private final VehicleService vehicleService;
+    private final VehiclePhotoService vehiclePhotoService;
+    private final FileResponseWriter fileResponseWriter;
 
     /**
      * Crear un nuevo vehículo para el usuario autenticado.
@@ -34,6 +48,7 @@ public class VehicleController {
      * @param request Datos del vehículo a crear (validados)
      * @param authentication Información del usuario autenticado (inyectada por Spring Security)
      * @return 201 CREATED con los datos del vehículo creado
+     * @throws ConflictException 409 CONFLICT si el usuario ya tiene un vehículo con esa placa
      */
     @PostMapping
     public ResponseEntity<VehicleResponse> createVehicle(
@@ -54,21 +69,28 @@ public class VehicleController {
      *
      * GET /api/v1/vehicles/{id}
      *
+     * La respuesta se escribe desde la caché de representaciones pre-serializadas.
+     * Con "Accept: application/cbor" se devuelve CBOR; en cualquier otro caso JSON.
+     *
      * @param id ID del vehículo
+     * @param accept Cabecera Accept de la petición
      * @param authentication Usuario autenticado
-     * @return 200 OK con los datos del vehículo
-     * @throws RuntimeException 404 NOT FOUND si el vehículo no existe o no pertenece al usuario
+     * @param response Respuesta HTTP donde se escriben los bytes
+     * @throws ResourceNotFoundException 404 NOT FOUND si el vehículo no existe o no pertenece al usuario
      */
     @GetMapping("/{id}")
-    public ResponseEntity<VehicleResponse> getVehicleById(
+    public void getVehicleById(
             @PathVariable Long id,
-            Authentication authentication) {
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            Authentication authentication,
+            HttpServletResponse response) throws IOException {
 
         Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
 
-        VehicleResponse response = vehicleService.getById(id, authenticatedUserId);
+        EncodedVehicles vehicle = vehicleService.encodeById(
+                id, authenticatedUserId, RepresentationFormat.fromAcceptHeader(accept));
 
-        return ResponseEntity.ok(response);
+        writeEncoded(vehicle, response);
     }
 
     /**
@@ -76,18 +98,25 @@ public class VehicleController {
      *
      * GET /api/v1/vehicles
      *
+     * El arreglo se arma concatenando las representaciones en caché de cada vehículo.
+     * Con "Accept: application/cbor" se devuelve CBOR; en cualquier otro caso JSON.
+     *
+     * @param accept Cabecera Accept de la petición
      * @param authentication Usuario autenticado
-     * @return 200 OK con lista de vehículos (puede estar vacía)
+     * @param response Respuesta HTTP donde se escriben los bytes (200 OK, lista posiblemente vacía)
      */
     @GetMapping
-    public ResponseEntity<List<VehicleResponse>> getAllVehicles(
-            Authentication authentication) {
+    public void getAllVehicles(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            Authentication authentication,
+            HttpServletResponse response) throws IOException {
 
         Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
 
-        List<VehicleResponse> vehicles = vehicleService.getAll(authenticatedUserId);
+        EncodedVehicles vehicles = vehicleService.encodeAll(
+                authenticatedUserId, RepresentationFormat.fromAcceptHeader(accept));
 
-        return ResponseEntity.ok(vehicles);
+        writeEncoded(vehicles, response);
     }
 
     /**
@@ -98,7 +127,7 @@ public class VehicleController {
      * @param licensePlate Placa del vehículo
      * @param authentication Usuario autenticado
      * @return 200 OK con los datos del vehículo
-     * @throws RuntimeException 404 NOT FOUND si no existe o no pertenece al usuario
+     * @throws ResourceNotFoundException 404 NOT FOUND si no existe o no pertenece al usuario
      */
     @GetMapping("/license-plate/{licensePlate}")
     public ResponseEntity<VehicleResponse> getVehicleByLicensePlate(
@@ -208,7 +237,7 @@ public class VehicleController {
      * @param request Nuevos datos del vehículo (validados)
      * @param authentication Usuario autenticado
      * @return 200 OK con los datos actualizados
-     * @throws RuntimeException 404 NOT FOUND si no existe o no pertenece al usuario
+     * @throws ResourceNotFoundException 404 NOT FOUND si no existe o no pertenece al usuario
      */
     @PutMapping("/{id}")
     public ResponseEntity<VehicleResponse> updateVehicle(
@@ -232,7 +261,7 @@ public class VehicleController {
      * @param id ID del vehículo a eliminar
      * @param authentication Usuario autenticado
      * @return 204 NO CONTENT
-     * @throws RuntimeException 404 NOT FOUND si no existe o no pertenece al usuario
+     * @throws ResourceNotFoundException 404 NOT FOUND si no existe o no pertenece al usuario
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteVehicle(
@@ -246,6 +275,96 @@ public class VehicleController {
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Subir (o reemplazar) la foto de un vehículo.
+     *
+     * PUT /api/v1/vehicles/{id}/photo
+     *
+     * El cuerpo es la imagen tal cual (image/jpeg o image/png). Las versiones reducidas
+     * (thumb, small, large) se generan en segundo plano; mientras tanto sus URLs responden 404.
+     * Cabecera opcional X-Checksum-SHA256 para verificar el archivo.
+     *
+     * @param id ID del vehículo
+     * @param request Petición HTTP (se lee su cuerpo como flujo)
+     * @param authentication Usuario autenticado
+     * @return 200 OK con el vehículo y las URLs de su foto
+     * @throws ResourceNotFoundException 404 NOT FOUND si no existe o no pertenece al usuario
+     * @throws UnsupportedMediaTypeException 415 si el archivo no es una imagen permitida
+     * @throws PayloadTooLargeException 413 si la imagen es demasiado grande
+     */
+    @PutMapping("/{id}/photo")
+    public ResponseEntity<VehicleResponse> uploadPhoto(
+            @PathVariable Long id,
+            HttpServletRequest request,
+            Authentication authentication) throws IOException {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        VehicleResponse response = vehiclePhotoService.upload(
+                id,
+                request.getInputStream(),
+                request.getContentType(),
+                request.getContentLengthLong(),
+                request.getHeader(FileResponseWriter.CHECKSUM_HEADER),
+                authenticatedUserId);
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Quitar la foto de un vehículo.
+     *
+     * DELETE /api/v1/vehicles/{id}/photo
+     *
+     * @param id ID del vehículo
+     * @param authentication Usuario autenticado
+     * @return 204 NO CONTENT
+     * @throws ResourceNotFoundException 404 NOT FOUND si no existe o no pertenece al usuario
+     */
+    @DeleteMapping("/{id}/photo")
+    public ResponseEntity<Void> deletePhoto(
+            @PathVariable Long id,
+            Authentication authentication) {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        vehiclePhotoService.delete(id, authenticatedUserId);
+
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Descargar la foto de un vehículo o una de sus versiones.
+     *
+     * GET /api/v1/vehicles/{id}/photo/{sha256}/{rendition}
+     *
+     * rendition: thumb (160 px), small (480 px), large (1280 px) u original. Los listados deben
+     * usar thumbnailUrl de VehicleResponse. Las respuestas son inmutables
+     * (Cache-Control: max-age de un año); soporta ETag/304 y Range.
+     *
+     * @param id ID del vehículo
+     * @param sha256 SHA-256 de la foto
+     * @param rendition Versión pedida
+     * @param authentication Usuario autenticado
+     * @param request Petición HTTP (cabeceras condicionales y de rango)
+     * @param response Respuesta HTTP donde se envía la imagen
+     * @throws ResourceNotFoundException 404 NOT FOUND si la foto no es la actual o la versión aún no está lista
+     */
+    @GetMapping("/{id}/photo/{sha256}/{rendition}")
+    public void downloadPhoto(
+            @PathVariable Long id,
+            @PathVariable String sha256,
+            @PathVariable String rendition,
+            Authentication authentication,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        Long authenticatedUserId = extractUserIdFromAuthentication(authentication);
+
+        fileResponseWriter.write(vehiclePhotoService.getPhoto(id, sha256, rendition, authenticatedUserId),
+                request, response);
+    }
+
     /**
      * Contar vehículos del usuario autenticado.
      *
@@ -300,4 +419,17 @@ public class VehicleController {
         return customerDetails.getUserId();
 
     }
-}
\ No newline at end of file
+
+    /**
+     * Escribe una representación pre-serializada con su Content-Type y Content-Length exactos.
+     * El formato depende de Accept, así que se declara en Vary para que una caché compartida no
+     * sirva CBOR a un cliente JSON.
+     */
+    private void writeEncoded(EncodedVehicles encoded, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        response.setContentType(encoded.getFormat().getMediaType().toString());
+        response.setContentLengthLong(encoded.contentLength());
+        encoded.writeTo(response.getOutputStream());
+    }
+}
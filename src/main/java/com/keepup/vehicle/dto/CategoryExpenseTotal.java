@@ -0,0 +1,15 @@
+package com.keepup.vehicle.dto;
+
+import com.keepup.vehicle.enums.ExpenseCategory;
+
+import java.math.BigDecimal;
+
+/**
+ * Total de gastos de una categoría en un rango de meses.
+ */
+public record CategoryExpenseTotal(
+        ExpenseCategory category,
+        BigDecimal total,
+        long count
+) {
+}
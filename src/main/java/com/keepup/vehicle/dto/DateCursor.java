@@ -0,0 +1,37 @@
+package com.keepup.vehicle.dto;
+
+import com.keepup.core.exception.BadRequestException;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Posición de keyset en los listados de un vehículo ordenados por fecha y id (documentos por
+ * vencimiento, gastos por fecha). Viaja como texto "yyyy-MM-dd,id" en el parámetro after y en
+ * la cabecera {@value #NEXT_CURSOR_HEADER}.
+ */
+public record DateCursor(LocalDate date, Long id) {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * @throws BadRequestException si el texto no es un cursor devuelto por la API
+     */
+    public static DateCursor parse(String cursor) {
+        int comma = cursor.indexOf(',');
+        try {
+            if (comma > 0) {
+                return new DateCursor(LocalDate.parse(cursor.substring(0, comma)),
+                        Long.valueOf(cursor.substring(comma + 1)));
+            }
+        } catch (DateTimeParseException | NumberFormatException e) {
+            // Mismo error que sin coma
+        }
+        throw new BadRequestException("Invalid cursor: " + cursor);
+    }
+
+    @Override
+    public String toString() {
+        return date + "," + id;
+    }
+}
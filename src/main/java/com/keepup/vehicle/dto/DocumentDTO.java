@@ -1,4 +1,73 @@
 package com.keepup.vehicle.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.keepup.vehicle.enums.DocumentType;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * DTO de documentos de un vehículo.
+ * Se usa tanto en las peticiones POST/PUT como en las respuestas;
+ * los campos de solo lectura (id, vehicleId, fechas de auditoría) se ignoran al recibir datos.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
 public class DocumentDTO {
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long id;
+
+    // Tipo de documento (SOAT, TECHNICAL_INSPECTION, INSURANCE...)
+    @NotNull(message = "Document type is required")
+    private DocumentType type;
+
+    // Número de póliza / certificado (opcional)
+    @Size(max = 50, message = "Number must not exceed 50 characters")
+    private String number;
+
+    // Entidad que expide el documento (opcional)
+    @Size(max = 100, message = "Issuer must not exceed 100 characters")
+    private String issuer;
+
+    // Fecha de expedición (opcional)
+    private LocalDate issueDate;
+
+    // Fecha de vencimiento
+    @NotNull(message = "Expiry date is required")
+    private LocalDate expiryDate;
+
+    @Size(max = 500, message = "Notes must not exceed 500 characters")
+    private String notes;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long vehicleId;
+
+    // Metadatos del archivo escaneado (null si no se ha subido)
+    // El contenido se descarga en GET /api/v1/vehicles/{vehicleId}/documents/{id}/file
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String fileName;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String fileContentType;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long fileSize;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String fileSha256;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDateTime createdAt;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDateTime updatedAt;
 }
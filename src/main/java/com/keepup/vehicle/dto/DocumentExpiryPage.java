@@ -0,0 +1,19 @@
+package com.keepup.vehicle.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Página de documentos por vencer ordenada por (expiryDate, documentId).
+ *
+ * @param items Documentos de la página
+ * @param next Cursor para pedir la siguiente página, o null si no hay más
+ */
+public record DocumentExpiryPage(List<DocumentExpiryView> items, Cursor next) {
+
+    /**
+     * Posición de keyset: la página siguiente empieza después de (expiryDate, documentId).
+     */
+    public record Cursor(LocalDate expiryDate, Long documentId) {
+    }
+}
@@ -0,0 +1,19 @@
+package com.keepup.vehicle.dto;
+
+import com.keepup.vehicle.enums.DocumentType;
+
+import java.time.LocalDate;
+
+/**
+ * Proyección de un documento por vencer, con lo necesario para notificar al propietario.
+ * Se construye directamente en la consulta (sin cargar entidades) para los recorridos masivos.
+ */
+public record DocumentExpiryView(
+        Long documentId,
+        DocumentType type,
+        LocalDate expiryDate,
+        Long vehicleId,
+        String licensePlate,
+        Long userId
+) {
+}
@@ -0,0 +1,50 @@
+package com.keepup.vehicle.dto;
+
+import com.keepup.vehicle.analytics.CubeDimension;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consulta de agregación sobre el cubo de gastos del usuario.
+ *
+ * Ejemplo: total por marca y trimestre de los gastos de combustible y peajes de 2025
+ * <pre>
+ * {
+ *   "groupBy": ["MAKE", "QUARTER"],
+ *   "filters": {"CATEGORY": ["FUEL", "TOLLS"]},
+ *   "from": "2025-01-01",
+ *   "to": "2025-12-31",
+ *   "limit": 20
+ * }
+ * </pre>
+ * El formato de los valores de cada dimensión está descrito en {@link CubeDimension}.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExpenseCubeQuery {
+
+    // Dimensiones de agrupación, en orden (vacío = un único total)
+    @Size(max = 4, message = "At most 4 group-by dimensions are allowed")
+    private List<CubeDimension> groupBy;
+
+    // Valores aceptados por dimensión (OR dentro de una dimensión, AND entre dimensiones)
+    private Map<CubeDimension, List<String>> filters;
+
+    // Rango de fechas del gasto, ambos inclusive (opcionales)
+    private LocalDate from;
+    private LocalDate to;
+
+    // Máximo de grupos devueltos, de mayor a menor total (null = todos)
+    @Positive(message = "Limit must be positive")
+    private Integer limit;
+}
@@ -0,0 +1,28 @@
+package com.keepup.vehicle.dto;
+
+import com.keepup.vehicle.analytics.CubeDimension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de una consulta al cubo de gastos: un total por grupo, de mayor a menor.
+ *
+ * @param rows Grupos (valor de cada dimensión de agrupación, total y número de gastos)
+ * @param scannedRows Filas del cubo recorridas
+ * @param tookMicros Duración de la agregación en microsegundos (sin contar la carga del cubo)
+ */
+public record ExpenseCubeResult(
+        List<Row> rows,
+        long scannedRows,
+        long tookMicros
+) {
+
+    public record Row(
+            Map<CubeDimension, String> group,
+            BigDecimal total,
+            long count
+    ) {
+    }
+}
@@ -1,4 +1,66 @@
 package com.keepup.vehicle.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.keepup.vehicle.enums.ExpenseCategory;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * DTO de gastos de un vehículo.
+ * Se usa tanto en las peticiones POST/PUT como en las respuestas;
+ * los campos de solo lectura (id, vehicleId, externalId, fechas de auditoría) se ignoran al recibir datos.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
 public class ExpenseDTO {
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long id;
+
+    // Categoría (FUEL, MAINTENANCE, REPAIR...)
+    @NotNull(message = "Category is required")
+    private ExpenseCategory category;
+
+    // Valor del gasto
+    @NotNull(message = "Amount is required")
+    @DecimalMin(value = "0.00", message = "Amount must not be negative")
+    @Digits(integer = 10, fraction = 2, message = "Amount must have at most 10 integer digits and 2 decimals")
+    private BigDecimal amount;
+
+    // Fecha del gasto
+    @NotNull(message = "Date is required")
+    private LocalDate date;
+
+    @Size(max = 255, message = "Description must not exceed 255 characters")
+    private String description;
+
+    // Kilometraje (opcional)
+    @PositiveOrZero(message = "Odometer must not be negative")
+    private Integer odometer;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long vehicleId;
+
+    // Referencia en el sistema de origen (solo gastos importados)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String externalId;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDateTime createdAt;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDateTime updatedAt;
 }
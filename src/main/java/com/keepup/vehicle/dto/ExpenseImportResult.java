@@ -0,0 +1,30 @@
+package com.keepup.vehicle.dto;
+
+import java.util.List;
+
+/**
+ * Resultado de una importación de gastos.
+ *
+ * @param rows Filas de datos leídas (sin la cabecera)
+ * @param imported Gastos creados
+ * @param duplicates Filas omitidas porque su referencia ya estaba importada (o repetida en el archivo)
+ * @param rejected Filas inválidas o con placas que no son del usuario
+ * @param errors Detalle de las filas rechazadas (como mucho las primeras N, ver errorsTruncated)
+ * @param errorsTruncated true si hubo más rechazos de los que se detallan
+ */
+public record ExpenseImportResult(
+        long rows,
+        long imported,
+        long duplicates,
+        long rejected,
+        List<RowError> errors,
+        boolean errorsTruncated
+) {
+
+    /**
+     * @param row Número de fila de datos (1 = primera fila tras la cabecera)
+     * @param reason Motivo del rechazo
+     */
+    public record RowError(long row, String reason) {
+    }
+}
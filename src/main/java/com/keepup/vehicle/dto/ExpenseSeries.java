@@ -0,0 +1,22 @@
+package com.keepup.vehicle.dto;
+
+import com.keepup.vehicle.enums.SeriesBucket;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Serie temporal de gastos con un punto por intervalo, incluidos los intervalos sin gastos.
+ *
+ * @param bucket Intervalo usado (puede ser más grueso que el pedido si el rango tenía demasiados)
+ * @param from Primer día del rango
+ * @param to Último día del rango
+ * @param points Un punto por intervalo, en orden cronológico
+ */
+public record ExpenseSeries(
+        SeriesBucket bucket,
+        LocalDate from,
+        LocalDate to,
+        List<ExpenseSeriesPoint> points
+) {
+}
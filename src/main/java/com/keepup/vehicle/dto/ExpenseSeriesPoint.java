@@ -0,0 +1,18 @@
+package com.keepup.vehicle.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Total de gastos de un intervalo de una serie temporal.
+ *
+ * @param start Primer día del intervalo (el día, el lunes de la semana o el primer día del mes)
+ * @param total Suma de importes (0 si no hubo gastos)
+ * @param count Número de gastos
+ */
+public record ExpenseSeriesPoint(
+        LocalDate start,
+        BigDecimal total,
+        long count
+) {
+}
@@ -0,0 +1,20 @@
+package com.keepup.vehicle.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Total de gastos de un mes (leído de los acumulados mensuales).
+ */
+public record MonthlyExpenseTotal(
+        YearMonth month,
+        BigDecimal total,
+        long count
+) {
+
+    // Usado por la consulta: los acumulados guardan el primer día del mes
+    public MonthlyExpenseTotal(LocalDate monthStart, BigDecimal total, Long count) {
+        this(YearMonth.from(monthStart), total, count);
+    }
+}
@@ -0,0 +1,31 @@
+package com.keepup.vehicle.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Estado de una subida reanudable: el cliente debe enviar el siguiente fragmento desde offset.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadSessionDTO {
+
+    private String id;
+
+    private Long documentId;
+
+    // Bytes ya recibidos y confirmados
+    private Long offset;
+
+    // Tamaño total del archivo
+    private Long length;
+
+    // Si no se reciben fragmentos antes de esta fecha, la subida se descarta
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,33 @@
+package com.keepup.vehicle.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para iniciar una subida reanudable del archivo de un documento.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadSessionRequest {
+
+    // Content-Type del archivo final (application/pdf, image/jpeg...)
+    @NotBlank(message = "Content type is required")
+    private String contentType;
+
+    // Nombre original del archivo
+    @Size(max = 255, message = "File name must not exceed 255 characters")
+    private String fileName;
+
+    // Tamaño total del archivo en bytes
+    @NotNull(message = "Length is required")
+    @Positive(message = "Length must be positive")
+    private Long length;
+}
@@ -0,0 +1,14 @@
+package com.keepup.vehicle.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Total de gastos de un vehículo en un rango de meses.
+ */
+public record VehicleExpenseTotal(
+        Long vehicleId,
+        String licensePlate,
+        BigDecimal total,
+        long count
+) {
+}
@@ -0,0 +1,25 @@
+package com.keepup.vehicle.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página de un listado de un vehículo (documentos o gastos).
+ *
+ * @param items Elementos de la página
+ * @param next Cursor para pedir la siguiente página (parámetro after), o null si no hay más
+ */
+public record VehiclePage<T>(List<T> items, DateCursor next) {
+
+    /**
+     * Página a partir de las filas leídas con limit + 1: la fila de más solo indica que hay
+     * siguiente página, y el cursor es la posición de la última que se devuelve.
+     */
+    public static <E, T> VehiclePage<T> of(List<E> rows, int pageSize, Function<E, DateCursor> position,
+                                           Function<E, T> mapper) {
+        boolean hasMore = rows.size() > pageSize;
+        List<E> page = hasMore ? rows.subList(0, pageSize) : rows;
+        return new VehiclePage<>(page.stream().map(mapper).toList(),
+                hasMore ? position.apply(page.getLast()) : null);
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 /**
@@ -46,6 +47,15 @@ public class VehicleResponse {
     // Email del usuario propietario (información adicional útil para el cliente)
     private String userEmail;
 
+    // Próximo vencimiento entre los documentos del vehículo (null si no tiene documentos)
+    private LocalDate nextDocumentExpiry;
+
+    // URL de la miniatura para listados (null si no tiene foto). Inmutable: cambia con la foto
+    private String thumbnailUrl;
+
+    // URL de la foto en tamaño grande para el detalle (null si no tiene foto)
+    private String photoUrl;
+
     // Fecha y hora de creación del registro (auditoría)
     private LocalDateTime createdAt;
 
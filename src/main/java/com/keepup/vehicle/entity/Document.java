@@ -1,4 +1,131 @@
 package com.keepup.vehicle.entity;
 
+import com.keepup.vehicle.enums.DocumentType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Documento de un vehículo con fecha de vencimiento (SOAT, revisión técnico-mecánica, seguro...).
+ *
+ * El acceso principal es por vencimiento:
+ * - idx_document_expiry (expiry_date, id): recorridos paginados por keyset de "vence entre A y B"
+ *   para todos los usuarios, leyendo solo las filas que vencen en el rango.
+ * - idx_document_vehicle_expiry (vehicle_id, expiry_date): documentos de un vehículo y cálculo
+ *   del próximo vencimiento (MIN) sin tocar la tabla.
+ * - idx_document_owner_expiry (owner_bucket, expiry_date, id): los mismos recorridos repartidos
+ *   entre nodos. Cada nodo busca solo en las cubetas de sus particiones, en vez de leer el rango
+ *   entero y descartar lo ajeno.
+ */
+@Entity
+@Table(name = "document", indexes = {
+        @Index(name = "idx_document_expiry", columnList = "expiry_date, id"),
+        @Index(name = "idx_document_vehicle_expiry", columnList = "vehicle_id, expiry_date"),
+        @Index(name = "idx_document_owner_expiry", columnList = "owner_bucket, expiry_date, id")
+})
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
 public class Document {
+
+    /**
+     * Cubetas de dueño. Un reparto en N particiones por MOD(user_id, N) corresponde a cubetas
+     * enteras solo si N divide este número.
+     */
+    public static final int OWNER_BUCKETS = 256;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Tipo de documento (SOAT, revisión técnico-mecánica, etc.)
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private DocumentType type;
+
+    // Número de póliza / certificado (opcional)
+    @Column(length = 50)
+    private String number;
+
+    // Entidad que expide el documento (aseguradora, CDA...)
+    @Column(length = 100)
+    private String issuer;
+
+    // Fecha de expedición
+    private LocalDate issueDate;
+
+    // Fecha de vencimiento
+    @Column(name = "expiry_date", nullable = false)
+    private LocalDate expiryDate;
+
+    // Notas libres del usuario
+    @Column(length = 500)
+    private String notes;
+
+    // Archivo escaneado (opcional). Los bytes viven en BlobStore, nunca en la base de datos;
+    // fileSha256 es la referencia al blob (contenido compartido entre documentos idénticos)
+    // Nombre original del archivo subido
+    @Column(length = 255)
+    private String fileName;
+
+    // Content-Type del archivo (application/pdf, image/jpeg...)
+    @Column(length = 100)
+    private String fileContentType;
+
+    // Tamaño del archivo en bytes
+    private Long fileSize;
+
+    // SHA-256 del archivo en hexadecimal: clave del blob, ETag y verificación de integridad
+    @Column(length = 64)
+    private String fileSha256;
+
+    // Campo para la fecha de creación
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Campo para la fecha de última modificación
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Cubeta del dueño del vehículo: MOD(user_id, OWNER_BUCKETS). El dueño no cambia
+    @Column(name = "owner_bucket", nullable = false, updatable = false)
+    private Integer ownerBucket;
+
+    // Relación con el vehículo al que pertenece el documento
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "vehicle_id", nullable = false)
+    private Vehicle vehicle;
+
+    /**
+     * Metodo que se ejecuta automaticamente antes de persistir la entidad
+     * Establece la fecha de creación y actualizacion
+     */
+    @PrePersist
+    protected void onCreate() {
+        ownerBucket = ownerBucket(vehicle.getUser().getId());
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Metodo que se ejecuta automaticamente antes de actualizar la entidad
+     * Actualiza solo la fecha de ultima modificación
+     */
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Cubeta de un usuario; coincide con MOD(user_id, OWNER_BUCKETS) en SQL.
+     */
+    public static int ownerBucket(long userId) {
+        return (int) Math.floorMod(userId, (long) OWNER_BUCKETS);
+    }
 }
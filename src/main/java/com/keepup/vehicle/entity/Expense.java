@@ -1,4 +1,95 @@
 package com.keepup.vehicle.entity;
 
+import com.keepup.vehicle.enums.ExpenseCategory;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Gasto de un vehículo (combustible, mantenimiento, peajes...).
+ *
+ * Cada alta, cambio o baja actualiza en la misma transacción los acumulados mensuales
+ * ({@link ExpenseMonthlyRollup}); los totales del panel se leen de ahí, no de esta tabla.
+ *
+ * El id sale de una secuencia (no IDENTITY) para que Hibernate pueda agrupar los INSERT en lotes
+ * JDBC en las cargas masivas.
+ *
+ * externalId es la referencia del gasto en el sistema de origen (transacción de la tarjeta de
+ * combustible, factura del taller); es única por usuario para que reenviar un archivo no duplique
+ * gastos.
+ */
+@Entity
+@Table(name = "expense", indexes = {
+        @Index(name = "idx_expense_vehicle_date", columnList = "vehicle_id, expense_date"),
+        @Index(name = "idx_expense_user_date", columnList = "user_id, expense_date")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_expense_user_external_id", columnNames = {"external_id", "user_id"})
+})
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
 public class Expense {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "expense_seq")
+    @SequenceGenerator(name = "expense_seq", sequenceName = "expense_seq", allocationSize = 50)
+    private Long id;
+
+    // Categoría del gasto
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ExpenseCategory category;
+
+    // Valor del gasto
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal amount;
+
+    // Fecha en que se hizo el gasto
+    @Column(name = "expense_date", nullable = false)
+    private LocalDate date;
+
+    // Descripción libre (opcional)
+    @Column(length = 255)
+    private String description;
+
+    // Kilometraje al momento del gasto (opcional)
+    private Integer odometer;
+
+    // Referencia en el sistema de origen (solo gastos importados)
+    @Column(name = "external_id", length = 100)
+    private String externalId;
+
+    // Propietario del vehículo, desnormalizado para filtrar sin unir con vehicle
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "vehicle_id", nullable = false)
+    private Vehicle vehicle;
+
+    // Campo para la fecha de creación
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Campo para la fecha de última modificación
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
 }
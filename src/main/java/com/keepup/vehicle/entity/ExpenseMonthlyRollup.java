@@ -0,0 +1,70 @@
+package com.keepup.vehicle.entity;
+
+import com.keepup.vehicle.enums.ExpenseCategory;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Acumulado de gastos por (vehículo, mes, categoría).
+ *
+ * Lo mantiene ExpenseService con deltas en la misma transacción que el gasto, así que siempre
+ * coincide con la tabla expense. Un panel de 12 meses lee como mucho 12 x categorías filas por
+ * vehículo, sin importar cuántos gastos haya.
+ *
+ * - idx_expense_rollup_user_month (user_id, month_start): totales de un usuario en un rango.
+ *
+ * Si alguna vez se desalinean (carga directa en la base de datos, restauración parcial) se
+ * reconstruyen con POST /api/v1/admin/expenses/rollups/rebuild.
+ */
+@Entity
+@Table(name = "expense_monthly_rollup", indexes = {
+        @Index(name = "idx_expense_rollup_user_month", columnList = "user_id, month_start")
+})
+@IdClass(ExpenseMonthlyRollup.Key.class)
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExpenseMonthlyRollup {
+
+    @Id
+    @Column(name = "vehicle_id")
+    private Long vehicleId;
+
+    // Primer día del mes
+    @Id
+    @Column(name = "month_start")
+    private LocalDate monthStart;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private ExpenseCategory category;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Suma de los gastos
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal total;
+
+    // Número de gastos (las filas en 0 se ignoran en las consultas)
+    @Column(name = "expense_count", nullable = false)
+    private long count;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+        private Long vehicleId;
+        private LocalDate monthStart;
+        private ExpenseCategory category;
+    }
+}
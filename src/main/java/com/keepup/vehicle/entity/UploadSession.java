@@ -0,0 +1,69 @@
+package com.keepup.vehicle.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Subida reanudable en curso del archivo de un documento.
+ *
+ * Los bytes recibidos se escriben en un archivo parcial del almacenamiento local; aquí solo se
+ * guarda hasta dónde llegó (committedOffset). Si la conexión se corta, el cliente consulta el
+ * offset y continúa desde ahí. Las sesiones vencidas las elimina DocumentUploadService.
+ */
+@Entity
+@Table(name = "upload_session", indexes = {
+        @Index(name = "idx_upload_session_expires", columnList = "expires_at")
+})
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadSession {
+
+    // Identificador aleatorio (UUID): no se puede adivinar el de otra sesión
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    // Documento, vehículo y usuario dueños de la subida
+    @Column(nullable = false)
+    private Long documentId;
+
+    @Column(nullable = false)
+    private Long vehicleId;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    // Content-Type y nombre del archivo final
+    @Column(nullable = false, length = 100)
+    private String contentType;
+
+    @Column(nullable = false, length = 255)
+    private String fileName;
+
+    // Tamaño total declarado al crear la sesión
+    @Column(nullable = false)
+    private Long totalLength;
+
+    // Bytes recibidos y confirmados en disco
+    @Column(nullable = false)
+    private Long committedOffset;
+
+    // Vencimiento: se extiende con cada fragmento recibido
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
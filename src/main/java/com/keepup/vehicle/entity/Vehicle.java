@@ -9,6 +9,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
@@ -50,6 +51,19 @@ public class Vehicle {
     private VehicleType vehicleType;
 
 
+    // Próximo vencimiento entre los documentos del vehículo (null si no tiene).
+    // Valor desnormalizado: lo mantiene VehicleRepository.refreshNextDocumentExpiry
+    @Column(name = "next_document_expiry")
+    private LocalDate nextDocumentExpiry;
+
+    // Foto del vehículo: SHA-256 del blob en BlobStore (null si no tiene)
+    @Column(name = "photo_sha256", length = 64)
+    private String photoSha256;
+
+    // Content-Type de la foto original
+    @Column(name = "photo_content_type", length = 50)
+    private String photoContentType;
+
     // Campo para la fecha de creación
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,10 @@
+package com.keepup.vehicle.enums;
+
+public enum DocumentType {
+    SOAT,
+    TECHNICAL_INSPECTION,
+    INSURANCE,
+    VEHICLE_TAX,
+    REGISTRATION,
+    OTHER
+}
@@ -0,0 +1,14 @@
+package com.keepup.vehicle.enums;
+
+public enum ExpenseCategory {
+    FUEL,
+    MAINTENANCE,
+    REPAIR,
+    INSURANCE,
+    TAXES,
+    PARKING,
+    TOLLS,
+    WASH,
+    FINES,
+    OTHER
+}
@@ -0,0 +1,39 @@
+package com.keepup.vehicle.enums;
+
+import java.util.Optional;
+
+/**
+ * Tamaños fijos en que se genera la foto de un vehículo (lado mayor en píxeles, sin ampliar).
+ * Ordenados de mayor a menor: cada uno se genera reduciendo el anterior.
+ */
+public enum PhotoRendition {
+    LARGE("large", 1280),
+    SMALL("small", 480),
+    THUMB("thumb", 160);
+
+    private final String pathName;
+    private final int maxSize;
+
+    PhotoRendition(String pathName, int maxSize) {
+        this.pathName = pathName;
+        this.maxSize = maxSize;
+    }
+
+    // Nombre usado en la URL y en el archivo en disco
+    public String getPathName() {
+        return pathName;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public static Optional<PhotoRendition> fromPathName(String pathName) {
+        for (PhotoRendition rendition : values()) {
+            if (rendition.pathName.equals(pathName)) {
+                return Optional.of(rendition);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,79 @@
+package com.keepup.vehicle.enums;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Intervalo de agrupación de las series temporales de gastos. Las semanas empiezan en lunes (ISO).
+ */
+public enum SeriesBucket {
+    DAY,
+    WEEK,
+    MONTH;
+
+    // Nombre usado en el parámetro ?bucket= y en las respuestas (day, week, month)
+    @JsonValue
+    public String getParamName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static Optional<SeriesBucket> fromParamName(String paramName) {
+        for (SeriesBucket bucket : values()) {
+            if (bucket.getParamName().equals(paramName)) {
+                return Optional.of(bucket);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Primer día del intervalo que contiene la fecha.
+     */
+    public LocalDate start(LocalDate date) {
+        return switch (this) {
+            case DAY -> date;
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+        };
+    }
+
+    /**
+     * Primer día del intervalo siguiente.
+     */
+    public LocalDate next(LocalDate start) {
+        return switch (this) {
+            case DAY -> start.plusDays(1);
+            case WEEK -> start.plusWeeks(1);
+            case MONTH -> start.plusMonths(1);
+        };
+    }
+
+    /**
+     * Número de intervalos entre dos fechas, ambas inclusive.
+     */
+    public long count(LocalDate from, LocalDate to) {
+        ChronoUnit unit = switch (this) {
+            case DAY -> ChronoUnit.DAYS;
+            case WEEK -> ChronoUnit.WEEKS;
+            case MONTH -> ChronoUnit.MONTHS;
+        };
+        return unit.between(start(from), start(to)) + 1;
+    }
+
+    /**
+     * Intervalo inmediatamente más grueso, o null si es el más grueso.
+     */
+    public SeriesBucket coarser() {
+        return switch (this) {
+            case DAY -> WEEK;
+            case WEEK -> MONTH;
+            case MONTH -> null;
+        };
+    }
+}
@@ -0,0 +1,15 @@
+package com.keepup.vehicle.event;
+
+import java.time.LocalDate;
+
+/**
+ * La fecha de vencimiento de un documento cambió (alta, renovación o baja). Se publica dentro
+ * de la transacción; el scheduler de avisos lo aplica al confirmar.
+ *
+ * @param documentId ID del documento
+ * @param userId Dueño del vehículo (decide la partición de avisos que lo atiende)
+ * @param previousExpiry Vencimiento anterior (null en un alta)
+ * @param expiryDate Vencimiento nuevo (null en una baja)
+ */
+public record DocumentExpiryChangedEvent(Long documentId, Long userId, LocalDate previousExpiry, LocalDate expiryDate) {
+}
@@ -0,0 +1,10 @@
+package com.keepup.vehicle.event;
+
+/**
+ * Un vehículo se borró o cambió de propietario. Se publica dentro de la transacción; la caché de
+ * propiedad quita su entrada al confirmar.
+ *
+ * @param vehicleId ID del vehículo
+ */
+public record VehicleOwnershipChangedEvent(Long vehicleId) {
+}
@@ -0,0 +1,72 @@
+package com.keepup.vehicle.mapper;
+
+import com.keepup.vehicle.dto.DocumentDTO;
+import com.keepup.vehicle.entity.Document;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mapper para convertir entre entidades Document y DocumentDTO.
+ */
+@Component
+public class DocumentMapper {
+
+    /**
+     * Convierte una entidad Document al DTO de salida.
+     *
+     * @param document La entidad Document de la base de datos
+     * @return DocumentDTO con la información para el cliente
+     */
+    public DocumentDTO toDto(Document document) {
+        return DocumentDTO.builder()
+                .id(document.getId())
+                .type(document.getType())
+                .number(document.getNumber())
+                .issuer(document.getIssuer())
+                .issueDate(document.getIssueDate())
+                .expiryDate(document.getExpiryDate())
+                .notes(document.getNotes())
+                // getId() sobre el proxy LAZY no dispara una consulta
+                .vehicleId(document.getVehicle() != null ? document.getVehicle().getId() : null)
+                .fileName(document.getFileName())
+                .fileContentType(document.getFileContentType())
+                .fileSize(document.getFileSize())
+                .fileSha256(document.getFileSha256())
+                .createdAt(document.getCreatedAt())
+                .updatedAt(document.getUpdatedAt())
+                .build();
+    }
+
+    /**
+     * Convierte un DocumentDTO de entrada a una nueva entidad Document.
+     * Nota: El Vehicle debe ser asignado después en el Service.
+     *
+     * @param dto El DTO con los datos del documento
+     * @return Una nueva entidad Document (sin ID, sin Vehicle, sin timestamps)
+     */
+    public Document toEntity(DocumentDTO dto) {
+        return Document.builder()
+                .type(dto.getType())
+                .number(dto.getNumber())
+                .issuer(dto.getIssuer())
+                .issueDate(dto.getIssueDate())
+                .expiryDate(dto.getExpiryDate())
+                .notes(dto.getNotes())
+                .build();
+    }
+
+    /**
+     * Actualiza una entidad Document existente con los datos del DTO.
+     * Mantiene el ID, el Vehicle, el archivo y createdAt originales.
+     *
+     * @param dto El DTO con los nuevos datos
+     * @param document La entidad Document existente a actualizar
+     */
+    public void updateEntityFromDto(DocumentDTO dto, Document document) {
+        document.setType(dto.getType());
+        document.setNumber(dto.getNumber());
+        document.setIssuer(dto.getIssuer());
+        document.setIssueDate(dto.getIssueDate());
+        document.setExpiryDate(dto.getExpiryDate());
+        document.setNotes(dto.getNotes());
+    }
+}
@@ -0,0 +1,66 @@
+package com.keepup.vehicle.mapper;
+
+import com.keepup.vehicle.dto.ExpenseDTO;
+import com.keepup.vehicle.entity.Expense;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mapper para convertir entre entidades Expense y ExpenseDTO.
+ */
+@Component
+public class ExpenseMapper {
+
+    /**
+     * Convierte una entidad Expense al DTO de salida.
+     *
+     * @param expense La entidad Expense de la base de datos
+     * @return ExpenseDTO con la información para el cliente
+     */
+    public ExpenseDTO toDto(Expense expense) {
+        return ExpenseDTO.builder()
+                .id(expense.getId())
+                .category(expense.getCategory())
+                .amount(expense.getAmount())
+                .date(expense.getDate())
+                .description(expense.getDescription())
+                .odometer(expense.getOdometer())
+                // getId() sobre el proxy LAZY no dispara una consulta
+                .vehicleId(expense.getVehicle() != null ? expense.getVehicle().getId() : null)
+                .externalId(expense.getExternalId())
+                .createdAt(expense.getCreatedAt())
+                .updatedAt(expense.getUpdatedAt())
+                .build();
+    }
+
+    /**
+     * Convierte un ExpenseDTO de entrada a una nueva entidad Expense.
+     * Nota: El Vehicle y el userId deben ser asignados después en el Service.
+     *
+     * @param dto El DTO con los datos del gasto
+     * @return Una nueva entidad Expense (sin ID, sin Vehicle, sin timestamps)
+     */
+    public Expense toEntity(ExpenseDTO dto) {
+        return Expense.builder()
+                .category(dto.getCategory())
+                .amount(dto.getAmount())
+                .date(dto.getDate())
+                .description(dto.getDescription())
+                .odometer(dto.getOdometer())
+                .build();
+    }
+
+    /**
+     * Actualiza una entidad Expense existente con los datos del DTO.
+     * Mantiene el ID, el Vehicle, el userId y createdAt originales.
+     *
+     * @param dto El DTO con los nuevos datos
+     * @param expense La entidad Expense existente a actualizar
+     */
+    public void updateEntityFromDto(ExpenseDTO dto, Expense expense) {
+        expense.setCategory(dto.getCategory());
+        expense.setAmount(dto.getAmount());
+        expense.setDate(dto.getDate());
+        expense.setDescription(dto.getDescription());
+        expense.setOdometer(dto.getOdometer());
+    }
+}
@@ -3,6 +3,7 @@ package com.keepup.vehicle.mapper;
 import com.keepup.vehicle.dto.VehicleRequest;
 import com.keepup.vehicle.dto.VehicleResponse;
 import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.enums.PhotoRendition;
 import org.springframework.stereotype.Component;
 
 /**
@@ -32,11 +33,30 @@ public class VehicleMapper {
                 // Verifica que el usuario no sea null antes de acceder a sus propiedades
                 .userId(vehicle.getUser() != null ? vehicle.getUser().getId() : null)
                 .userEmail(vehicle.getUser() != null ? vehicle.getUser().getEmail() : null)
+                .nextDocumentExpiry(vehicle.getNextDocumentExpiry())
+                .thumbnailUrl(photoUrl(vehicle, PhotoRendition.THUMB))
+                .photoUrl(photoUrl(vehicle, PhotoRendition.LARGE))
                 .createdAt(vehicle.getCreatedAt())
                 .updatedAt(vehicle.getUpdatedAt())
                 .build();
     }
 
+    /**
+     * URL de una versión de la foto del vehículo, o null si no tiene foto.
+     * Incluye el SHA-256 de la foto, así cada foto tiene su propia URL y se puede cachear sin expirar.
+     *
+     * @param vehicle La entidad Vehicle
+     * @param rendition Versión de la foto
+     * @return Ruta relativa al API, p. ej. /api/v1/vehicles/7/photo/{sha256}/thumb
+     */
+    public String photoUrl(Vehicle vehicle, PhotoRendition rendition) {
+        if (vehicle.getPhotoSha256() == null) {
+            return null;
+        }
+        return "/api/v1/vehicles/" + vehicle.getId() + "/photo/" + vehicle.getPhotoSha256() + "/"
+                + rendition.getPathName();
+    }
+
     /**
      * Convierte un VehicleRequest (DTO de entrada) a una entidad Vehicle.
      * Se usa cuando creamos un nuevo vehículo desde una petición POST.
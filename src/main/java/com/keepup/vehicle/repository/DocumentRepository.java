@@ -1,4 +1,131 @@
 package com.keepup.vehicle.repository;
 
-public class DocumentRepository {
+import com.keepup.vehicle.dto.DocumentExpiryView;
+import com.keepup.vehicle.entity.Document;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DocumentRepository extends JpaRepository<Document, Long> {
+
+    // ==================== MÉTODOS CON SEGURIDAD POR USUARIO (USADOS EN DocumentService) ====================
+    // El vehículo ya fue validado contra el usuario autenticado; aquí se filtra por vehículo
+
+    /**
+     * Buscar documento por ID dentro de un vehículo.
+     */
+    @Query("SELECT d FROM Document d WHERE d.id = :id AND d.vehicle.id = :vehicleId")
+    Optional<Document> findByIdAndVehicleId(@Param("id") Long id, @Param("vehicleId") Long vehicleId);
+
+    /**
+     * Primeros documentos de un vehículo por vencimiento (usa idx_document_vehicle_expiry).
+     */
+    @Query("SELECT d FROM Document d WHERE d.vehicle.id = :vehicleId ORDER BY d.expiryDate, d.id")
+    List<Document> findByVehicleIdOrderByExpiryDate(@Param("vehicleId") Long vehicleId, Limit limit);
+
+    /**
+     * Documentos de un vehículo por vencimiento, estrictamente después de (afterDate, afterId):
+     * la página siguiente de {@link #findByVehicleIdOrderByExpiryDate}, por rango sobre
+     * idx_document_vehicle_expiry.
+     */
+    @Query("""
+            SELECT d FROM Document d
+            WHERE d.vehicle.id = :vehicleId AND d.expiryDate >= :afterDate
+              AND (d.expiryDate > :afterDate OR d.id > :afterId)
+            ORDER BY d.expiryDate, d.id
+            """)
+    List<Document> findByVehicleIdAfter(@Param("vehicleId") Long vehicleId,
+                                        @Param("afterDate") LocalDate afterDate,
+                                        @Param("afterId") Long afterId,
+                                        Limit limit);
+
+    /**
+     * Blobs (SHA-256) referenciados por los documentos de un vehículo, uno por documento
+     * (para liberar las referencias junto con el vehículo).
+     */
+    @Query("SELECT d.fileSha256 FROM Document d WHERE d.vehicle.id = :vehicleId AND d.fileSha256 IS NOT NULL")
+    List<String> findFileShasByVehicleId(@Param("vehicleId") Long vehicleId);
+
+    /**
+     * Eliminar todos los documentos de un vehículo en una sola sentencia (antes de borrar el vehículo).
+     */
+    @Modifying
+    @Query("DELETE FROM Document d WHERE d.vehicle.id = :vehicleId")
+    int deleteByVehicleId(@Param("vehicleId") Long vehicleId);
+
+    /**
+     * Próximos vencimientos de los vehículos de un usuario, del más cercano al más lejano.
+     */
+    @Query("""
+            SELECT new com.keepup.vehicle.dto.DocumentExpiryView(
+                d.id, d.type, d.expiryDate, v.id, v.licensePlate, v.user.id)
+            FROM Document d JOIN d.vehicle v
+            WHERE v.user.id = :userId AND d.expiryDate >= :from AND d.expiryDate <= :to
+            ORDER BY d.expiryDate, d.id
+            """)
+    List<DocumentExpiryView> findUpcomingByUserId(
+            @Param("userId") Long userId,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to,
+            Limit limit
+    );
+
+    // ==================== RECORRIDOS POR VENCIMIENTO (Sin filtro de usuario) ====================
+
+    /**
+     * Página de documentos que vencen hasta :to, estrictamente después del cursor
+     * (afterDate, afterId), en orden (expiryDate, id).
+     *
+     * Es un recorrido por rango sobre idx_document_expiry: la condición redundante
+     * expiryDate >= :afterDate fija el inicio del rango en el índice, así que cada página lee
+     * solo sus filas sin importar cuántas páginas vinieron antes (a diferencia de OFFSET).
+     * Para la primera página: afterDate = fecha inicial, afterId = 0.
+     */
+    @Query("""
+            SELECT new com.keepup.vehicle.dto.DocumentExpiryView(
+                d.id, d.type, d.expiryDate, v.id, v.licensePlate, v.user.id)
+            FROM Document d JOIN d.vehicle v
+            WHERE d.expiryDate >= :afterDate AND d.expiryDate <= :to
+              AND (d.expiryDate > :afterDate OR d.id > :afterId)
+            ORDER BY d.expiryDate, d.id
+            """)
+    List<DocumentExpiryView> findExpiringAfter(
+            @Param("afterDate") LocalDate afterDate,
+            @Param("afterId") Long afterId,
+            @Param("to") LocalDate to,
+            Limit limit
+    );
+
+    /**
+     * Como {@link #findExpiringAfter}, solo de los documentos con owner_bucket en :buckets.
+     *
+     * Usa idx_document_owner_expiry: por cada cubeta se busca el inicio del rango de fechas, así
+     * que se leen solo las filas de esas cubetas (un nodo con 1 de 16 particiones lee 1/16 de las
+     * filas). Se ordenan después; los recorridos del scheduler son de un día.
+     */
+    @Query("""
+            SELECT new com.keepup.vehicle.dto.DocumentExpiryView(
+                d.id, d.type, d.expiryDate, v.id, v.licensePlate, v.user.id)
+            FROM Document d JOIN d.vehicle v
+            WHERE d.ownerBucket IN :buckets
+              AND d.expiryDate >= :afterDate AND d.expiryDate <= :to
+              AND (d.expiryDate > :afterDate OR d.id > :afterId)
+            ORDER BY d.expiryDate, d.id
+            """)
+    List<DocumentExpiryView> findExpiringAfterInBuckets(
+            @Param("afterDate") LocalDate afterDate,
+            @Param("afterId") Long afterId,
+            @Param("to") LocalDate to,
+            @Param("buckets") Collection<Integer> buckets,
+            Limit limit
+    );
 }
@@ -1,4 +1,124 @@
 package com.keepup.vehicle.repository;
 
-public class ExpenseRepository {
+import com.keepup.vehicle.analytics.ExpenseFact;
+import com.keepup.vehicle.dto.ExpenseSeriesPoint;
+import com.keepup.vehicle.entity.Expense;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+@Repository
+public interface ExpenseRepository extends JpaRepository<Expense, Long> {
+
+    // ==================== MÉTODOS CON SEGURIDAD POR USUARIO (USADOS EN ExpenseService) ====================
+    // El vehículo ya fue validado contra el usuario autenticado; aquí se filtra por vehículo
+
+    /**
+     * Buscar gasto por ID dentro de un vehículo.
+     */
+    @Query("SELECT e FROM Expense e WHERE e.id = :id AND e.vehicle.id = :vehicleId")
+    Optional<Expense> findByIdAndVehicleId(@Param("id") Long id, @Param("vehicleId") Long vehicleId);
+
+    /**
+     * Últimos gastos de un vehículo (usa idx_expense_vehicle_date).
+     */
+    @Query("SELECT e FROM Expense e WHERE e.vehicle.id = :vehicleId ORDER BY e.date DESC, e.id DESC")
+    List<Expense> findByVehicleIdOrderByDateDesc(@Param("vehicleId") Long vehicleId, Limit limit);
+
+    /**
+     * Gastos de un vehículo anteriores a (beforeDate, beforeId), los más recientes primero: la
+     * página siguiente de {@link #findByVehicleIdOrderByDateDesc}, por rango sobre idx_expense_vehicle_date.
+     */
+    @Query("""
+            SELECT e FROM Expense e
+            WHERE e.vehicle.id = :vehicleId AND e.date <= :beforeDate
+              AND (e.date < :beforeDate OR e.id < :beforeId)
+            ORDER BY e.date DESC, e.id DESC
+            """)
+    List<Expense> findByVehicleIdBefore(@Param("vehicleId") Long vehicleId,
+                                        @Param("beforeDate") LocalDate beforeDate,
+                                        @Param("beforeId") Long beforeId,
+                                        Limit limit);
+
+    /**
+     * Eliminar todos los gastos de un vehículo en una sola sentencia (antes de borrar el vehículo).
+     */
+    @Modifying
+    @Query("DELETE FROM Expense e WHERE e.vehicle.id = :vehicleId")
+    int deleteByVehicleId(@Param("vehicleId") Long vehicleId);
+
+    /**
+     * Referencias externas de la lista que ya tienen un gasto del usuario (usa uk_expense_user_external_id).
+     */
+    @Query("SELECT e.externalId FROM Expense e WHERE e.userId = :userId AND e.externalId IN :externalIds")
+    Set<String> findExistingExternalIds(@Param("userId") Long userId,
+                                        @Param("externalIds") Collection<String> externalIds);
+
+    // ==================== SERIES TEMPORALES ====================
+    // Un grupo por intervalo con gastos; el servicio completa los intervalos vacíos
+
+    /**
+     * Totales por día (usa idx_expense_user_date / idx_expense_vehicle_date).
+     */
+    @Query("""
+            SELECT new com.keepup.vehicle.dto.ExpenseSeriesPoint(e.date, SUM(e.amount), COUNT(e))
+            FROM Expense e
+            WHERE e.userId = :userId AND e.date BETWEEN :from AND :to
+              AND (:vehicleId IS NULL OR e.vehicle.id = :vehicleId)
+            GROUP BY e.date
+            ORDER BY e.date
+            """)
+    List<ExpenseSeriesPoint> totalsByDay(@Param("userId") Long userId,
+                                         @Param("vehicleId") Long vehicleId,
+                                         @Param("from") LocalDate from,
+                                         @Param("to") LocalDate to);
+
+    /**
+     * Totales por semana ISO (el intervalo empieza en lunes).
+     */
+    @Query("""
+            SELECT new com.keepup.vehicle.dto.ExpenseSeriesPoint(truncate(e.date, week), SUM(e.amount), COUNT(e))
+            FROM Expense e
+            WHERE e.userId = :userId AND e.date BETWEEN :from AND :to
+              AND (:vehicleId IS NULL OR e.vehicle.id = :vehicleId)
+            GROUP BY truncate(e.date, week)
+            ORDER BY truncate(e.date, week)
+            """)
+    List<ExpenseSeriesPoint> totalsByWeek(@Param("userId") Long userId,
+                                          @Param("vehicleId") Long vehicleId,
+                                          @Param("from") LocalDate from,
+                                          @Param("to") LocalDate to);
+
+    // ==================== CUBO DE ANÁLISIS ====================
+
+    /**
+     * Número de gastos de un usuario (para dimensionar el cubo antes de cargarlo).
+     */
+    long countByUserId(Long userId);
+
+    /**
+     * Gastos de un usuario con los atributos de su vehículo, leídos por lotes con un cursor
+     * (debe consumirse dentro de una transacción y cerrarse).
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.keepup.vehicle.analytics.ExpenseFact(v.id, v.licensePlate, v.vehicleType, " +
+            "v.make, v.model, v.year, e.category, e.date, e.amount) " +
+            "FROM Expense e JOIN e.vehicle v WHERE e.userId = :userId")
+    Stream<ExpenseFact> streamFactsByUserId(@Param("userId") Long userId);
 }
@@ -0,0 +1,126 @@
+package com.keepup.vehicle.repository;
+
+import com.keepup.vehicle.dto.CategoryExpenseTotal;
+import com.keepup.vehicle.dto.MonthlyExpenseTotal;
+import com.keepup.vehicle.dto.VehicleExpenseTotal;
+import com.keepup.vehicle.entity.ExpenseMonthlyRollup;
+import com.keepup.vehicle.enums.ExpenseCategory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ExpenseRollupRepository extends JpaRepository<ExpenseMonthlyRollup, ExpenseMonthlyRollup.Key> {
+
+    // ==================== MANTENIMIENTO INCREMENTAL ====================
+
+    /**
+     * Sumar un delta al acumulado de (vehículo, mes, categoría).
+     *
+     * @return 1 si el acumulado existía, 0 si hay que crearlo
+     */
+    @Modifying
+    @Query("""
+            UPDATE ExpenseMonthlyRollup r
+            SET r.total = r.total + :amount, r.count = r.count + :count
+            WHERE r.vehicleId = :vehicleId AND r.monthStart = :monthStart AND r.category = :category
+            """)
+    int addDelta(@Param("vehicleId") Long vehicleId,
+                 @Param("monthStart") LocalDate monthStart,
+                 @Param("category") ExpenseCategory category,
+                 @Param("amount") BigDecimal amount,
+                 @Param("count") long count);
+
+    /**
+     * Crear el acumulado con el delta inicial; si otra transacción lo creó a la vez no hace nada.
+     * Sin columna de conflicto para que también lo acepte H2; la PK es la única restricción única.
+     *
+     * @return 1 si se insertó, 0 si ya existía
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO expense_monthly_rollup (vehicle_id, month_start, category, user_id, total, expense_count)
+            VALUES (:vehicleId, :monthStart, :category, :userId, :amount, :count)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("vehicleId") Long vehicleId,
+                       @Param("monthStart") LocalDate monthStart,
+                       @Param("category") String category,
+                       @Param("userId") Long userId,
+                       @Param("amount") BigDecimal amount,
+                       @Param("count") long count);
+
+    /**
+     * Eliminar los acumulados de un vehículo (antes de borrar el vehículo).
+     */
+    @Modifying
+    @Query("DELETE FROM ExpenseMonthlyRollup r WHERE r.vehicleId = :vehicleId")
+    int deleteByVehicleId(@Param("vehicleId") Long vehicleId);
+
+    // ==================== RECONSTRUCCIÓN ====================
+
+    @Modifying
+    @Query("DELETE FROM ExpenseMonthlyRollup r")
+    int deleteAllRollups();
+
+    /**
+     * Recalcular todos los acumulados desde la tabla expense con un único INSERT ... SELECT
+     * (sin traer filas a la aplicación).
+     *
+     * @return Número de acumulados creados
+     */
+    @Modifying
+    @Query("""
+            INSERT INTO ExpenseMonthlyRollup (vehicleId, monthStart, category, userId, total, count)
+            SELECT e.vehicle.id, truncate(e.date, month), e.category, e.userId, SUM(e.amount), COUNT(e)
+            FROM Expense e
+            GROUP BY e.vehicle.id, truncate(e.date, month), e.category, e.userId
+            """)
+    int insertFromExpenses();
+
+    // ==================== TOTALES DEL PANEL ====================
+    // Rango de meses [from, to] como primer día de cada mes; vehicleId null = todos los vehículos
+
+    @Query("""
+            SELECT new com.keepup.vehicle.dto.MonthlyExpenseTotal(r.monthStart, SUM(r.total), SUM(r.count))
+            FROM ExpenseMonthlyRollup r
+            WHERE r.userId = :userId AND r.monthStart BETWEEN :from AND :to AND r.count > 0
+              AND (:vehicleId IS NULL OR r.vehicleId = :vehicleId)
+            GROUP BY r.monthStart
+            ORDER BY r.monthStart
+            """)
+    List<MonthlyExpenseTotal> totalsByMonth(@Param("userId") Long userId,
+                                            @Param("vehicleId") Long vehicleId,
+                                            @Param("from") LocalDate from,
+                                            @Param("to") LocalDate to);
+
+    @Query("""
+            SELECT new com.keepup.vehicle.dto.CategoryExpenseTotal(r.category, SUM(r.total), SUM(r.count))
+            FROM ExpenseMonthlyRollup r
+            WHERE r.userId = :userId AND r.monthStart BETWEEN :from AND :to AND r.count > 0
+              AND (:vehicleId IS NULL OR r.vehicleId = :vehicleId)
+            GROUP BY r.category
+            ORDER BY SUM(r.total) DESC
+            """)
+    List<CategoryExpenseTotal> totalsByCategory(@Param("userId") Long userId,
+                                                @Param("vehicleId") Long vehicleId,
+                                                @Param("from") LocalDate from,
+                                                @Param("to") LocalDate to);
+
+    @Query("""
+            SELECT new com.keepup.vehicle.dto.VehicleExpenseTotal(r.vehicleId, v.licensePlate, SUM(r.total), SUM(r.count))
+            FROM ExpenseMonthlyRollup r, Vehicle v
+            WHERE v.id = r.vehicleId AND r.userId = :userId AND r.monthStart BETWEEN :from AND :to AND r.count > 0
+            GROUP BY r.vehicleId, v.licensePlate
+            ORDER BY SUM(r.total) DESC
+            """)
+    List<VehicleExpenseTotal> totalsByVehicle(@Param("userId") Long userId,
+                                              @Param("from") LocalDate from,
+                                              @Param("to") LocalDate to);
+}
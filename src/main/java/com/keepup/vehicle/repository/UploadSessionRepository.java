@@ -0,0 +1,64 @@
+package com.keepup.vehicle.repository;
+
+import com.keepup.vehicle.entity.UploadSession;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    /**
+     * Buscar una sesión vigente del usuario para un documento concreto.
+     */
+    @Query("""
+            SELECT s FROM UploadSession s
+            WHERE s.id = :id AND s.documentId = :documentId AND s.vehicleId = :vehicleId
+              AND s.userId = :userId AND s.expiresAt > :now
+            """)
+    Optional<UploadSession> findActive(@Param("id") String id,
+                                       @Param("documentId") Long documentId,
+                                       @Param("vehicleId") Long vehicleId,
+                                       @Param("userId") Long userId,
+                                       @Param("now") LocalDateTime now);
+
+    /**
+     * Avanzar el offset solo si sigue en el valor esperado (evita retrocesos por peticiones cruzadas).
+     *
+     * @return 1 si se actualizó, 0 si el offset ya había cambiado
+     */
+    @Modifying
+    @Query("""
+            UPDATE UploadSession s SET s.committedOffset = :newOffset, s.expiresAt = :expiresAt
+            WHERE s.id = :id AND s.committedOffset = :expectedOffset
+            """)
+    int advance(@Param("id") String id,
+                @Param("expectedOffset") long expectedOffset,
+                @Param("newOffset") long newOffset,
+                @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Sesiones vencidas con id en [from, to) (usa idx_upload_session_expires).
+     */
+    @Query("""
+            SELECT s.id FROM UploadSession s
+            WHERE s.expiresAt <= :now AND s.id >= :from AND s.id < :to
+            ORDER BY s.expiresAt
+            """)
+    List<String> findExpired(@Param("now") LocalDateTime now, @Param("from") String from, @Param("to") String to,
+                             Limit limit);
+
+    /**
+     * Borrar una sesión vencida (no borra una que se haya extendido mientras tanto).
+     */
+    @Modifying
+    @Query("DELETE FROM UploadSession s WHERE s.id = :id AND s.expiresAt <= :now")
+    int deleteExpired(@Param("id") String id, @Param("now") LocalDateTime now);
+}
@@ -2,10 +2,13 @@ package com.keepup.vehicle.repository;
 
 import com.keepup.vehicle.entity.Vehicle;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +25,19 @@ public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
     @Query("SELECT v FROM Vehicle v WHERE v.id = :id AND v.user.id = :userId")
     Optional<Vehicle> findByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
 
+    /**
+     * Igual que findByIdAndUserId pero trae en la misma consulta el propietario y su rol (ambos
+     * a-uno, sin multiplicar filas), para armar la ficha del vehículo sin consultas adicionales.
+     */
+    @Query("SELECT v FROM Vehicle v JOIN FETCH v.user u JOIN FETCH u.role WHERE v.id = :id AND u.id = :userId")
+    Optional<Vehicle> findWithOwnerByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    /**
+     * Propietario de un vehículo, sin cargar la entidad (caché de propiedad).
+     */
+    @Query("SELECT v.user.id FROM Vehicle v WHERE v.id = :id")
+    Optional<Long> findOwnerIdById(@Param("id") Long id);
+
     /**
      * Buscar vehículo por placa y verificar que pertenece al usuario.
      */
@@ -47,6 +63,13 @@ public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
     @Query("SELECT v FROM Vehicle v WHERE v.user.id = :userId")
     List<Vehicle> findByUserId(@Param("userId") Long userId);
 
+    /**
+     * Vehículos del usuario con alguna de las placas indicadas, en una sola consulta.
+     */
+    @Query("SELECT v FROM Vehicle v WHERE v.user.id = :userId AND v.licensePlate IN :licensePlates")
+    List<Vehicle> findByUserIdAndLicensePlateIn(@Param("userId") Long userId,
+                                                @Param("licensePlates") Collection<String> licensePlates);
+
     /**
      * Buscar vehículos por marca, filtrados por usuario.
      */
@@ -146,4 +169,20 @@ public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
             @Param("userId") Long userId,
             @Param("marca") String marca
     );
-}
\ No newline at end of file
+
+    // ==================== VALORES DESNORMALIZADOS ====================
+
+    /**
+     * Recalcular el próximo vencimiento de documentos del vehículo en una sola sentencia.
+     * El MIN se resuelve con idx_document_vehicle_expiry. También actualiza updatedAt para que
+     * las representaciones en caché del vehículo se regeneren.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE Vehicle v SET
+                v.nextDocumentExpiry = (SELECT MIN(d.expiryDate) FROM Document d WHERE d.vehicle.id = :vehicleId),
+                v.updatedAt = :now
+            WHERE v.id = :vehicleId
+            """)
+    int refreshNextDocumentExpiry(@Param("vehicleId") Long vehicleId, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,116 @@
+package com.keepup.vehicle.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector CSV mínimo (RFC 4180) que lee registro a registro sin cargar el archivo en memoria.
+ *
+ * - Campos entre comillas dobles con comillas escapadas ("") y saltos de línea dentro.
+ * - Fin de línea LF o CRLF; se ignoran las líneas vacías.
+ * - Separador configurable (coma o punto y coma, habitual en archivos exportados con coma decimal).
+ */
+final class CsvReader {
+
+    private final Reader reader;
+    private final char separator;
+    private final int maxFieldLength;
+    private final StringBuilder field = new StringBuilder();
+    private int pending = -2;
+
+    /**
+     * @param reader Origen (idealmente con buffer)
+     * @param separator Separador de campos
+     * @param maxFieldLength Longitud máxima de un campo, para acotar la memoria ante archivos corruptos
+     */
+    CsvReader(Reader reader, char separator, int maxFieldLength) {
+        this.reader = reader;
+        this.separator = separator;
+        this.maxFieldLength = maxFieldLength;
+    }
+
+    /**
+     * Siguiente registro, o null al final del archivo.
+     *
+     * @throws IOException si falla la lectura
+     * @throws IllegalArgumentException si un campo supera la longitud máxima o una comilla no se cierra
+     */
+    List<String> next() throws IOException {
+        int c = read();
+        while (c == '\r' || c == '\n') {
+            c = read();
+        }
+        if (c == -1) {
+            return null;
+        }
+
+        List<String> record = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        boolean fieldStart = true;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IllegalArgumentException("Unterminated quoted field");
+                }
+                if (c == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        append('"');
+                    } else {
+                        quoted = false;
+                        c = following;
+                        continue;
+                    }
+                } else {
+                    append((char) c);
+                }
+            } else if (c == '"' && fieldStart) {
+                quoted = true;
+                fieldStart = false;
+            } else if (c == separator) {
+                record.add(field.toString());
+                field.setLength(0);
+                fieldStart = true;
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int following = read();
+                    if (following != '\n') {
+                        pending = following;
+                    }
+                }
+                record.add(field.toString());
+                return record;
+            } else {
+                append((char) c);
+                fieldStart = false;
+            }
+            c = read();
+        }
+    }
+
+    private void append(char c) {
+        if (field.length() == maxFieldLength) {
+            throw new IllegalArgumentException("Field exceeds " + maxFieldLength + " characters");
+        }
+        field.append(c);
+    }
+
+    private int read() throws IOException {
+        if (pending != -2) {
+            int c = pending;
+            pending = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    /**
+     * Separador de un archivo a partir de su línea de cabecera: punto y coma si aparece y no hay comas.
+     */
+    static char detectSeparator(String headerLine) {
+        return headerLine.indexOf(';') >= 0 && headerLine.indexOf(',') < 0 ? ';' : ',';
+    }
+}
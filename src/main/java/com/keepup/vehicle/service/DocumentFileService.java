@@ -0,0 +1,113 @@
+package com.keepup.vehicle.service;
+
+import com.keepup.core.exception.PayloadTooLargeException;
+import com.keepup.core.exception.ResourceNotFoundException;
+import com.keepup.core.exception.UnsupportedMediaTypeException;
+import com.keepup.core.storage.AllowedMediaTypes;
+import com.keepup.core.storage.BlobStore;
+import com.keepup.core.storage.StoredFile;
+import com.keepup.core.tracing.Traced;
+import com.keepup.vehicle.dto.DocumentDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+
+/**
+ * Subida de archivos escaneados de documentos (SOAT, pólizas, certificados).
+ *
+ * Los archivos se guardan en {@link BlobStore}: direccionados por contenido, deduplicados y
+ * comprimidos si el tipo lo permite.
+ *
+ * No es transaccional a propósito: el cuerpo se copia a disco sin tener abierta una transacción
+ * (ni una conexión del pool) mientras el cliente envía bytes. Antes de leer el cuerpo se valida
+ * la propiedad del documento, y después se asocia el archivo en una transacción corta.
+ *
+ * Configuración:
+ * - keepup.documents.max-file-size (20MB por defecto)
+ * - keepup.documents.allowed-types: Content-Types aceptados
+ */
+@Service
+@Traced
+public class DocumentFileService {
+
+    private final DocumentService documentService;
+    private final BlobStore blobStore;
+    private final long maxFileSize;
+    private final AllowedMediaTypes allowedTypes;
+
+    public DocumentFileService(DocumentService documentService,
+                               BlobStore blobStore,
+                               @Value("${keepup.documents.max-file-size:20MB}") DataSize maxFileSize,
+                               @Value("${keepup.documents.allowed-types:application/pdf,image/jpeg,image/png,image/webp,image/heic}")
+                               Set<String> allowedTypes) {
+        this.documentService = documentService;
+        this.blobStore = blobStore;
+        this.maxFileSize = maxFileSize.toBytes();
+        this.allowedTypes = new AllowedMediaTypes(allowedTypes);
+    }
+
+    /**
+     * Guardar (o reemplazar) el archivo escaneado de un documento.
+     *
+     * @param vehicleId ID del vehículo
+     * @param id ID del documento
+     * @param body Cuerpo de la petición con el contenido del archivo
+     * @param contentType Content-Type del archivo
+     * @param declaredLength Content-Length de la petición (-1 si no se conoce)
+     * @param fileName Nombre original del archivo
+     * @param expectedSha256 SHA-256 declarado por el cliente, o null para no verificar
+     * @param authenticatedUserId ID del usuario autenticado
+     * @return DocumentDTO con los metadatos del archivo
+     * @throws ResourceNotFoundException si el vehículo o el documento no existen o no pertenecen al usuario
+     * @throws UnsupportedMediaTypeException si el Content-Type no está permitido
+     * @throws PayloadTooLargeException si el archivo supera el tamaño máximo
+     */
+    public DocumentDTO upload(Long vehicleId, Long id, InputStream body, String contentType, long declaredLength,
+                              String fileName, String expectedSha256, Long authenticatedUserId) throws IOException {
+        // Validar antes de leer el cuerpo: una petición ajena o inválida no escribe nada en disco
+        documentService.getById(vehicleId, id, authenticatedUserId);
+        String acceptedType = checkAcceptable(contentType, declaredLength);
+
+        return attach(vehicleId, id, body, acceptedType, fileName, expectedSha256, authenticatedUserId);
+    }
+
+    /**
+     * Validar tipo y tamaño de un archivo antes de recibirlo.
+     *
+     * @param contentType Content-Type del archivo
+     * @param length Tamaño declarado (-1 si no se conoce)
+     * @return Content-Type con el que se guarda el archivo (tipo/subtipo, sin parámetros)
+     * @throws UnsupportedMediaTypeException si el Content-Type no está permitido
+     * @throws PayloadTooLargeException si el archivo supera el tamaño máximo
+     */
+    public String checkAcceptable(String contentType, long length) {
+        String acceptedType = allowedTypes.match(contentType);
+        if (acceptedType == null) {
+            throw new UnsupportedMediaTypeException("Unsupported file type: " + contentType
+                    + ". Allowed: " + allowedTypes);
+        }
+        if (length > maxFileSize) {
+            throw new PayloadTooLargeException("File exceeds the maximum size of " + maxFileSize + " bytes");
+        }
+        return acceptedType;
+    }
+
+    /**
+     * Guardar un contenido ya validado en el almacén de blobs y asociarlo al documento.
+     * El contenido se deduplica por SHA-256: si ya existe, el staging se descarta.
+     */
+    DocumentDTO attach(Long vehicleId, Long id, InputStream content, String contentType, String fileName,
+                       String expectedSha256, Long authenticatedUserId) throws IOException {
+        StoredFile staged = blobStore.stage(content, contentType, maxFileSize, expectedSha256);
+        try {
+            return documentService.attachFile(vehicleId, id, staged, contentType, fileName, authenticatedUserId);
+        } catch (RuntimeException e) {
+            blobStore.discard(staged);
+            throw e;
+        }
+    }
+}
@@ -1,4 +1,335 @@
 package com.keepup.vehicle.service;
 
+import com.keepup.core.exception.ResourceNotFoundException;
+import com.keepup.core.storage.BlobStore;
+import com.keepup.core.storage.FileDownload;
+import com.keepup.core.storage.LocalFileStorage;
+import com.keepup.core.storage.StoredBlob;
+import com.keepup.core.storage.StoredFile;
+import com.keepup.core.tracing.Traced;
+import com.keepup.vehicle.cache.VehicleOwnershipCache;
+import com.keepup.vehicle.dto.DateCursor;
+import com.keepup.vehicle.dto.DocumentDTO;
+import com.keepup.vehicle.dto.DocumentExpiryPage;
+import com.keepup.vehicle.dto.DocumentExpiryView;
+import com.keepup.vehicle.dto.VehiclePage;
+import com.keepup.vehicle.entity.Document;
+import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.event.DocumentExpiryChangedEvent;
+import com.keepup.vehicle.mapper.DocumentMapper;
+import com.keepup.vehicle.repository.DocumentRepository;
+import com.keepup.vehicle.repository.VehicleRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Servicio de documentos de vehículos (SOAT, revisión técnico-mecánica, seguros...).
+ *
+ * Las operaciones CRUD están restringidas a vehículos del usuario autenticado.
+ * Cada cambio que puede mover el próximo vencimiento del vehículo lo recalcula con una sola
+ * sentencia (VehicleRepository.refreshNextDocumentExpiry) y publica un
+ * {@link DocumentExpiryChangedEvent} para el scheduler de avisos.
+ *
+ * Los recorridos por vencimiento ({@link #findExpiring}) cruzan todos los usuarios y están
+ * pensados para procesos internos (alertas), no para exponerse directamente al cliente.
+ */
+@Service
+@Traced
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class DocumentService {
+
+    // Tamaño máximo de página en los recorridos por vencimiento
+    public static final int MAX_PAGE_SIZE = 1000;
+    // Tamaño máximo (y por defecto) de página del listado de un vehículo
+    public static final int MAX_LIST_PAGE_SIZE = 100;
+
+    private final DocumentRepository documentRepository;
+    private final VehicleRepository vehicleRepository;
+    private final VehicleOwnershipCache ownershipCache;
+    private final DocumentMapper documentMapper;
+    private final BlobStore blobStore;
+    private final LocalFileStorage fileStorage;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Registrar un documento para un vehículo del usuario autenticado.
+     *
+     * @param vehicleId ID del vehículo
+     * @param dto Datos del documento
+     * @param authenticatedUserId ID del usuario autenticado
+     * @return DocumentDTO con los datos del documento creado
+     * @throws ResourceNotFoundException si el vehículo no existe o no pertenece al usuario
+     */
+    @Transactional
+    public DocumentDTO create(Long vehicleId, DocumentDTO dto, Long authenticatedUserId) {
+        Vehicle vehicle = findOwnedVehicle(vehicleId, authenticatedUserId);
+
+        Document document = documentMapper.toEntity(dto);
+        document.setVehicle(vehicle);
+        Document saved = documentRepository.save(document);
+
+        if (isEarlier(saved.getExpiryDate(), vehicle.getNextDocumentExpiry())) {
+            vehicleRepository.refreshNextDocumentExpiry(vehicleId, LocalDateTime.now());
+        }
+        eventPublisher.publishEvent(new DocumentExpiryChangedEvent(saved.getId(), authenticatedUserId, null, saved.getExpiryDate()));
+        return documentMapper.toDto(saved);
+    }
+
+    /**
+     * Obtener los documentos de un vehículo del usuario autenticado, ordenados por vencimiento.
+     *
+     * @param vehicleId ID del vehículo
+     * @param after Cursor next de la página anterior, o null para la primera
+     * @param limit Tamaño de página (por defecto y como máximo {@link #MAX_LIST_PAGE_SIZE})
+     * @param authenticatedUserId ID del usuario autenticado
+     * @return Página de documentos (puede estar vacía)
+     * @throws ResourceNotFoundException si el vehículo no existe o no pertenece al usuario
+     */
+    public VehiclePage<DocumentDTO> getAll(Long vehicleId, DateCursor after, Integer limit, Long authenticatedUserId) {
+        ownershipCache.requireOwned(vehicleId, authenticatedUserId);
+
+        int pageSize = limit != null ? Math.clamp(limit, 1, MAX_LIST_PAGE_SIZE) : MAX_LIST_PAGE_SIZE;
+        Limit fetch = Limit.of(pageSize + 1);
+        List<Document> rows = after == null
+                ? documentRepository.findByVehicleIdOrderByExpiryDate(vehicleId, fetch)
+                : documentRepository.findByVehicleIdAfter(vehicleId, after.date(), after.id(), fetch);
+        return VehiclePage.of(rows, pageSize, DocumentService::position, documentMapper::toDto);
+    }
+
+    /**
+     * Posición de un documento en el listado de su vehículo (por vencimiento).
+     */
+    public static DateCursor position(Document document) {
+        return new DateCursor(document.getExpiryDate(), document.getId());
+    }
+
+    /**
+     * Obtener un documento de un vehículo del usuario autenticado.
+     *
+     * @param vehicleId ID del vehículo
+     * @param id ID del documento
+     * @param authenticatedUserId ID del usuario autenticado
+     * @return DocumentDTO con los datos del documento
+     * @throws ResourceNotFoundException si el vehículo o el documento no existen o no pertenecen al usuario
+     */
+    public DocumentDTO getById(Long vehicleId, Long id, Long authenticatedUserId) {
+        ownershipCache.requireOwned(vehicleId, authenticatedUserId);
+
+        return documentMapper.toDto(findDocument(vehicleId, id));
+    }
+
+    /**
+     * Actualizar un documento de un vehículo del usuario autenticado.
+     *
+     * @param vehicleId ID del vehículo
+     * @param id ID del documento
+     * @param dto Nuevos datos del documento
+     * @param authenticatedUserId ID del usuario autenticado
+     * @return DocumentDTO con los datos actualizados
+     * @throws ResourceNotFoundException si el vehículo o el documento no existen o no pertenecen al usuario
+     */
+    @Transactional
+    public DocumentDTO update(Long vehicleId, Long id, DocumentDTO dto, Long authenticatedUserId) {
+        Vehicle vehicle = findOwnedVehicle(vehicleId, authenticatedUserId);
+        Document document = findDocument(vehicleId, id);
+
+        LocalDate previousExpiry = document.getExpiryDate();
+        documentMapper.updateEntityFromDto(dto, document);
+        Document saved = documentRepository.save(document);
+
+        // Solo cambia el próximo vencimiento si el documento era el mínimo o pasa a serlo
+        if (!Objects.equals(previousExpiry, saved.getExpiryDate())
+                && (Objects.equals(previousExpiry, vehicle.getNextDocumentExpiry())
+                || isEarlier(saved.getExpiryDate(), vehicle.getNextDocumentExpiry()))) {
+            vehicleRepository.refreshNextDocumentExpiry(vehicleId, LocalDateTime.now());
+        }
+        if (!Objects.equals(previousExpiry, saved.getExpiryDate())) {
+            eventPublisher.publishEvent(new DocumentExpiryChangedEvent(id, authenticatedUserId, previousExpiry, saved.getExpiryDate()));
+        }
+        return documentMapper.toDto(saved);
+    }
+
+    /**
+     * Eliminar un documento de un vehículo del usuario autenticado.
+     *
+     * @param vehicleId ID del vehículo
+     * @param id ID del documento
+     * @param authenticatedUserId ID del usuario autenticado
+     * @throws ResourceNotFoundException si el vehículo o el documento no existen o no pertenecen al usuario
+     */
+    @Transactional
+    public void delete(Long vehicleId, Long id, Long authenticatedUserId) {
+        Vehicle vehicle = findOwnedVehicle(vehicleId, authenticatedUserId);
+        Document document = findDocument(vehicleId, id);
+
+        documentRepository.delete(document);
+        blobStore.release(document.getFileSha256(), 1);
+
+        if (Objects.equals(document.getExpiryDate(), vehicle.getNextDocumentExpiry())) {
+            vehicleRepository.refreshNextDocumentExpiry(vehicleId, LocalDateTime.now());
+        }
+        eventPublisher.publishEvent(new DocumentExpiryChangedEvent(id, authenticatedUserId, document.getExpiryDate(), null));
+    }
+
+    /**
+     * Asociar un archivo en staging a un documento, reemplazando el anterior.
+     * La referencia al blob nuevo y la liberación del anterior confirman junto con el documento.
+     *
+     * @param vehicleId ID del vehículo
+     * @param id ID del documento
+     * @param staged Archivo escrito por BlobStore.stage
+     * @param contentType Content-Type del archivo
+     * @param fileName Nombre original del archivo
+     * @param authenticatedUserId ID del usuario autenticado
+     * @return DocumentDTO con los metadatos del archivo
+     * @throws ResourceNotFoundException si el vehículo o el documento no existen o no pertenecen al usuario
+     */
+    @Transactional
+    public DocumentDTO attachFile(Long vehicleId, Long id, StoredFile staged, String contentType, String fileName,
+                                  Long authenticatedUserId) {
+        ownershipCache.requireOwned(vehicleId, authenticatedUserId);
+        Document document = findDocument(vehicleId, id);
+
+        blobStore.acquire(staged);
+        blobStore.release(document.getFileSha256(), 1);
+
+        document.setFileName(fileName);
+        document.setFileContentType(contentType);
+        document.setFileSize(staged.size());
+        document.setFileSha256(staged.sha256());
+        return documentMapper.toDto(documentRepository.save(document));
+    }
+
+    /**
+     * Obtener el archivo escaneado de un documento para descargarlo.
+     *
+     * @param vehicleId ID del vehículo
+     * @param id ID del documento
+     * @param authenticatedUserId ID del usuario autenticado
+     * @return Ubicación y metadatos del archivo
+     * @throws ResourceNotFoundException si el documento no existe, no pertenece al usuario o no tiene archivo
+     */
+    public FileDownload getFile(Long vehicleId, Long id, Long authenticatedUserId) {
+        ownershipCache.requireOwned(vehicleId, authenticatedUserId);
+        Document document = findDocument(vehicleId, id);
+        StoredBlob blob = Optional.ofNullable(document.getFileSha256())
+                .flatMap(blobStore::find)
+                .orElseThrow(() -> new ResourceNotFoundException("Document file", id));
+
+        return new FileDownload(
+                fileStorage.resolve(blobStore.blobKey(blob.getSha256())),
+                blob.getSize(),
+                blob.getSha256(),
+                document.getFileContentType(),
+                document.getFileName(),
+                // Datos personales: solo caché privada, revalidando con el ETag
+                "private, no-cache",
+                blob.isCompressed(),
+                blob.getStoredSize()
+        );
+    }
+
+    /**
+     * Próximos vencimientos de todos los vehículos del usuario autenticado.
+     *
+     * @param from Primera fecha de vencimiento incluida
+     * @param to Última fecha de vencimiento incluida
+     * @param limit Máximo de documentos (se limita a {@link #MAX_PAGE_SIZE})
+     * @return Documentos en orden de vencimiento
+     */
+    public List<DocumentExpiryView> getUpcoming(LocalDate from, LocalDate to, int limit, Long authenticatedUserId) {
+        return documentRepository.findUpcomingByUserId(authenticatedUserId, from, to,
+                Limit.of(Math.clamp(limit, 1, MAX_PAGE_SIZE)));
+    }
+
+    /**
+     * Recorrer (de todos los usuarios) los documentos que vencen entre dos fechas, paginado por keyset.
+     *
+     * @param from Primera fecha de vencimiento incluida
+     * @param to Última fecha de vencimiento incluida
+     * @param after Cursor devuelto por la página anterior, o null para la primera página
+     * @param limit Tamaño de página (se limita a {@link #MAX_PAGE_SIZE})
+     * @return Página de documentos en orden (expiryDate, documentId) y cursor de la siguiente
+     */
+    public DocumentExpiryPage findExpiring(LocalDate from, LocalDate to, DocumentExpiryPage.Cursor after, int limit) {
+        return findExpiring(from, to, null, 1, after, limit);
+    }
+
+    /**
+     * Igual que {@link #findExpiring(LocalDate, LocalDate, DocumentExpiryPage.Cursor, int)}, pero solo
+     * de los usuarios cuyo id módulo partitionCount está en partitions (el reparto entre nodos de
+     * {@link com.keepup.core.lease.JobLeaseManager#partitionOf}).
+     *
+     * @param partitions Particiones incluidas, o null para todas
+     * @param partitionCount Número total de particiones (divisor de {@link Document#OWNER_BUCKETS})
+     * @throws IllegalArgumentException si partitionCount no divide el número de cubetas
+     */
+    public DocumentExpiryPage findExpiring(LocalDate from, LocalDate to, Collection<Integer> partitions,
+                                           int partitionCount, DocumentExpiryPage.Cursor after, int limit) {
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        LocalDate afterDate = after != null && after.expiryDate().isAfter(from) ? after.expiryDate() : from;
+        long afterId = after != null && afterDate.equals(after.expiryDate()) ? after.documentId() : 0L;
+
+        List<DocumentExpiryView> items = partitions == null
+                ? documentRepository.findExpiringAfter(afterDate, afterId, to, Limit.of(pageSize))
+                : partitions.isEmpty() ? List.of()
+                : documentRepository.findExpiringAfterInBuckets(
+                        afterDate, afterId, to, ownerBuckets(partitions, partitionCount), Limit.of(pageSize));
+
+        DocumentExpiryPage.Cursor next = null;
+        if (items.size() == pageSize) {
+            DocumentExpiryView last = items.get(items.size() - 1);
+            next = new DocumentExpiryPage.Cursor(last.expiryDate(), last.documentId());
+        }
+        return new DocumentExpiryPage(items, next);
+    }
+
+    /**
+     * Cubetas de dueño de unas particiones: con N divisor de OWNER_BUCKETS, MOD(user_id, N) = p
+     * equivale a que MOD(user_id, OWNER_BUCKETS) sea p, p + N, p + 2N...
+     */
+    static List<Integer> ownerBuckets(Collection<Integer> partitions, int partitionCount) {
+        if (partitionCount < 1 || Document.OWNER_BUCKETS % partitionCount != 0) {
+            throw new IllegalArgumentException("Partition count " + partitionCount + " must divide "
+                    + Document.OWNER_BUCKETS);
+        }
+        List<Integer> buckets = new ArrayList<>();
+        for (int partition : partitions) {
+            for (int bucket = partition; bucket < Document.OWNER_BUCKETS; bucket += partitionCount) {
+                buckets.add(bucket);
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Vehículo del usuario, para las operaciones que necesitan su próximo vencimiento.
+     * La propiedad se comprueba en memoria; la carga es por clave primaria.
+     */
+    private Vehicle findOwnedVehicle(Long vehicleId, Long authenticatedUserId) {
+        ownershipCache.requireOwned(vehicleId, authenticatedUserId);
+        return vehicleRepository.findById(vehicleId)
+                .orElseThrow(() -> new ResourceNotFoundException("Vehicle", vehicleId));
+    }
+
+    private Document findDocument(Long vehicleId, Long id) {
+        return documentRepository.findByIdAndVehicleId(id, vehicleId)
+                .orElseThrow(() -> new ResourceNotFoundException("Document", id));
+    }
+
+    private static boolean isEarlier(LocalDate candidate, LocalDate current) {
+        return current == null || candidate.isBefore(current);
+    }
 }
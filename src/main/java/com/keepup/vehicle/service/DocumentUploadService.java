@@ -0,0 +1,397 @@
+package com.keepup.vehicle.service;
+
+import com.keepup.core.exception.ConflictException;
+import com.keepup.core.exception.PayloadTooLargeException;
+import com.keepup.core.exception.ResourceNotFoundException;
+import com.keepup.core.exception.TooManyRequestsException;
+import com.keepup.core.lease.JobLeaseManager;
+import com.keepup.core.storage.LocalFileStorage;
+import com.keepup.core.tracing.Traced;
+import com.keepup.vehicle.dto.DocumentDTO;
+import com.keepup.vehicle.dto.UploadSessionDTO;
+import com.keepup.vehicle.dto.UploadSessionRequest;
+import com.keepup.vehicle.entity.UploadSession;
+import com.keepup.vehicle.repository.UploadSessionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Subidas reanudables del archivo de un documento, para clientes móviles con conexiones inestables.
+ *
+ * Protocolo:
+ * 1. Crear la sesión con el tamaño total y el tipo del archivo.
+ * 2. Enviar fragmentos con PUT y la cabecera Upload-Offset (debe coincidir con el offset confirmado).
+ * 3. Si la conexión se corta, consultar el offset con GET y continuar desde ahí.
+ * 4. Finalizar: el archivo completo pasa al almacén de blobs y se asocia al documento.
+ *
+ * Los fragmentos se escriben con FileChannel en la posición indicada usando buffers de un pool
+ * fijo, tomando un buffer por cada ciclo de lectura y escritura: la memoria en vuelo está acotada
+ * a buffer-count x buffer-size sin importar cuántas subidas haya; si no hay buffer libre en
+ * buffer-wait-ms se responde 429 (confirmando lo ya escrito). Si el cliente se desconecta en mitad de
+ * un fragmento, lo ya escrito se confirma para no tener que reenviarlo.
+ *
+ * Las sesiones caducan (keepup.uploads.ttl desde el último fragmento) y un barrido periódico
+ * borra sus archivos parciales. Con varios nodos cada uno barre solo las sesiones de las
+ * particiones (por rango del id) que tiene arrendadas en el job "upload-cleanup".
+ *
+ * Configuración:
+ * - keepup.uploads.ttl (PT24H)
+ * - keepup.uploads.max-chunk-size (8MB)
+ * - keepup.uploads.buffer-count (32) y keepup.uploads.buffer-size (64KB)
+ * - keepup.uploads.buffer-wait-ms: espera máxima por un buffer libre (2000)
+ * - keepup.uploads.cleanup-interval (PT15M)
+ * - keepup.uploads.cleanup-partitions: particiones del barrido entre nodos (16)
+ */
+@Slf4j
+@Service
+@Traced
+public class DocumentUploadService {
+
+    public static final String UPLOAD_OFFSET_HEADER = "Upload-Offset";
+
+    private static final String PARTS = "uploads";
+    private static final int CLEANUP_BATCH_SIZE = 500;
+    private static final String CLEANUP_JOB = "upload-cleanup";
+
+    private final DocumentService documentService;
+    private final DocumentFileService documentFileService;
+    private final UploadSessionRepository sessionRepository;
+    private final LocalFileStorage fileStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final JobLeaseManager leaseManager;
+    private final Duration ttl;
+    private final long maxChunkSize;
+    private final long bufferWaitMillis;
+    private final int cleanupPartitions;
+
+    // Pool de buffers: limita la memoria usada por fragmentos en vuelo
+    private final BlockingQueue<ByteBuffer> buffers;
+    // Sesiones con un fragmento escribiéndose en esta instancia
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+
+    public DocumentUploadService(DocumentService documentService,
+                                 DocumentFileService documentFileService,
+                                 UploadSessionRepository sessionRepository,
+                                 LocalFileStorage fileStorage,
+                                 PlatformTransactionManager transactionManager,
+                                 JobLeaseManager leaseManager,
+                                 @Value("${keepup.uploads.ttl:PT24H}") Duration ttl,
+                                 @Value("${keepup.uploads.max-chunk-size:8MB}") DataSize maxChunkSize,
+                                 @Value("${keepup.uploads.buffer-count:32}") int bufferCount,
+                                 @Value("${keepup.uploads.buffer-size:64KB}") DataSize bufferSize,
+                                 @Value("${keepup.uploads.buffer-wait-ms:2000}") long bufferWaitMillis,
+                                 @Value("${keepup.uploads.cleanup-partitions:16}") int cleanupPartitions) {
+        this.documentService = documentService;
+        this.documentFileService = documentFileService;
+        this.sessionRepository = sessionRepository;
+        this.fileStorage = fileStorage;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.maxChunkSize = maxChunkSize.toBytes();
+        this.bufferWaitMillis = bufferWaitMillis;
+        this.leaseManager = leaseManager;
+        this.cleanupPartitions = cleanupPartitions;
+        this.buffers = new ArrayBlockingQueue<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            buffers.add(ByteBuffer.allocate((int) bufferSize.toBytes()));
+        }
+    }
+
+    /**
+     * Registrar el barrido en el reparto entre nodos, con la aplicación ya lista (ver BlobStore#start).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        leaseManager.register(CLEANUP_JOB, cleanupPartitions, null);
+    }
+
+    /**
+     * Iniciar una subida reanudable para un documento del usuario autenticado.
+     *
+     * @param vehicleId ID del vehículo
+     * @param documentId ID del documento
+     * @param request Tipo, nombre y tamaño total del archivo
+     * @param authenticatedUserId ID del usuario autenticado
+     * @return Estado inicial de la sesión (offset 0)
+     * @throws ResourceNotFoundException si el vehículo o el documento no existen o no pertenecen al usuario
+     */
+    public UploadSessionDTO create(Long vehicleId, Long documentId, UploadSessionRequest request,
+                                   Long authenticatedUserId) throws IOException {
+        documentService.getById(vehicleId, documentId, authenticatedUserId);
+        String contentType = documentFileService.checkAcceptable(request.getContentType(), request.getLength());
+
+        UploadSession session = UploadSession.builder()
+                .id(UUID.randomUUID().toString())
+                .documentId(documentId)
+                .vehicleId(vehicleId)
+                .userId(authenticatedUserId)
+                .contentType(contentType)
+                .fileName(request.getFileName() != null && !request.getFileName().isBlank()
+                        ? request.getFileName() : "document")
+                .totalLength(request.getLength())
+                .committedOffset(0L)
+                .expiresAt(LocalDateTime.now().plus(ttl))
+                .build();
+        UploadSession saved = transactionTemplate.execute(status -> sessionRepository.save(session));
+
+        // El archivo parcial se crea con la sesión ya confirmada: si falla, se borra la sesión y
+        // no queda ningún archivo sin dueño que el barrido no llegaría a ver
+        try {
+            Path part = partPath(session.getId());
+            Files.createDirectories(part.getParent());
+            Files.createFile(part);
+        } catch (IOException | RuntimeException e) {
+            transactionTemplate.executeWithoutResult(status -> sessionRepository.deleteById(session.getId()));
+            throw e;
+        }
+        return toDto(saved);
+    }
+
+    /**
+     * Consultar el offset confirmado de una subida (para reanudarla).
+     *
+     * @throws ResourceNotFoundException si la sesión no existe, venció o no pertenece al usuario
+     */
+    @Transactional(readOnly = true)
+    public UploadSessionDTO getStatus(Long vehicleId, Long documentId, String uploadId, Long authenticatedUserId) {
+        return toDto(findActive(vehicleId, documentId, uploadId, authenticatedUserId));
+    }
+
+    /**
+     * Escribir un fragmento en la posición offset del archivo parcial.
+     * Sin transacción abierta mientras se reciben los bytes.
+     *
+     * @param offset Valor de Upload-Offset (debe ser el offset confirmado)
+     * @param body Cuerpo de la petición con el fragmento
+     * @param contentLength Content-Length del fragmento (-1 si no se conoce)
+     * @return Estado de la sesión con el nuevo offset
+     * @throws ConflictException si el offset no coincide (con el offset actual en Upload-Offset) o hay
+     *         otro fragmento en curso
+     * @throws PayloadTooLargeException si el fragmento supera el máximo o el tamaño declarado
+     * @throws TooManyRequestsException si no hay buffers libres
+     */
+    public UploadSessionDTO writeChunk(Long vehicleId, Long documentId, String uploadId, long offset,
+                                       InputStream body, long contentLength, Long authenticatedUserId)
+            throws IOException {
+        UploadSession session = findActive(vehicleId, documentId, uploadId, authenticatedUserId);
+        if (offset != session.getCommittedOffset()) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(UPLOAD_OFFSET_HEADER, String.valueOf(session.getCommittedOffset()));
+            throw new ConflictException("Upload offset mismatch: expected " + session.getCommittedOffset(), headers);
+        }
+        long remaining = session.getTotalLength() - offset;
+        if (contentLength > maxChunkSize || contentLength > remaining) {
+            throw new PayloadTooLargeException("Chunk exceeds the maximum of "
+                    + Math.min(maxChunkSize, remaining) + " bytes");
+        }
+        long limit = Math.min(maxChunkSize, remaining);
+
+        if (!inProgress.add(uploadId)) {
+            throw new ConflictException("Another chunk is being written for this upload");
+        }
+        try {
+            long written = 0;
+            try (FileChannel channel = FileChannel.open(partPath(uploadId), StandardOpenOption.WRITE)) {
+                channel.position(offset);
+                int read;
+                do {
+                    // Un buffer por ciclo de lectura y escritura: entre ciclos vuelve al pool y
+                    // las subidas concurrentes se reparten los buffers en lugar de esperar a que
+                    // termine un fragmento entero
+                    ByteBuffer buffer = acquireBuffer();
+                    try {
+                        read = body.read(buffer.array());
+                        if (read > 0) {
+                            if (written + read > limit) {
+                                throw new PayloadTooLargeException("Chunk exceeds the maximum of " + limit + " bytes");
+                            }
+                            buffer.clear().limit(read);
+                            while (buffer.hasRemaining()) {
+                                channel.write(buffer);
+                            }
+                            written += read;
+                        }
+                    } finally {
+                        buffers.offer(buffer);
+                    }
+                } while (read != -1);
+                channel.force(false);
+            } catch (IOException | TooManyRequestsException e) {
+                // Conexión cortada o sin buffer libre: se confirma lo que sí llegó a disco para
+                // reanudar desde ahí
+                commitPartial(uploadId, offset, written);
+                throw e;
+            }
+
+            session.setCommittedOffset(advance(uploadId, offset, offset + written));
+            session.setExpiresAt(LocalDateTime.now().plus(ttl));
+            return toDto(session);
+        } finally {
+            inProgress.remove(uploadId);
+        }
+    }
+
+    /**
+     * Finalizar una subida completa: el archivo pasa al almacén de blobs y se asocia al documento.
+     *
+     * @param expectedSha256 SHA-256 declarado por el cliente, o null para no verificar
+     * @return DocumentDTO con los metadatos del archivo
+     * @throws ConflictException si aún faltan bytes o hay un fragmento en curso
+     */
+    public DocumentDTO complete(Long vehicleId, Long documentId, String uploadId, String expectedSha256,
+                                Long authenticatedUserId) throws IOException {
+        UploadSession session = findActive(vehicleId, documentId, uploadId, authenticatedUserId);
+        if (session.getCommittedOffset() < session.getTotalLength()) {
+            throw new ConflictException("Upload is incomplete: received " + session.getCommittedOffset()
+                    + " of " + session.getTotalLength() + " bytes");
+        }
+        if (!inProgress.add(uploadId)) {
+            throw new ConflictException("Another chunk is being written for this upload");
+        }
+        try {
+            DocumentDTO document;
+            try (InputStream content = Files.newInputStream(partPath(uploadId))) {
+                document = documentFileService.attach(vehicleId, documentId, content, session.getContentType(),
+                        session.getFileName(), expectedSha256, authenticatedUserId);
+            }
+            remove(uploadId);
+            return document;
+        } finally {
+            inProgress.remove(uploadId);
+        }
+    }
+
+    /**
+     * Cancelar una subida y borrar su archivo parcial.
+     */
+    @Transactional
+    public void abort(Long vehicleId, Long documentId, String uploadId, Long authenticatedUserId) {
+        findActive(vehicleId, documentId, uploadId, authenticatedUserId);
+        sessionRepository.deleteById(uploadId);
+        fileStorage.deleteAfterCommit(partKey(uploadId));
+    }
+
+    /**
+     * Barrido de sesiones vencidas y sus archivos parciales.
+     */
+    @Scheduled(initialDelayString = "${keepup.uploads.cleanup-interval:PT15M}",
+            fixedDelayString = "${keepup.uploads.cleanup-interval:PT15M}")
+    public void cleanupExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int removed = 0;
+        for (int partition : leaseManager.claim(CLEANUP_JOB)) {
+            // Los ids son UUID: el primer byte en hexadecimal reparte las sesiones por igual
+            JobLeaseManager.KeyRange range = JobLeaseManager.hexRange(partition, cleanupPartitions);
+            List<String> expired;
+            do {
+                if (!leaseManager.holds(CLEANUP_JOB, partition)) {
+                    break;
+                }
+                expired = sessionRepository.findExpired(now, range.from(), range.to(), Limit.of(CLEANUP_BATCH_SIZE));
+                for (String uploadId : expired) {
+                    if (inProgress.contains(uploadId)) {
+                        continue;
+                    }
+                    Integer deleted = transactionTemplate.execute(status -> sessionRepository.deleteExpired(uploadId, now));
+                    if (deleted != null && deleted == 1) {
+                        fileStorage.delete(partKey(uploadId));
+                        removed++;
+                    }
+                }
+            } while (expired.size() == CLEANUP_BATCH_SIZE);
+        }
+
+        if (removed > 0) {
+            log.info("Removed {} expired upload sessions", removed);
+        }
+    }
+
+    private UploadSession findActive(Long vehicleId, Long documentId, String uploadId, Long authenticatedUserId) {
+        return sessionRepository.findActive(uploadId, documentId, vehicleId, authenticatedUserId, LocalDateTime.now())
+                .orElseThrow(() -> new ResourceNotFoundException("Upload", uploadId));
+    }
+
+    private ByteBuffer acquireBuffer() {
+        try {
+            ByteBuffer buffer = buffers.poll(bufferWaitMillis, TimeUnit.MILLISECONDS);
+            if (buffer == null) {
+                throw new TooManyRequestsException("Too many uploads in progress, retry later");
+            }
+            return buffer;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TooManyRequestsException("Upload interrupted, retry later");
+        }
+    }
+
+    private long advance(String uploadId, long expectedOffset, long newOffset) {
+        Integer updated = transactionTemplate.execute(status -> sessionRepository.advance(
+                uploadId, expectedOffset, newOffset, LocalDateTime.now().plus(ttl)));
+        if (updated == null || updated == 0) {
+            throw new ConflictException("Upload was modified concurrently, query the offset and retry");
+        }
+        return newOffset;
+    }
+
+    private void commitPartial(String uploadId, long offset, long written) {
+        if (written == 0) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(partPath(uploadId), StandardOpenOption.WRITE)) {
+            channel.force(false);
+            advance(uploadId, offset, offset + written);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not commit partial chunk of upload {}: {}", uploadId, e.getMessage());
+        }
+    }
+
+    private void remove(String uploadId) {
+        transactionTemplate.executeWithoutResult(status -> sessionRepository.deleteById(uploadId));
+        fileStorage.delete(partKey(uploadId));
+    }
+
+    private Path partPath(String uploadId) {
+        return fileStorage.resolve(partKey(uploadId));
+    }
+
+    private static String partKey(String uploadId) {
+        return PARTS + "/" + uploadId + ".part";
+    }
+
+    private UploadSessionDTO toDto(UploadSession session) {
+        return UploadSessionDTO.builder()
+                .id(session.getId())
+                .documentId(session.getDocumentId())
+                .offset(session.getCommittedOffset())
+                .length(session.getTotalLength())
+                .expiresAt(session.getExpiresAt())
+                .build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.keepup.vehicle.service;
+
+import com.keepup.core.exception.BadRequestException;
+import com.keepup.core.tracing.Traced;
+import com.keepup.vehicle.analytics.ExpenseCube;
+import com.keepup.vehicle.analytics.ExpenseCubeCache;
+import com.keepup.vehicle.dto.ExpenseCubeQuery;
+import com.keepup.vehicle.dto.ExpenseCubeResult;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Análisis ad-hoc de los gastos del usuario autenticado: agrupa y filtra por vehículo, tipo,
+ * marca, modelo, año del vehículo, categoría y periodo sobre un cubo columnar en memoria
+ * ({@link ExpenseCube}), sin consultar la base de datos salvo en la primera carga.
+ *
+ * Los recorridos grandes se reparten en un ForkJoinPool propio para no competir con el pool
+ * común ni con los hilos de petición.
+ *
+ * Configuración:
+ * - keepup.analytics.parallelism: hilos del pool (0 = núcleos disponibles)
+ * - keepup.analytics.max-cubes: cubos en memoria (64)
+ */
+@Service
+@Traced
+public class ExpenseAnalyticsService {
+
+    private final ExpenseCubeCache cubeCache;
+    private final ForkJoinPool pool;
+
+    public ExpenseAnalyticsService(ExpenseCubeCache cubeCache,
+                                   @Value("${keepup.analytics.parallelism:0}") int parallelism) {
+        this.cubeCache = cubeCache;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Agregar los gastos del usuario autenticado.
+     *
+     * @param query Dimensiones de agrupación, filtros, rango de fechas y límite
+     * @param authenticatedUserId ID del usuario autenticado
+     * @return Totales por grupo, de mayor a menor
+     * @throws BadRequestException si un filtro es inválido o hay demasiados grupos
+     */
+    public ExpenseCubeResult query(ExpenseCubeQuery query, Long authenticatedUserId) {
+        return cubeCache.get(authenticatedUserId).aggregate(query, pool);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,346 @@
+package com.keepup.vehicle.service;
+
+import com.keepup.core.exception.BadRequestException;
+import com.keepup.core.exception.ConflictException;
+import com.keepup.core.tracing.Traced;
+import com.keepup.vehicle.analytics.ExpenseCubeStaleEvent;
+import com.keepup.vehicle.dto.ExpenseImportResult;
+import com.keepup.vehicle.entity.Expense;
+import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.enums.ExpenseCategory;
+import com.keepup.vehicle.repository.ExpenseRepository;
+import com.keepup.vehicle.repository.VehicleRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Importación masiva de gastos desde archivos CSV (extractos de tarjetas de combustible,
+ * facturación de talleres).
+ *
+ * Formato: primera línea de cabecera (sin importar mayúsculas ni orden), separador coma o punto y coma.
+ * - plate: placa del vehículo (obligatoria; se ignoran espacios y mayúsculas)
+ * - date: yyyy-MM-dd (obligatoria)
+ * - category: FUEL, TOLLS... (obligatoria)
+ * - amount: importe positivo con hasta 2 decimales (obligatoria)
+ * - reference: referencia única de la transacción en el origen (obligatoria)
+ * - description, odometer: opcionales
+ *
+ * El archivo se procesa en streaming por bloques de keepup.expenses.import.chunk-size filas, cada
+ * uno en su propia transacción: la memoria no depende del tamaño del archivo y una fila inválida
+ * no descarta el resto. Por bloque:
+ * - Una consulta resuelve todas sus placas entre los vehículos del usuario; las filas con placas
+ *   desconocidas se rechazan y se informan.
+ * - Una consulta devuelve qué referencias ya existen: reenviar un archivo (completo o tras un
+ *   fallo a mitad) no duplica gastos.
+ * - Los gastos se insertan en lotes JDBC y los acumulados mensuales se actualizan una vez por
+ *   vehículo, mes y categoría.
+ *
+ * Configuración:
+ * - keepup.expenses.import.chunk-size: filas por bloque y tamaño del lote JDBC (500)
+ * - keepup.expenses.import.max-reported-errors: filas rechazadas que se detallan (100)
+ */
+@Slf4j
+@Service
+@Traced
+public class ExpenseImportService {
+
+    private static final List<String> REQUIRED_COLUMNS = List.of("plate", "date", "category", "amount", "reference");
+
+    private static final int MAX_FIELD_LENGTH = 1024;
+    private static final int MAX_REFERENCE_LENGTH = 100;
+    private static final int MAX_DESCRIPTION_LENGTH = 255;
+    private static final BigDecimal MAX_AMOUNT = new BigDecimal("9999999999.99");
+
+    private final ExpenseRepository expenseRepository;
+    private final VehicleRepository vehicleRepository;
+    private final ExpenseRollupService rollupService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+
+    public ExpenseImportService(ExpenseRepository expenseRepository,
+                                VehicleRepository vehicleRepository,
+                                ExpenseRollupService rollupService,
+                                ApplicationEventPublisher eventPublisher,
+                                EntityManager entityManager,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${keepup.expenses.import.chunk-size:500}") int chunkSize,
+                                @Value("${keepup.expenses.import.max-reported-errors:100}") int maxReportedErrors) {
+        this.expenseRepository = expenseRepository;
+        this.vehicleRepository = vehicleRepository;
+        this.rollupService = rollupService;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    /**
+     * Importar gastos desde un CSV para los vehículos del usuario autenticado.
+     *
+     * @param body Contenido del archivo (UTF-8)
+     * @param authenticatedUserId ID del usuario autenticado
+     * @return Filas importadas, duplicadas y rechazadas
+     * @throws BadRequestException si el archivo está vacío, falta una columna obligatoria o el CSV está mal formado
+     * @throws ConflictException si otra importación simultánea insertó las mismas referencias
+     *                           (los bloques anteriores quedan importados; reenviar el archivo es seguro)
+     */
+    public ExpenseImportResult importCsv(InputStream body, Long authenticatedUserId) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String headerLine = reader.readLine();
+        if (headerLine != null && headerLine.startsWith("\uFEFF")) {
+            headerLine = headerLine.substring(1);
+        }
+        if (headerLine == null || headerLine.isBlank()) {
+            throw new BadRequestException("The file is empty");
+        }
+        char separator = CsvReader.detectSeparator(headerLine);
+        Map<String, Integer> columns = parseHeader(headerLine, separator);
+
+        CsvReader csv = new CsvReader(reader, separator, MAX_FIELD_LENGTH);
+        Progress progress = new Progress(maxReportedErrors);
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        long rowNumber = 0;
+        while (true) {
+            List<String> fields;
+            try {
+                fields = csv.next();
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Malformed CSV after row " + rowNumber + ": " + e.getMessage());
+            }
+            if (fields == null) {
+                break;
+            }
+            rowNumber++;
+            progress.rows++;
+            try {
+                chunk.add(parseRow(rowNumber, fields, columns));
+            } catch (IllegalArgumentException e) {
+                progress.reject(rowNumber, e.getMessage());
+            }
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, authenticatedUserId, progress);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, authenticatedUserId, progress);
+        }
+
+        log.info("Expense import for user {}: {} rows, {} imported, {} duplicates, {} rejected",
+                authenticatedUserId, progress.rows, progress.imported, progress.duplicates, progress.rejected);
+        return new ExpenseImportResult(progress.rows, progress.imported, progress.duplicates, progress.rejected,
+                List.copyOf(progress.errors), progress.rejected > progress.errors.size());
+    }
+
+    private void importChunk(List<ImportRow> rows, Long userId, Progress progress) {
+        ChunkOutcome outcome;
+        try {
+            outcome = transactionTemplate.execute(status -> {
+                Set<String> plates = rows.stream().map(ImportRow::plate).collect(Collectors.toSet());
+                Map<String, Vehicle> vehicles = vehicleRepository.findByUserIdAndLicensePlateIn(userId, plates)
+                        .stream()
+                        .collect(Collectors.toMap(Vehicle::getLicensePlate, Function.identity()));
+                // Referencias ya importadas; se amplía con las del bloque para detectar repetidas en el archivo
+                Set<String> seen = new HashSet<>(expenseRepository.findExistingExternalIds(userId,
+                        rows.stream().map(ImportRow::reference).collect(Collectors.toSet())));
+
+                List<Expense> expenses = new ArrayList<>(rows.size());
+                Map<RollupKey, BigDecimal> totals = new HashMap<>();
+                Map<RollupKey, Long> counts = new HashMap<>();
+                int duplicates = 0;
+                List<ImportRow> unknown = new ArrayList<>();
+                for (ImportRow row : rows) {
+                    Vehicle vehicle = vehicles.get(row.plate());
+                    if (vehicle == null) {
+                        unknown.add(row);
+                        continue;
+                    }
+                    if (!seen.add(row.reference())) {
+                        duplicates++;
+                        continue;
+                    }
+                    expenses.add(Expense.builder()
+                            .vehicle(vehicle)
+                            .userId(userId)
+                            .category(row.category())
+                            .amount(row.amount())
+                            .date(row.date())
+                            .description(row.description())
+                            .odometer(row.odometer())
+                            .externalId(row.reference())
+                            .build());
+                    RollupKey key = new RollupKey(vehicle.getId(), row.date().withDayOfMonth(1), row.category());
+                    totals.merge(key, row.amount(), BigDecimal::add);
+                    counts.merge(key, 1L, Long::sum);
+                }
+
+                // El tamaño de lote JDBC se fija para esta sesión, sin depender de la configuración global
+                entityManager.unwrap(Session.class).setJdbcBatchSize(chunkSize);
+                expenseRepository.saveAll(expenses);
+                entityManager.flush();
+                totals.forEach((key, total) ->
+                        rollupService.apply(key.vehicleId(), userId, key.monthStart(), key.category(), total, counts.get(key)));
+                if (!expenses.isEmpty()) {
+                    eventPublisher.publishEvent(new ExpenseCubeStaleEvent(userId));
+                }
+                // Con open-in-view el contexto de persistencia vive toda la petición: se vacía por bloque
+                entityManager.clear();
+                return new ChunkOutcome(expenses.size(), duplicates, unknown);
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw new ConflictException("Another import inserted the same references concurrently; "
+                    + progress.imported + " rows were imported before the conflict, re-send the file to continue");
+        }
+        progress.imported += outcome.imported();
+        progress.duplicates += outcome.duplicates();
+        outcome.unknownPlates().forEach(row -> progress.reject(row.rowNumber(), "Unknown license plate: " + row.plate()));
+    }
+
+    private static Map<String, Integer> parseHeader(String headerLine, char separator) throws IOException {
+        List<String> names;
+        try {
+            names = new CsvReader(new StringReader(headerLine), separator, MAX_FIELD_LENGTH).next();
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Malformed CSV header: " + e.getMessage());
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.putIfAbsent(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        List<String> missing = REQUIRED_COLUMNS.stream().filter(name -> !columns.containsKey(name)).toList();
+        if (!missing.isEmpty()) {
+            throw new BadRequestException("Missing required columns: " + String.join(", ", missing));
+        }
+        return columns;
+    }
+
+    /**
+     * @throws IllegalArgumentException con el motivo si la fila no es válida
+     */
+    private static ImportRow parseRow(long rowNumber, List<String> fields, Map<String, Integer> columns) {
+        String plate = field(fields, columns, "plate");
+        String date = field(fields, columns, "date");
+        String category = field(fields, columns, "category");
+        String amount = field(fields, columns, "amount");
+        String reference = field(fields, columns, "reference");
+        String description = field(fields, columns, "description");
+        String odometer = field(fields, columns, "odometer");
+
+        if (plate == null || date == null || category == null || amount == null || reference == null) {
+            throw new IllegalArgumentException("plate, date, category, amount and reference are required");
+        }
+        if (reference.length() > MAX_REFERENCE_LENGTH) {
+            throw new IllegalArgumentException("Reference must not exceed " + MAX_REFERENCE_LENGTH + " characters");
+        }
+        if (description != null && description.length() > MAX_DESCRIPTION_LENGTH) {
+            throw new IllegalArgumentException("Description must not exceed " + MAX_DESCRIPTION_LENGTH + " characters");
+        }
+
+        ExpenseCategory parsedCategory;
+        try {
+            parsedCategory = ExpenseCategory.valueOf(category.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid category: " + category);
+        }
+        LocalDate parsedDate;
+        try {
+            parsedDate = LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date (expected yyyy-MM-dd): " + date);
+        }
+        BigDecimal parsedAmount;
+        try {
+            // Admite coma decimal (archivos separados por punto y coma)
+            parsedAmount = new BigDecimal(amount.indexOf('.') < 0 ? amount.replace(',', '.') : amount);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: " + amount);
+        }
+        if (parsedAmount.signum() <= 0 || parsedAmount.scale() > 2 || parsedAmount.compareTo(MAX_AMOUNT) > 0) {
+            throw new IllegalArgumentException("Amount must be positive with at most 2 decimals: " + amount);
+        }
+        Integer parsedOdometer = null;
+        if (odometer != null) {
+            try {
+                parsedOdometer = Integer.valueOf(odometer);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid odometer: " + odometer);
+            }
+            if (parsedOdometer < 0) {
+                throw new IllegalArgumentException("Odometer must not be negative");
+            }
+        }
+
+        return new ImportRow(rowNumber, plate.replaceAll("\\s+", "").toUpperCase(Locale.ROOT), parsedDate,
+                parsedCategory, parsedAmount, reference, description, parsedOdometer);
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private record ImportRow(long rowNumber, String plate, LocalDate date, ExpenseCategory category,
+                             BigDecimal amount, String reference, String description, Integer odometer) {
+    }
+
+    private record ChunkOutcome(int imported, int duplicates, List<ImportRow> unknownPlates) {
+    }
+
+    private record RollupKey(Long vehicleId, LocalDate monthStart, ExpenseCategory category) {
+    }
+
+    private static final class Progress {
+
+        private final int maxErrors;
+        private final List<ExpenseImportResult.RowError> errors = new ArrayList<>();
+        private long rows;
+        private long imported;
+        private long duplicates;
+        private long rejected;
+
+        private Progress(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        void reject(long row, String reason) {
+            rejected++;
+            if (errors.size() < maxErrors) {
+                errors.add(new ExpenseImportResult.RowError(row, reason));
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.keepup.vehicle.service;
+
+import com.keepup.core.tracing.Traced;
+import com.keepup.vehicle.entity.Expense;
+import com.keepup.vehicle.enums.ExpenseCategory;
+import com.keepup.vehicle.repository.ExpenseRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Mantenimiento de los acumulados mensuales de gastos (ExpenseMonthlyRollup).
+ *
+ * Cada cambio en expense se traduce en deltas (+importe, +1) / (-importe, -1) sobre la fila de
+ * (vehículo, mes, categoría), aplicados con "update y, si no existe, insert":
+ * - UPDATE: el caso común, la fila del mes ya existe.
+ * - INSERT ... ON CONFLICT DO NOTHING: primer gasto del mes en esa categoría.
+ * - Si el INSERT no insertó, otra transacción creó la fila entre medias: se repite el UPDATE.
+ *
+ * Los métodos exigen una transacción abierta (la del gasto): el acumulado confirma o se deshace
+ * junto con él.
+ */
+@Slf4j
+@Service
+@Traced
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+public class ExpenseRollupService {
+
+    private final ExpenseRollupRepository rollupRepository;
+
+    /**
+     * Sumar un gasto nuevo a su acumulado.
+     */
+    public void add(Expense expense) {
+        apply(expense.getVehicle().getId(), expense.getUserId(), expense.getDate(), expense.getCategory(),
+                expense.getAmount(), 1);
+    }
+
+    /**
+     * Restar un gasto borrado (o el estado anterior de uno modificado) de su acumulado.
+     */
+    public void subtract(Long vehicleId, Long userId, LocalDate date, ExpenseCategory category, BigDecimal amount) {
+        apply(vehicleId, userId, date, category, amount.negate(), -1);
+    }
+
+    /**
+     * Aplicar un delta arbitrario (p. ej. la suma de varios gastos de una carga masiva).
+     *
+     * @param vehicleId ID del vehículo
+     * @param userId Propietario del vehículo
+     * @param date Cualquier fecha del mes
+     * @param category Categoría
+     * @param amount Importe a sumar (negativo para restar)
+     * @param count Número de gastos a sumar (negativo para restar)
+     */
+    public void apply(Long vehicleId, Long userId, LocalDate date, ExpenseCategory category,
+                      BigDecimal amount, long count) {
+        LocalDate monthStart = date.withDayOfMonth(1);
+        if (rollupRepository.addDelta(vehicleId, monthStart, category, amount, count) == 0
+                && rollupRepository.insertIfAbsent(vehicleId, monthStart, category.name(), userId, amount, count) == 0) {
+            rollupRepository.addDelta(vehicleId, monthStart, category, amount, count);
+        }
+    }
+
+    /**
+     * Recalcular todos los acumulados desde los gastos.
+     * Reemplaza la tabla completa en una transacción: los lectores ven los valores anteriores
+     * hasta que confirma.
+     *
+     * @return Número de acumulados creados
+     */
+    @Transactional
+    public int rebuild() {
+        int deleted = rollupRepository.deleteAllRollups();
+        int created = rollupRepository.insertFromExpenses();
+        log.info("Expense rollups rebuilt: {} removed, {} created", deleted, created);
+        return created;
+    }
+}
@@ -1,4 +1,304 @@
 package com.keepup.vehicle.service;
 
+import com.keepup.core.exception.BadRequestException;
+import com.keepup.core.exception.ResourceNotFoundException;
+import com.keepup.core.tracing.Traced;
+import com.keepup.vehicle.analytics.ExpenseChangedEvent;
+import com.keepup.vehicle.analytics.ExpenseFact;
+import com.keepup.vehicle.cache.VehicleOwnershipCache;
+import com.keepup.vehicle.dto.CategoryExpenseTotal;
+import com.keepup.vehicle.dto.DateCursor;
+import com.keepup.vehicle.dto.ExpenseDTO;
+import com.keepup.vehicle.dto.ExpenseSeries;
+import com.keepup.vehicle.dto.ExpenseSeriesPoint;
+import com.keepup.vehicle.dto.MonthlyExpenseTotal;
+import com.keepup.vehicle.dto.VehicleExpenseTotal;
+import com.keepup.vehicle.dto.VehiclePage;
+import com.keepup.vehicle.entity.Expense;
+import com.keepup.vehicle.enums.ExpenseCategory;
+import com.keepup.vehicle.enums.SeriesBucket;
+import com.keepup.vehicle.mapper.ExpenseMapper;
+import com.keepup.vehicle.repository.ExpenseRepository;
+import com.keepup.vehicle.repository.ExpenseRollupRepository;
+import com.keepup.vehicle.repository.VehicleRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Servicio de gastos de vehículos.
+ *
+ * Las operaciones CRUD están restringidas a vehículos del usuario autenticado y mantienen los
+ * acumulados mensuales ({@link ExpenseRollupService}) en la misma transacción. Cada cambio publica
+ * un {@link ExpenseChangedEvent} para que el cubo de análisis lo aplique al confirmar.
+ *
+ * Los totales del panel (por mes, por categoría, por vehículo) se calculan sobre los acumulados:
+ * el costo depende del número de meses del rango, no del número de gastos. Las series temporales
+ * agrupan en la base de datos con una sola consulta y devuelven un punto por intervalo.
+ */
+@Service
+@Traced
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class ExpenseService {
+
+    // Meses que cubren los totales cuando no se indica rango
+    public static final int DEFAULT_SUMMARY_MONTHS = 12;
+
+    // Máximo de puntos de una serie; por encima se usa un intervalo más grueso
+    public static final int MAX_SERIES_POINTS = 400;
+
+    // Tamaño máximo (y por defecto) de página del listado de un vehículo
+    public static final int MAX_LIST_PAGE_SIZE = 100;
+
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseRollupRepository rollupRepository;
+    private final ExpenseRollupService rollupService;
+    private final VehicleRepository vehicleRepository;
+    private final VehicleOwnershipCache ownershipCache;
+    private final ExpenseMapper expenseMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Registrar un gasto para un vehículo del usuario autenticado.
+     *
+     * @param vehicleId ID del vehículo
+     * @param dto Datos del gasto
+     * @param authenticatedUserId ID del usuario autenticado
+     * @return ExpenseDTO con los datos del gasto creado
+     * @throws ResourceNotFoundException si el vehículo no existe o no pertenece al usuario
+     */
+    @Transactional
+    public ExpenseDTO create(Long vehicleId, ExpenseDTO dto, Long authenticatedUserId) {
+        ownershipCache.requireOwned(vehicleId, authenticatedUserId);
+
+        Expense expense = expenseMapper.toEntity(dto);
+        // Referencia sin consulta: solo hace falta la clave foránea
+        expense.setVehicle(vehicleRepository.getReferenceById(vehicleId));
+        expense.setUserId(authenticatedUserId);
+        Expense saved = expenseRepository.save(expense);
+
+        rollupService.add(saved);
+        eventPublisher.publishEvent(new ExpenseChangedEvent(authenticatedUserId, null, ExpenseFact.of(saved)));
+        return expenseMapper.toDto(saved);
+    }
+
+    /**
+     * Obtener los gastos de un vehículo del usuario autenticado, los más recientes primero.
+     *
+     * @param vehicleId ID del vehículo
+     * @param after Cursor next de la página anterior, o null para la primera
+     * @param limit Tamaño de página (por defecto y como máximo {@link #MAX_LIST_PAGE_SIZE})
+     * @param authenticatedUserId ID del usuario autenticado
+     * @return Página de gastos (puede estar vacía)
+     * @throws ResourceNotFoundException si el vehículo no existe o no pertenece al usuario
+     */
+    public VehiclePage<ExpenseDTO> getAll(Long vehicleId, DateCursor after, Integer limit, Long authenticatedUserId) {
+        ownershipCache.requireOwned(vehicleId, authenticatedUserId);
+
+        int pageSize = limit != null ? Math.clamp(limit, 1, MAX_LIST_PAGE_SIZE) : MAX_LIST_PAGE_SIZE;
+        Limit fetch = Limit.of(pageSize + 1);
+        List<Expense> rows = after == null
+                ? expenseRepository.findByVehicleIdOrderByDateDesc(vehicleId, fetch)
+                : expenseRepository.findByVehicleIdBefore(vehicleId, after.date(), after.id(), fetch);
+        return VehiclePage.of(rows, pageSize, ExpenseService::position, expenseMapper::toDto);
+    }
+
+    /**
+     * Posición de un gasto en el listado de su vehículo (del más reciente al más antiguo).
+     */
+    public static DateCursor position(Expense expense) {
+        return new DateCursor(expense.getDate(), expense.getId());
+    }
+
+    /**
+     * Obtener un gasto de un vehículo del usuario autenticado.
+     *
+     * @throws ResourceNotFoundException si el vehículo o el gasto no existen o no pertenecen al usuario
+     */
+    public ExpenseDTO getById(Long vehicleId, Long id, Long authenticatedUserId) {
+        ownershipCache.requireOwned(vehicleId, authenticatedUserId);
+
+        return expenseMapper.toDto(findExpense(vehicleId, id));
+    }
+
+    /**
+     * Actualizar un gasto de un vehículo del usuario autenticado.
+     * El estado anterior se resta de su acumulado y el nuevo se suma al suyo (pueden ser de
+     * distinto mes o categoría).
+     *
+     * @throws ResourceNotFoundException si el vehículo o el gasto no existen o no pertenecen al usuario
+     */
+    @Transactional
+    public ExpenseDTO update(Long vehicleId, Long id, ExpenseDTO dto, Long authenticatedUserId) {
+        ownershipCache.requireOwned(vehicleId, authenticatedUserId);
+        Expense expense = findExpense(vehicleId, id);
+
+        ExpenseFact previous = ExpenseFact.of(expense);
+        LocalDate previousDate = expense.getDate();
+        ExpenseCategory previousCategory = expense.getCategory();
+        BigDecimal previousAmount = expense.getAmount();
+        expenseMapper.updateEntityFromDto(dto, expense);
+        Expense saved = expenseRepository.save(expense);
+
+        if (YearMonth.from(previousDate).equals(YearMonth.from(saved.getDate()))
+                && previousCategory == saved.getCategory()) {
+            // Misma fila de acumulado: solo cambia el importe
+            BigDecimal delta = saved.getAmount().subtract(previousAmount);
+            if (delta.signum() != 0) {
+                rollupService.apply(vehicleId, saved.getUserId(), saved.getDate(), saved.getCategory(), delta, 0);
+            }
+        } else {
+            rollupService.subtract(vehicleId, saved.getUserId(), previousDate, previousCategory, previousAmount);
+            rollupService.add(saved);
+        }
+        eventPublisher.publishEvent(new ExpenseChangedEvent(saved.getUserId(), previous, ExpenseFact.of(saved)));
+        return expenseMapper.toDto(saved);
+    }
+
+    /**
+     * Eliminar un gasto de un vehículo del usuario autenticado.
+     *
+     * @throws ResourceNotFoundException si el vehículo o el gasto no existen o no pertenecen al usuario
+     */
+    @Transactional
+    public void delete(Long vehicleId, Long id, Long authenticatedUserId) {
+        ownershipCache.requireOwned(vehicleId, authenticatedUserId);
+        Expense expense = findExpense(vehicleId, id);
+
+        expenseRepository.delete(expense);
+        rollupService.subtract(vehicleId, expense.getUserId(), expense.getDate(), expense.getCategory(),
+                expense.getAmount());
+        eventPublisher.publishEvent(new ExpenseChangedEvent(expense.getUserId(), ExpenseFact.of(expense), null));
+    }
+
+    /**
+     * Totales por mes del usuario autenticado (meses sin gastos no aparecen).
+     *
+     * @param from Primer mes (null = {@value #DEFAULT_SUMMARY_MONTHS} meses hasta to)
+     * @param to Último mes (null = mes actual)
+     * @param vehicleId Limitar a un vehículo (null = todos)
+     * @param authenticatedUserId ID del usuario autenticado
+     * @throws BadRequestException si from es posterior a to
+     */
+    public List<MonthlyExpenseTotal> getMonthlyTotals(YearMonth from, YearMonth to, Long vehicleId,
+                                                      Long authenticatedUserId) {
+        YearMonth[] range = resolveRange(from, to);
+        return rollupRepository.totalsByMonth(authenticatedUserId, vehicleId,
+                range[0].atDay(1), range[1].atDay(1));
+    }
+
+    /**
+     * Totales por categoría del usuario autenticado, de mayor a menor.
+     *
+     * @throws BadRequestException si from es posterior a to
+     */
+    public List<CategoryExpenseTotal> getCategoryTotals(YearMonth from, YearMonth to, Long vehicleId,
+                                                        Long authenticatedUserId) {
+        YearMonth[] range = resolveRange(from, to);
+        return rollupRepository.totalsByCategory(authenticatedUserId, vehicleId,
+                range[0].atDay(1), range[1].atDay(1));
+    }
+
+    /**
+     * Totales por vehículo del usuario autenticado, de mayor a menor.
+     *
+     * @throws BadRequestException si from es posterior a to
+     */
+    public List<VehicleExpenseTotal> getVehicleTotals(YearMonth from, YearMonth to, Long authenticatedUserId) {
+        YearMonth[] range = resolveRange(from, to);
+        return rollupRepository.totalsByVehicle(authenticatedUserId, range[0].atDay(1), range[1].atDay(1));
+    }
+
+    /**
+     * Serie temporal de gastos del usuario autenticado, con un punto por intervalo (también los
+     * intervalos sin gastos). El rango se amplía a intervalos completos.
+     *
+     * Si el rango tiene más de {@value #MAX_SERIES_POINTS} intervalos del tamaño pedido se usa el
+     * siguiente más grueso (día, semana, mes); la respuesta indica el intervalo usado. Los meses
+     * se leen de los acumulados mensuales; días y semanas, de los gastos.
+     *
+     * @param vehicleId Limitar a un vehículo (null = todos los del usuario)
+     * @param from Primer día (null = un año antes de to)
+     * @param to Último día (null = hoy)
+     * @param bucketName Intervalo pedido: day, week o month (null = month)
+     * @param authenticatedUserId ID del usuario autenticado
+     * @throws ResourceNotFoundException si el vehículo no existe o no pertenece al usuario
+     * @throws BadRequestException si el intervalo no es válido, from es posterior a to o el rango
+     *                             supera {@value #MAX_SERIES_POINTS} meses
+     */
+    public ExpenseSeries getSeries(Long vehicleId, LocalDate from, LocalDate to, String bucketName,
+                                   Long authenticatedUserId) {
+        SeriesBucket requested = bucketName == null ? SeriesBucket.MONTH : SeriesBucket.fromParamName(bucketName)
+                .orElseThrow(() -> new BadRequestException("Invalid bucket: " + bucketName + " (expected day, week or month)"));
+        if (vehicleId != null) {
+            ownershipCache.requireOwned(vehicleId, authenticatedUserId);
+        }
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusYears(1).plusDays(1);
+        if (start.isAfter(end)) {
+            throw new BadRequestException("'from' must not be after 'to'");
+        }
+
+        SeriesBucket effective = requested;
+        while (effective.count(start, end) > MAX_SERIES_POINTS) {
+            effective = effective.coarser();
+            if (effective == null) {
+                throw new BadRequestException("The range must not exceed " + MAX_SERIES_POINTS + " months");
+            }
+        }
+        start = effective.start(start);
+        end = effective.next(effective.start(end)).minusDays(1);
+
+        List<ExpenseSeriesPoint> totals = switch (effective) {
+            case DAY -> expenseRepository.totalsByDay(authenticatedUserId, vehicleId, start, end);
+            case WEEK -> expenseRepository.totalsByWeek(authenticatedUserId, vehicleId, start, end);
+            case MONTH -> rollupRepository.totalsByMonth(authenticatedUserId, vehicleId, start, end).stream()
+                    .map(month -> new ExpenseSeriesPoint(month.month().atDay(1), month.total(), month.count()))
+                    .toList();
+        };
+        return new ExpenseSeries(effective, start, end, fillGaps(totals, effective, start, end));
+    }
+
+    /**
+     * Un punto por intervalo del rango: los totales (ordenados) y ceros donde no hubo gastos.
+     */
+    private static List<ExpenseSeriesPoint> fillGaps(List<ExpenseSeriesPoint> totals, SeriesBucket bucket,
+                                                     LocalDate start, LocalDate end) {
+        List<ExpenseSeriesPoint> points = new ArrayList<>((int) bucket.count(start, end));
+        Iterator<ExpenseSeriesPoint> iterator = totals.iterator();
+        ExpenseSeriesPoint next = iterator.hasNext() ? iterator.next() : null;
+        for (LocalDate bucketStart = start; !bucketStart.isAfter(end); bucketStart = bucket.next(bucketStart)) {
+            if (next != null && next.start().equals(bucketStart)) {
+                points.add(next);
+                next = iterator.hasNext() ? iterator.next() : null;
+            } else {
+                points.add(new ExpenseSeriesPoint(bucketStart, BigDecimal.ZERO, 0));
+            }
+        }
+        return points;
+    }
+
+    private static YearMonth[] resolveRange(YearMonth from, YearMonth to) {
+        YearMonth end = to != null ? to : YearMonth.now();
+        YearMonth start = from != null ? from : end.minusMonths(DEFAULT_SUMMARY_MONTHS - 1);
+        if (start.isAfter(end)) {
+            throw new BadRequestException("'from' must not be after 'to'");
+        }
+        return new YearMonth[]{start, end};
+    }
+
+    private Expense findExpense(Long vehicleId, Long id) {
+        return expenseRepository.findByIdAndVehicleId(id, vehicleId)
+                .orElseThrow(() -> new ResourceNotFoundException("Expense", id));
+    }
 }
@@ -0,0 +1,322 @@
+package com.keepup.vehicle.service;
+
+import com.keepup.core.storage.BlobStore;
+import com.keepup.core.storage.LocalFileStorage;
+import com.keepup.core.storage.StoredBlob;
+import com.keepup.core.storage.StoredFile;
+import com.keepup.vehicle.enums.PhotoRendition;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Genera las versiones reducidas ({@link PhotoRendition}) de las fotos de vehículos.
+ *
+ * El redimensionado nunca corre en hilos de petición: se encola en un pool propio con tantos
+ * hilos como núcleos y una cola acotada. Si la cola está llena la foto no se encola y se vuelve
+ * a intentar cuando alguien pida una de sus versiones (que mientras tanto responde 404).
+ *
+ * Solo usa javax.imageio y java.awt:
+ * - La foto se decodifica con submuestreo (ImageReadParam) para no cargar en memoria una imagen
+ *   de 48 MP cuando la versión más grande es de 1280 px.
+ * - Cada versión se obtiene de la anterior reduciendo a la mitad con interpolación bilineal
+ *   hasta acercarse al tamaño final (mejor calidad que un único escalado grande).
+ * - Se guarda en JPEG con la calidad configurada.
+ *
+ * Los archivos se guardan junto al blob de la foto (BlobStore.derivedKey) con su propio SHA-256
+ * en el nombre, p. ej. derived/ab/cd/{sha-foto}/thumb-{sha-miniatura}.jpg: la misma foto en
+ * varios vehículos comparte versiones, y se borran cuando el barrido borra la foto.
+ *
+ * Configuración:
+ * - keepup.photos.resize-threads: hilos del pool (0 = núcleos disponibles)
+ * - keepup.photos.queue-capacity: fotos en espera (64)
+ * - keepup.photos.jpeg-quality: calidad JPEG de 0 a 1 (0.82)
+ */
+@Slf4j
+@Service
+public class PhotoRenditionService {
+
+    private static final String RENDITION_SUFFIX = ".jpg";
+
+    private final BlobStore blobStore;
+    private final LocalFileStorage fileStorage;
+    private final float jpegQuality;
+    private final ThreadPoolExecutor executor;
+
+    // Fotos encoladas o en proceso, para no generar dos veces las mismas versiones
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    public PhotoRenditionService(BlobStore blobStore,
+                                 LocalFileStorage fileStorage,
+                                 @Value("${keepup.photos.resize-threads:0}") int resizeThreads,
+                                 @Value("${keepup.photos.queue-capacity:64}") int queueCapacity,
+                                 @Value("${keepup.photos.jpeg-quality:0.82}") float jpegQuality) {
+        this.blobStore = blobStore;
+        this.fileStorage = fileStorage;
+        this.jpegQuality = jpegQuality;
+
+        int threads = resizeThreads > 0 ? resizeThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "photo-resize-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        // Sin caché en disco de ImageIO: las imágenes se leen de archivos locales o de memoria
+        ImageIO.setUseCache(false);
+    }
+
+    /**
+     * Encolar la generación de las versiones de una foto (no bloquea).
+     *
+     * @param sha256 SHA-256 del blob de la foto
+     */
+    public void request(String sha256) {
+        if (!pending.add(sha256)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(sha256);
+                } catch (Exception e) {
+                    log.warn("Could not render photo {}: {}", sha256, e.getMessage());
+                } finally {
+                    pending.remove(sha256);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(sha256);
+            log.warn("Photo resize queue is full, {} will be rendered on its next request", sha256);
+        }
+    }
+
+    /**
+     * Buscar una versión ya generada. Si no existe, encola su generación.
+     *
+     * @param sha256 SHA-256 del blob de la foto
+     * @param rendition Versión pedida
+     * @return Archivo de la versión (clave, tamaño y SHA-256 propio) o vacío si aún no está lista
+     */
+    public Optional<StoredFile> find(String sha256, PhotoRendition rendition) {
+        Optional<StoredFile> found = locate(sha256, rendition);
+        if (found.isEmpty()) {
+            request(sha256);
+        }
+        return found;
+    }
+
+    /**
+     * Leer solo la cabecera de una imagen para conocer sus dimensiones.
+     *
+     * @param path Archivo de la imagen
+     * @return Ancho y alto, o vacío si no es una imagen que ImageIO pueda decodificar
+     */
+    public Optional<Dimension> probe(Path path) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(path.toFile())) {
+            ImageReader reader = firstReader(input);
+            if (reader == null) {
+                return Optional.empty();
+            }
+            try {
+                reader.setInput(input, true, true);
+                return Optional.of(new Dimension(reader.getWidth(0), reader.getHeight(0)));
+            } catch (IOException e) {
+                return Optional.empty();
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void generate(String sha256) throws IOException {
+        if (locate(sha256, PhotoRendition.THUMB).isPresent()) {
+            return;
+        }
+        StoredBlob blob = blobStore.find(sha256).orElse(null);
+        if (blob == null) {
+            return;
+        }
+
+        BufferedImage image = decode(fileStorage.resolve(blobStore.blobKey(sha256)), blob.isCompressed(),
+                PhotoRendition.LARGE.getMaxSize());
+        if (image == null) {
+            log.warn("Photo {} could not be decoded", sha256);
+            return;
+        }
+
+        // De mayor a menor: cada versión parte de la anterior. THUMB se escribe al final y marca
+        // que todas están listas
+        for (PhotoRendition rendition : PhotoRendition.values()) {
+            image = scaleToFit(image, rendition.getMaxSize());
+            if (locate(sha256, rendition).isEmpty()) {
+                store(sha256, rendition, encodeJpeg(image));
+            }
+        }
+    }
+
+    private BufferedImage decode(Path path, boolean compressed, int largestSize) throws IOException {
+        try (InputStream raw = compressed ? new GZIPInputStream(Files.newInputStream(path)) : null;
+             ImageInputStream input = ImageIO.createImageInputStream(raw != null ? raw : path.toFile())) {
+            ImageReader reader = firstReader(input);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                reader.setInput(input, true, true);
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Submuestreo conservando al menos el doble de la versión mayor para reducir después
+                int step = Math.max(1, longest / (largestSize * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Reduce la imagen para que su lado mayor no supere maxSize (nunca amplía). Devuelve siempre
+     * una imagen RGB opaca, lista para JPEG (la transparencia se rellena de blanco).
+     */
+    static BufferedImage scaleToFit(BufferedImage source, int maxSize) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = Math.min(1.0, (double) maxSize / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = source;
+        while (width / 2 >= targetWidth && height / 2 >= targetHeight) {
+            width /= 2;
+            height /= 2;
+            current = draw(current, width, height);
+        }
+        if (current.getWidth() != targetWidth || current.getHeight() != targetHeight
+                || current.getType() != BufferedImage.TYPE_INT_RGB) {
+            current = draw(current, targetWidth, targetHeight);
+        }
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private void store(String sha256, PhotoRendition rendition, byte[] jpeg) throws IOException {
+        String renditionSha = HexFormat.of().formatHex(sha256().digest(jpeg));
+        String key = blobStore.derivedKey(sha256) + "/" + rendition.getPathName() + "-" + renditionSha
+                + RENDITION_SUFFIX;
+        fileStorage.store(new ByteArrayInputStream(jpeg), key, jpeg.length, renditionSha);
+    }
+
+    private Optional<StoredFile> locate(String sha256, PhotoRendition rendition) {
+        String directoryKey = blobStore.derivedKey(sha256);
+        Path directory = fileStorage.resolve(directoryKey);
+        if (!Files.isDirectory(directory)) {
+            return Optional.empty();
+        }
+        String prefix = rendition.getPathName() + "-";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + RENDITION_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String renditionSha = name.substring(prefix.length(), name.length() - RENDITION_SUFFIX.length());
+                long size = Files.size(file);
+                return Optional.of(new StoredFile(directoryKey + "/" + name, size, renditionSha, size, false));
+            }
+        } catch (IOException e) {
+            log.warn("Could not read renditions of {}: {}", sha256, e.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    private static ImageReader firstReader(ImageInputStream input) {
+        if (input == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        return readers.hasNext() ? readers.next() : null;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
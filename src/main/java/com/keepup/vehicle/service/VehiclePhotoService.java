@@ -0,0 +1,211 @@
+package com.keepup.vehicle.service;
+
+import com.keepup.core.exception.PayloadTooLargeException;
+import com.keepup.core.exception.ResourceNotFoundException;
+import com.keepup.core.exception.UnsupportedMediaTypeException;
+import com.keepup.core.storage.AllowedMediaTypes;
+import com.keepup.core.storage.BlobStore;
+import com.keepup.core.storage.FileDownload;
+import com.keepup.core.storage.LocalFileStorage;
+import com.keepup.core.storage.StoredBlob;
+import com.keepup.core.storage.StoredFile;
+import com.keepup.core.tracing.Traced;
+import com.keepup.vehicle.cache.VehicleOwnershipCache;
+import com.keepup.vehicle.dto.VehicleResponse;
+import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.enums.PhotoRendition;
+import com.keepup.vehicle.mapper.VehicleMapper;
+import com.keepup.vehicle.repository.VehicleRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+
+/**
+ * Foto de los vehículos.
+ *
+ * La foto original se guarda en {@link BlobStore} (deduplicada por SHA-256) y, tras confirmar la
+ * transacción, se encolan sus versiones reducidas en {@link PhotoRenditionService}. La subida no
+ * redimensiona nada: solo lee la cabecera de la imagen para rechazar archivos que no lo son o
+ * con demasiados píxeles.
+ *
+ * Las URLs llevan el SHA-256 de la foto, así que cada respuesta es inmutable y se envía con
+ * Cache-Control de un año; al cambiar la foto cambia la URL.
+ *
+ * Igual que {@link DocumentFileService}, no es transaccional a nivel de clase: el cuerpo se
+ * copia a disco sin conexión del pool abierta.
+ *
+ * Configuración:
+ * - keepup.photos.max-file-size (15MB)
+ * - keepup.photos.allowed-types (image/jpeg, image/png)
+ * - keepup.photos.max-pixels: límite de ancho x alto (40 MP)
+ */
+@Service
+@Traced
+public class VehiclePhotoService {
+
+    public static final String IMMUTABLE_CACHE_CONTROL = "private, max-age=31536000, immutable";
+
+    private final VehicleRepository vehicleRepository;
+    private final VehicleOwnershipCache ownershipCache;
+    private final VehicleMapper vehicleMapper;
+    private final BlobStore blobStore;
+    private final LocalFileStorage fileStorage;
+    private final PhotoRenditionService renditionService;
+    private final TransactionTemplate transactionTemplate;
+    private final long maxFileSize;
+    private final AllowedMediaTypes allowedTypes;
+    private final long maxPixels;
+
+    public VehiclePhotoService(VehicleRepository vehicleRepository,
+                               VehicleOwnershipCache ownershipCache,
+                               VehicleMapper vehicleMapper,
+                               BlobStore blobStore,
+                               LocalFileStorage fileStorage,
+                               PhotoRenditionService renditionService,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${keepup.photos.max-file-size:15MB}") DataSize maxFileSize,
+                               @Value("${keepup.photos.allowed-types:image/jpeg,image/png}") Set<String> allowedTypes,
+                               @Value("${keepup.photos.max-pixels:40000000}") long maxPixels) {
+        this.vehicleRepository = vehicleRepository;
+        this.ownershipCache = ownershipCache;
+        this.vehicleMapper = vehicleMapper;
+        this.blobStore = blobStore;
+        this.fileStorage = fileStorage;
+        this.renditionService = renditionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxFileSize = maxFileSize.toBytes();
+        this.allowedTypes = new AllowedMediaTypes(allowedTypes);
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * Guardar (o reemplazar) la foto de un vehículo.
+     *
+     * @param vehicleId ID del vehículo
+     * @param body Cuerpo de la petición con la imagen
+     * @param contentType Content-Type de la imagen
+     * @param declaredLength Content-Length de la petición (-1 si no se conoce)
+     * @param expectedSha256 SHA-256 declarado por el cliente, o null para no verificar
+     * @param authenticatedUserId ID del usuario autenticado
+     * @return VehicleResponse con las URLs de la foto
+     * @throws ResourceNotFoundException si el vehículo no existe o no pertenece al usuario
+     * @throws UnsupportedMediaTypeException si el tipo no está permitido o el archivo no es una imagen
+     * @throws PayloadTooLargeException si la imagen supera el tamaño o los píxeles máximos
+     */
+    public VehicleResponse upload(Long vehicleId, InputStream body, String contentType, long declaredLength,
+                                  String expectedSha256, Long authenticatedUserId) throws IOException {
+        ownershipCache.requireOwned(vehicleId, authenticatedUserId);
+        String acceptedType = allowedTypes.match(contentType);
+        if (acceptedType == null) {
+            throw new UnsupportedMediaTypeException("Unsupported photo type: " + contentType
+                    + ". Allowed: " + allowedTypes);
+        }
+        if (declaredLength > maxFileSize) {
+            throw new PayloadTooLargeException("Photo exceeds the maximum size of " + maxFileSize + " bytes");
+        }
+
+        StoredFile staged = blobStore.stage(body, acceptedType, maxFileSize, expectedSha256);
+        VehicleResponse response;
+        try {
+            checkImage(staged);
+            response = transactionTemplate.execute(status -> attach(vehicleId, staged, acceptedType, authenticatedUserId));
+        } catch (IOException | RuntimeException e) {
+            // Sin commit el archivo sigue en staging (BlobStore solo lo mueve al confirmar)
+            blobStore.discard(staged);
+            throw e;
+        }
+
+        // Ya confirmado: las versiones se generan fuera del hilo de la petición
+        renditionService.request(staged.sha256());
+        return response;
+    }
+
+    /**
+     * Quitar la foto de un vehículo.
+     *
+     * @throws ResourceNotFoundException si el vehículo no existe o no pertenece al usuario
+     */
+    @Transactional
+    public void delete(Long vehicleId, Long authenticatedUserId) {
+        Vehicle vehicle = findOwnedVehicle(vehicleId, authenticatedUserId);
+        blobStore.release(vehicle.getPhotoSha256(), 1);
+        vehicle.setPhotoSha256(null);
+        vehicle.setPhotoContentType(null);
+        vehicleRepository.save(vehicle);
+    }
+
+    /**
+     * Obtener la foto original o una de sus versiones para enviarla.
+     *
+     * @param vehicleId ID del vehículo
+     * @param sha256 SHA-256 de la foto (parte de la URL)
+     * @param renditionName "original" o el nombre de una {@link PhotoRendition}
+     * @param authenticatedUserId ID del usuario autenticado
+     * @return Archivo a enviar, con Cache-Control inmutable
+     * @throws ResourceNotFoundException si el vehículo no tiene esa foto, la versión no existe o
+     *         aún no se generó
+     */
+    @Transactional(readOnly = true)
+    public FileDownload getPhoto(Long vehicleId, String sha256, String renditionName, Long authenticatedUserId) {
+        Vehicle vehicle = findOwnedVehicle(vehicleId, authenticatedUserId);
+        if (vehicle.getPhotoSha256() == null || !vehicle.getPhotoSha256().equals(sha256)) {
+            throw new ResourceNotFoundException("Photo", sha256);
+        }
+
+        if ("original".equals(renditionName)) {
+            StoredBlob blob = blobStore.find(sha256)
+                    .orElseThrow(() -> new ResourceNotFoundException("Photo", sha256));
+            return new FileDownload(fileStorage.resolve(blobStore.blobKey(sha256)), blob.getSize(), sha256,
+                    vehicle.getPhotoContentType(), "photo-" + vehicleId + extension(vehicle.getPhotoContentType()),
+                    IMMUTABLE_CACHE_CONTROL, blob.isCompressed(), blob.getStoredSize());
+        }
+
+        PhotoRendition rendition = PhotoRendition.fromPathName(renditionName)
+                .orElseThrow(() -> new ResourceNotFoundException("Photo rendition", renditionName));
+        StoredFile file = renditionService.find(sha256, rendition)
+                .orElseThrow(() -> new ResourceNotFoundException("Photo rendition", renditionName));
+        return new FileDownload(fileStorage.resolve(file.key()), file.size(), file.sha256(), "image/jpeg",
+                "photo-" + vehicleId + "-" + rendition.getPathName() + ".jpg", IMMUTABLE_CACHE_CONTROL);
+    }
+
+    private VehicleResponse attach(Long vehicleId, StoredFile staged, String contentType, Long authenticatedUserId) {
+        Vehicle vehicle = findOwnedVehicle(vehicleId, authenticatedUserId);
+
+        blobStore.acquire(staged);
+        blobStore.release(vehicle.getPhotoSha256(), 1);
+
+        vehicle.setPhotoSha256(staged.sha256());
+        vehicle.setPhotoContentType(contentType);
+        // flush para que la respuesta lleve el updatedAt de @PreUpdate
+        return vehicleMapper.toResponse(vehicleRepository.saveAndFlush(vehicle));
+    }
+
+    /**
+     * Validar la cabecera de la imagen en staging (no decodifica los píxeles).
+     */
+    private void checkImage(StoredFile staged) throws IOException {
+        Dimension size = renditionService.probe(fileStorage.resolve(staged.key()))
+                .orElseThrow(() -> new UnsupportedMediaTypeException("File is not a valid image"));
+        if ((long) size.width * size.height > maxPixels) {
+            throw new PayloadTooLargeException("Photo exceeds the maximum of " + maxPixels + " pixels");
+        }
+    }
+
+    private Vehicle findOwnedVehicle(Long vehicleId, Long authenticatedUserId) {
+        ownershipCache.requireOwned(vehicleId, authenticatedUserId);
+        return vehicleRepository.findById(vehicleId)
+                .orElseThrow(() -> new ResourceNotFoundException("Vehicle", vehicleId));
+    }
+
+    private static String extension(String contentType) {
+        return "image/png".equals(contentType) ? ".png" : ".jpg";
+    }
+}
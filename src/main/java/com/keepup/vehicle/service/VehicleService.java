@@ -1,5 +1,7 @@
 package com.keepup.vehicle.service;
 
+import com.keepup.vehicle.cache.EncodedVehicles;
+import com.keepup.vehicle.cache.RepresentationFormat;
 import com.keepup.vehicle.dto.VehicleRequest;
 import com.keepup.vehicle.dto.VehicleResponse;
 
@@ -20,6 +22,12 @@ public interface VehicleService {
     // Obtener todos los vehículos del usuario autenticado
     List<VehicleResponse> getAll(Long authenticatedUserId);
 
+    // Vehículo por ID ya serializado en el formato pedido (usa la caché de representaciones)
+    EncodedVehicles encodeById(Long id, Long authenticatedUserId, RepresentationFormat format);
+
+    // Todos los vehículos del usuario ya serializados en el formato pedido
+    EncodedVehicles encodeAll(Long authenticatedUserId, RepresentationFormat format);
+
     // Obtener vehículo por placa (solo si pertenece al usuario autenticado)
     VehicleResponse getByLicensePlate(String licensePlate, Long authenticatedUserId);
 
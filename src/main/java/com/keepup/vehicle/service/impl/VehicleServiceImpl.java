@@ -2,17 +2,31 @@ package com.keepup.vehicle.service.impl;
 
 import com.keepup.auth.entity.User;
 import com.keepup.auth.repository.UserRepository;
+import com.keepup.core.exception.ConflictException;
+import com.keepup.core.exception.ResourceNotFoundException;
+import com.keepup.core.storage.BlobStore;
+import com.keepup.core.tracing.Traced;
+import com.keepup.vehicle.analytics.ExpenseCubeStaleEvent;
+import com.keepup.vehicle.cache.EncodedVehicles;
+import com.keepup.vehicle.cache.RepresentationFormat;
+import com.keepup.vehicle.cache.VehicleRepresentationCache;
 import com.keepup.vehicle.dto.VehicleRequest;
 import com.keepup.vehicle.dto.VehicleResponse;
 import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.event.VehicleOwnershipChangedEvent;
 import com.keepup.vehicle.mapper.VehicleMapper;
+import com.keepup.vehicle.repository.DocumentRepository;
+import com.keepup.vehicle.repository.ExpenseRepository;
+import com.keepup.vehicle.repository.ExpenseRollupRepository;
 import com.keepup.vehicle.repository.VehicleRepository;
 import com.keepup.vehicle.service.VehicleService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -21,13 +35,20 @@ import java.util.stream.Collectors;
  * Esto previene accesos no autorizados a datos de otros usuarios (IDOR attacks).
  */
 @Service
+@Traced
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class VehicleServiceImpl implements VehicleService {
 
     private final VehicleRepository vehicleRepository;
+    private final DocumentRepository documentRepository;
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseRollupRepository expenseRollupRepository;
+    private final BlobStore blobStore;
     private final VehicleMapper vehicleMapper;
     private final UserRepository userRepository;
+    private final VehicleRepresentationCache representationCache;
+    private final ApplicationEventPublisher eventPublisher;
     // TODO: Agregar UserRepository cuando esté disponible
     // private final UserRepository userRepository;
 
@@ -40,7 +61,7 @@ public class VehicleServiceImpl implements VehicleService {
      * @param request DTO con los datos del vehículo a crear
      * @param authenticatedUserId ID del usuario autenticado (obtenido del JWT/Security Context)
      * @return VehicleResponse con los datos del vehículo creado
-     * @throws IllegalArgumentException si la placa ya existe para este usuario
+     * @throws ConflictException si la placa ya existe para este usuario
      */
     @Override
     @Transactional
@@ -48,7 +69,7 @@ public class VehicleServiceImpl implements VehicleService {
         // 1. Validar que la placa no exista para este usuario
         // Permitimos que diferentes usuarios tengan la misma placa (ej: diferentes países)
         if (vehicleRepository.existsByLicensePlateAndUserId(request.getLicensePlate(), authenticatedUserId)) {
-            throw new IllegalArgumentException(
+            throw new ConflictException(
                     "You already have a vehicle with license plate: " + request.getLicensePlate()
             );
         }
@@ -63,7 +84,7 @@ public class VehicleServiceImpl implements VehicleService {
         // 4. CRÍTICO: Forzar el userId al usuario autenticado (seguridad)
 
         User user = userRepository.findById(authenticatedUserId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+                .orElseThrow(() -> new ResourceNotFoundException("User", authenticatedUserId));
         vehicle.setUser(user);
 
         // 5. Guardar en la base de datos
@@ -81,14 +102,12 @@ public class VehicleServiceImpl implements VehicleService {
      * @param id ID del vehículo a buscar
      * @param authenticatedUserId ID del usuario autenticado
      * @return VehicleResponse con los datos del vehículo
-     * @throws RuntimeException si el vehículo no existe o no pertenece al usuario
+     * @throws ResourceNotFoundException si el vehículo no existe o no pertenece al usuario
      */
     @Override
     public VehicleResponse getById(Long id, Long authenticatedUserId) {
         Vehicle vehicle = vehicleRepository.findByIdAndUserId(id, authenticatedUserId)
-                .orElseThrow(() -> new RuntimeException(
-                        "Vehicle not found with id: " + id + " or you don't have access to it"
-                ));
+                .orElseThrow(() -> new ResourceNotFoundException("Vehicle", id));
 
         return vehicleMapper.toResponse(vehicle);
     }
@@ -107,21 +126,50 @@ public class VehicleServiceImpl implements VehicleService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Obtener un vehículo por su ID ya serializado.
+     *
+     * Si el vehículo no cambió desde la última serialización (mismo updatedAt) se reutilizan
+     * los bytes en caché sin pasar por el mapper ni por Jackson.
+     *
+     * @param id ID del vehículo a buscar
+     * @param authenticatedUserId ID del usuario autenticado
+     * @param format Formato de salida (JSON o CBOR)
+     * @return Representación lista para escribir en la respuesta
+     * @throws ResourceNotFoundException si el vehículo no existe o no pertenece al usuario
+     */
+    @Override
+    public EncodedVehicles encodeById(Long id, Long authenticatedUserId, RepresentationFormat format) {
+        Vehicle vehicle = vehicleRepository.findByIdAndUserId(id, authenticatedUserId)
+                .orElseThrow(() -> new ResourceNotFoundException("Vehicle", id));
+
+        return representationCache.encode(vehicle, format);
+    }
+
+    /**
+     * Obtener todos los vehículos del usuario autenticado ya serializados como arreglo.
+     *
+     * @param authenticatedUserId ID del usuario autenticado
+     * @param format Formato de salida (JSON o CBOR)
+     * @return Representación lista para escribir en la respuesta
+     */
+    @Override
+    public EncodedVehicles encodeAll(Long authenticatedUserId, RepresentationFormat format) {
+        return representationCache.encodeAll(vehicleRepository.findByUserId(authenticatedUserId), format);
+    }
+
     /**
      * Obtener vehículo por placa del usuario autenticado.
      *
      * @param licensePlate Placa del vehículo
      * @param authenticatedUserId ID del usuario autenticado
      * @return VehicleResponse con los datos del vehículo
-     * @throws RuntimeException si el vehículo no existe o no pertenece al usuario
+     * @throws ResourceNotFoundException si el vehículo no existe o no pertenece al usuario
      */
     @Override
     public VehicleResponse getByLicensePlate(String licensePlate, Long authenticatedUserId) {
         Vehicle vehicle = vehicleRepository.findByLicensePlateAndUserId(licensePlate, authenticatedUserId)
-                .orElseThrow(() -> new RuntimeException(
-                        "Vehicle not found with license plate: " + licensePlate +
-                                " or you don't have access to it"
-                ));
+                .orElseThrow(() -> new ResourceNotFoundException("Vehicle", "license plate", licensePlate));
 
         return vehicleMapper.toResponse(vehicle);
     }
@@ -197,22 +245,20 @@ public class VehicleServiceImpl implements VehicleService {
      * @param request DTO con los nuevos datos
      * @param authenticatedUserId ID del usuario autenticado
      * @return VehicleResponse con los datos actualizados
-     * @throws RuntimeException si el vehículo no existe o no pertenece al usuario
-     * @throws IllegalArgumentException si la nueva placa ya existe en otro vehículo del usuario
+     * @throws ResourceNotFoundException si el vehículo no existe o no pertenece al usuario
+     * @throws ConflictException si la nueva placa ya existe en otro vehículo del usuario
      */
     @Override
     @Transactional
     public VehicleResponse update(Long id, VehicleRequest request, Long authenticatedUserId) {
         // 1. Buscar el vehículo existente Y verificar que pertenece al usuario
         Vehicle vehicle = vehicleRepository.findByIdAndUserId(id, authenticatedUserId)
-                .orElseThrow(() -> new RuntimeException(
-                        "Vehicle not found with id: " + id + " or you don't have access to it"
-                ));
+                .orElseThrow(() -> new ResourceNotFoundException("Vehicle", id));
 
         // 2. Validar que la nueva placa no esté en uso por otro vehículo del mismo usuario
         if (!vehicle.getLicensePlate().equals(request.getLicensePlate()) &&
                 vehicleRepository.existsByLicensePlateAndUserId(request.getLicensePlate(), authenticatedUserId)) {
-            throw new IllegalArgumentException(
+            throw new ConflictException(
                     "You already have a vehicle with license plate: " + request.getLicensePlate()
             );
         }
@@ -224,6 +270,9 @@ public class VehicleServiceImpl implements VehicleService {
         // 4. Guardar cambios
         Vehicle updatedVehicle = vehicleRepository.save(vehicle);
 
+        // Placa, marca, modelo, año o tipo pueden haber cambiado en las filas del cubo de gastos
+        eventPublisher.publishEvent(new ExpenseCubeStaleEvent(authenticatedUserId));
+
         // 5. Retornar respuesta
         return vehicleMapper.toResponse(updatedVehicle);
     }
@@ -235,18 +284,28 @@ public class VehicleServiceImpl implements VehicleService {
      *
      * @param id ID del vehículo a eliminar
      * @param authenticatedUserId ID del usuario autenticado
-     * @throws RuntimeException si el vehículo no existe o no pertenece al usuario
+     * @throws ResourceNotFoundException si el vehículo no existe o no pertenece al usuario
      */
     @Override
     @Transactional
     public void delete(Long id, Long authenticatedUserId) {
         // Verificar que el vehículo existe Y pertenece al usuario antes de eliminar
         Vehicle vehicle = vehicleRepository.findByIdAndUserId(id, authenticatedUserId)
-                .orElseThrow(() -> new RuntimeException(
-                        "Vehicle not found with id: " + id + " or you don't have access to it"
-                ));
+                .orElseThrow(() -> new ResourceNotFoundException("Vehicle", id));
 
+        // Documentos y gastos del vehículo se borran en una sola sentencia cada uno antes que el vehículo;
+        // los documentos liberan sus referencias a blobs (el barrido borra los que queden sin uso)
+        documentRepository.findFileShasByVehicleId(id).stream()
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))
+                .forEach((sha256, count) -> blobStore.release(sha256, count.intValue()));
+        documentRepository.deleteByVehicleId(id);
+        expenseRepository.deleteByVehicleId(id);
+        expenseRollupRepository.deleteByVehicleId(id);
+        blobStore.release(vehicle.getPhotoSha256(), 1);
         vehicleRepository.delete(vehicle);
+        representationCache.evict(id);
+        eventPublisher.publishEvent(new VehicleOwnershipChangedEvent(id));
+        eventPublisher.publishEvent(new ExpenseCubeStaleEvent(authenticatedUserId));
     }
 
     /**
@@ -0,0 +1,107 @@
+package com.keepup;
+
+import org.h2.Driver;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Falla si el arranque en frío del jar empaquetado supera keepup.startup.budget-ms.
+ *
+ * Lo ejecuta maven-failsafe-plugin en la fase verify, después de empaquetar: cada medición es un
+ * proceso java nuevo (sin clases ya cargadas ni JIT caliente) con H2 en memoria como base de
+ * datos, y se compara la mediana del tiempo de JVM hasta la línea "Application ready" de
+ * StartupReporter. El presupuesto se sube en máquinas lentas con -Dstartup.budget-ms=N (ver pom).
+ */
+class StartupBudgetIT {
+
+    private static final Pattern READY = Pattern.compile("Application ready in (\\d+) ms \\(JVM uptime (\\d+) ms\\)");
+
+    @Test
+    void startup_ShouldStayWithinBudget() throws Exception {
+        Path jar = Paths.get(System.getProperty("keepup.startup.jar"));
+        long budgetMillis = Long.getLong("keepup.startup.budget-ms", 45_000);
+        int runs = Integer.getInteger("keepup.startup.runs", 3);
+        assertTrue(Files.isRegularFile(jar), "Packaged jar not found: " + jar);
+
+        List<Long> uptimes = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            uptimes.add(startOnce(jar, budgetMillis));
+        }
+        Collections.sort(uptimes);
+        long median = uptimes.get(uptimes.size() / 2);
+
+        assertTrue(median <= budgetMillis,
+                "Cold start took " + median + " ms (median of " + uptimes + "), budget is " + budgetMillis + " ms");
+    }
+
+    /**
+     * Arrancar el jar en un proceso nuevo y devolver el tiempo de JVM hasta estar listo.
+     */
+    private static long startOnce(Path jar, long budgetMillis) throws Exception {
+        // El jar no lleva H2 (dependencia de pruebas): se añade al classpath del lanzador
+        String h2 = Paths.get(Driver.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        Path workDir = Files.createDirectories(jar.resolveSibling("startup-budget"));
+        Process process = new ProcessBuilder(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", jar + File.pathSeparator + h2,
+                "org.springframework.boot.loader.launch.JarLauncher",
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:startup;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+                        + "DEFAULT_NULL_ORDERING=HIGH;NON_KEYWORDS=YEAR,USER,VALUE",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--jwt.secret=c3RhcnR1cC1idWRnZXQtb25seS1ub3QtYS1yZWFsLXNlY3JldA==",
+                "--jwt.expirationMs=60000",
+                "--keepup.storage.root=" + workDir.resolve("storage"))
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .start();
+
+        CompletableFuture<Long> ready = new CompletableFuture<>();
+        Thread.ofVirtual().start(() -> {
+            // Se lee la salida hasta el final para que el proceso nunca se bloquee escribiendo
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Matcher matcher = READY.matcher(line);
+                    if (matcher.find()) {
+                        ready.complete(Long.parseLong(matcher.group(2)));
+                    }
+                }
+            } catch (Exception e) {
+                ready.completeExceptionally(e);
+            }
+            ready.completeExceptionally(new IllegalStateException("Application exited before it was ready"));
+        });
+
+        try {
+            // Holgura sobre el presupuesto: un arranque lento falla por tiempo, no por espera
+            return ready.get(budgetMillis * 3, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return fail("Application was not ready after " + budgetMillis * 3 + " ms");
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+}
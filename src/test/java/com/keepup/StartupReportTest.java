@@ -0,0 +1,35 @@
+package com.keepup;
+
+import com.keepup.core.startup.StartupReport;
+import com.keepup.core.startup.StartupReporter;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El informe de arranque se genera con el desglose por fase y por bean.
+ *
+ * No comprueba el tiempo de arranque: dentro de la JVM de las pruebas no es representativo. El
+ * presupuesto lo vigila {@link StartupBudgetIT} contra el jar empaquetado.
+ */
+class StartupReportTest {
+
+    @Test
+    void startup_ShouldProduceReport() {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(KeepupApiApplication.class)
+                .applicationStartup(new BufferingApplicationStartup(KeepupApiApplication.STARTUP_STEPS_CAPACITY))
+                .properties("server.port=0")
+                .run()) {
+            StartupReport report = context.getBean(StartupReporter.class).getReport();
+            assertNotNull(report);
+            assertTrue(report.readyMillis() > 0);
+            assertFalse(report.phases().isEmpty());
+            assertFalse(report.slowestBeans().isEmpty());
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.keepup.auth.entity.Role;
 import com.keepup.auth.entity.User;
 import com.keepup.auth.repository.RoleRepository;
 import com.keepup.auth.repository.UserRepository;
+import com.keepup.core.exception.ConflictException;
 import com.keepup.core.security.JwtUtil;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,6 +20,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
@@ -86,4 +88,15 @@ class AuthServiceTest {
         assertNotNull(response);
         assertNotNull(response.getToken());
     }
-}
\ No newline at end of file
+
+    @Test
+    void register_ShouldThrowConflict_WhenEmailAlreadyExists() {
+        // 1. ARRANGE
+        RegisterRequest request = new RegisterRequest("Juan", "juan@mail.com", "123456");
+        when(userRepository.existsByEmail(request.getEmail())).thenReturn(true);
+
+        // 2. ACT + 3. ASSERT
+        ConflictException ex = assertThrows(ConflictException.class, () -> authService.register(request));
+        assertNotNull(ex.getDetail());
+    }
+}
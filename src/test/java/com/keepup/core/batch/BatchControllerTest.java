@@ -0,0 +1,252 @@
+package com.keepup.core.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.keepup.auth.entity.Role;
+import com.keepup.auth.entity.User;
+import com.keepup.auth.repository.RoleRepository;
+import com.keepup.auth.repository.UserRepository;
+import com.keepup.core.security.CustomerDetails;
+import com.keepup.core.security.JwtUtil;
+import com.keepup.vehicle.entity.Document;
+import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.enums.DocumentType;
+import com.keepup.vehicle.enums.VehicleType;
+import com.keepup.vehicle.repository.DocumentRepository;
+import com.keepup.vehicle.repository.VehicleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lotes de extremo a extremo: petición HTTP real, autenticada con JWT una sola vez.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {"keepup.batch.max-requests=8",
+        "keepup.batch.max-body-size=2KB", "keepup.batch.timeout=PT3S", "keepup.batch.max-in-flight=4"})
+@Import(BatchControllerTest.BlockingController.class)
+class BatchControllerTest {
+
+    private static final String BLOCKING_PATH = "/api/v1/test/blocking";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private VehicleRepository vehicleRepository;
+    @Autowired
+    private DocumentRepository documentRepository;
+    @Autowired
+    private BlockingController blocking;
+
+    private String token;
+    private Vehicle vehicle;
+
+    @BeforeEach
+    void setUp() {
+        Role role = roleRepository.findByName("ROLE_CLIENT")
+                .orElseGet(() -> roleRepository.save(new Role(null, "ROLE_CLIENT", "Cliente")));
+        String email = UUID.randomUUID() + "@mail.com";
+        User user = userRepository.save(User.builder().name("Batch").email(email).password("x").role(role).build());
+        vehicle = vehicleRepository.save(Vehicle.builder()
+                .licensePlate("BAT" + UUID.randomUUID().toString().substring(0, 8)).make("Mazda").model("3").year(2020)
+                .vehicleType(VehicleType.CAR).user(user)
+                .build());
+        token = jwtUtil.generateToken(new CustomerDetails(user));
+        blocking.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        blocking.release();
+    }
+
+    @Test
+    void batch_ShouldAnswerEveryRequestWithItsOwnStatusInOneRoundTrip() throws Exception {
+        JsonNode responses = post(List.of(
+                item("count", "GET", "/api/v1/vehicles/count"),
+                item("exists", null, "/api/v1/vehicles/exists/license-plate/" + vehicle.getLicensePlate()),
+                item("vehicle", "GET", "/api/v1/vehicles/" + vehicle.getId()),
+                item("missing", "GET", "/api/v1/vehicles/999999999"),
+                item("admin", "GET", "/api/v1/admin/traces"),
+                item("write", "DELETE", "/api/v1/vehicles/" + vehicle.getId()),
+                item("escape", "GET", "/api/v1/../actuator/env"),
+                item("nested", "GET", "/api/v1/batch")));
+
+        assertEquals(8, responses.size());
+        assertResult(responses.get(0), "count", 200);
+        assertEquals(1, responses.get(0).get("body").asInt());
+        assertResult(responses.get(1), "exists", 200);
+        assertEquals(true, responses.get(1).get("body").asBoolean());
+        assertResult(responses.get(2), "vehicle", 200);
+        assertEquals(vehicle.getLicensePlate(), responses.get(2).get("body").get("licensePlate").asText());
+        assertResult(responses.get(3), "missing", 404);
+        assertEquals("/api/v1/vehicles/999999999", responses.get(3).get("body").get("instance").asText());
+        assertResult(responses.get(4), "admin", 403);
+        assertResult(responses.get(5), "write", 405);
+        assertResult(responses.get(6), "escape", 400);
+        assertResult(responses.get(7), "nested", 400);
+
+        // El DELETE no se ejecutó
+        assertEquals(true, vehicleRepository.existsById(vehicle.getId()));
+    }
+
+    @Test
+    void batch_ShouldRejectOversizedBatchesAndMissingToken() {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            items.add(item("count-" + i, "GET", "/api/v1/vehicles/count"));
+        }
+        assertEquals(413, exchange(Map.of("requests", items), token).getStatusCode().value());
+
+        int unauthenticated = exchange(Map.of("requests", List.of(item("count", "GET", "/api/v1/vehicles/count"))), null)
+                .getStatusCode().value();
+        assertEquals(403, unauthenticated);
+    }
+
+    @Test
+    void batch_ShouldAnswerOversizedBodiesWithTheirOwn413() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            documentRepository.save(Document.builder()
+                    .type(DocumentType.SOAT).expiryDate(LocalDate.of(2030, 1, 1).plusDays(i))
+                    .notes("x".repeat(500)).vehicle(vehicle)
+                    .build());
+        }
+
+        JsonNode responses = post(List.of(
+                item("documents", "GET", "/api/v1/vehicles/" + vehicle.getId() + "/documents"),
+                item("count", "GET", "/api/v1/vehicles/count")));
+
+        assertResult(responses.get(0), "documents", 413);
+        assertResult(responses.get(1), "count", 200);
+    }
+
+    @Test
+    void batch_ShouldAnswerRequestsStillRunningAtTheTimeoutWith504() throws Exception {
+        JsonNode responses = post(List.of(
+                item("slow", "GET", BLOCKING_PATH),
+                item("count", "GET", "/api/v1/vehicles/count")));
+
+        assertResult(responses.get(0), "slow", 504);
+        assertResult(responses.get(1), "count", 200);
+    }
+
+    @Test
+    void batch_ShouldAnswer503WhenOtherBatchesHoldEveryInFlightSlot() throws Exception {
+        List<Map<String, Object>> slow = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            slow.add(item("slow-" + i, "GET", BLOCKING_PATH));
+        }
+        CompletableFuture<ResponseEntity<String>> holder =
+                CompletableFuture.supplyAsync(() -> exchange(Map.of("requests", slow), token));
+        // Las cuatro plazas de keepup.batch.max-in-flight quedan ocupadas por el primer lote
+        assertTrue(blocking.awaitEntered(4), "Blocking requests did not start");
+
+        JsonNode responses = post(List.of(item("count", "GET", "/api/v1/vehicles/count")));
+
+        assertResult(responses.get(0), "count", 503);
+        blocking.release();
+        assertEquals(200, holder.get(30, TimeUnit.SECONDS).getStatusCode().value());
+    }
+
+    private JsonNode post(List<Map<String, Object>> items) throws Exception {
+        ResponseEntity<String> response = exchange(Map.of("requests", items), token);
+        assertEquals(200, response.getStatusCode().value(), response.getBody());
+        return objectMapper.readTree(response.getBody()).get("responses");
+    }
+
+    private ResponseEntity<String> exchange(Object body, String bearer) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (bearer != null) {
+            headers.setBearerAuth(bearer);
+        }
+        return restTemplate.exchange("/api/v1/batch", HttpMethod.POST, new HttpEntity<>(body, headers), String.class);
+    }
+
+    private static Map<String, Object> item(String id, String method, String path) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("id", id);
+        item.put("method", method);
+        item.put("path", path);
+        return item;
+    }
+
+    private static void assertResult(JsonNode result, String id, int status) {
+        assertEquals(id, result.get("id").asText());
+        assertEquals(status, result.get("status").asInt(), result.toString());
+    }
+
+    /**
+     * Ruta que no responde hasta que el test la libera. Como una consulta lenta, no atiende la
+     * interrupción: cancelar la subpetición no libera su plaza de keepup.batch.max-in-flight.
+     */
+    @RestController
+    static class BlockingController {
+
+        private final Semaphore entered = new Semaphore(0);
+        private volatile CountDownLatch released = new CountDownLatch(1);
+
+        @GetMapping(BLOCKING_PATH)
+        String block() {
+            entered.release();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    released.await(30, TimeUnit.SECONDS);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return "released";
+        }
+
+        boolean awaitEntered(int requests) throws InterruptedException {
+            return entered.tryAcquire(requests, 10, TimeUnit.SECONDS);
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        void reset() {
+            entered.drainPermits();
+            released = new CountDownLatch(1);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.keepup.core.exception;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ProblemResponsesTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void body_ShouldBeValidProblemJson_WhenDetailNeedsEscaping() throws Exception {
+        ResourceNotFoundException ex = new ResourceNotFoundException("Vehicle", "license plate", "AB\"C\n1");
+
+        byte[] body = ProblemResponses.body(ex.getStatus(), ex.getDetail(), "/api/v1/vehicles/license-plate/x");
+
+        JsonNode json = objectMapper.readTree(body);
+        assertEquals("Not Found", json.get("title").asText());
+        assertEquals(404, json.get("status").asInt());
+        assertEquals("Vehicle not found with license plate: AB\"C\n1", json.get("detail").asText());
+        assertEquals("/api/v1/vehicles/license-plate/x", json.get("instance").asText());
+    }
+
+    @Test
+    void domainExceptions_ShouldNotCaptureStackTrace() {
+        ConflictException ex = new ConflictException("duplicated");
+
+        assertEquals(0, ex.getStackTrace().length);
+        assertEquals(HttpStatus.CONFLICT, ex.getStatus());
+        assertNull(ex.getCause());
+    }
+}
@@ -0,0 +1,152 @@
+package com.keepup.core.lease;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// Cada "nodo" toma sus arriendos en sus propias transacciones
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JobLeaseManagerTest {
+
+    private static final String JOB = "test-job";
+    private static final Duration TTL = Duration.ofSeconds(30);
+    private static final Duration HEARTBEAT = Duration.ofSeconds(10);
+
+    @Autowired
+    private JobLeaseRepository leaseRepository;
+    @Autowired
+    private LeaseNodeRepository nodeRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2030-01-10T12:00:00Z"));
+
+    @AfterEach
+    void tearDown() {
+        leaseRepository.deleteAll();
+        nodeRepository.deleteAll();
+    }
+
+    @Test
+    void heartbeat_ShouldSplitPartitionsAndTakeOverDeadNode() {
+        List<Set<Integer>> changes = new ArrayList<>();
+        JobLeaseManager a = node("a");
+        JobLeaseManager b = node("b");
+        JobLeaseManager c = node("c");
+        a.register(JOB, 12, changes::add);
+        b.register(JOB, 12, null);
+        c.register(JOB, 12, null);
+
+        // El primero en llegar toma todo; en el siguiente latido suelta lo que excede su cuota
+        beat(a, b, c);
+        beat(a, b, c);
+        assertEquals(List.of(4, 4, 4), List.of(a.owned(JOB).size(), b.owned(JOB).size(), c.owned(JOB).size()));
+        assertDisjointAndComplete(12, a, b, c);
+        assertEquals(12, changes.get(0).size());
+        assertEquals(4, changes.get(changes.size() - 1).size());
+
+        // c deja de latir: sus arriendos vencen y a y b se reparten sus particiones
+        for (int i = 0; i < 4; i++) {
+            beat(a, b);
+        }
+        assertEquals(List.of(6, 6), List.of(a.owned(JOB).size(), b.owned(JOB).size()));
+        assertDisjointAndComplete(12, a, b);
+        assertTrue(c.owned(JOB).isEmpty());
+    }
+
+    @Test
+    void stop_ShouldReleaseLeasesForTheRemainingNodes() {
+        JobLeaseManager a = node("a");
+        JobLeaseManager b = node("b");
+        a.register(JOB, 8, null);
+        b.register(JOB, 8, null);
+        beat(a, b);
+        beat(a, b);
+        assertEquals(4, b.owned(JOB).size());
+
+        // Una parada ordenada no espera al TTL
+        b.stop();
+        a.heartbeat();
+        assertEquals(IntStream.range(0, 8).boxed().collect(Collectors.toSet()), a.owned(JOB));
+    }
+
+    @Test
+    void hexRange_ShouldCoverAllKeysWithoutOverlap() {
+        assertEquals(new JobLeaseManager.KeyRange("00", "40"), JobLeaseManager.hexRange(0, 4));
+        assertEquals(new JobLeaseManager.KeyRange("c0", "g"), JobLeaseManager.hexRange(3, 4));
+        assertEquals(new JobLeaseManager.KeyRange("55", "aa"), JobLeaseManager.hexRange(1, 3));
+        assertEquals(2, JobLeaseManager.partitionOf(-2, 4));
+    }
+
+    private JobLeaseManager node(String nodeId) {
+        return new JobLeaseManager(leaseRepository, nodeRepository, transactionManager, clock, nodeId, TTL, HEARTBEAT);
+    }
+
+    private void beat(JobLeaseManager... nodes) {
+        for (JobLeaseManager node : nodes) {
+            node.heartbeat();
+        }
+        clock.advance(HEARTBEAT);
+    }
+
+    private static void assertDisjointAndComplete(int partitions, JobLeaseManager... nodes) {
+        Set<Integer> all = new HashSet<>();
+        int total = 0;
+        for (JobLeaseManager node : nodes) {
+            all.addAll(node.owned(JOB));
+            total += node.owned(JOB).size();
+        }
+        assertEquals(partitions, total);
+        assertEquals(IntStream.range(0, partitions).boxed().collect(Collectors.toSet()), all);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.keepup.core.storage;
+
+import com.keepup.core.lease.JobLeaseManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({BlobStore.class, LocalFileStorage.class, JobLeaseManager.class})
+@TestPropertySource(properties = "keepup.storage.gc.grace=PT0S")
+// El barrido abre sus propias transacciones: cada paso confirma de verdad
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BlobStoreTest {
+
+    @Autowired
+    private BlobStore blobStore;
+    @Autowired
+    private LocalFileStorage fileStorage;
+    @Autowired
+    private StoredBlobRepository blobRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void acquire_ShouldStoreIdenticalContentOnce() throws Exception {
+        byte[] content = "identical scan ".repeat(1000).getBytes(StandardCharsets.UTF_8);
+
+        StoredFile first = blobStore.stage(new ByteArrayInputStream(content), "text/plain", 1 << 20, null);
+        blobStore.acquire(first);
+        StoredFile second = blobStore.stage(new ByteArrayInputStream(content), "text/plain", 1 << 20, null);
+        blobStore.acquire(second);
+
+        StoredBlob blob = blobRepository.findById(first.sha256()).orElseThrow();
+        assertEquals(2, blob.getRefCount());
+        assertTrue(blob.isCompressed());
+        assertTrue(blob.getStoredSize() < content.length);
+        assertFalse(fileStorage.exists(second.key()), "Duplicate staging file should be discarded");
+        assertTrue(fileStorage.exists(blobStore.blobKey(first.sha256())));
+    }
+
+    @Test
+    void acquire_ShouldLeaveFileInStagingWhenOwnerRollsBack() throws Exception {
+        StoredFile staged = blobStore.stage(new ByteArrayInputStream(new byte[]{7, 8, 9}), "image/png", 1 << 20, null);
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        assertThrows(IllegalStateException.class, () -> transaction.executeWithoutResult(status -> {
+            blobStore.acquire(staged);
+            throw new IllegalStateException("owner save failed");
+        }));
+
+        assertFalse(blobRepository.existsById(staged.sha256()));
+        assertFalse(fileStorage.exists(blobStore.blobKey(staged.sha256())), "Rolled back blob must not reach blobs/");
+        assertTrue(fileStorage.exists(staged.key()));
+        blobStore.discard(staged);
+        assertFalse(fileStorage.exists(staged.key()));
+    }
+
+    @Test
+    void sweep_ShouldDeleteOnlyUnreferencedBlobs() throws Exception {
+        StoredFile kept = blobStore.stage(new ByteArrayInputStream(new byte[]{1, 2, 3}), "image/png", 1 << 20, null);
+        blobStore.acquire(kept);
+        StoredFile dropped = blobStore.stage(new ByteArrayInputStream(new byte[]{4, 5, 6}), "image/png", 1 << 20, null);
+        blobStore.acquire(dropped);
+        blobStore.release(dropped.sha256(), 1);
+
+        blobStore.sweep();
+
+        assertTrue(blobRepository.existsById(kept.sha256()));
+        assertTrue(fileStorage.exists(blobStore.blobKey(kept.sha256())));
+        assertFalse(blobRepository.existsById(dropped.sha256()));
+        assertFalse(fileStorage.exists(blobStore.blobKey(dropped.sha256())));
+    }
+}
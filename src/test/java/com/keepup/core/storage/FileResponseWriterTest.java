@@ -0,0 +1,94 @@
+package com.keepup.core.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileResponseWriterTest {
+
+    private final FileResponseWriter writer = new FileResponseWriter(48 * 1024);
+
+    @TempDir
+    Path dir;
+
+    private FileDownload download;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path file = dir.resolve("scan.pdf");
+        Files.write(file, "0123456789".getBytes());
+        download = new FileDownload(file, 10, "abc", "application/pdf", "scan.pdf", "private, no-cache");
+    }
+
+    @Test
+    void write_ShouldReturnPartialContent_ForSingleRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/file");
+        request.addHeader("Range", "bytes=2-4");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(download, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-4/10", response.getHeader("Content-Range"));
+        assertArrayEquals("234".getBytes(), response.getContentAsByteArray());
+    }
+
+    @Test
+    void write_ShouldReturnNotModified_WhenEtagMatches() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/file");
+        request.addHeader("If-None-Match", "\"abc\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(download, request, response);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void write_ShouldSendGzipAsStoredOrDecompress_DependingOnAcceptEncoding() throws Exception {
+        Path gz = dir.resolve("scan.pdf.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gz))) {
+            out.write("0123456789".getBytes());
+        }
+        FileDownload compressed = new FileDownload(gz, 10, "abc", "application/pdf", "scan.pdf",
+                "private, no-cache", true, Files.size(gz));
+
+        MockHttpServletRequest gzipRequest = new MockHttpServletRequest("GET", "/file");
+        gzipRequest.addHeader("Accept-Encoding", "gzip, deflate");
+        MockHttpServletResponse gzipResponse = new MockHttpServletResponse();
+        writer.write(compressed, gzipRequest, gzipResponse);
+        assertEquals("gzip", gzipResponse.getHeader("Content-Encoding"));
+        assertArrayEquals(Files.readAllBytes(gz), gzipResponse.getContentAsByteArray());
+
+        MockHttpServletRequest rangeRequest = new MockHttpServletRequest("GET", "/file");
+        rangeRequest.addHeader("Accept-Encoding", "gzip");
+        rangeRequest.addHeader("Range", "bytes=7-");
+        MockHttpServletResponse rangeResponse = new MockHttpServletResponse();
+        writer.write(compressed, rangeRequest, rangeResponse);
+        assertEquals(206, rangeResponse.getStatus());
+        assertArrayEquals("789".getBytes(), rangeResponse.getContentAsByteArray());
+    }
+
+    @Test
+    void write_ShouldRejectRangeBeyondEndOfFile() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/file");
+        request.addHeader("Range", "bytes=50-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(download, request, response);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader("Content-Range"));
+    }
+}
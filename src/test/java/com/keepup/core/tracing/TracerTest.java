@@ -0,0 +1,91 @@
+package com.keepup.core.tracing;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TracerTest {
+
+    private final List<Span> exported = new CopyOnWriteArrayList<>();
+
+    @Test
+    void filter_ShouldPropagateValidTraceIdsAndReplaceInvalidOnes() throws Exception {
+        TracingFilter filter = new TracingFilter(new Tracer(List.of(exported::add), true, 1.0, false));
+
+        MockHttpServletResponse propagated = new MockHttpServletResponse();
+        filter.doFilter(request("0123456789ABCDEF", null), propagated, new MockFilterChain());
+        assertEquals("0123456789abcdef", propagated.getHeader(Tracer.TRACE_ID_HEADER));
+        assertEquals("0123456789abcdef", exported.get(0).getTraceId());
+
+        MockHttpServletResponse replaced = new MockHttpServletResponse();
+        filter.doFilter(request("not-a-trace-id\r\nX-Evil: 1", null), replaced, new MockFilterChain());
+        String traceId = replaced.getHeader(Tracer.TRACE_ID_HEADER);
+        assertTrue(traceId.matches("[0-9a-f]{32}"), traceId);
+        assertNull(MDC.get("traceId"));
+    }
+
+    @Test
+    void startTrace_ShouldIgnoreClientSamplingUnlessTrusted() {
+        Tracer untrusted = new Tracer(List.of(exported::add), true, 0.0, false);
+        try (SpanScope scope = untrusted.startTrace("HTTP GET", null, "1")) {
+            assertFalse(untrusted.isRecording());
+        }
+        Tracer trusted = new Tracer(List.of(exported::add), true, 0.0, true);
+        try (SpanScope scope = trusted.startTrace("HTTP GET", null, "1")) {
+            assertTrue(trusted.isRecording());
+        }
+        try (SpanScope scope = trusted.startTrace("HTTP GET", null, "0")) {
+            assertFalse(trusted.isRecording());
+        }
+        Tracer disabled = new Tracer(List.of(exported::add), false, 1.0, true);
+        try (SpanScope scope = disabled.startTrace("HTTP GET", null, "1")) {
+            assertFalse(disabled.isRecording());
+        }
+        assertEquals(1, exported.size());
+    }
+
+    @Test
+    void wrap_ShouldRunTasksOnOtherThreadsAsChildSpans() throws Exception {
+        Tracer tracer = new Tracer(List.of(exported::add), true, 1.0, false);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try (executor) {
+            String rootSpanId;
+            try (SpanScope scope = tracer.startTrace("HTTP GET", "00000000000000aa", null)) {
+                rootSpanId = MDC.get("spanId");
+                String seen = executor.submit(tracer.wrap("child", () -> MDC.get("traceId"))).get();
+                assertEquals("00000000000000aa", seen);
+                // El hilo del ejecutor queda limpio para la siguiente tarea
+                assertNull(executor.submit(() -> MDC.get("traceId")).get());
+                assertEquals(rootSpanId, MDC.get("spanId"));
+            }
+            Span child = exported.get(0);
+            assertEquals("child", child.getName());
+            assertEquals(rootSpanId, child.getParentSpanId());
+            assertEquals("00000000000000aa", child.getTraceId());
+            assertNotEquals(-1, child.getDurationMicros());
+            assertNull(exported.get(1).getParentSpanId());
+        }
+    }
+
+    private static MockHttpServletRequest request(String traceId, String sampled) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/vehicles");
+        request.addHeader(Tracer.TRACE_ID_HEADER, traceId);
+        if (sampled != null) {
+            request.addHeader(Tracer.SAMPLED_HEADER, sampled);
+        }
+        return request;
+    }
+}
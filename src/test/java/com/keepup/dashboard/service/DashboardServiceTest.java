@@ -0,0 +1,133 @@
+package com.keepup.dashboard.service;
+
+import com.keepup.core.tracing.Tracer;
+import com.keepup.dashboard.dto.DashboardDTO;
+import com.keepup.notification.dto.UnreadCount;
+import com.keepup.notification.service.AlertService;
+import com.keepup.vehicle.dto.MonthlyExpenseTotal;
+import com.keepup.vehicle.dto.VehicleResponse;
+import com.keepup.vehicle.service.DocumentService;
+import com.keepup.vehicle.service.ExpenseService;
+import com.keepup.vehicle.service.VehicleService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DashboardServiceTest {
+
+    private static final Long ANA = 1L;
+    private static final YearMonth MONTH = YearMonth.of(2030, 1);
+
+    private final VehicleService vehicleService = mock(VehicleService.class);
+    private final DocumentService documentService = mock(DocumentService.class);
+    private final ExpenseService expenseService = mock(ExpenseService.class);
+    private final AlertService alertService = mock(AlertService.class);
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private DashboardService dashboardService;
+
+    @BeforeEach
+    void setUp() {
+        dashboardService = newDashboardService(6);
+        when(vehicleService.getAll(ANA)).thenAnswer(invocation -> section(() ->
+                List.of(new VehicleResponse(), new VehicleResponse())));
+        when(expenseService.getMonthlyTotals(MONTH, MONTH, null, ANA)).thenAnswer(invocation -> section(() ->
+                List.of(new MonthlyExpenseTotal(MONTH, new BigDecimal("120.50"), 3))));
+    }
+
+    private DashboardService newDashboardService(int maxConcurrentSections) {
+        return new DashboardService(vehicleService, documentService, expenseService, alertService,
+                new Tracer(List.of(), false, 0, false), Executors.newVirtualThreadPerTaskExecutor(),
+                Clock.fixed(Instant.parse("2030-01-10T12:00:00Z"), ZoneOffset.UTC),
+                Duration.ofMillis(500), maxConcurrentSections, 30, 10);
+    }
+
+    // Sección de 200 ms que anota cuántas hay en curso a la vez
+    private <T> T section(Callable<T> result) throws Exception {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(200);
+            return result.call();
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        dashboardService.shutdown();
+    }
+
+    @Test
+    void get_ShouldRunSectionsConcurrently() {
+        when(documentService.getUpcoming(LocalDate.of(2030, 1, 10), LocalDate.of(2030, 2, 9), 10, ANA))
+                .thenReturn(List.of());
+        when(alertService.getUnreadCount(ANA)).thenAnswer(invocation -> section(() -> new UnreadCount(4)));
+
+        long start = System.nanoTime();
+        DashboardDTO dashboard = dashboardService.get(ANA);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // Tres secciones de 200 ms: en paralelo, no 600 ms
+        assertTrue(elapsedMillis < 450, "took " + elapsedMillis + " ms");
+        assertEquals(2L, dashboard.vehicleCount());
+        assertEquals(new BigDecimal("120.50"), dashboard.expensesThisMonth().total());
+        assertEquals(4L, dashboard.unreadAlerts());
+        assertEquals(Map.of(), dashboard.unavailable());
+    }
+
+    @Test
+    void get_ShouldDegradeWhenASectionFailsOrTimesOut() {
+        when(documentService.getUpcoming(any(), any(), anyInt(), any()))
+                .thenThrow(new IllegalStateException("database down"));
+        when(alertService.getUnreadCount(ANA)).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return new UnreadCount(4);
+        });
+
+        DashboardDTO dashboard = dashboardService.get(ANA);
+
+        assertEquals(2, dashboard.vehicles().size());
+        assertEquals(new BigDecimal("120.50"), dashboard.expensesThisMonth().total());
+        assertNull(dashboard.upcomingExpiries());
+        assertNull(dashboard.unreadAlerts());
+        assertEquals(Map.of(DashboardService.EXPIRIES, "error", DashboardService.ALERTS, "timeout"),
+                dashboard.unavailable());
+    }
+
+    @Test
+    void get_ShouldCapSectionsInFlightAcrossRequests() {
+        dashboardService.shutdown();
+        dashboardService = newDashboardService(1);
+        when(documentService.getUpcoming(any(), any(), anyInt(), any())).thenAnswer(invocation -> section(List::of));
+        when(alertService.getUnreadCount(ANA)).thenAnswer(invocation -> section(() -> new UnreadCount(4)));
+
+        DashboardDTO dashboard = dashboardService.get(ANA);
+
+        // Cuatro secciones de 200 ms de una en una no caben en 500 ms: la tercera se pasa del plazo y
+        // la cuarta no llega a conseguir turno
+        assertEquals(1, maxRunning.get());
+        assertEquals(List.of("timeout", "timeout"), List.copyOf(dashboard.unavailable().values()));
+    }
+}
@@ -0,0 +1,170 @@
+package com.keepup.dashboard.service;
+
+import com.keepup.auth.entity.Role;
+import com.keepup.auth.entity.User;
+import com.keepup.core.exception.ResourceNotFoundException;
+import com.keepup.dashboard.dto.VehicleDetailDTO;
+import com.keepup.notification.dto.AlertDTO;
+import com.keepup.notification.dto.VehicleAlertPage;
+import com.keepup.notification.entity.Alert;
+import com.keepup.notification.service.AlertService;
+import com.keepup.vehicle.cache.VehicleOwnershipCache;
+import com.keepup.vehicle.entity.Document;
+import com.keepup.vehicle.entity.Expense;
+import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.enums.DocumentType;
+import com.keepup.vehicle.enums.ExpenseCategory;
+import com.keepup.vehicle.enums.VehicleType;
+import com.keepup.vehicle.mapper.DocumentMapper;
+import com.keepup.vehicle.mapper.ExpenseMapper;
+import com.keepup.vehicle.mapper.VehicleMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({VehicleDetailService.class, VehicleMapper.class, DocumentMapper.class, ExpenseMapper.class,
+        AlertService.class, VehicleOwnershipCache.class, SimpleMeterRegistry.class})
+class VehicleDetailServiceTest {
+
+    private static final LocalDate BASE = LocalDate.of(2030, 1, 1);
+
+    @Autowired
+    private VehicleDetailService vehicleDetailService;
+    @Autowired
+    private AlertService alertService;
+    @Autowired
+    private EntityManager entityManager;
+
+    private User owner;
+    private Role role;
+
+    @BeforeEach
+    void setUp() {
+        role = new Role(null, "ROLE_CLIENT", "Cliente");
+        entityManager.persist(role);
+        owner = user("owner@mail.com");
+    }
+
+    @Test
+    void get_ShouldLoadTheWholeDetailInFourQueriesRegardlessOfChildCount() {
+        Vehicle small = vehicle("AAA111", owner, 2);
+        Vehicle large = vehicle("BBB222", owner, 40);
+
+        VehicleDetailDTO smallDetail = countingQueries(4, () -> vehicleDetailService.get(small.getId(), 5, owner.getId()));
+        VehicleDetailDTO largeDetail = countingQueries(4, () -> vehicleDetailService.get(large.getId(), 5, owner.getId()));
+
+        assertEquals("owner@mail.com", largeDetail.vehicle().getUserEmail());
+        assertEquals(2, smallDetail.documents().items().size());
+        assertFalse(smallDetail.documents().hasMore());
+        assertNull(smallDetail.documents().next());
+        assertFalse(smallDetail.alerts().hasMore());
+
+        assertEquals(5, largeDetail.documents().items().size());
+        assertTrue(largeDetail.documents().hasMore());
+        assertEquals(BASE, largeDetail.documents().items().get(0).getExpiryDate());
+        // El listado del vehículo sigue después del último documento devuelto
+        assertEquals(BASE.plusDays(4) + "," + largeDetail.documents().items().get(4).getId(),
+                largeDetail.documents().next());
+        assertEquals(5, largeDetail.recentExpenses().items().size());
+        assertTrue(largeDetail.recentExpenses().hasMore());
+        assertEquals(BASE.plusDays(39), largeDetail.recentExpenses().items().get(0).getDate());
+        assertEquals(BASE.plusDays(35) + "," + largeDetail.recentExpenses().items().get(4).getId(),
+                largeDetail.recentExpenses().next());
+        assertEquals(5, largeDetail.alerts().items().size());
+        assertTrue(largeDetail.alerts().hasMore());
+        assertEquals(String.valueOf(largeDetail.alerts().items().get(4).id()), largeDetail.alerts().next());
+        assertNull(smallDetail.alerts().next());
+    }
+
+    @Test
+    void get_ShouldContinueAlertsInTheVehicleListingWithoutGapsOrRepeats() {
+        Vehicle vehicle = vehicle("DDD444", owner, 12);
+        VehicleDetailDTO detail = vehicleDetailService.get(vehicle.getId(), 5, owner.getId());
+
+        List<Long> seen = new ArrayList<>(detail.alerts().items().stream().map(AlertDTO::id).toList());
+        Long after = Long.valueOf(detail.alerts().next());
+        while (after != null) {
+            VehicleAlertPage page = alertService.getVehicleAlerts(vehicle.getId(), after, 5, owner.getId());
+            page.items().stream().map(AlertDTO::id).forEach(seen::add);
+            after = page.next();
+        }
+
+        assertEquals(12, seen.size());
+        assertEquals(seen.stream().sorted(Comparator.reverseOrder()).distinct().toList(), seen);
+        assertThrows(ResourceNotFoundException.class,
+                () -> alertService.getVehicleAlerts(vehicle.getId(), null, 5, user("other@mail.com").getId()));
+    }
+
+    @Test
+    void get_ShouldHideVehiclesOfOtherUsers() {
+        Vehicle vehicle = vehicle("CCC333", owner, 1);
+        User other = user("other@mail.com");
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> vehicleDetailService.get(vehicle.getId(), null, other.getId()));
+    }
+
+    private VehicleDetailDTO countingQueries(long expected, Supplier<VehicleDetailDTO> call) {
+        // Sin entidades en la sesión: todo lo que use la ficha tiene que salir de sus propias consultas
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        VehicleDetailDTO detail = call.get();
+        assertEquals(expected, statistics.getPrepareStatementCount());
+        return detail;
+    }
+
+    private User user(String email) {
+        User user = User.builder().name(email).email(email).password("x").role(role).build();
+        entityManager.persist(user);
+        return user;
+    }
+
+    private Vehicle vehicle(String plate, User user, int children) {
+        Vehicle vehicle = Vehicle.builder()
+                .licensePlate(plate).make("Mazda").model("3").year(2020)
+                .vehicleType(VehicleType.CAR).user(user)
+                .build();
+        entityManager.persist(vehicle);
+        for (int i = 0; i < children; i++) {
+            Document document = Document.builder()
+                    .type(DocumentType.SOAT).expiryDate(BASE.plusDays(i)).vehicle(vehicle)
+                    .build();
+            entityManager.persist(document);
+            entityManager.persist(Expense.builder()
+                    .category(ExpenseCategory.FUEL).amount(BigDecimal.TEN).date(BASE.plusDays(i))
+                    .userId(user.getId()).vehicle(vehicle)
+                    .build());
+            entityManager.persist(Alert.builder()
+                    .userId(user.getId()).vehicleId(vehicle.getId()).licensePlate(plate)
+                    .documentId(document.getId()).documentType(DocumentType.SOAT)
+                    .expiryDate(document.getExpiryDate()).leadDays(7)
+                    .dueAt(document.getExpiryDate().minusDays(7).atStartOfDay())
+                    .build());
+        }
+        return vehicle;
+    }
+}
@@ -0,0 +1,93 @@
+package com.keepup.notification.service;
+
+import com.keepup.core.exception.ResourceNotFoundException;
+import com.keepup.notification.dto.AlertDTO;
+import com.keepup.notification.dto.AlertPage;
+import com.keepup.notification.entity.Alert;
+import com.keepup.notification.entity.AlertCounter;
+import com.keepup.notification.repository.AlertCounterRepository;
+import com.keepup.notification.repository.AlertRepository;
+import com.keepup.vehicle.cache.VehicleOwnershipCache;
+import com.keepup.vehicle.enums.DocumentType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AlertService.class, VehicleOwnershipCache.class, SimpleMeterRegistry.class})
+class AlertServiceTest {
+
+    private static final Long ANA = 1L;
+    private static final Long LUIS = 2L;
+
+    @Autowired
+    private AlertService alertService;
+    @Autowired
+    private AlertRepository alertRepository;
+    @Autowired
+    private AlertCounterRepository counterRepository;
+
+    private final List<Long> anaAlerts = new ArrayList<>();
+    private Long luisAlert;
+    private long nextDocumentId = 1;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 5; i++) {
+            anaAlerts.add(alert(ANA));
+        }
+        luisAlert = alert(LUIS);
+        counterRepository.save(new AlertCounter(ANA, 5L, LocalDateTime.now()));
+        counterRepository.save(new AlertCounter(LUIS, 1L, LocalDateTime.now()));
+    }
+
+    @Test
+    void getFeed_ShouldWalkAllPagesNewestFirst() {
+        List<Long> seen = new ArrayList<>();
+        Long before = null;
+        do {
+            AlertPage page = alertService.getFeed(before, 2, ANA);
+            assertEquals(5, page.unread());
+            page.items().stream().map(AlertDTO::id).forEach(seen::add);
+            before = page.next();
+        } while (before != null);
+
+        assertEquals(anaAlerts.reversed(), seen);
+    }
+
+    @Test
+    void markRead_ShouldKeepCounterInStepWithAlerts() {
+        assertEquals(4, alertService.markRead(anaAlerts.get(0), ANA).unread());
+        // Marcar otra vez el mismo aviso no resta de nuevo
+        assertEquals(4, alertService.markRead(anaAlerts.get(0), ANA).unread());
+        assertThrows(ResourceNotFoundException.class, () -> alertService.markRead(luisAlert, ANA));
+
+        assertEquals(0, alertService.markAllRead(ANA).unread());
+        assertEquals(1, alertService.getUnreadCount(LUIS).unread());
+        assertNull(alertRepository.findById(luisAlert).orElseThrow().getReadAt());
+        assertEquals(0, alertService.getUnreadCount(99L).unread());
+    }
+
+    private Long alert(Long userId) {
+        return alertRepository.save(Alert.builder()
+                .userId(userId).vehicleId(1L).licensePlate("ABC123")
+                .documentId(nextDocumentId++).documentType(DocumentType.SOAT)
+                .expiryDate(LocalDate.of(2030, 1, 10)).leadDays(7)
+                .dueAt(LocalDateTime.of(2030, 1, 3, 8, 0))
+                .build()).getId();
+    }
+}
@@ -0,0 +1,233 @@
+package com.keepup.notification.service;
+
+import com.keepup.core.exception.TooManyRequestsException;
+import com.keepup.notification.dto.AlertDTO;
+import com.keepup.notification.dto.UnreadCount;
+import com.keepup.notification.entity.Alert;
+import com.keepup.notification.entity.AlertCounter;
+import com.keepup.notification.repository.AlertCounterRepository;
+import com.keepup.notification.repository.AlertRepository;
+import com.keepup.vehicle.enums.DocumentType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AlertStreamServiceTest {
+
+    private static final Long ANA = 1L;
+    private static final Long LUIS = 2L;
+
+    @Autowired
+    private AlertRepository alertRepository;
+    @Autowired
+    private AlertCounterRepository counterRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private AlertStreamService streams;
+    private long nextDocumentId = 1;
+    // Envíos de la próxima pestaña que se bloquean como un cliente que no lee
+    private CountDownLatch blockNext;
+
+    @BeforeEach
+    void setUp() {
+        // El trabajo del hilo del canal se ejecuta en el hilo de la prueba; poll() se invoca a mano
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(executor).execute(any());
+
+        // ...y los envíos también, en el hilo que los encola
+        streams = newStreams(executor, Runnable::run);
+    }
+
+    private AlertStreamService newStreams(ScheduledExecutorService executor, Executor senders) {
+        return new AlertStreamService(alertRepository, counterRepository, new SimpleMeterRegistry(), executor,
+                senders, Duration.ofMinutes(30), Duration.ofSeconds(25), Duration.ofSeconds(2), Duration.ofMillis(50),
+                Duration.ofSeconds(30), 100, 100, 2) {
+            @Override
+            SseEmitter newEmitter() {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitter.blocked = blockNext;
+                blockNext = null;
+                return emitter;
+            }
+        };
+    }
+
+    @Test
+    void connect_ShouldReplayMissedAlertsAndFanOutNewOnesToEveryTab() {
+        Long first = alert(ANA);
+        Long second = alert(ANA);
+        Long third = alert(ANA);
+        counterRepository.save(new AlertCounter(ANA, 3L, LocalDateTime.now()));
+
+        // Reconexión: recibe lo que se perdió después de Last-Event-ID y luego el contador
+        RecordingEmitter resumed = (RecordingEmitter) streams.connect(ANA, first);
+        assertEquals(List.of("alert:" + second, "alert:" + third, "unread:3"), resumed.events);
+        RecordingEmitter secondTab = (RecordingEmitter) streams.connect(ANA, null);
+        RecordingEmitter luis = (RecordingEmitter) streams.connect(LUIS, null);
+        assertEquals(List.of("unread:3"), secondTab.events);
+        assertThrows(TooManyRequestsException.class, () -> streams.connect(ANA, null));
+
+        Long fourth = alert(ANA);
+        counterRepository.save(new AlertCounter(ANA, 4L, LocalDateTime.now()));
+        streams.poll();
+        streams.poll();
+        assertEquals(List.of("alert:" + fourth, "unread:4"), secondTab.events.subList(1, secondTab.events.size()));
+        assertEquals(List.of("unread:0"), luis.events);
+
+        // Una pestaña cerrada se descubre al escribirle y deja de contar
+        secondTab.closed = true;
+        alert(ANA);
+        streams.poll();
+        assertEquals(2, streams.connectionCount());
+    }
+
+    @Test
+    void poll_ShouldDeliverAlertsCommittedAfterAHigherIdOnce() {
+        RecordingEmitter tab = (RecordingEmitter) streams.connect(ANA, null);
+        Long first = alert(ANA);
+        Alert uncommitted = alertRepository.findById(alert(ANA)).orElseThrow();
+        Long third = alert(ANA);
+        // La transacción del segundo aviso aún no confirmó cuando se sondea
+        alertRepository.delete(uncommitted);
+        alertRepository.flush();
+        streams.poll();
+        assertEquals(List.of("unread:0", "alert:" + first, "alert:" + third), tab.events);
+
+        // Se confirma con su id original, menor que el último repartido
+        entityManager.createNativeQuery("""
+                        INSERT INTO alert (id, user_id, vehicle_id, license_plate, document_id, document_type,
+                                           expiry_date, lead_days, due_at, created_at)
+                        VALUES (?, ?, 1, 'ABC123', ?, 'SOAT', ?, 7, ?, ?)
+                        """)
+                .setParameter(1, uncommitted.getId()).setParameter(2, ANA)
+                .setParameter(3, uncommitted.getDocumentId()).setParameter(4, uncommitted.getExpiryDate())
+                .setParameter(5, uncommitted.getDueAt()).setParameter(6, LocalDateTime.now())
+                .executeUpdate();
+        // Otra pestaña que reconecta en medio ya lo recibe en la reposición
+        RecordingEmitter resumed = (RecordingEmitter) streams.connect(ANA, first);
+        streams.poll();
+        streams.poll();
+
+        // Sin id de evento: el Last-Event-ID del navegador sigue en el tercero
+        assertEquals(List.of("unread:0", "alert:" + first, "alert:" + third, "late:" + uncommitted.getId()),
+                tab.events);
+        assertEquals(List.of("alert:" + uncommitted.getId(), "alert:" + third, "unread:0"), resumed.events);
+    }
+
+    @Test
+    void expireSlowSends_ShouldDropBlockedClientWithoutDelayingOthers() throws Exception {
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(executor).execute(any());
+        ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            AlertStreamService slowStreams = newStreams(executor, senders);
+            blockNext = new CountDownLatch(1);
+            RecordingEmitter stuck = (RecordingEmitter) slowStreams.connect(ANA, null);
+
+            // El cliente que no lee no bloquea al hilo del canal ni a los demás
+            RecordingEmitter luis = (RecordingEmitter) slowStreams.connect(LUIS, null);
+            assertTrue(luis.received.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("unread:0"), luis.events);
+
+            Thread.sleep(100);
+            slowStreams.expireSlowSends();
+            assertEquals(1, slowStreams.connectionCount());
+            // Su escritura se interrumpe y la respuesta se completa en su propio hilo
+            assertTrue(stuck.completed.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of(), stuck.events);
+        } finally {
+            senders.shutdownNow();
+        }
+    }
+
+    private Long alert(Long userId) {
+        return alertRepository.save(Alert.builder()
+                .userId(userId).vehicleId(1L).licensePlate("ABC123")
+                .documentId(nextDocumentId++).documentType(DocumentType.SOAT)
+                .expiryDate(LocalDate.of(2030, 1, 10)).leadDays(7)
+                .dueAt(LocalDateTime.of(2030, 1, 3, 8, 0))
+                .build()).getId();
+    }
+
+    /**
+     * Emisor sin conexión HTTP que anota los eventos enviados como "alert:id", "late:id" (aviso
+     * sin id de evento) o "unread:n".
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch received = new CountDownLatch(1);
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile boolean closed;
+        private volatile CountDownLatch blocked;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (closed) {
+                throw new IOException("Broken pipe");
+            }
+            if (blocked != null) {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    throw new IOException("Write interrupted", e);
+                }
+            }
+            Set<ResponseBodyEmitter.DataWithMediaType> parts = builder.build();
+            boolean withId = parts.stream().anyMatch(part -> part.getData() instanceof String text
+                    && text.contains("id:"));
+            for (var part : parts) {
+                if (part.getData() instanceof AlertDTO alert) {
+                    events.add((withId ? "alert:" : "late:") + alert.id());
+                } else if (part.getData() instanceof UnreadCount count) {
+                    events.add("unread:" + count.unread());
+                }
+            }
+            received.countDown();
+        }
+
+        @Override
+        public void complete() {
+            super.complete();
+            completed.countDown();
+        }
+    }
+}
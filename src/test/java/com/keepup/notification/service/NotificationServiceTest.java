@@ -0,0 +1,198 @@
+package com.keepup.notification.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.keepup.auth.entity.Role;
+import com.keepup.auth.entity.User;
+import com.keepup.auth.repository.RoleRepository;
+import com.keepup.auth.repository.UserRepository;
+import com.keepup.core.config.MailConfig;
+import com.keepup.notification.entity.Alert;
+import com.keepup.notification.entity.MailDeadLetter;
+import com.keepup.notification.entity.NotificationOutbox;
+import com.keepup.notification.repository.AlertRepository;
+import com.keepup.notification.repository.MailDeadLetterRepository;
+import com.keepup.notification.repository.NotificationOutboxRepository;
+import com.keepup.notification.template.MailTemplates;
+import com.keepup.vehicle.enums.DocumentType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Multipart;
+import jakarta.mail.Part;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.mail.MailSenderAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "keepup.mail.digest-window=PT0.3S",
+        "keepup.mail.retry-delay=PT0.05S",
+        "keepup.mail.max-attempts=2",
+        "keepup.mail.max-digest-alerts=3"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(MailSenderAutoConfiguration.class)
+@Import({NotificationService.class, MailTemplates.class, MailConfig.class, SimpleMeterRegistry.class})
+// Los hilos de envío leen los avisos en sus propias transacciones: los datos deben estar confirmados
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationServiceTest {
+
+    @RegisterExtension
+    static final GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private NotificationService notificationService;
+    @Autowired
+    private AlertRepository alertRepository;
+    @Autowired
+    private MailDeadLetterRepository deadLetterRepository;
+    @Autowired
+    private NotificationOutboxRepository outboxRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private User ana;
+    private User luis;
+    private long nextDocumentId = 1;
+
+    @BeforeEach
+    void setUp() {
+        Role role = roleRepository.save(new Role(null, "ROLE_CLIENT", "Cliente"));
+        ana = userRepository.save(User.builder().name("Ana").email("ana@mail.com").password("x").role(role).build());
+        luis = userRepository.save(User.builder().name("Luis").email("luis@mail.com").password("x").role(role).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        deadLetterRepository.deleteAll();
+        outboxRepository.deleteAll();
+        alertRepository.deleteAll();
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+    }
+
+    @Test
+    void submit_ShouldCoalesceAlertsOfSameUserIntoOneMail() throws Exception {
+        double sentBefore = meterRegistry.counter("keepup.mail.sent").count();
+        for (String plate : List.of("AAA111", "BBB222", "CCC333")) {
+            assertTrue(submit(ana, plate));
+        }
+        assertTrue(submit(luis, "DDD444"));
+
+        assertTrue(greenMail.waitForIncomingEmail(5000, 2));
+        Thread.sleep(500);
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(2, received.length);
+
+        MimeMessage toAna = received[0].getAllRecipients()[0].toString().equals("ana@mail.com")
+                ? received[0] : received[1];
+        assertEquals("Tienes 3 documentos por vencer", toAna.getSubject());
+        String text = part(toAna, "text/plain");
+        assertTrue(text.startsWith("Hola Ana,\n\nEstos documentos de tus vehículos están por vencer:\n\n"), text);
+        assertTrue(text.contains("- SOAT de BBB222: vence el 10/01/2030\n"), text);
+        String html = part(toAna, "text/html");
+        assertTrue(html.contains("AAA111") && html.contains("BBB222") && html.contains("CCC333"), html);
+        assertEquals(2, meterRegistry.counter("keepup.mail.sent").count() - sentBefore);
+        // Enviado el correo, sus filas de la outbox ya no hacen falta
+        assertEquals(0, outboxRepository.count());
+    }
+
+    @Test
+    void submit_ShouldSplitLargeDigestsWithoutRepeatingAlerts() throws Exception {
+        // Todas las filas antes de encolar: los resúmenes llenos suelen salir en el mismo lote
+        List<NotificationOutbox> rows = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            rows.add(save(luis, "LUI" + i));
+        }
+        for (NotificationOutbox row : rows) {
+            assertTrue(notificationService.submit(row.getId(), row.getAlertId(), row.getUserId()));
+        }
+
+        assertTrue(greenMail.waitForIncomingEmail(5000, 10));
+        Thread.sleep(500);
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(10, received.length);
+        Set<String> plates = new HashSet<>();
+        for (MimeMessage message : received) {
+            String text = part(message, "text/plain");
+            List<String> lines = text.lines().filter(line -> line.startsWith("- SOAT de ")).toList();
+            assertTrue(lines.size() <= 3, text);
+            lines.forEach(line -> assertTrue(plates.add(line), "Alert mailed twice: " + line));
+        }
+        assertEquals(30, plates.size());
+    }
+
+    @Test
+    void submit_ShouldDeadLetterAfterRetriesWhenSmtpIsDown() throws Exception {
+        greenMail.stop();
+        assertTrue(submit(ana, "AAA111"));
+
+        List<MailDeadLetter> deadLetters = List.of();
+        for (int i = 0; i < 100 && deadLetters.isEmpty(); i++) {
+            Thread.sleep(100);
+            deadLetters = deadLetterRepository.findAll();
+        }
+        assertEquals(1, deadLetters.size());
+        assertEquals(2, deadLetters.get(0).getAttempts());
+        assertEquals("ana@mail.com", deadLetters.get(0).getRecipient());
+        assertEquals(ana.getId(), deadLetters.get(0).getUserId());
+        assertEquals(0, outboxRepository.count());
+    }
+
+    private static String part(Part part, String mimeType) throws Exception {
+        if (part.isMimeType(mimeType)) {
+            return part.getContent().toString().replace("\r\n", "\n");
+        }
+        if (part.getContent() instanceof Multipart multipart) {
+            for (int i = 0; i < multipart.getCount(); i++) {
+                String found = part(multipart.getBodyPart(i), mimeType);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean submit(User user, String plate) {
+        NotificationOutbox row = save(user, plate);
+        return notificationService.submit(row.getId(), row.getAlertId(), row.getUserId());
+    }
+
+    private NotificationOutbox save(User user, String plate) {
+        Alert alert = alertRepository.save(Alert.builder()
+                .userId(user.getId()).vehicleId(1L).licensePlate(plate)
+                .documentId(nextDocumentId++).documentType(DocumentType.SOAT)
+                .expiryDate(LocalDate.of(2030, 1, 10)).leadDays(7)
+                .dueAt(LocalDateTime.of(2030, 1, 3, 8, 0))
+                .build());
+        return outboxRepository.save(NotificationOutbox.builder()
+                .alertId(alert.getId()).userId(alert.getUserId()).createdAt(LocalDateTime.now())
+                .build());
+    }
+}
@@ -0,0 +1,158 @@
+package com.keepup.notification.service;
+
+import com.keepup.notification.entity.NotificationOutbox;
+import com.keepup.notification.repository.NotificationOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// Cada publicador reserva sus lotes en su propia transacción: sin transacción de prueba alrededor
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxPublisherTest {
+
+    @Autowired
+    private NotificationOutboxRepository outboxRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        outboxRepository.deleteAll();
+    }
+
+    @Test
+    void publishBatch_ShouldDeliverEachRowOnceAcrossConcurrentPublishers() throws Exception {
+        enqueue(1000);
+        Queue<Long> delivered = new ConcurrentLinkedQueue<>();
+        NotificationService notificationService = mailPipeline();
+        when(notificationService.submit(any(), any(), any())).thenAnswer(invocation -> {
+            delivered.add(invocation.getArgument(1));
+            return true;
+        });
+
+        // Cuatro "nodos" vaciando la misma tabla a la vez
+        ExecutorService nodes = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> runs = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                OutboxPublisher publisher = publisher(notificationService);
+                runs.add(nodes.submit(() -> {
+                    while (publisher.publishBatch() > 0) {
+                        // Sigue mientras haya filas libres
+                    }
+                }));
+            }
+            for (Future<?> run : runs) {
+                run.get();
+            }
+        } finally {
+            nodes.shutdown();
+        }
+
+        assertEquals(1000, delivered.size());
+        assertEquals(1000, new HashSet<>(delivered).size());
+        // Las filas siguen reservadas hasta que el pipeline envíe el correo
+        assertEquals(1000, outboxRepository.findAll().stream().filter(row -> row.getClaimedBy() != null).count());
+    }
+
+    @Test
+    void publishBatch_ShouldKeepRowsThePipelineRejects() {
+        enqueue(5);
+        AtomicInteger accepted = new AtomicInteger();
+        NotificationService notificationService = mailPipeline();
+        when(notificationService.submit(any(), any(), any())).thenAnswer(invocation -> accepted.incrementAndGet() <= 3);
+
+        assertEquals(3, publisher(notificationService).publishBatch());
+        // Las rechazadas se sueltan para el siguiente sondeo de cualquier nodo
+        assertEquals(List.of(4L, 5L), outboxRepository.findAll().stream()
+                .filter(row -> row.getClaimedBy() == null)
+                .map(NotificationOutbox::getAlertId).sorted().toList());
+        when(notificationService.submit(any(), any(), any())).thenReturn(true);
+        assertEquals(2, publisher(notificationService).publishBatch());
+    }
+
+    @Test
+    void publishBatch_ShouldRetakeRowsWhenTheClaimOfAStoppedNodeExpires() throws Exception {
+        enqueue(3);
+        Queue<Long> delivered = new ConcurrentLinkedQueue<>();
+        NotificationService notificationService = mailPipeline();
+        when(notificationService.submit(any(), any(), any())).thenAnswer(invocation -> {
+            delivered.add(invocation.getArgument(1));
+            return true;
+        });
+        OutboxPublisher crashed = publisher(notificationService, Duration.ofMillis(200));
+        OutboxPublisher survivor = publisher(notificationService, Duration.ofMillis(200));
+
+        assertEquals(3, crashed.publishBatch());
+        // El primer nodo se cae con los avisos en su pipeline: nadie más los toma mientras la reserva dure
+        assertEquals(0, survivor.publishBatch());
+        Thread.sleep(300);
+        assertEquals(3, survivor.publishBatch());
+        assertEquals(List.of(1L, 2L, 3L, 1L, 2L, 3L), List.copyOf(delivered));
+    }
+
+    @Test
+    void renewClaims_ShouldKeepRowsOfALiveNode() throws Exception {
+        enqueue(2);
+        NotificationService notificationService = mailPipeline();
+        when(notificationService.submit(any(), any(), any())).thenReturn(true);
+        OutboxPublisher holder = publisher(notificationService, Duration.ofMillis(200));
+        OutboxPublisher other = publisher(notificationService, Duration.ofMillis(200));
+
+        assertEquals(2, holder.publishBatch());
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(100);
+            holder.renewClaims();
+            assertEquals(0, other.publishBatch());
+        }
+    }
+
+    private OutboxPublisher publisher(NotificationService notificationService) {
+        return publisher(notificationService, Duration.ofMinutes(2));
+    }
+
+    private OutboxPublisher publisher(NotificationService notificationService, Duration claimLease) {
+        return new OutboxPublisher(outboxRepository, notificationService, transactionManager,
+                new SimpleMeterRegistry(), false, 50, Duration.ofMillis(100), Duration.ofSeconds(1), claimLease);
+    }
+
+    private static NotificationService mailPipeline() {
+        NotificationService notificationService = mock(NotificationService.class);
+        when(notificationService.isEnabled()).thenReturn(true);
+        return notificationService;
+    }
+
+    private void enqueue(int count) {
+        outboxRepository.saveAll(LongStream.rangeClosed(1, count)
+                .mapToObj(alertId -> NotificationOutbox.builder()
+                        .alertId(alertId).userId(alertId % 7).createdAt(LocalDateTime.now())
+                        .build())
+                .toList());
+    }
+}
@@ -0,0 +1,220 @@
+package com.keepup.notification.service;
+
+import com.keepup.auth.entity.Role;
+import com.keepup.auth.entity.User;
+import com.keepup.core.lease.JobLeaseManager;
+import com.keepup.core.storage.BlobStore;
+import com.keepup.core.storage.LocalFileStorage;
+import com.keepup.notification.entity.Alert;
+import com.keepup.notification.repository.AlertCounterRepository;
+import com.keepup.notification.repository.AlertRepository;
+import com.keepup.notification.repository.NotificationOutboxRepository;
+import com.keepup.vehicle.cache.VehicleOwnershipCache;
+import com.keepup.vehicle.dto.DocumentDTO;
+import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.enums.DocumentType;
+import com.keepup.vehicle.enums.VehicleType;
+import com.keepup.vehicle.event.DocumentExpiryChangedEvent;
+import com.keepup.vehicle.mapper.DocumentMapper;
+import com.keepup.vehicle.service.DocumentService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DocumentService.class, DocumentMapper.class, LocalFileStorage.class, BlobStore.class,
+        JobLeaseManager.class, VehicleOwnershipCache.class, SimpleMeterRegistry.class})
+class SchedulerServiceTest {
+
+    private static final ZoneId ZONE = ZoneId.of("America/Bogota");
+    private static final LocalDate TODAY = LocalDate.of(2030, 1, 10);
+
+    @Autowired
+    private DocumentService documentService;
+    @Autowired
+    private AlertRepository alertRepository;
+    @Autowired
+    private AlertCounterRepository counterRepository;
+    @Autowired
+    private NotificationOutboxRepository outboxRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManager entityManager;
+
+    private final MutableClock clock = new MutableClock(TODAY.atTime(9, 0).atZone(ZONE).toInstant());
+    private JobLeaseManager leaseManager;
+    private SchedulerService scheduler;
+    private User owner;
+    private Vehicle vehicle;
+
+    @BeforeEach
+    void setUp() {
+        Role role = new Role(null, "ROLE_CLIENT", "Cliente");
+        entityManager.persist(role);
+        owner = User.builder().name("Owner").email("owner@mail.com").password("x").role(role).build();
+        entityManager.persist(owner);
+        vehicle = Vehicle.builder()
+                .licensePlate("ABC123").make("Mazda").model("3").year(2020)
+                .vehicleType(VehicleType.CAR).user(owner)
+                .build();
+        entityManager.persist(vehicle);
+
+        // Este nodo tiene solo la partición del dueño (de 4)
+        leaseManager = mock(JobLeaseManager.class);
+        when(leaseManager.owned(SchedulerService.JOB))
+                .thenReturn(Set.of(JobLeaseManager.partitionOf(owner.getId(), 4)));
+
+        scheduler = scheduler(mock(ScheduledExecutorService.class), 1000);
+    }
+
+    @Test
+    void recover_ShouldFireMissedAlertsOnceAndQueueUpcomingOnes() {
+        Long dueToday = create(TODAY.plusDays(1));   // antelación 1: hoy a las 08:00, ya pasó
+        Long dueTomorrow = create(TODAY.plusDays(8)); // antelación 7: mañana
+        create(TODAY.plusDays(40));                   // fuera de la ventana
+
+        scheduler.recover();
+        assertEquals(List.of(dueToday), alertDocumentIds());
+        assertEquals(1, scheduler.queuedCount());
+
+        // Un reinicio vuelve a recorrer los días recientes sin duplicar avisos ni su entrada en la outbox
+        scheduler.recover();
+        assertEquals(List.of(dueToday), alertDocumentIds());
+        assertEquals(1, outboxRepository.count());
+        assertEquals(Optional.of(1L), counterRepository.findUnread(owner.getId()));
+
+        clock.advance(Duration.ofDays(1));
+        scheduler.tick();
+        assertEquals(List.of(dueToday, dueTomorrow), alertDocumentIds());
+        Alert alert = alertRepository.findAll().get(1);
+        assertEquals(7, alert.getLeadDays());
+        assertEquals(TODAY.plusDays(1).atTime(8, 0), alert.getDueAt());
+        assertEquals("ABC123", alert.getLicensePlate());
+    }
+
+    @Test
+    void reschedule_ShouldReplaceQueuedAlertsOfRenewedDocument() {
+        Long renewed = create(TODAY.plusDays(8));
+        scheduler.recover();
+        assertEquals(1, scheduler.queuedCount());
+
+        // Renovado: el aviso de mañana sobra y el nuevo vencimiento queda fuera de la ventana
+        DocumentDTO dto = DocumentDTO.builder().type(DocumentType.SOAT).expiryDate(TODAY.plusYears(1)).build();
+        documentService.update(vehicle.getId(), renewed, dto, owner.getId());
+        scheduler.reschedule(new DocumentExpiryChangedEvent(
+                renewed, owner.getId(), TODAY.plusDays(8), TODAY.plusYears(1)));
+        assertEquals(0, scheduler.queuedCount());
+
+        // Creado tarde: de las antelaciones ya vencidas solo se avisa la menor, en el acto
+        Long late = create(TODAY.plusDays(5));
+        scheduler.reschedule(new DocumentExpiryChangedEvent(late, owner.getId(), null, TODAY.plusDays(5)));
+        assertEquals(1, scheduler.queuedCount());
+
+        clock.advance(Duration.ofDays(1));
+        scheduler.tick();
+        assertEquals(List.of(late), alertDocumentIds());
+        assertEquals(7, alertRepository.findAll().get(0).getLeadDays());
+    }
+
+    @Test
+    void tick_ShouldBackOffWhileQueueIsFullAndSkipExpiredDocuments() {
+        Long expired = create(TODAY.minusDays(1));   // antelación 1 cae en los días de recuperación
+        Long dueTomorrow = create(TODAY.plusDays(8));
+        create(TODAY.plusDays(9));                   // pasado mañana: no cabe en la cola
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        scheduler = scheduler(executor, 1);
+
+        scheduler.recover();
+        assertEquals(List.of(), alertDocumentIds(), "Expired document " + expired + " must not get a lead-time alert");
+        assertEquals(1, scheduler.queuedCount());
+
+        // Mañana antes de la hora de disparo: la ventana sigue detenida y la cabeza aún no vence
+        clock.advance(Duration.ofHours(22));
+        scheduler.tick();
+        ArgumentCaptor<Long> delays = ArgumentCaptor.forClass(Long.class);
+        verify(executor, atLeastOnce()).schedule(any(Runnable.class), delays.capture(), eq(TimeUnit.MILLISECONDS));
+        assertEquals(Duration.ofMinutes(1).toMillis(), delays.getValue());
+
+        clock.advance(Duration.ofHours(1));
+        scheduler.tick();
+        assertEquals(List.of(dueTomorrow), alertDocumentIds());
+        // Con la cola vacía, el siguiente reintento vuelve a ampliar la ventana
+        clock.advance(Duration.ofMinutes(1));
+        scheduler.tick();
+        assertEquals(1, scheduler.queuedCount());
+    }
+
+    private SchedulerService scheduler(ScheduledExecutorService executor, int maxQueued) {
+        // Los pasos se invocan desde la prueba: el executor no ejecuta los despertares programados
+        return new SchedulerService(documentService, alertRepository, counterRepository, outboxRepository,
+                mock(OutboxPublisher.class), leaseManager, transactionManager, clock,
+                executor, true, LocalTime.of(8, 0), new int[]{15, 7, 1}, 2, 3, maxQueued, 4);
+    }
+
+    private Long create(LocalDate expiryDate) {
+        DocumentDTO dto = DocumentDTO.builder().type(DocumentType.SOAT).expiryDate(expiryDate).build();
+        return documentService.create(vehicle.getId(), dto, owner.getId()).getId();
+    }
+
+    private List<Long> alertDocumentIds() {
+        return alertRepository.findAll().stream().map(Alert::getDocumentId).sorted().toList();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZONE;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
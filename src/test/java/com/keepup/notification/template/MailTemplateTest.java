@@ -0,0 +1,67 @@
+package com.keepup.notification.template;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MailTemplateTest {
+
+    @Test
+    void render_ShouldRepeatSectionsAndDropStandaloneTagLines() {
+        MailTemplate template = MailTemplate.compile("test", """
+                Hola {{name}},
+                {{#items}}
+                - {{plate}} ({{name}})
+                {{/items}}
+                {{^items}}
+                Nada pendiente
+                {{/items}}
+                {{! comentario }}
+                {{#single}}uno{{/single}}{{^single}}varios{{/single}}
+                """, false);
+
+        assertEquals("Hola Ana,\n- AAA111 (Ana)\n- BBB222 (x)\nvarios\n", template.render(Map.of(
+                "name", "Ana",
+                "single", false,
+                "items", List.of(Map.of("plate", "AAA111"), Map.of("plate", "BBB222", "name", "x")))));
+        assertEquals("Hola <b>,\nNada pendiente\nuno\n",
+                template.render(Map.of("name", "<b>", "single", true, "items", List.of())));
+    }
+
+    @Test
+    void render_ShouldEscapeHtmlUnlessTripleBraces() {
+        MailTemplate template = MailTemplate.compile("test", "<p>{{name}}</p>{{{raw}}}", true);
+
+        assertEquals("<p>&lt;script&gt;&quot;Ana&quot; &amp; &#39;Luis&#39;</p><i>ok</i>",
+                template.render(Map.of("name", "<script>\"Ana\" & 'Luis'", "raw", "<i>ok</i>")));
+    }
+
+    @Test
+    void compile_ShouldRejectMalformedTemplates() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> MailTemplate.compile("broken", "a\n{{#items}}\n{{/other}}", false));
+        assertTrue(error.getMessage().contains("line 3"), error.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> MailTemplate.compile("broken", "{{#items}}", false));
+        assertThrows(IllegalArgumentException.class, () -> MailTemplate.compile("broken", "{{name", false));
+    }
+
+    @Test
+    void get_ShouldFallBackToDefaultLanguage() {
+        MailTemplates templates = new MailTemplates(new DefaultResourceLoader(), "classpath:mail/",
+                Locale.forLanguageTag("es-CO"), Duration.ZERO);
+
+        LocalizedMail mail = templates.get("expiry-digest", Locale.ENGLISH);
+
+        assertEquals("es", mail.locale().getLanguage());
+        assertEquals("revisión técnico-mecánica", mail.message("document-type.TECHNICAL_INSPECTION"));
+        assertTrue(mail.html() != null);
+    }
+}
@@ -0,0 +1,115 @@
+package com.keepup.vehicle.analytics;
+
+import com.keepup.core.exception.BadRequestException;
+import com.keepup.vehicle.dto.ExpenseCubeQuery;
+import com.keepup.vehicle.dto.ExpenseCubeResult;
+import com.keepup.vehicle.enums.ExpenseCategory;
+import com.keepup.vehicle.enums.VehicleType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpenseCubeTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void aggregate_ShouldMatchNaiveTotalsAcrossParallelScan() {
+        Random random = new Random(42);
+        ExpenseCube cube = new ExpenseCube();
+        List<ExpenseFact> facts = new ArrayList<>();
+        for (int i = 0; i < 3 * ExpenseCube.SPLIT_THRESHOLD; i++) {
+            int vehicle = random.nextInt(20);
+            ExpenseFact fact = new ExpenseFact((long) vehicle, "PLATE" + vehicle,
+                    vehicle % 2 == 0 ? VehicleType.CAR : VehicleType.MOTORCYCLE,
+                    "Make" + vehicle % 3, "Model" + vehicle, 2010 + vehicle % 5,
+                    ExpenseCategory.values()[random.nextInt(ExpenseCategory.values().length)],
+                    LocalDate.of(2023, 1, 1).plusDays(random.nextInt(730)),
+                    BigDecimal.valueOf(random.nextInt(100_000), 2));
+            facts.add(fact);
+            cube.add(fact);
+        }
+
+        ExpenseCubeQuery query = ExpenseCubeQuery.builder()
+                .groupBy(List.of(CubeDimension.MAKE, CubeDimension.QUARTER))
+                .filters(Map.of(CubeDimension.CATEGORY, List.of("FUEL", "tolls")))
+                .from(LocalDate.of(2023, 3, 15))
+                .to(LocalDate.of(2024, 9, 30))
+                .build();
+        ExpenseCubeResult result = cube.aggregate(query, pool);
+
+        Map<String, BigDecimal> expected = new HashMap<>();
+        for (ExpenseFact fact : facts) {
+            if ((fact.category() == ExpenseCategory.FUEL || fact.category() == ExpenseCategory.TOLLS)
+                    && !fact.date().isBefore(query.getFrom()) && !fact.date().isAfter(query.getTo())) {
+                String key = fact.make() + "|" + fact.date().getYear() + "-Q" + ((fact.date().getMonthValue() - 1) / 3 + 1);
+                expected.merge(key, fact.amount(), BigDecimal::add);
+            }
+        }
+        assertEquals(expected.size(), result.rows().size());
+        for (ExpenseCubeResult.Row row : result.rows()) {
+            String key = row.group().get(CubeDimension.MAKE) + "|" + row.group().get(CubeDimension.QUARTER);
+            assertEquals(0, expected.get(key).compareTo(row.total()), key);
+        }
+        for (int i = 1; i < result.rows().size(); i++) {
+            assertTrue(result.rows().get(i - 1).total().compareTo(result.rows().get(i).total()) >= 0);
+        }
+    }
+
+    @Test
+    void apply_ShouldReplaceAndRemoveRows() {
+        ExpenseCube cube = new ExpenseCube();
+        ExpenseFact fuel = fact(ExpenseCategory.FUEL, "100.00", LocalDate.of(2025, 1, 5));
+        ExpenseFact repair = fact(ExpenseCategory.REPAIR, "300.00", LocalDate.of(2025, 1, 9));
+        cube.add(fuel);
+        cube.add(repair);
+
+        // La reparación pasa a mantenimiento en marzo y el combustible se borra
+        ExpenseFact maintenance = fact(ExpenseCategory.MAINTENANCE, "250.00", LocalDate.of(2025, 3, 2));
+        cube.apply(repair, maintenance);
+        cube.apply(fuel, null);
+
+        ExpenseCubeResult result = cube.aggregate(ExpenseCubeQuery.builder()
+                .groupBy(List.of(CubeDimension.CATEGORY, CubeDimension.MONTH)).build(), pool);
+
+        assertEquals(1, result.rows().size());
+        ExpenseCubeResult.Row row = result.rows().get(0);
+        assertEquals(Map.of(CubeDimension.CATEGORY, "MAINTENANCE", CubeDimension.MONTH, "2025-03"), row.group());
+        assertEquals(new BigDecimal("250.00"), row.total());
+        assertEquals(1, row.count());
+    }
+
+    @Test
+    void aggregate_ShouldRejectMalformedFilterValues() {
+        ExpenseCube cube = new ExpenseCube();
+        cube.add(fact(ExpenseCategory.FUEL, "10.00", LocalDate.of(2025, 1, 5)));
+
+        ExpenseCubeQuery query = ExpenseCubeQuery.builder()
+                .filters(Map.of(CubeDimension.QUARTER, List.of("2025-Q5")))
+                .build();
+
+        assertThrows(BadRequestException.class, () -> cube.aggregate(query, pool));
+    }
+
+    private static ExpenseFact fact(ExpenseCategory category, String amount, LocalDate date) {
+        return new ExpenseFact(1L, "ABC123", VehicleType.CAR, "Mazda", "3", 2020, category, date,
+                new BigDecimal(amount));
+    }
+}
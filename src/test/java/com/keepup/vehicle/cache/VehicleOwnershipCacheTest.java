@@ -0,0 +1,93 @@
+package com.keepup.vehicle.cache;
+
+import com.keepup.auth.entity.Role;
+import com.keepup.auth.entity.User;
+import com.keepup.core.exception.ResourceNotFoundException;
+import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.enums.VehicleType;
+import com.keepup.vehicle.event.VehicleOwnershipChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({VehicleOwnershipCache.class, SimpleMeterRegistry.class})
+class VehicleOwnershipCacheTest {
+
+    @Autowired
+    private VehicleOwnershipCache ownershipCache;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void isOwner_ShouldAnswerFromMemoryUntilTheVehicleIsDeleted() {
+        Role role = new Role(null, "ROLE_CLIENT", "Cliente");
+        entityManager.persist(role);
+        User ana = user("ana@mail.com", role);
+        User luis = user("luis@mail.com", role);
+        Vehicle vehicle = Vehicle.builder()
+                .licensePlate("ABC123").make("Mazda").model("3").year(2020)
+                .vehicleType(VehicleType.CAR).user(ana)
+                .build();
+        entityManager.persist(vehicle);
+        entityManager.flush();
+
+        assertTrue(ownershipCache.isOwner(vehicle.getId(), ana.getId()));
+        assertFalse(ownershipCache.isOwner(vehicle.getId(), luis.getId()));
+        assertThrows(ResourceNotFoundException.class, () -> ownershipCache.requireOwned(vehicle.getId(), luis.getId()));
+        assertFalse(ownershipCache.isOwner(Long.MAX_VALUE, ana.getId()));
+        assertEquals(2, meterRegistry.counter("keepup.vehicle.ownership-cache.hits").count());
+        assertEquals(2, meterRegistry.counter("keepup.vehicle.ownership-cache.misses").count());
+
+        // Tras el borrado la entrada desaparece y la siguiente consulta ya no encuentra el vehículo
+        entityManager.remove(vehicle);
+        entityManager.flush();
+        ownershipCache.onOwnershipChanged(new VehicleOwnershipChangedEvent(vehicle.getId()));
+        assertEquals(0, ownershipCache.size());
+        assertFalse(ownershipCache.isOwner(vehicle.getId(), ana.getId()));
+    }
+
+    @Test
+    void longLongMap_ShouldBehaveLikeAHashMapUnderRandomChurn() {
+        LongLongMap map = new LongLongMap(4);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            long key = 1 + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            } else {
+                long value = random.nextLong(1, Long.MAX_VALUE);
+                expected.put(key, value);
+                map.put(key, value);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (long key = 1; key <= 5_000; key++) {
+            assertEquals(expected.getOrDefault(key, LongLongMap.MISSING), map.get(key));
+        }
+    }
+
+    private User user(String email, Role role) {
+        User user = User.builder().name(email).email(email).password("x").role(role).build();
+        entityManager.persist(user);
+        return user;
+    }
+}
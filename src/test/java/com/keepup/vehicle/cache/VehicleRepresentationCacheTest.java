@@ -0,0 +1,128 @@
+package com.keepup.vehicle.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.keepup.auth.entity.User;
+import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.enums.VehicleType;
+import com.keepup.vehicle.mapper.VehicleMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VehicleRepresentationCacheTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2030, 1, 1, 8, 0);
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final VehicleMapper vehicleMapper = new VehicleMapper();
+
+    @Test
+    void encode_ShouldMatchTheDtoSerializedByJacksonInBothFormats() throws IOException {
+        VehicleRepresentationCache cache = cache(1 << 20, false);
+        Vehicle first = vehicle(1L, "AAA111");
+        Vehicle second = vehicle(2L, "BBB222");
+
+        // JSON: los mismos bytes que devolvía ResponseEntity<VehicleResponse>
+        assertArrayEquals(objectMapper.writeValueAsBytes(vehicleMapper.toResponse(first)),
+                bytes(cache.encode(first, RepresentationFormat.JSON)));
+        byte[] array = bytes(cache.encodeAll(List.of(first, second), RepresentationFormat.JSON));
+        assertArrayEquals(objectMapper.writeValueAsBytes(
+                List.of(vehicleMapper.toResponse(first), vehicleMapper.toResponse(second))), array);
+
+        // CBOR: el mismo árbol que el JSON, también desde la caché fuera del heap
+        ObjectMapper cborMapper = objectMapper.copyWith(new CBORFactory());
+        for (VehicleRepresentationCache anyCache : List.of(cache, cache(1 << 20, true))) {
+            EncodedVehicles cbor = anyCache.encodeAll(List.of(first, second), RepresentationFormat.CBOR);
+            byte[] cborBytes = bytes(cbor);
+            assertEquals(cborBytes.length, cbor.contentLength());
+            assertEquals(objectMapper.readTree(array), cborMapper.readTree(cborBytes));
+        }
+    }
+
+    @Test
+    void encode_ShouldRegenerateUpdatedVehiclesAndForgetDeletedOnes() throws IOException {
+        VehicleRepresentationCache cache = cache(1 << 20, false);
+        Vehicle vehicle = vehicle(1L, "AAA111");
+        byte[] before = bytes(cache.encode(vehicle, RepresentationFormat.JSON));
+
+        // Un cambio sin nuevo updatedAt no se ve: la entrada sigue siendo válida
+        vehicle.setColor("Rojo");
+        assertArrayEquals(before, bytes(cache.encode(vehicle, RepresentationFormat.JSON)));
+
+        // Con el updatedAt que pone @PreUpdate la entrada se regenera
+        vehicle.setUpdatedAt(vehicle.getUpdatedAt().plusSeconds(1));
+        String after = new String(bytes(cache.encode(vehicle, RepresentationFormat.JSON)));
+        assertTrue(after.contains("\"color\":\"Rojo\""), after);
+        assertEquals(1, cache.size());
+
+        cache.evict(vehicle.getId());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.currentBytes());
+    }
+
+    @Test
+    void encode_ShouldEvictLeastRecentlyUsedVehiclesBeyondTheByteBudget() throws IOException {
+        Vehicle first = vehicle(1L, "AAA111");
+        Vehicle second = vehicle(2L, "BBB222");
+        Vehicle third = vehicle(3L, "CCC333");
+        int size = objectMapper.writeValueAsBytes(vehicleMapper.toResponse(first)).length;
+        VehicleRepresentationCache cache = cache(2L * size, false);
+
+        cache.encode(first, RepresentationFormat.JSON);
+        cache.encode(second, RepresentationFormat.JSON);
+        cache.encode(first, RepresentationFormat.JSON);
+        cache.encode(third, RepresentationFormat.JSON);
+
+        // second era el menos usado: sale y quedan first y third dentro del presupuesto
+        assertEquals(2, cache.size());
+        assertEquals(2L * size, cache.currentBytes());
+        // Quitar una entrada ya expulsada no descuenta dos veces
+        cache.evict(second.getId());
+        assertEquals(2L * size, cache.currentBytes());
+        cache.evict(first.getId());
+        assertEquals(size, cache.currentBytes());
+    }
+
+    @Test
+    void fromAcceptHeader_ShouldHonorQualityValuesAndSpecificity() {
+        assertEquals(RepresentationFormat.JSON, RepresentationFormat.fromAcceptHeader(null));
+        assertEquals(RepresentationFormat.JSON, RepresentationFormat.fromAcceptHeader("*/*"));
+        assertEquals(RepresentationFormat.CBOR, RepresentationFormat.fromAcceptHeader("application/cbor"));
+        assertEquals(RepresentationFormat.CBOR, RepresentationFormat.fromAcceptHeader("application/cbor, */*;q=0.5"));
+        assertEquals(RepresentationFormat.CBOR, RepresentationFormat.fromAcceptHeader("application/json;q=0.5, application/cbor"));
+        assertEquals(RepresentationFormat.JSON, RepresentationFormat.fromAcceptHeader("application/json, application/cbor;q=0"));
+        assertEquals(RepresentationFormat.JSON, RepresentationFormat.fromAcceptHeader("application/cbor;q=0.5, application/json"));
+        assertEquals(RepresentationFormat.JSON, RepresentationFormat.fromAcceptHeader("application/*, application/cbor;q=0"));
+        assertEquals(RepresentationFormat.CBOR, RepresentationFormat.fromAcceptHeader("application/cbor, application/*"));
+        assertEquals(RepresentationFormat.JSON, RepresentationFormat.fromAcceptHeader("application/json, application/cbor"));
+        assertEquals(RepresentationFormat.JSON, RepresentationFormat.fromAcceptHeader("not a media type"));
+    }
+
+    private VehicleRepresentationCache cache(long maxBytes, boolean offHeap) {
+        return new VehicleRepresentationCache(vehicleMapper, objectMapper, maxBytes, offHeap);
+    }
+
+    private static Vehicle vehicle(Long id, String plate) {
+        User owner = User.builder().id(7L).email("owner@mail.com").build();
+        return Vehicle.builder()
+                .id(id).licensePlate(plate).make("Mazda").model("3").year(2020)
+                .vehicleType(VehicleType.CAR).user(owner)
+                .createdAt(CREATED).updatedAt(CREATED)
+                .build();
+    }
+
+    private static byte[] bytes(EncodedVehicles encoded) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoded.writeTo(out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,172 @@
+package com.keepup.vehicle.service;
+
+import com.keepup.auth.entity.Role;
+import com.keepup.auth.entity.User;
+import com.keepup.core.lease.JobLeaseManager;
+import com.keepup.core.storage.BlobStore;
+import com.keepup.core.storage.LocalFileStorage;
+import com.keepup.vehicle.cache.VehicleOwnershipCache;
+import com.keepup.core.exception.BadRequestException;
+import com.keepup.vehicle.dto.DateCursor;
+import com.keepup.vehicle.dto.DocumentDTO;
+import com.keepup.vehicle.dto.DocumentExpiryPage;
+import com.keepup.vehicle.dto.DocumentExpiryView;
+import com.keepup.vehicle.dto.VehiclePage;
+import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.enums.DocumentType;
+import com.keepup.vehicle.enums.VehicleType;
+import com.keepup.vehicle.mapper.DocumentMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+// Usa el H2 de src/test/resources (modo PostgreSQL y NON_KEYWORDS) en lugar de uno embebido genérico
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DocumentService.class, DocumentMapper.class, LocalFileStorage.class, BlobStore.class,
+        JobLeaseManager.class, VehicleOwnershipCache.class, SimpleMeterRegistry.class})
+class DocumentServiceTest {
+
+    private static final LocalDate BASE = LocalDate.of(2030, 1, 1);
+
+    @Autowired
+    private DocumentService documentService;
+    @Autowired
+    private EntityManager entityManager;
+
+    private User owner;
+    private Vehicle vehicle;
+
+    @BeforeEach
+    void setUp() {
+        Role role = new Role(null, "ROLE_CLIENT", "Cliente");
+        entityManager.persist(role);
+        owner = User.builder().name("Owner").email("owner@mail.com").password("x").role(role).build();
+        entityManager.persist(owner);
+        vehicle = Vehicle.builder()
+                .licensePlate("ABC123").make("Mazda").model("3").year(2020)
+                .vehicleType(VehicleType.CAR).user(owner)
+                .build();
+        entityManager.persist(vehicle);
+    }
+
+    @Test
+    void findExpiring_ShouldWalkAllPagesInExpiryOrder() {
+        // 3 documentos por día durante 4 días: las páginas de 5 cortan en mitad de un día
+        for (int day = 0; day < 4; day++) {
+            for (int i = 0; i < 3; i++) {
+                documentService.create(vehicle.getId(), document(BASE.plusDays(day)), owner.getId());
+            }
+        }
+
+        List<DocumentExpiryView> seen = new ArrayList<>();
+        DocumentExpiryPage.Cursor cursor = null;
+        do {
+            DocumentExpiryPage page = documentService.findExpiring(BASE.plusDays(1), BASE.plusDays(2), cursor, 5);
+            seen.addAll(page.items());
+            cursor = page.next();
+        } while (cursor != null);
+
+        assertEquals(6, seen.size());
+        for (int i = 1; i < seen.size(); i++) {
+            DocumentExpiryView previous = seen.get(i - 1);
+            DocumentExpiryView current = seen.get(i);
+            boolean ordered = previous.expiryDate().isBefore(current.expiryDate())
+                    || (previous.expiryDate().equals(current.expiryDate())
+                    && previous.documentId() < current.documentId());
+            assertEquals(true, ordered, "Out of order at " + i);
+        }
+        assertEquals(owner.getId(), seen.get(0).userId());
+        assertEquals("ABC123", seen.get(0).licensePlate());
+    }
+
+    @Test
+    void findExpiring_ShouldReturnOnlyDocumentsOfOwnedPartitions() {
+        User other = User.builder().name("Other").email("other@mail.com").password("x").role(owner.getRole()).build();
+        entityManager.persist(other);
+        Vehicle otherVehicle = Vehicle.builder()
+                .licensePlate("XYZ789").make("Kia").model("Rio").year(2021)
+                .vehicleType(VehicleType.CAR).user(other)
+                .build();
+        entityManager.persist(otherVehicle);
+        for (int i = 0; i < 3; i++) {
+            documentService.create(vehicle.getId(), document(BASE), owner.getId());
+            documentService.create(otherVehicle.getId(), document(BASE), other.getId());
+        }
+        int partition = JobLeaseManager.partitionOf(owner.getId(), 4);
+        assertTrue(partition != JobLeaseManager.partitionOf(other.getId(), 4));
+
+        DocumentExpiryPage page = documentService.findExpiring(BASE, BASE, List.of(partition), 4, null, 10);
+
+        assertEquals(3, page.items().size());
+        assertTrue(page.items().stream().allMatch(item -> item.userId().equals(owner.getId())));
+        // Con 3 particiones un usuario quedaría repartido entre varias cubetas
+        assertThrows(IllegalArgumentException.class,
+                () -> documentService.findExpiring(BASE, BASE, List.of(0), 3, null, 10));
+    }
+
+    @Test
+    void getAll_ShouldPageByCursorWithTiedExpiryDates() {
+        List<Long> created = new ArrayList<>();
+        for (int day : new int[]{2, 0, 1, 0, 1}) {
+            created.add(documentService.create(vehicle.getId(), document(BASE.plusDays(day)), owner.getId()).getId());
+        }
+
+        List<DocumentDTO> seen = new ArrayList<>();
+        DateCursor cursor = null;
+        do {
+            VehiclePage<DocumentDTO> page = documentService.getAll(vehicle.getId(),
+                    cursor != null ? DateCursor.parse(cursor.toString()) : null, 2, owner.getId());
+            assertTrue(page.items().size() <= 2);
+            seen.addAll(page.items());
+            cursor = page.next();
+        } while (cursor != null);
+
+        // Por vencimiento y, a igual fecha, por id; sin repetir ni saltar ninguno
+        assertEquals(List.of(created.get(1), created.get(3), created.get(2), created.get(4), created.get(0)),
+                seen.stream().map(DocumentDTO::getId).toList());
+        assertThrows(BadRequestException.class, () -> DateCursor.parse("2030-01-01"));
+    }
+
+    @Test
+    void nextDocumentExpiry_ShouldFollowEarliestDocument() {
+        DocumentDTO later = documentService.create(vehicle.getId(), document(BASE.plusDays(30)), owner.getId());
+        assertEquals(BASE.plusDays(30), reloadVehicle().getNextDocumentExpiry());
+
+        DocumentDTO sooner = documentService.create(vehicle.getId(), document(BASE.plusDays(10)), owner.getId());
+        assertEquals(BASE.plusDays(10), reloadVehicle().getNextDocumentExpiry());
+
+        documentService.update(vehicle.getId(), sooner.getId(), document(BASE.plusDays(60)), owner.getId());
+        assertEquals(BASE.plusDays(30), reloadVehicle().getNextDocumentExpiry());
+
+        documentService.delete(vehicle.getId(), later.getId(), owner.getId());
+        assertEquals(BASE.plusDays(60), reloadVehicle().getNextDocumentExpiry());
+
+        documentService.delete(vehicle.getId(), sooner.getId(), owner.getId());
+        assertNull(reloadVehicle().getNextDocumentExpiry());
+    }
+
+    private Vehicle reloadVehicle() {
+        entityManager.flush();
+        entityManager.clear();
+        return entityManager.find(Vehicle.class, vehicle.getId());
+    }
+
+    private static DocumentDTO document(LocalDate expiryDate) {
+        return DocumentDTO.builder().type(DocumentType.SOAT).expiryDate(expiryDate).build();
+    }
+}
@@ -0,0 +1,220 @@
+package com.keepup.vehicle.service;
+
+import com.keepup.auth.entity.Role;
+import com.keepup.auth.entity.User;
+import com.keepup.core.exception.BadRequestException;
+import com.keepup.core.exception.ConflictException;
+import com.keepup.core.exception.ResourceNotFoundException;
+import com.keepup.core.lease.JobLeaseManager;
+import com.keepup.core.storage.BlobStore;
+import com.keepup.core.storage.LocalFileStorage;
+import com.keepup.core.storage.StoredBlobRepository;
+import com.keepup.vehicle.cache.VehicleOwnershipCache;
+import com.keepup.vehicle.dto.DocumentDTO;
+import com.keepup.vehicle.dto.UploadSessionDTO;
+import com.keepup.vehicle.dto.UploadSessionRequest;
+import com.keepup.vehicle.entity.UploadSession;
+import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.enums.DocumentType;
+import com.keepup.vehicle.enums.VehicleType;
+import com.keepup.vehicle.mapper.DocumentMapper;
+import com.keepup.vehicle.repository.UploadSessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DocumentUploadService.class, DocumentFileService.class, DocumentService.class, DocumentMapper.class,
+        LocalFileStorage.class, BlobStore.class, JobLeaseManager.class, VehicleOwnershipCache.class,
+        SimpleMeterRegistry.class})
+// Buffers de 4 bytes: cada fragmento pasa por varios ciclos de lectura y escritura
+@TestPropertySource(properties = {"keepup.uploads.buffer-count=1", "keepup.uploads.buffer-size=4B"})
+// La subida abre sus propias transacciones (sin transacción mientras se reciben los bytes)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DocumentUploadServiceTest {
+
+    private static final byte[] CONTENT = "%PDF-1.4 resumable scan".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private DocumentUploadService uploadService;
+    @Autowired
+    private DocumentService documentService;
+    @Autowired
+    private UploadSessionRepository sessionRepository;
+    @Autowired
+    private StoredBlobRepository blobRepository;
+    @Autowired
+    private BlobStore blobStore;
+    @Autowired
+    private LocalFileStorage fileStorage;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long userId;
+    private Long vehicleId;
+    private Long documentId;
+
+    @BeforeEach
+    void setUp() {
+        // Los datos se confirman de verdad: cada prueba usa su propio usuario y vehículo
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        Vehicle vehicle = new TransactionTemplate(transactionManager).execute(status -> {
+            Role role = entityManager.createQuery("SELECT r FROM Role r WHERE r.name = 'ROLE_CLIENT'", Role.class)
+                    .getResultStream().findFirst()
+                    .orElseGet(() -> {
+                        Role created = new Role(null, "ROLE_CLIENT", "Cliente");
+                        entityManager.persist(created);
+                        return created;
+                    });
+            User owner = User.builder().name("Owner").email(suffix + "@mail.com").password("x").role(role).build();
+            entityManager.persist(owner);
+            Vehicle created = Vehicle.builder()
+                    .licensePlate("UP" + suffix).make("Mazda").model("3").year(2020)
+                    .vehicleType(VehicleType.CAR).user(owner)
+                    .build();
+            entityManager.persist(created);
+            return created;
+        });
+        userId = vehicle.getUser().getId();
+        vehicleId = vehicle.getId();
+        documentId = documentService.create(vehicleId,
+                DocumentDTO.builder().type(DocumentType.SOAT).expiryDate(LocalDate.of(2030, 1, 1)).build(),
+                userId).getId();
+    }
+
+    @Test
+    void writeChunk_ShouldRejectWrongOffsetWithCurrentOffset() throws Exception {
+        UploadSessionDTO session = create();
+        write(session, 0, Arrays.copyOfRange(CONTENT, 0, 10));
+
+        // Reintento de un fragmento ya confirmado
+        ConflictException conflict = assertThrows(ConflictException.class,
+                () -> write(session, 0, Arrays.copyOfRange(CONTENT, 0, 10)));
+        assertEquals("10", conflict.getHeaders().getFirst(DocumentUploadService.UPLOAD_OFFSET_HEADER));
+        // Fragmento que se salta bytes
+        conflict = assertThrows(ConflictException.class,
+                () -> write(session, 12, Arrays.copyOfRange(CONTENT, 12, CONTENT.length)));
+        assertEquals("10", conflict.getHeaders().getFirst(DocumentUploadService.UPLOAD_OFFSET_HEADER));
+
+        assertEquals(10, status(session).getOffset());
+    }
+
+    @Test
+    void writeChunk_ShouldCommitPartialChunkWhenClientDisconnects() throws Exception {
+        UploadSessionDTO session = create();
+        InputStream cut = new SequenceInputStream(new ByteArrayInputStream(CONTENT, 0, 7), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset by peer");
+            }
+        });
+
+        assertThrows(IOException.class, () -> uploadService.writeChunk(vehicleId, documentId, session.getId(), 0,
+                cut, CONTENT.length, userId));
+
+        assertEquals(7, status(session).getOffset());
+        write(session, 7, Arrays.copyOfRange(CONTENT, 7, CONTENT.length));
+        assertArrayEquals(CONTENT, Files.readAllBytes(partPath(session)));
+    }
+
+    @Test
+    void complete_ShouldRejectChecksumMismatchAndKeepUpload() throws Exception {
+        UploadSessionDTO session = create();
+        write(session, 0, CONTENT);
+
+        assertThrows(BadRequestException.class, () -> uploadService.complete(vehicleId, documentId, session.getId(),
+                "0".repeat(64), userId));
+
+        // El cliente puede reintentar la finalización sin volver a subir nada
+        assertEquals(CONTENT.length, status(session).getOffset());
+        assertTrue(Files.exists(partPath(session)));
+        assertNull(documentService.getById(vehicleId, documentId, userId).getFileSha256());
+    }
+
+    @Test
+    void complete_ShouldMoveFileIntoBlobStore() throws Exception {
+        UploadSessionDTO session = create();
+        write(session, 0, Arrays.copyOfRange(CONTENT, 0, 5));
+        write(session, 5, Arrays.copyOfRange(CONTENT, 5, CONTENT.length));
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(CONTENT));
+
+        DocumentDTO document = uploadService.complete(vehicleId, documentId, session.getId(), sha256, userId);
+
+        assertEquals(sha256, document.getFileSha256());
+        assertEquals(CONTENT.length, document.getFileSize());
+        assertEquals(1, blobRepository.findById(sha256).orElseThrow().getRefCount());
+        assertTrue(fileStorage.exists(blobStore.blobKey(sha256)));
+        assertFalse(Files.exists(partPath(session)));
+        assertThrows(ResourceNotFoundException.class, () -> status(session));
+    }
+
+    @Test
+    void cleanupExpired_ShouldRemoveOnlyExpiredUploads() throws Exception {
+        UploadSessionDTO expired = create();
+        UploadSessionDTO active = create();
+        UploadSession stored = sessionRepository.findById(expired.getId()).orElseThrow();
+        stored.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        sessionRepository.save(stored);
+
+        uploadService.cleanupExpired();
+
+        assertFalse(sessionRepository.existsById(expired.getId()));
+        assertFalse(Files.exists(partPath(expired)));
+        assertTrue(sessionRepository.existsById(active.getId()));
+        assertTrue(Files.exists(partPath(active)));
+    }
+
+    private UploadSessionDTO create() throws IOException {
+        UploadSessionRequest request = UploadSessionRequest.builder()
+                .contentType("application/pdf").fileName("soat.pdf").length((long) CONTENT.length)
+                .build();
+        return uploadService.create(vehicleId, documentId, request, userId);
+    }
+
+    private void write(UploadSessionDTO session, long offset, byte[] chunk) throws IOException {
+        uploadService.writeChunk(vehicleId, documentId, session.getId(), offset, new ByteArrayInputStream(chunk),
+                chunk.length, userId);
+    }
+
+    private UploadSessionDTO status(UploadSessionDTO session) {
+        return uploadService.getStatus(vehicleId, documentId, session.getId(), userId);
+    }
+
+    private Path partPath(UploadSessionDTO session) {
+        return fileStorage.resolve("uploads/" + session.getId() + ".part");
+    }
+}
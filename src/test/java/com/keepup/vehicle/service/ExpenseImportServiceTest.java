@@ -0,0 +1,91 @@
+package com.keepup.vehicle.service;
+
+import com.keepup.auth.entity.Role;
+import com.keepup.auth.entity.User;
+import com.keepup.vehicle.cache.VehicleOwnershipCache;
+import com.keepup.vehicle.dto.ExpenseImportResult;
+import com.keepup.vehicle.dto.MonthlyExpenseTotal;
+import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.enums.VehicleType;
+import com.keepup.vehicle.mapper.ExpenseMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "keepup.expenses.import.chunk-size=2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ExpenseImportService.class, ExpenseService.class, ExpenseRollupService.class, ExpenseMapper.class,
+        VehicleOwnershipCache.class, SimpleMeterRegistry.class})
+class ExpenseImportServiceTest {
+
+    private static final String FEED = """
+            Plate;Date;Category;Amount;Reference;Description
+            abc 123;2025-01-05;fuel;100,50;T-1;"Estación ""Norte""\"
+            ABC123;2025-01-20;FUEL;50.00;T-2;
+            ZZZ999;2025-01-21;FUEL;20.00;T-3;
+            ABC123;2025-02-01;TOLLS;-5;T-4;
+            ABC123;2025-02-02;TOLLS;12.00;T-2;
+            ABC123;2025-02-03;TOLLS;8.00;T-5;
+            """;
+
+    @Autowired
+    private ExpenseImportService importService;
+    @Autowired
+    private ExpenseService expenseService;
+    @Autowired
+    private EntityManager entityManager;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        Role role = new Role(null, "ROLE_CLIENT", "Cliente");
+        entityManager.persist(role);
+        owner = User.builder().name("Owner").email("owner@mail.com").password("x").role(role).build();
+        entityManager.persist(owner);
+        entityManager.persist(Vehicle.builder()
+                .licensePlate("ABC123").make("Mazda").model("3").year(2020)
+                .vehicleType(VehicleType.CAR).user(owner)
+                .build());
+    }
+
+    @Test
+    void importCsv_ShouldSkipDuplicatesAndReportRejectedRows() throws IOException {
+        ExpenseImportResult first = importService.importCsv(csv(FEED), owner.getId());
+
+        assertEquals(6, first.rows());
+        assertEquals(3, first.imported());
+        assertEquals(1, first.duplicates());
+        assertEquals(2, first.rejected());
+        assertEquals(List.of(3L, 4L), first.errors().stream().map(ExpenseImportResult.RowError::row).sorted().toList());
+
+        // Reenviar el archivo no crea gastos nuevos
+        ExpenseImportResult second = importService.importCsv(csv(FEED), owner.getId());
+        assertEquals(0, second.imported());
+        assertEquals(4, second.duplicates());
+
+        List<MonthlyExpenseTotal> months = expenseService.getMonthlyTotals(
+                YearMonth.of(2025, 1), YearMonth.of(2025, 2), null, owner.getId());
+        assertEquals(List.of(
+                new MonthlyExpenseTotal(YearMonth.of(2025, 1), new BigDecimal("150.50"), 2),
+                new MonthlyExpenseTotal(YearMonth.of(2025, 2), new BigDecimal("8.00"), 1)), months);
+    }
+
+    private static ByteArrayInputStream csv(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,174 @@
+package com.keepup.vehicle.service;
+
+import com.keepup.auth.entity.Role;
+import com.keepup.auth.entity.User;
+import com.keepup.vehicle.cache.VehicleOwnershipCache;
+import com.keepup.vehicle.dto.CategoryExpenseTotal;
+import com.keepup.vehicle.dto.DateCursor;
+import com.keepup.vehicle.dto.ExpenseDTO;
+import com.keepup.vehicle.dto.ExpenseSeries;
+import com.keepup.vehicle.dto.ExpenseSeriesPoint;
+import com.keepup.vehicle.dto.MonthlyExpenseTotal;
+import com.keepup.vehicle.dto.VehiclePage;
+import com.keepup.vehicle.entity.ExpenseMonthlyRollup;
+import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.enums.ExpenseCategory;
+import com.keepup.vehicle.enums.SeriesBucket;
+import com.keepup.vehicle.enums.VehicleType;
+import com.keepup.vehicle.mapper.ExpenseMapper;
+import com.keepup.vehicle.repository.ExpenseRollupRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ExpenseService.class, ExpenseRollupService.class, ExpenseMapper.class,
+        VehicleOwnershipCache.class, SimpleMeterRegistry.class})
+class ExpenseServiceTest {
+
+    @Autowired
+    private ExpenseService expenseService;
+    @Autowired
+    private ExpenseRollupService rollupService;
+    @Autowired
+    private ExpenseRollupRepository rollupRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    private User owner;
+    private Vehicle vehicle;
+
+    @BeforeEach
+    void setUp() {
+        Role role = new Role(null, "ROLE_CLIENT", "Cliente");
+        entityManager.persist(role);
+        owner = User.builder().name("Owner").email("owner@mail.com").password("x").role(role).build();
+        entityManager.persist(owner);
+        vehicle = Vehicle.builder()
+                .licensePlate("ABC123").make("Mazda").model("3").year(2020)
+                .vehicleType(VehicleType.CAR).user(owner)
+                .build();
+        entityManager.persist(vehicle);
+    }
+
+    @Test
+    void rollups_ShouldFollowEveryChangeAndMatchRebuild() {
+        Long vehicleId = vehicle.getId();
+        Long userId = owner.getId();
+        expenseService.create(vehicleId, expense(ExpenseCategory.FUEL, "100.00", LocalDate.of(2025, 1, 5)), userId);
+        expenseService.create(vehicleId, expense(ExpenseCategory.FUEL, "50.50", LocalDate.of(2025, 1, 20)), userId);
+        ExpenseDTO repair = expenseService.create(vehicleId,
+                expense(ExpenseCategory.REPAIR, "300.00", LocalDate.of(2025, 1, 9)), userId);
+        ExpenseDTO toll = expenseService.create(vehicleId,
+                expense(ExpenseCategory.TOLLS, "10.00", LocalDate.of(2025, 2, 1)), userId);
+
+        // Cambia de mes y de categoría, y otro solo de importe
+        expenseService.update(vehicleId, repair.getId(),
+                expense(ExpenseCategory.MAINTENANCE, "250.00", LocalDate.of(2025, 3, 2)), userId);
+        expenseService.update(vehicleId, toll.getId(),
+                expense(ExpenseCategory.TOLLS, "12.00", LocalDate.of(2025, 2, 15)), userId);
+        ExpenseDTO wash = expenseService.create(vehicleId,
+                expense(ExpenseCategory.WASH, "20.00", LocalDate.of(2025, 3, 3)), userId);
+        expenseService.delete(vehicleId, wash.getId(), userId);
+
+        List<MonthlyExpenseTotal> months = expenseService.getMonthlyTotals(
+                YearMonth.of(2025, 1), YearMonth.of(2025, 12), null, userId);
+        assertEquals(List.of(
+                new MonthlyExpenseTotal(YearMonth.of(2025, 1), new BigDecimal("150.50"), 2),
+                new MonthlyExpenseTotal(YearMonth.of(2025, 2), new BigDecimal("12.00"), 1),
+                new MonthlyExpenseTotal(YearMonth.of(2025, 3), new BigDecimal("250.00"), 1)), months);
+
+        List<CategoryExpenseTotal> categories = expenseService.getCategoryTotals(
+                YearMonth.of(2025, 1), YearMonth.of(2025, 12), vehicleId, userId);
+        assertEquals(ExpenseCategory.MAINTENANCE, categories.get(0).category());
+        assertEquals(3, categories.size());
+
+        List<ExpenseMonthlyRollup> incremental = nonEmptyRollups();
+        rollupService.rebuild();
+        entityManager.clear();
+        assertEquals(incremental, nonEmptyRollups());
+    }
+
+    @Test
+    void getSeries_ShouldReturnOnePointPerBucketIncludingEmptyOnes() {
+        Long vehicleId = vehicle.getId();
+        Long userId = owner.getId();
+        // Lunes 6 y miércoles 8 de enero, lunes 20 de enero de 2025
+        expenseService.create(vehicleId, expense(ExpenseCategory.FUEL, "10.00", LocalDate.of(2025, 1, 6)), userId);
+        expenseService.create(vehicleId, expense(ExpenseCategory.TOLLS, "5.00", LocalDate.of(2025, 1, 8)), userId);
+        expenseService.create(vehicleId, expense(ExpenseCategory.FUEL, "20.00", LocalDate.of(2025, 1, 20)), userId);
+
+        ExpenseSeries weeks = expenseService.getSeries(vehicleId,
+                LocalDate.of(2025, 1, 8), LocalDate.of(2025, 1, 21), "week", userId);
+        assertEquals(SeriesBucket.WEEK, weeks.bucket());
+        assertEquals(LocalDate.of(2025, 1, 6), weeks.from());
+        assertEquals(List.of(
+                new ExpenseSeriesPoint(LocalDate.of(2025, 1, 6), new BigDecimal("15.00"), 2),
+                new ExpenseSeriesPoint(LocalDate.of(2025, 1, 13), BigDecimal.ZERO, 0),
+                new ExpenseSeriesPoint(LocalDate.of(2025, 1, 20), new BigDecimal("20.00"), 1)),
+                weeks.points().stream()
+                        .map(point -> new ExpenseSeriesPoint(point.start(),
+                                point.count() > 0 ? point.total().setScale(2) : point.total(), point.count()))
+                        .toList());
+
+        // Dos años de días superan el máximo de puntos: se agrupa por semanas
+        ExpenseSeries downsampled = expenseService.getSeries(null,
+                LocalDate.of(2024, 1, 1), LocalDate.of(2025, 12, 31), "day", userId);
+        assertEquals(SeriesBucket.WEEK, downsampled.bucket());
+        assertEquals(downsampled.points().size(), SeriesBucket.WEEK.count(downsampled.from(), downsampled.to()));
+    }
+
+    @Test
+    void getAll_ShouldPageByCursorFromNewestToOldest() {
+        List<Long> created = new ArrayList<>();
+        for (int day : new int[]{1, 3, 2, 3, 1}) {
+            created.add(expenseService.create(vehicle.getId(),
+                    expense(ExpenseCategory.FUEL, "10.00", LocalDate.of(2030, 1, day)), owner.getId()).getId());
+        }
+
+        List<Long> seen = new ArrayList<>();
+        DateCursor cursor = null;
+        do {
+            VehiclePage<ExpenseDTO> page = expenseService.getAll(vehicle.getId(), cursor, 2, owner.getId());
+            page.items().forEach(expense -> seen.add(expense.getId()));
+            cursor = page.next();
+        } while (cursor != null);
+
+        // Del más reciente al más antiguo y, a igual fecha, del id mayor al menor
+        assertEquals(List.of(created.get(3), created.get(1), created.get(2), created.get(4), created.get(0)), seen);
+    }
+
+    private List<ExpenseMonthlyRollup> nonEmptyRollups() {
+        entityManager.flush();
+        entityManager.clear();
+        return rollupRepository.findAll().stream()
+                .filter(rollup -> rollup.getCount() > 0)
+                .map(rollup -> {
+                    // Escala uniforme para comparar acumulados incrementales y reconstruidos
+                    rollup.setTotal(rollup.getTotal().setScale(2));
+                    return rollup;
+                })
+                .sorted(Comparator.comparing(ExpenseMonthlyRollup::getMonthStart)
+                        .thenComparing(ExpenseMonthlyRollup::getCategory))
+                .toList();
+    }
+
+    private static ExpenseDTO expense(ExpenseCategory category, String amount, LocalDate date) {
+        return ExpenseDTO.builder().category(category).amount(new BigDecimal(amount)).date(date).build();
+    }
+}
@@ -0,0 +1,96 @@
+package com.keepup.vehicle.service;
+
+import com.keepup.core.lease.JobLeaseManager;
+import com.keepup.core.storage.BlobStore;
+import com.keepup.core.storage.LocalFileStorage;
+import com.keepup.core.storage.StoredFile;
+import com.keepup.vehicle.enums.PhotoRendition;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({PhotoRenditionService.class, BlobStore.class, LocalFileStorage.class, JobLeaseManager.class})
+@TestPropertySource(properties = "keepup.storage.gc.grace=PT0S")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PhotoRenditionServiceTest {
+
+    @Autowired
+    private PhotoRenditionService renditionService;
+    @Autowired
+    private BlobStore blobStore;
+    @Autowired
+    private LocalFileStorage fileStorage;
+
+    @Test
+    void request_ShouldRenderEveryRenditionKeepingAspectRatio() throws Exception {
+        StoredFile photo = stagePhoto(2000, 1000);
+        blobStore.acquire(photo);
+
+        renditionService.request(photo.sha256());
+        StoredFile thumb = await(photo.sha256(), PhotoRendition.THUMB);
+
+        BufferedImage thumbImage = ImageIO.read(fileStorage.resolve(thumb.key()).toFile());
+        assertEquals(160, thumbImage.getWidth());
+        assertEquals(80, thumbImage.getHeight());
+        BufferedImage large = ImageIO.read(fileStorage.resolve(
+                renditionService.find(photo.sha256(), PhotoRendition.LARGE).orElseThrow().key()).toFile());
+        assertEquals(1280, large.getWidth());
+        assertEquals(640, large.getHeight());
+    }
+
+    @Test
+    void sweep_ShouldDeleteRenditionsWithTheirPhoto() throws Exception {
+        StoredFile photo = stagePhoto(300, 200);
+        blobStore.acquire(photo);
+        renditionService.request(photo.sha256());
+        StoredFile thumb = await(photo.sha256(), PhotoRendition.THUMB);
+        assertTrue(fileStorage.exists(thumb.key()));
+
+        blobStore.release(photo.sha256(), 1);
+        blobStore.sweep();
+
+        assertFalse(fileStorage.exists(thumb.key()));
+        assertFalse(fileStorage.exists(blobStore.derivedKey(photo.sha256())));
+    }
+
+    private StoredFile stagePhoto(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color((int) System.nanoTime() & 0xFFFFFF));
+        g.fillOval(0, 0, width, height);
+        g.dispose();
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        return blobStore.stage(new ByteArrayInputStream(png.toByteArray()), "image/png", 1 << 24, null);
+    }
+
+    private StoredFile await(String sha256, PhotoRendition rendition) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            Optional<StoredFile> found = renditionService.find(sha256, rendition);
+            if (found.isPresent()) {
+                return found.get();
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Rendition " + rendition + " was not generated");
+    }
+}
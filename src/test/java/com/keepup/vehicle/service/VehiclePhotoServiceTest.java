@@ -0,0 +1,154 @@
+package com.keepup.vehicle.service;
+
+import com.keepup.auth.entity.Role;
+import com.keepup.auth.entity.User;
+import com.keepup.core.exception.UnsupportedMediaTypeException;
+import com.keepup.core.lease.JobLeaseManager;
+import com.keepup.core.storage.BlobStore;
+import com.keepup.core.storage.LocalFileStorage;
+import com.keepup.core.storage.StoredBlobRepository;
+import com.keepup.vehicle.cache.VehicleOwnershipCache;
+import com.keepup.vehicle.dto.VehicleResponse;
+import com.keepup.vehicle.entity.Vehicle;
+import com.keepup.vehicle.enums.VehicleType;
+import com.keepup.vehicle.mapper.VehicleMapper;
+import com.keepup.vehicle.repository.VehicleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({VehiclePhotoService.class, PhotoRenditionService.class, VehicleMapper.class, VehicleOwnershipCache.class,
+        BlobStore.class, LocalFileStorage.class, JobLeaseManager.class, SimpleMeterRegistry.class})
+// La subida abre su propia transacción: cada paso confirma de verdad
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VehiclePhotoServiceTest {
+
+    @Autowired
+    private VehiclePhotoService photoService;
+    @MockitoSpyBean
+    private VehicleRepository vehicleRepository;
+    @Autowired
+    private StoredBlobRepository blobRepository;
+    @Autowired
+    private BlobStore blobStore;
+    @Autowired
+    private LocalFileStorage fileStorage;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long userId;
+    private Long vehicleId;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        Vehicle vehicle = new TransactionTemplate(transactionManager).execute(status -> {
+            Role role = entityManager.createQuery("SELECT r FROM Role r WHERE r.name = 'ROLE_CLIENT'", Role.class)
+                    .getResultStream().findFirst()
+                    .orElseGet(() -> {
+                        Role created = new Role(null, "ROLE_CLIENT", "Cliente");
+                        entityManager.persist(created);
+                        return created;
+                    });
+            User owner = User.builder().name("Owner").email(suffix + "@mail.com").password("x").role(role).build();
+            entityManager.persist(owner);
+            Vehicle created = Vehicle.builder()
+                    .licensePlate("PH" + suffix).make("Mazda").model("3").year(2020)
+                    .vehicleType(VehicleType.CAR).user(owner)
+                    .build();
+            entityManager.persist(created);
+            return created;
+        });
+        userId = vehicle.getUser().getId();
+        vehicleId = vehicle.getId();
+    }
+
+    @Test
+    void upload_ShouldLeaveNoBlobWhenAttachTransactionFails() throws Exception {
+        byte[] photo = png();
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(photo));
+        doThrow(new DataIntegrityViolationException("save failed")).when(vehicleRepository).saveAndFlush(any());
+
+        assertThrows(DataIntegrityViolationException.class, () -> upload(photo));
+
+        assertFalse(blobRepository.existsById(sha256));
+        assertFalse(fileStorage.exists(blobStore.blobKey(sha256)), "Rolled back photo must not be left under blobs/");
+        assertNull(vehicleRepository.findById(vehicleId).orElseThrow().getPhotoSha256());
+    }
+
+    @Test
+    void upload_ShouldStorePhotoOnceAttached() throws Exception {
+        byte[] photo = png();
+
+        VehicleResponse response = upload(photo);
+
+        String sha256 = vehicleRepository.findById(vehicleId).orElseThrow().getPhotoSha256();
+        assertTrue(response.getPhotoUrl().contains(sha256));
+        assertEquals(1, blobRepository.findById(sha256).orElseThrow().getRefCount());
+        assertTrue(fileStorage.exists(blobStore.blobKey(sha256)));
+    }
+
+    @Test
+    void upload_ShouldMatchContentTypeByTypeAndSubtype() throws Exception {
+        byte[] photo = png();
+
+        upload(photo, "IMAGE/PNG; name=car.png");
+
+        assertEquals("image/png", vehicleRepository.findById(vehicleId).orElseThrow().getPhotoContentType());
+        assertThrows(UnsupportedMediaTypeException.class, () -> upload(photo, "image/*"));
+        assertThrows(UnsupportedMediaTypeException.class, () -> upload(photo, "image/gif"));
+        assertThrows(UnsupportedMediaTypeException.class, () -> upload(photo, "png"));
+    }
+
+    private VehicleResponse upload(byte[] photo) throws Exception {
+        return upload(photo, "image/png");
+    }
+
+    private VehicleResponse upload(byte[] photo, String contentType) throws Exception {
+        return photoService.upload(vehicleId, new ByteArrayInputStream(photo), contentType, photo.length, null, userId);
+    }
+
+    private static byte[] png() throws Exception {
+        BufferedImage image = new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color((int) System.nanoTime() & 0xFFFFFF));
+        g.fillRect(0, 0, 40, 20);
+        g.dispose();
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        return png.toByteArray();
+    }
+}